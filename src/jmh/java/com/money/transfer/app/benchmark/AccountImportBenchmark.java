@@ -0,0 +1,64 @@
+package com.money.transfer.app.benchmark;
+
+import com.money.transfer.app.entity.Account;
+import com.money.transfer.app.repository.AccountRepository;
+import com.money.transfer.app.service.AccountBulkService;
+import com.money.transfer.app.service.AccountFileFormat;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares loading {@code accounts} accounts through the bulk import, from CSV, with saving them one by one
+ * through JPA, the only way to create accounts before it. Every invocation loads new ids.
+ * <p>
+ * On the embedded H2 database the import goes through batched inserts, on PostgreSQL it would use {@code COPY}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountImportBenchmark extends ApplicationState {
+
+    @Param({"10000"})
+    public int accounts;
+
+    private AccountBulkService accountBulkService;
+
+    private AccountRepository accountRepository;
+
+    private int invocation;
+
+    @Override
+    protected void prepare() {
+        accountBulkService = bean(AccountBulkService.class);
+        accountRepository = bean(AccountRepository.class);
+    }
+
+    @Benchmark
+    public long bulkImport() {
+        StringBuilder csv = new StringBuilder("id,currency,balance\n");
+        String prefix = "import-" + invocation++ + "-";
+        for (int i = 0; i < accounts; i++) {
+            csv.append(prefix).append(i).append(",EUR,").append(i).append(".50\n");
+        }
+        return accountBulkService.importAccounts(AccountFileFormat.CSV,
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), error -> {
+                    throw new IllegalStateException(error.getError());
+                }).getImported();
+    }
+
+    @Benchmark
+    public long saveOneByOne() {
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < accounts; i++) {
+            accountRepository.save(new Account(null, i * 100L + 50, "EUR", now));
+        }
+        return accounts;
+    }
+}
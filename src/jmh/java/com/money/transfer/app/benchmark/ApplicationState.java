@@ -0,0 +1,103 @@
+package com.money.transfer.app.benchmark;
+
+import com.money.transfer.app.MoneyTransferApplication;
+import com.money.transfer.app.entity.Account;
+import com.money.transfer.app.repository.AccountRepository;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Boots the whole application once per trial against its own embedded H2 database and a
+ * {@link StubRateServer}, using the same settings as the integration specs.
+ * <p>
+ * Benchmarks extend this state, adding their own properties through {@link #properties()}
+ * and their data through {@link #prepare()}. Properties are passed as command line arguments,
+ * so they take precedence over every properties file.
+ */
+@State(Scope.Benchmark)
+public abstract class ApplicationState {
+
+    /**
+     * Balance given to every account created for a benchmark, large enough never to run out.
+     */
+    protected static final long BALANCE = Long.MAX_VALUE / 4;
+
+    protected ConfigurableApplicationContext context;
+
+    protected StubRateServer rateServer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        startApplication();
+        prepare();
+    }
+
+    private void startApplication() throws Exception {
+        rateServer = new StubRateServer(rateDelay());
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.config.import", "classpath:test.properties");
+        String database = UUID.randomUUID().toString();
+        properties.put("spring.datasource.url", "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL");
+        properties.put("spring.r2dbc.url", "r2dbc:h2:mem:///" + database + "?options=DB_CLOSE_DELAY=-1;MODE=PostgreSQL");
+        properties.put("exchange.rate.api.url", rateServer.url());
+        properties.put("server.port", 0);
+        properties.put("logging.level.root", "warn");
+        properties.putAll(properties());
+        context = new SpringApplicationBuilder(MoneyTransferApplication.class)
+                .run(properties.entrySet().stream()
+                        .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                        .toArray(String[]::new));
+    }
+
+    /**
+     * Prepares the data of the benchmark, once the application has started.
+     */
+    protected void prepare() {
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+        rateServer.close();
+    }
+
+    /**
+     * @return the delay of every response of the {@link StubRateServer}, none by default.
+     */
+    protected Duration rateDelay() {
+        return Duration.ZERO;
+    }
+
+    /**
+     * @return properties overriding the defaults of the benchmarked application.
+     */
+    protected Map<String, Object> properties() {
+        return Map.of();
+    }
+
+    protected <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Creates an account with a practically unlimited balance.
+     *
+     * @return the id of the account.
+     */
+    protected String createAccount(String currency) {
+        return bean(AccountRepository.class)
+                .save(new Account(null, BALANCE, currency, LocalDateTime.now()))
+                .getId();
+    }
+}
@@ -0,0 +1,70 @@
+package com.money.transfer.app.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the servlet stack, {@code /api/v1/transfer}, with the non-blocking one, {@code /api/v2/transfer},
+ * under load: every invocation posts a wave of {@code inFlight} cross-currency transfers at once over HTTP
+ * and waits for all of them, each between its own pair of accounts so that they do not contend on rows.
+ * With more transfers in flight than request threads, the servlet stack queues them while the
+ * non-blocking one keeps them all open.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentHttpTransferBenchmark extends ApplicationState {
+
+    @Param({"v1", "v2"})
+    public String api;
+
+    @Param({"16", "512"})
+    public int inFlight;
+
+    private HttpClient httpClient;
+
+    private List<HttpRequest> requests;
+
+    @Override
+    protected void prepare() {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        URI uri = URI.create("http://localhost:" + port + "/api/" + api + "/transfer");
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        requests = new ArrayList<>(inFlight);
+        for (int i = 0; i < inFlight; i++) {
+            String body = String.format("{\"sourceAccountId\":\"%s\",\"targetAccountId\":\"%s\",\"amount\":1,\"currency\":\"EUR\"}",
+                    createAccount("USD"), createAccount("JPY"));
+            requests.add(HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public int transferWave() {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>(inFlight);
+        for (HttpRequest request : requests) {
+            responses.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> pending : responses) {
+            HttpResponse<String> response = pending.join();
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Transfer failed with " + response.statusCode() + ": " + response.body());
+            }
+        }
+        return responses.size();
+    }
+}
@@ -0,0 +1,73 @@
+package com.money.transfer.app.benchmark;
+
+import com.money.transfer.app.dto.TransferRequestBody;
+import com.money.transfer.app.dto.TransferResponseBody;
+import com.money.transfer.app.service.BalanceSlotService;
+import com.money.transfer.app.service.MoneyTransferService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures concurrent transfers that all credit the same hot account, once per locking and persistence mode,
+ * with the hot account either holding its whole balance in its row or spreading credits over balance slots.
+ * Every benchmark thread debits an account of its own, so the only contention is on the hot account.
+ * <p>
+ * In optimistic mode a transfer that exhausts its attempts throws, and JMH reports the run as failed;
+ * the number of attempts is therefore raised for this benchmark.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class ContendedTransferBenchmark extends ApplicationState {
+
+    @Param({"pessimistic", "optimistic"})
+    public String lockingMode;
+
+    @Param({"direct", "ledger"})
+    public String persistenceMode;
+
+    @Param({"0", "16"})
+    public int balanceSlots;
+
+    private MoneyTransferService moneyTransferService;
+
+    private String hotAccountId;
+
+    @Override
+    protected Map<String, Object> properties() {
+        return Map.of("transfer.locking.mode", lockingMode,
+                "transfer.persistence.mode", persistenceMode,
+                "transfer.locking.optimistic.max-attempts", 1000);
+    }
+
+    @Override
+    protected void prepare() {
+        moneyTransferService = bean(MoneyTransferService.class);
+        hotAccountId = createAccount("EUR");
+        bean(BalanceSlotService.class).configure(hotAccountId, balanceSlots);
+    }
+
+    @State(Scope.Thread)
+    public static class Source {
+
+        private String accountId;
+
+        @Setup(Level.Trial)
+        public void createAccount(ContendedTransferBenchmark benchmark) {
+            accountId = benchmark.createAccount("EUR");
+        }
+    }
+
+    @Benchmark
+    public TransferResponseBody transferToHotAccount(Source source) {
+        return moneyTransferService.transfer(new TransferRequestBody(
+                source.accountId, hotAccountId, BigDecimal.ONE, "EUR"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.money.transfer.app.benchmark;
+
+import com.money.transfer.app.dto.TransferRequestBody;
+import com.money.transfer.app.dto.TransferResponseBody;
+import com.money.transfer.app.service.CurrencyRegistry;
+import com.money.transfer.app.service.ExchangeRateEngine;
+import com.money.transfer.app.service.MoneyTransferService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code MoneyTransferService.transfer} when both accounts need a conversion,
+ * with the rates served by the local {@link StubRateServer}.
+ * <p>
+ * The {@code refreshAfter} parameter controls how often cached rates are reloaded, from practically
+ * never, the steady state, to on almost every transfer, which keeps the outbound call on the hot path.
+ * {@link #exchangeRate()} measures the rate lookup on its own.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CrossCurrencyTransferBenchmark extends ApplicationState {
+
+    @Param({"1h", "1ms"})
+    public String refreshAfter;
+
+    private MoneyTransferService moneyTransferService;
+
+    private ExchangeRateEngine exchangeRateEngine;
+
+    private int eur;
+
+    private int jpy;
+
+    private String sourceAccountId;
+
+    private String targetAccountId;
+
+    @Override
+    protected Map<String, Object> properties() {
+        return Map.of("exchange.rate.cache.refresh-after", refreshAfter,
+                "exchange.rate.cache.ttl", "2h");
+    }
+
+    @Override
+    protected void prepare() {
+        moneyTransferService = bean(MoneyTransferService.class);
+        exchangeRateEngine = bean(ExchangeRateEngine.class);
+        eur = bean(CurrencyRegistry.class).ordinal("EUR");
+        jpy = bean(CurrencyRegistry.class).ordinal("JPY");
+        sourceAccountId = createAccount("USD");
+        targetAccountId = createAccount("JPY");
+    }
+
+    @Benchmark
+    public TransferResponseBody transfer() {
+        return moneyTransferService.transfer(new TransferRequestBody(
+                sourceAccountId, targetAccountId, BigDecimal.ONE, "EUR"));
+    }
+
+    @Benchmark
+    public double exchangeRate() {
+        return exchangeRateEngine.rates().rate(eur, jpy);
+    }
+}
@@ -0,0 +1,103 @@
+package com.money.transfer.app.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.ConnectionObserver;
+import reactor.netty.http.client.HttpClient;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures bursts of {@code burst} concurrent calls to the {@link StubRateServer}, which answers after
+ * {@link #RATE_DELAY}, through three clients: one opening a connection per call, the defaults every
+ * {@link WebClient} of the application used to share, and the pooled client tuned through
+ * {@code exchange.rate.http.*}.
+ * <p>
+ * Next to the throughput, the {@link Connections} counters report the connections every client opened, per burst:
+ * the tuned client keeps reusing at most {@code exchange.rate.http.max-connections} of them, where the defaults
+ * open as many as there are calls in flight, and the unpooled client one per call.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExchangeRateClientBenchmark extends ApplicationState {
+
+    private static final Duration RATE_DELAY = Duration.ofMillis(5);
+
+    @Param({"unpooled", "default", "tuned"})
+    public String client;
+
+    @Param({"64"})
+    public int burst;
+
+    private WebClient webClient;
+
+    private List<String> currencies;
+
+    private final LongAdder opened = new LongAdder();
+
+    @Override
+    protected Duration rateDelay() {
+        return RATE_DELAY;
+    }
+
+    @Override
+    protected Map<String, Object> properties() {
+        return Map.of("exchange.rate.prefetch.enabled", false);
+    }
+
+    @Override
+    protected void prepare() {
+        HttpClient httpClient = switch (client) {
+            case "unpooled" -> HttpClient.newConnection();
+            case "default" -> HttpClient.create();
+            case "tuned" -> bean(HttpClient.class);
+            default -> throw new IllegalArgumentException(client);
+        };
+        webClient = WebClient.builder()
+                .baseUrl(rateServer.url())
+                .clientConnector(new ReactorClientHttpConnector(httpClient.observe((connection, state) -> {
+                    if (state == ConnectionObserver.State.CONNECTED) {
+                        opened.increment();
+                    }
+                })))
+                .build();
+        currencies = List.of("USD", "EUR", "GBP", "JPY");
+    }
+
+    /**
+     * Connections opened and calls made, reported per burst alongside the throughput.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Connections {
+
+        public long connections;
+
+        public long calls;
+    }
+
+    @Benchmark
+    public long rateBurst(Connections counters) {
+        long before = opened.sum();
+        List<String> responses = Flux.range(0, burst)
+                .flatMap(i -> webClient.get()
+                        .uri(currencies.get(i % currencies.size()))
+                        .retrieve()
+                        .bodyToMono(String.class), burst)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+        counters.connections += opened.sum() - before;
+        counters.calls += responses.size();
+        return responses.size();
+    }
+}
@@ -0,0 +1,105 @@
+package com.money.transfer.app.benchmark;
+
+import com.money.transfer.app.dto.ExchangeRateResponse;
+import com.money.transfer.app.entity.Currency;
+import com.money.transfer.app.integration.ExchangeRateResponseDecoder;
+import com.money.transfer.app.service.CurrencyRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link ExchangeRateResponseDecoder} with the Jackson decoding into a map of boxed rates it replaced,
+ * on a response of {@value #RATES} currencies, the size of the one of the exchange rate API, of which only the
+ * supported ones are kept. The body arrives in buffers of {@code bufferSize} bytes.
+ * <p>
+ * Run with {@code -prof gc} to report the bytes allocated per decoded response, {@code gc.alloc.rate.norm}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExchangeRateDecodingBenchmark extends ApplicationState {
+
+    private static final int RATES = 160;
+
+    @Param({"512", "8192"})
+    public int bufferSize;
+
+    private ExchangeRateResponseDecoder streamingDecoder;
+
+    private Jackson2JsonDecoder jacksonDecoder;
+
+    private List<byte[]> chunks;
+
+    @Override
+    protected void prepare() {
+        streamingDecoder = bean(ExchangeRateResponseDecoder.class);
+        jacksonDecoder = new Jackson2JsonDecoder();
+        byte[] body = response(bean(CurrencyRegistry.class).currencies()).getBytes(StandardCharsets.UTF_8);
+        chunks = new ArrayList<>();
+        for (int offset = 0; offset < body.length; offset += bufferSize) {
+            chunks.add(Arrays.copyOfRange(body, offset, Math.min(offset + bufferSize, body.length)));
+        }
+    }
+
+    /**
+     * @return a response listing the supported currencies among unsupported ones, {@value #RATES} in total.
+     */
+    private static String response(List<Currency> supported) {
+        Set<String> codes = new HashSet<>();
+        supported.forEach(currency -> codes.add(currency.getCode()));
+        for (char first = 'Q'; codes.size() < RATES; first++) {
+            for (char second = 'A'; second <= 'Z' && codes.size() < RATES; second++) {
+                codes.add("" + first + second + 'X');
+            }
+        }
+        StringBuilder json = new StringBuilder("{\"result\":\"success\",\"base_code\":\"USD\",\"conversion_rates\":{");
+        int index = 0;
+        for (String code : codes) {
+            json.append(index == 0 ? "" : ",").append('"').append(code).append("\":").append(1 + index++ * 0.7315);
+        }
+        return json.append("}}").toString();
+    }
+
+    private Flux<DataBuffer> body() {
+        return Flux.fromIterable(chunks).map(DefaultDataBufferFactory.sharedInstance::wrap);
+    }
+
+    @Benchmark
+    public ExchangeRateResponse streamingDecoder() {
+        return streamingDecoder.decodeToMono(body(), ResolvableType.forClass(ExchangeRateResponse.class),
+                MediaType.APPLICATION_JSON, null).block();
+    }
+
+    @Benchmark
+    public Object jacksonDecoder() {
+        return jacksonDecoder.decodeToMono(body(), ResolvableType.forClass(BoxedExchangeRateResponse.class),
+                MediaType.APPLICATION_JSON, null).block();
+    }
+
+    /**
+     * The shape the responses were decoded into before the {@link ExchangeRateResponseDecoder}.
+     */
+    public static class BoxedExchangeRateResponse {
+
+        public String result;
+
+        public Map<String, Double> conversion_rates;
+    }
+}
@@ -0,0 +1,49 @@
+package com.money.transfer.app.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a same-currency transfer end to end, posted over HTTP to {@code /api/v1/transfer}
+ * on the embedded server, including JSON binding, the aspects and the exception handling.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HttpTransferBenchmark extends ApplicationState {
+
+    private HttpClient httpClient;
+
+    private HttpRequest request;
+
+    @Override
+    protected void prepare() {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        String body = String.format("{\"sourceAccountId\":\"%s\",\"targetAccountId\":\"%s\",\"amount\":1,\"currency\":\"EUR\"}",
+                createAccount("EUR"), createAccount("EUR"));
+        httpClient = HttpClient.newHttpClient();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/transfer"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    @Benchmark
+    public String transfer() throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Transfer failed with " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+}
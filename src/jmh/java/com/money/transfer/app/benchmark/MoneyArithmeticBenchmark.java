@@ -0,0 +1,38 @@
+package com.money.transfer.app.benchmark;
+
+import com.money.transfer.app.util.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the fixed-point conversion of {@link Money#convert} with the boxed {@code float}
+ * multiplication it replaced, on the same amounts and rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoneyArithmeticBenchmark {
+
+    private final Map<String, Float> floatRates = Map.of("JPY", 162.5f);
+
+    private final Map<String, Double> doubleRates = Map.of("JPY", 162.5d);
+
+    private long minorUnits = 1250;
+
+    private float amount = 12.5f;
+
+    @Benchmark
+    public float floatConversion() {
+        return amount * floatRates.get("JPY");
+    }
+
+    @Benchmark
+    public long minorUnitConversion() {
+        return Money.convert(minorUnits, 2, doubleRates.get("JPY"), 0);
+    }
+}
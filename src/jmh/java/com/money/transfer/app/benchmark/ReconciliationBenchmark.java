@@ -0,0 +1,62 @@
+package com.money.transfer.app.benchmark;
+
+import com.money.transfer.app.dto.ReconciliationReport;
+import com.money.transfer.app.service.ReconciliationService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reconciling {@value #ACCOUNTS} accounts against a table of millions of transactions, generated in the
+ * database when the trial starts, on a single worker and on every core ({@code parallelism} 0).
+ * <p>
+ * The balances are set to what the transactions add up to, so every account reconciles.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class ReconciliationBenchmark extends ApplicationState {
+
+    private static final int ACCOUNTS = 1000;
+
+    @Param({"2000000"})
+    public int transactions;
+
+    @Param({"1", "0"})
+    public int parallelism;
+
+    private ReconciliationService reconciliationService;
+
+    @Override
+    protected Map<String, Object> properties() {
+        return Map.of("reconciliation.parallelism", parallelism);
+    }
+
+    @Override
+    protected void prepare() {
+        JdbcTemplate jdbcTemplate = bean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO public.account (id, balance, currency, created_at, version, balance_slots, opening_balance) " +
+                "SELECT 'account-' || X, 0, 'EUR', CURRENT_TIMESTAMP, 0, 0, 1000000 FROM SYSTEM_RANGE(1, ?)", ACCOUNTS);
+        jdbcTemplate.update("INSERT INTO public.transaction (id, source_account_id, target_account_id, amount, currency, " +
+                "source_amount, target_amount, ordered_at) " +
+                "SELECT CAST(RANDOM_UUID() AS VARCHAR), 'account-' || (MOD(X, ?) + 1), 'account-' || (MOD(7 * X + 1, ?) + 1), " +
+                "MOD(X, 100) + 1, 'EUR', MOD(X, 100) + 1, MOD(X, 100) + 1, " +
+                "DATEADD('SECOND', X, TIMESTAMP '2020-01-01 00:00:00') FROM SYSTEM_RANGE(1, ?)",
+                ACCOUNTS, ACCOUNTS, transactions);
+        jdbcTemplate.update("UPDATE public.account a SET balance = a.opening_balance " +
+                "+ COALESCE((SELECT SUM(t.target_amount) FROM public.transaction t WHERE t.target_account_id = a.id), 0) " +
+                "- COALESCE((SELECT SUM(t.source_amount) FROM public.transaction t WHERE t.source_account_id = a.id), 0)");
+
+        reconciliationService = bean(ReconciliationService.class);
+    }
+
+    @Benchmark
+    public ReconciliationReport reconcile() {
+        return reconciliationService.reconcile();
+    }
+}
@@ -0,0 +1,101 @@
+package com.money.transfer.app.benchmark;
+
+import com.money.transfer.app.controller.v1.MoneyTransferControllerImpl;
+import com.money.transfer.app.dto.TransferRequestBody;
+import com.money.transfer.app.entity.Account;
+import com.money.transfer.app.repository.AccountRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of rejected transfers, one benchmark per kind of rejection: called on the controller,
+ * through the aspects that log, time and profile it, and posted over HTTP, through the exception handler as well.
+ * Rejections are logged at INFO level, as they are in production. Running it on the commit before stackless
+ * rejections and cached messages gives the throughput of the former path, which captured a stack trace per
+ * rejection, formatted every message anew and logged every rejection twice.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class RejectionBenchmark extends ApplicationState {
+
+    @Param({"negative-amount", "same-account", "currency", "non-existent-account", "low-balance"})
+    public String rejection;
+
+    private MoneyTransferControllerImpl controller;
+
+    private TransferRequestBody requestBody;
+
+    private HttpClient httpClient;
+
+    private HttpRequest request;
+
+    @Override
+    protected Map<String, Object> properties() {
+        return Map.of("logging.level.com.money.transfer.app.annotation.LogAspect", "info");
+    }
+
+    @Override
+    protected void prepare() {
+        String source = createAccount("EUR");
+        String target = createAccount("EUR");
+        TransferRequestBody.TransferRequestBodyBuilder builder = TransferRequestBody.builder()
+                .amount(BigDecimal.ONE)
+                .currency("EUR")
+                .sourceAccountId(source)
+                .targetAccountId(target);
+        requestBody = switch (rejection) {
+            case "negative-amount" -> builder.amount(BigDecimal.ONE.negate()).build();
+            case "same-account" -> builder.targetAccountId(source).build();
+            case "currency" -> builder.currency("XXX").build();
+            case "non-existent-account" -> builder.sourceAccountId("missing").build();
+            case "low-balance" -> builder.sourceAccountId(bean(AccountRepository.class)
+                    .save(new Account(null, 0, "EUR", LocalDateTime.now())).getId()).build();
+            default -> throw new IllegalArgumentException(rejection);
+        };
+        controller = bean(MoneyTransferControllerImpl.class);
+
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        String body = String.format("{\"sourceAccountId\":\"%s\",\"targetAccountId\":\"%s\",\"amount\":%s,\"currency\":\"%s\"}",
+                requestBody.getSourceAccountId(), requestBody.getTargetAccountId(),
+                requestBody.getAmount().toPlainString(), requestBody.getCurrency());
+        httpClient = HttpClient.newHttpClient();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/transfer"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    @Benchmark
+    public String rejectInProcess() {
+        try {
+            controller.transfer(null, requestBody);
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+        throw new IllegalStateException("Transfer was not rejected");
+    }
+
+    @Benchmark
+    public String rejectOverHttp() throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 400) {
+            throw new IllegalStateException("Transfer was not rejected: " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+}
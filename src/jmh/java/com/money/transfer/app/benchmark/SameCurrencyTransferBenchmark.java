@@ -0,0 +1,41 @@
+package com.money.transfer.app.benchmark;
+
+import com.money.transfer.app.dto.TransferRequestBody;
+import com.money.transfer.app.dto.TransferResponseBody;
+import com.money.transfer.app.service.MoneyTransferService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code MoneyTransferService.transfer} between two accounts of the transaction currency,
+ * the path that needs no exchange rate at all.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SameCurrencyTransferBenchmark extends ApplicationState {
+
+    private MoneyTransferService moneyTransferService;
+
+    private String sourceAccountId;
+
+    private String targetAccountId;
+
+    @Override
+    protected void prepare() {
+        moneyTransferService = bean(MoneyTransferService.class);
+        sourceAccountId = createAccount("EUR");
+        targetAccountId = createAccount("EUR");
+    }
+
+    @Benchmark
+    public TransferResponseBody transfer() {
+        return moneyTransferService.transfer(new TransferRequestBody(
+                sourceAccountId, targetAccountId, BigDecimal.ONE, "EUR"));
+    }
+}
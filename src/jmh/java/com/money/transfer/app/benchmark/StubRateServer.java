@@ -0,0 +1,73 @@
+package com.money.transfer.app.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local stand-in for the external exchange rate API, so that benchmarks run offline and
+ * measure the application rather than the network.
+ * <p>
+ * Every request, whatever its base currency, is answered with the same fixed rates,
+ * optionally after a delay standing in for the latency of the real API.
+ */
+public class StubRateServer implements AutoCloseable {
+
+    private static final byte[] RESPONSE = ("{\"result\":\"success\",\"conversion_rates\":" +
+            "{\"EUR\":0.9341,\"USD\":1.0706,\"GBP\":0.8560,\"JPY\":162.5}}").getBytes(StandardCharsets.UTF_8);
+
+    private final HttpServer server;
+
+    private final LongAdder requests = new LongAdder();
+
+    public StubRateServer() throws IOException {
+        this(Duration.ZERO);
+    }
+
+    public StubRateServer(Duration delay) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.setExecutor(delay.isZero() ? Executors.newFixedThreadPool(4) : Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            requests.increment();
+            if (!delay.isZero()) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, RESPONSE.length);
+            try (OutputStream body = exchange.getResponseBody()) {
+                body.write(RESPONSE);
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * @return the URL to configure as {@code exchange.rate.api.url}.
+     */
+    public String url() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/latest/";
+    }
+
+    /**
+     * @return the number of requests served so far.
+     */
+    public long requestCount() {
+        return requests.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -0,0 +1,95 @@
+package com.money.transfer.app.benchmark;
+
+import com.money.transfer.app.dto.TransactionHistoryResponseBody;
+import com.money.transfer.app.entity.Transaction;
+import com.money.transfer.app.repository.TransactionRepository;
+import com.money.transfer.app.service.AccountFileFormat;
+import com.money.transfer.app.service.AccountStatementService;
+import com.money.transfer.app.service.TransactionHistoryService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading transaction histories from a table of millions of transactions, generated in the database
+ * when the trial starts: the first page of an account history, a page deep into it, a page of the transfers
+ * between two accounts, the lookup of their latest transfer and the full statement of an account.
+ * <p>
+ * The transactions are spread over {@value #ACCOUNTS} accounts, so every account takes part in about
+ * {@code 2 * transactions / ACCOUNTS} of them and account 1 sends all of its transfers to account 2.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class TransactionHistoryBenchmark extends ApplicationState {
+
+    private static final int ACCOUNTS = 1000;
+
+    private static final String ACCOUNT = "account-1";
+
+    private static final String COUNTERPART = "account-2";
+
+    @Param({"2000000"})
+    public int transactions;
+
+    private TransactionHistoryService transactionHistoryService;
+
+    private TransactionRepository transactionRepository;
+
+    private AccountStatementService accountStatementService;
+
+    private String deepCursor;
+
+    @Override
+    protected void prepare() {
+        JdbcTemplate jdbcTemplate = bean(JdbcTemplate.class);
+        jdbcTemplate.update("INSERT INTO public.account (id, balance, currency, created_at, version, balance_slots) " +
+                "SELECT 'account-' || X, 0, 'EUR', CURRENT_TIMESTAMP, 0, 0 FROM SYSTEM_RANGE(1, ?)", ACCOUNTS);
+        jdbcTemplate.update("INSERT INTO public.transaction (id, source_account_id, target_account_id, amount, currency, " +
+                "source_amount, target_amount, ordered_at) " +
+                "SELECT CAST(RANDOM_UUID() AS VARCHAR), 'account-' || (MOD(X, ?) + 1), 'account-' || (MOD(7 * X + 1, ?) + 1), " +
+                "100, 'EUR', 100, 100, DATEADD('SECOND', X, TIMESTAMP '2020-01-01 00:00:00') FROM SYSTEM_RANGE(1, ?)",
+                ACCOUNTS, ACCOUNTS, transactions);
+
+        transactionHistoryService = bean(TransactionHistoryService.class);
+        accountStatementService = bean(AccountStatementService.class);
+        transactionRepository = bean(TransactionRepository.class);
+        TransactionHistoryResponseBody page = transactionHistoryService.accountHistory(ACCOUNT, 500, null);
+        for (int i = 0; i < 3 && page.getNextCursor() != null; i++) {
+            deepCursor = page.getNextCursor();
+            page = transactionHistoryService.accountHistory(ACCOUNT, 500, deepCursor);
+        }
+    }
+
+    @Benchmark
+    public TransactionHistoryResponseBody firstPage() {
+        return transactionHistoryService.accountHistory(ACCOUNT, 50, null);
+    }
+
+    @Benchmark
+    public TransactionHistoryResponseBody deepPage() {
+        return transactionHistoryService.accountHistory(ACCOUNT, 50, deepCursor);
+    }
+
+    @Benchmark
+    public TransactionHistoryResponseBody pairPage() {
+        return transactionHistoryService.pairHistory(ACCOUNT, COUNTERPART, 50, null);
+    }
+
+    @Benchmark
+    public Optional<Transaction> latestBetweenAccounts() {
+        return transactionRepository.findLatestTransactionBetweenAccounts(ACCOUNT, COUNTERPART);
+    }
+
+    @Benchmark
+    public void statement() throws IOException {
+        accountStatementService.exportStatement(ACCOUNT, AccountFileFormat.CSV, OutputStream.nullOutputStream());
+    }
+}
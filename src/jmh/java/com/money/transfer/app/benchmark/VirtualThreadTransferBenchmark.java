@@ -0,0 +1,140 @@
+package com.money.transfer.app.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the servlet stack, {@code /api/v1/transfer}, on platform request threads with the same stack on
+ * virtual threads, {@code spring.threads.virtual.enabled}: every invocation posts a wave of {@code inFlight}
+ * cross-currency transfers at once over HTTP and waits for all of them.
+ * <p>
+ * Cached rates expire almost immediately and the {@link StubRateServer} answers after {@link #RATE_DELAY},
+ * so every wave waits once for the exchange rate API while all of its transfers hold their request thread.
+ * On platform threads Tomcat serves at most its 200 threads at a time, on virtual threads the whole wave.
+ * <p>
+ * Next to the throughput, the {@link Peaks} counters report the peak number of live platform threads and the peak
+ * heap used per in-flight transfer of every iteration; run with {@code -prof gc} to also report the bytes allocated
+ * per wave.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadTransferBenchmark extends ApplicationState {
+
+    private static final Duration RATE_DELAY = Duration.ofMillis(50);
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"200", "2000"})
+    public int inFlight;
+
+    private HttpClient httpClient;
+
+    private List<HttpRequest> requests;
+
+    private ScheduledExecutorService sampler;
+
+    private final AtomicLong peakThreads = new AtomicLong();
+
+    private final AtomicLong peakHeap = new AtomicLong();
+
+    private long baselineHeap;
+
+    @Override
+    protected Duration rateDelay() {
+        return RATE_DELAY;
+    }
+
+    @Override
+    protected Map<String, Object> properties() {
+        return Map.of("spring.threads.virtual.enabled", virtualThreads,
+                "exchange.rate.cache.ttl", "1ms",
+                "exchange.rate.cache.refresh-after", "1h");
+    }
+
+    @Override
+    protected void prepare() {
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        URI uri = URI.create("http://localhost:" + port + "/api/v1/transfer");
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        requests = new ArrayList<>(inFlight);
+        for (int i = 0; i < inFlight; i++) {
+            String body = String.format("{\"sourceAccountId\":\"%s\",\"targetAccountId\":\"%s\",\"amount\":1,\"currency\":\"EUR\"}",
+                    createAccount("USD"), createAccount("JPY"));
+            requests.add(HttpRequest.newBuilder(uri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build());
+        }
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> {
+            peakThreads.accumulateAndGet(threads.getThreadCount(), Math::max);
+            peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+        }, 0, 1, TimeUnit.MILLISECONDS);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeaks() {
+        System.gc();
+        baselineHeap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        peakThreads.set(0);
+        peakHeap.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopSampler() {
+        sampler.shutdownNow();
+    }
+
+    /**
+     * Peak number of live platform threads and peak heap used, in KiB per in-flight transfer, of the iteration.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Peaks {
+
+        public long platformThreads;
+
+        public long heapKiBPerTransfer;
+    }
+
+    @Benchmark
+    public int transferWave(Peaks peaks) {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>(inFlight);
+        for (HttpRequest request : requests) {
+            responses.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        for (CompletableFuture<HttpResponse<String>> pending : responses) {
+            HttpResponse<String> response = pending.join();
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Transfer failed with " + response.statusCode() + ": " + response.body());
+            }
+        }
+        peaks.platformThreads = peakThreads.get();
+        peaks.heapKiBPerTransfer = Math.max(0, peakHeap.get() - baselineHeap) / 1024 / inFlight;
+        return responses.size();
+    }
+}
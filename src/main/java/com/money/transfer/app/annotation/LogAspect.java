@@ -1,9 +1,12 @@
 package com.money.transfer.app.annotation;
 
 import com.money.transfer.app.dto.TransferRequestBody;
-import lombok.RequiredArgsConstructor;
+import com.money.transfer.app.exception.BusinessException;
+import com.money.transfer.app.metrics.QueryProfile;
+import com.money.transfer.app.util.LogRateLimiter;
 import lombok.extern.slf4j.Slf4j;
 import org.aspectj.lang.annotation.*;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
@@ -14,22 +17,32 @@ import org.springframework.stereotype.Component;
  * after normally returning and
  * after throwing exception scenarios
  * to log useful information about the course of the current transaction request.
+ * The outcome is logged along with the database statements the request has run so far,
+ * as profiled by the {@link QueryProfilingAspect}.
+ * <p>
+ * Rejections, signalled by a {@link BusinessException}, are expected outcomes and may come in bursts during abuse,
+ * so they are logged on one line at INFO level, at most {@code transfer.rejections.log-per-second} times a second.
  */
 @Slf4j
 @Component
 @Aspect
-@RequiredArgsConstructor
 public class LogAspect {
 
+    private final LogRateLimiter rejectionLog;
+
+    public LogAspect(@Value("${transfer.rejections.log-per-second}") int rejectionsPerSecond) {
+        this.rejectionLog = new LogRateLimiter(rejectionsPerSecond);
+    }
+
     /**
      * Defines a pointcut that targets
      * methods annotated with {@link LogRequestCourse}
      * and methods within classes annotated with {@link LogRequestCourse},
-     * which also accept a {@link TransferRequestBody}.
+     * which also accept a {@link TransferRequestBody} as their last argument.
      *
      * @param requestBody The details of the transaction request
      */
-    @Pointcut("(@within(LogRequestCourse) || @annotation(LogRequestCourse)) && args(requestBody)")
+    @Pointcut("(@within(LogRequestCourse) || @annotation(LogRequestCourse)) && args(.., requestBody)")
     public void logRequest(TransferRequestBody requestBody) {}
 
     /**
@@ -47,27 +60,38 @@ public class LogAspect {
 
     /**
      * Executes only if the target method completes successfully.
-     * Logs a success message once the transaction is completed.
+     * Logs a success message once the transaction is completed, with the statements it ran.
      *
      * @param requestBody The details of the transaction request
      */
     @AfterReturning(pointcut = "logRequest(requestBody)", argNames = "requestBody")
     public void logAfterMethodReturning(TransferRequestBody requestBody) {
-        log.info("Transfer of {}{} from account {} to account {} completed successfully.",
+        log.info("Transfer of {}{} from account {} to account {} completed successfully. {}",
                 requestBody.getAmount(), requestBody.getCurrency(),
-                requestBody.getSourceAccountId(), requestBody.getTargetAccountId());
+                requestBody.getSourceAccountId(), requestBody.getTargetAccountId(), QueryProfile.summary());
     }
 
     /**
      *  Captures any exceptions thrown by the target method.
-     *  Logs an error message containing the exception type and message.
+     *  Logs an error message containing the exception type, the statements run and the message,
+     *  or an informational one, subject to the rate limit, if the transfer was rejected.
      *
      * @param requestBody The details of the transaction request
      */
     @AfterThrowing(pointcut = "logRequest(requestBody)", throwing = "ex", argNames = "requestBody,ex")
     public void logAfterThrowingException(TransferRequestBody requestBody, Throwable ex) {
-        log.error("{} during transfer from account {} to account {}",
-                ex.getClass().getSimpleName(), requestBody.getSourceAccountId(), requestBody.getTargetAccountId());
+        if (ex instanceof BusinessException) {
+            long suppressed = rejectionLog.acquire();
+            if (suppressed >= 0) {
+                log.info("{} rejected transfer from account {} to account {}: {} {} rejectionsNotLogged={}",
+                        ex.getClass().getSimpleName(), requestBody.getSourceAccountId(),
+                        requestBody.getTargetAccountId(), ex.getMessage(), QueryProfile.summary(), suppressed);
+            }
+            return;
+        }
+        log.error("{} during transfer from account {} to account {}. {}",
+                ex.getClass().getSimpleName(), requestBody.getSourceAccountId(), requestBody.getTargetAccountId(),
+                QueryProfile.summary());
         log.error(ex.getMessage());
     }
 }
@@ -0,0 +1,105 @@
+package com.money.transfer.app.annotation;
+
+import com.money.transfer.app.exception.StatementBudgetExceededException;
+import com.money.transfer.app.metrics.QueryProfile;
+import com.money.transfer.app.metrics.TransferMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implements the profiling of the database statements every request runs using AOP.
+ * <p>
+ * Opens a {@link QueryProfile} around every endpoint of version 1, records it through {@link TransferMetrics}
+ * and checks it against the {@link StatementBudget} of the endpoint, if any. It runs before any other advice,
+ * so that the {@link LogAspect} can log the statements of the request.
+ * Streaming endpoints are profiled only until they return the stream, not while it is written.
+ */
+@Slf4j
+@Component
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class QueryProfilingAspect {
+
+    private final TransferMetrics transferMetrics;
+
+    private final boolean enforceBudgets;
+
+    private final Map<Method, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    public QueryProfilingAspect(TransferMetrics transferMetrics,
+                                @Value("${db.profiling.enforce-budgets}") boolean enforceBudgets) {
+        this.transferMetrics = transferMetrics;
+        this.enforceBudgets = enforceBudgets;
+    }
+
+    /**
+     * Defines a pointcut that targets the public methods of the version 1 controllers.
+     */
+    @Pointcut("execution(public * com.money.transfer.app.controller.v1..*(..))")
+    public void endpoint() {}
+
+    /**
+     * Runs the endpoint within a profile of its own, unless one is already open on the thread.
+     *
+     * @param joinPoint The intercepted method execution
+     * @return the result of the endpoint
+     * @throws StatementBudgetExceededException if budgets are enforced and the endpoint exceeded its own.
+     */
+    @Around("endpoint()")
+    public Object profile(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (QueryProfile.current() != null) {
+            return joinPoint.proceed();
+        }
+        Endpoint endpoint = endpoints.computeIfAbsent(((MethodSignature) joinPoint.getSignature()).getMethod(),
+                QueryProfilingAspect::endpoint);
+        QueryProfile profile = QueryProfile.start();
+        try {
+            Object result = joinPoint.proceed();
+            checkBudget(endpoint, profile);
+            return result;
+        } finally {
+            profile.close();
+            transferMetrics.recordStatements(endpoint.name(), profile);
+            log.debug("{} {}", endpoint.name(), profile);
+        }
+    }
+
+    private void checkBudget(Endpoint endpoint, QueryProfile profile) {
+        if (endpoint.budget() < 0 || profile.statements() <= endpoint.budget()) {
+            return;
+        }
+        transferMetrics.countBudgetExceeded(endpoint.name());
+        StatementBudgetExceededException exception =
+                new StatementBudgetExceededException(endpoint.name(), profile.statements(), endpoint.budget());
+        if (enforceBudgets) {
+            throw exception;
+        }
+        log.warn("{} {}", exception.getMessage(), profile);
+    }
+
+    private static Endpoint endpoint(Method method) {
+        StatementBudget budget = AnnotatedElementUtils.findMergedAnnotation(method, StatementBudget.class);
+        return new Endpoint(method.getDeclaringClass().getSimpleName() + "." + method.getName(),
+                budget != null ? budget.value() : -1);
+    }
+
+    /**
+     * @param name   the class and method name of the endpoint.
+     * @param budget the statements the endpoint may run, or -1 if it declares no budget.
+     */
+    private record Endpoint(String name, int budget) {
+    }
+}
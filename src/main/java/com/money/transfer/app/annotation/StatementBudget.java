@@ -0,0 +1,22 @@
+package com.money.transfer.app.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to declare how many database statements an endpoint may run per request,
+ * checked via AOP by the {@link QueryProfilingAspect}.
+ * Exceeding it is logged and counted, and fails the request where {@code db.profiling.enforce-budgets} is set,
+ * as it is in the tests, so that a query added per item of a request is caught before release.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface StatementBudget {
+
+    /**
+     * @return the most JDBC statements a request may run, a batch counting as one.
+     */
+    int value();
+}
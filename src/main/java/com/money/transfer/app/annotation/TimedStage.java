@@ -0,0 +1,24 @@
+package com.money.transfer.app.annotation;
+
+import com.money.transfer.app.metrics.TransferMetrics;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation to tag methods and classes whose executions are timed via AOP
+ * as a stage of a transfer, see {@link TransferMetrics}.
+ * On a class, every public method is timed as a stage named after the method,
+ * unless the method carries an annotation of its own.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(value = {ElementType.METHOD, ElementType.TYPE})
+public @interface TimedStage {
+
+    /**
+     * @return the name of the stage, by default the name of the annotated method.
+     */
+    String value() default "";
+}
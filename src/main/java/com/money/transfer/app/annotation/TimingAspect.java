@@ -0,0 +1,73 @@
+package com.money.transfer.app.annotation;
+
+import com.money.transfer.app.metrics.TransferMetrics;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Implements timing of transfer stages using AOP.
+ * <p>
+ * Intercepts methods annotated with {@link TimedStage}, and methods within classes annotated with it,
+ * and records their duration and outcome through {@link TransferMetrics}.
+ * It runs before any other advice, so that the time spent committing a
+ * {@link org.springframework.transaction.annotation.Transactional} method is included.
+ */
+@Component
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class TimingAspect {
+
+    private final TransferMetrics transferMetrics;
+
+    private final Map<Method, String> stages = new ConcurrentHashMap<>();
+
+    /**
+     * Defines a pointcut that targets
+     * methods annotated with {@link TimedStage}
+     * and methods within classes annotated with {@link TimedStage}.
+     */
+    @Pointcut("@within(TimedStage) || @annotation(TimedStage)")
+    public void timedStage() {}
+
+    /**
+     * Runs the target method, recording its duration whether it returns or throws.
+     *
+     * @param joinPoint The intercepted method execution
+     * @return the result of the target method
+     */
+    @Around("timedStage()")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        String stage = stages.computeIfAbsent(((MethodSignature) joinPoint.getSignature()).getMethod(),
+                TimingAspect::stageName);
+        long started = System.nanoTime();
+        try {
+            Object result = joinPoint.proceed();
+            transferMetrics.record(stage, started, null);
+            return result;
+        } catch (Throwable e) {
+            transferMetrics.record(stage, started, e);
+            throw e;
+        }
+    }
+
+    private static String stageName(Method method) {
+        TimedStage timedStage = AnnotatedElementUtils.findMergedAnnotation(method, TimedStage.class);
+        if (timedStage != null && !timedStage.value().isEmpty()) {
+            return timedStage.value();
+        }
+        return method.getName();
+    }
+}
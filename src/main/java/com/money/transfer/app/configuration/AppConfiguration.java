@@ -1,18 +1,29 @@
 package com.money.transfer.app.configuration;
 
+import com.money.transfer.app.integration.ExchangeRateResponseDecoder;
 import com.money.transfer.app.integration.ExchangeRateRestClient;
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
 
 
 /**
  * Configuration class for setting up application-specific beans and configurations.
  * This class specifically configures the {@link WebClient} used for making HTTP requests
- * to external services, such as the exchange rate API.
+ * to external services, such as the exchange rate API, over a reactor-netty client tuned through
+ * {@code exchange.rate.http.*} rather than the defaults shared by every client of the application.
+ * It also enables the scheduled background tasks, such as the consolidation of balance slots.
  */
 @Configuration
+@EnableScheduling
 public class AppConfiguration {
 
     /**
@@ -21,13 +32,83 @@ public class AppConfiguration {
     @Value("${exchange.rate.api.url}")
     private String serviceUrl;
 
+    /**
+     * Creates the pool of connections to the exchange rate API, of its own, so that a burst of refreshes
+     * reuses a bounded number of kept-alive connections instead of opening one per request in flight.
+     * Connections idle for longer than the API keeps them open are evicted in the background,
+     * rather than found closed by the next request, and every connection is renewed after its maximum life time.
+     * The pool publishes its gauges as {@code reactor.netty.connection.provider.*}, tagged {@code exchange-rate}.
+     *
+     * @param maxConnections        the most connections open at once, {@code exchange.rate.http.max-connections}.
+     * @param pendingAcquireTimeout how long a request waits for a connection of a full pool.
+     * @param maxIdleTime           how long a connection may stay idle in the pool.
+     * @param maxLifeTime           how long a connection may be used at all.
+     * @param evictionInterval      how often idle and expired connections are evicted.
+     * @return the {@link ConnectionProvider}, disposed along with the context.
+     */
+    @Bean(destroyMethod = "dispose")
+    ConnectionProvider exchangeRateConnectionProvider(@Value("${exchange.rate.http.max-connections}") int maxConnections,
+                                                      @Value("${exchange.rate.http.pending-acquire-timeout}") Duration pendingAcquireTimeout,
+                                                      @Value("${exchange.rate.http.max-idle-time}") Duration maxIdleTime,
+                                                      @Value("${exchange.rate.http.max-life-time}") Duration maxLifeTime,
+                                                      @Value("${exchange.rate.http.eviction-interval}") Duration evictionInterval) {
+        return ConnectionProvider.builder("exchange-rate")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictionInterval)
+                .metrics(true)
+                .build();
+    }
+
+    /**
+     * Creates the HTTP client of the exchange rate API, with a timeout per phase of a request: acquiring a connection
+     * from the pool, see {@link #exchangeRateConnectionProvider}, connecting, and waiting between two reads of the
+     * response. Responses are requested gzip compressed and their latency is published as
+     * {@code reactor.netty.http.client.*}, under a single {@code uri} tag, so neither the base currency
+     * nor the API key in the path ends up in a tag.
+     *
+     * @param connectionProvider the pool of connections to the exchange rate API.
+     * @param connectTimeout     {@code exchange.rate.http.connect-timeout}.
+     * @param readTimeout        the longest wait for the next bytes of a response, {@code exchange.rate.http.read-timeout}.
+     * @param compress           whether responses are requested compressed, {@code exchange.rate.http.compress}.
+     * @param warmUp             whether the event loops, the host name resolver and the native libraries
+     *                           are loaded at startup rather than by the first request, {@code exchange.rate.http.warm-up}.
+     * @return the configured {@link HttpClient}.
+     */
+    @Bean
+    HttpClient exchangeRateHttpClient(ConnectionProvider exchangeRateConnectionProvider,
+                                      @Value("${exchange.rate.http.connect-timeout}") Duration connectTimeout,
+                                      @Value("${exchange.rate.http.read-timeout}") Duration readTimeout,
+                                      @Value("${exchange.rate.http.compress}") boolean compress,
+                                      @Value("${exchange.rate.http.warm-up}") boolean warmUp) {
+        HttpClient httpClient = HttpClient.create(exchangeRateConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .responseTimeout(readTimeout)
+                .compress(compress)
+                .metrics(true, uri -> "/latest/{baseCurrency}");
+        if (warmUp) {
+            httpClient.warmup().block();
+        }
+        return httpClient;
+    }
+
     /**
      * Creates a {@link WebClient} bean configured with the base URL for the exchange rate API.
-     * This client is used in {@link ExchangeRateRestClient} to make web requests to the exchange rate API.
+     * This client is used in {@link ExchangeRateRestClient} to make web requests to the exchange rate API,
+     * whose responses it decodes with the {@link ExchangeRateResponseDecoder}.
      * @return the configured {@link WebClient} instance
      */
     @Bean
-    WebClient exchangeRateWebClient() {
-        return WebClient.builder().baseUrl(serviceUrl).build();
+    WebClient exchangeRateWebClient(ExchangeRateResponseDecoder exchangeRateResponseDecoder,
+                                    HttpClient exchangeRateHttpClient) {
+        return WebClient.builder()
+                .baseUrl(serviceUrl)
+                .clientConnector(new ReactorClientHttpConnector(exchangeRateHttpClient))
+                .codecs(codecs -> codecs.customCodecs().register(exchangeRateResponseDecoder))
+                .build();
     }
 }
@@ -0,0 +1,159 @@
+package com.money.transfer.app.configuration;
+
+import com.money.transfer.app.metrics.StatementCountingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+
+/**
+ * Configuration class for running the JDBC and the R2DBC access to the database side by side.
+ * <p>
+ * JPA, Liquibase and the {@code /api/v1} endpoints use the JDBC {@link javax.sql.DataSource},
+ * while the {@code /api/v2} endpoints use the R2DBC {@link ConnectionFactory}. Spring Boot backs off
+ * its {@code DataSource} as soon as a {@code ConnectionFactory} exists, so it is declared here from the usual
+ * {@code spring.datasource} properties. The R2DBC transaction manager is not a bean, so that {@code @Transactional}
+ * keeps resolving the JPA one, reactive transactions go through the {@link TransactionalOperator} instead.
+ * <p>
+ * With {@code datasource.replica.url} set, a second pool connects to a read replica and the JDBC access goes through
+ * a {@link ReadWriteRoutingDataSource}, which sends read-only transactions to the replica, and every request through
+ * a {@link ReadYourWritesInterceptor}, which keeps its client reading from the primary after it writes.
+ * <p>
+ * Unless {@code db.profiling.enabled} is false, the JDBC access goes through a {@link StatementCountingDataSource}
+ * in the end, which counts the statements of every request.
+ */
+@Configuration
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class PersistenceConfiguration {
+
+    /**
+     * @param properties the {@code spring.datasource} properties.
+     * @return the pooled JDBC {@link javax.sql.DataSource} of the primary, tuned through {@code spring.datasource.hikari}.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    /**
+     * Declared only when {@code datasource.replica.url} is set.
+     *
+     * @return the pooled JDBC {@link javax.sql.DataSource} of the read replica, tuned through
+     * {@code datasource.replica.hikari}.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "datasource.replica", name = "url")
+    @ConfigurationProperties("datasource.replica.hikari")
+    HikariDataSource replicaDataSource(@Value("${datasource.replica.url}") String url,
+                                       @Value("${datasource.replica.username:}") String username,
+                                       @Value("${datasource.replica.password:}") String password) {
+        HikariDataSource replica = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        replica.setPoolName("replica");
+        return replica;
+    }
+
+    /**
+     * Declared only along with the replica.
+     *
+     * @param primaryAfterWrite how long the read-only transactions of a client keep reading from the primary after
+     *                          it writes, {@code datasource.replica.primary-after-write}.
+     * @return the {@link ReadWriteRoutingDataSource} choosing between the primary and the replica.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "datasource.replica", name = "url")
+    ReadWriteRoutingDataSource readWriteRoutingDataSource(@Qualifier("dataSource") HikariDataSource primary,
+                                                          @Qualifier("replicaDataSource") HikariDataSource replica,
+                                                          @Value("${datasource.replica.primary-after-write}") Duration primaryAfterWrite) {
+        return new ReadWriteRoutingDataSource(primary, replica, primaryAfterWrite);
+    }
+
+    /**
+     * Declared only along with the replica, see {@link ReadWriteRoutingDataSource}.
+     *
+     * @param readWriteRouting the {@link #readWriteRoutingDataSource}.
+     * @return the {@link javax.sql.DataSource} routing read-only transactions to the replica.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "datasource.replica", name = "url")
+    LazyConnectionDataSourceProxy routingDataSource(ReadWriteRoutingDataSource readWriteRouting) {
+        return new LazyConnectionDataSourceProxy(readWriteRouting);
+    }
+
+    /**
+     * Declared only along with the replica.
+     *
+     * @param readWriteRouting the {@link #readWriteRoutingDataSource}.
+     * @param clientHeader     the header naming the client of a request, {@code datasource.replica.client-header}.
+     * @return the {@link WebMvcConfigurer} registering a {@link ReadYourWritesInterceptor} for every request.
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "datasource.replica", name = "url")
+    WebMvcConfigurer readYourWritesConfigurer(ReadWriteRoutingDataSource readWriteRouting,
+                                              @Value("${datasource.replica.client-header}") String clientHeader) {
+        ReadYourWritesInterceptor interceptor = new ReadYourWritesInterceptor(readWriteRouting, clientHeader);
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(interceptor);
+            }
+
+            @Override
+            public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+                configurer.registerCallableInterceptors(interceptor);
+            }
+        };
+    }
+
+    /**
+     * @param primary   the pool of the primary.
+     * @param routing   the {@link #routingDataSource}, if a replica is configured.
+     * @param profiling whether statements are counted, {@code db.profiling.enabled}.
+     * @return the primary {@link DataSource} that JPA, JDBC and Liquibase use, routing to the replica if there is one
+     * and counting statements if profiling is enabled.
+     */
+    @Bean
+    @Primary
+    DataSource applicationDataSource(@Qualifier("dataSource") HikariDataSource primary,
+                                     ObjectProvider<LazyConnectionDataSourceProxy> routing,
+                                     @Value("${db.profiling.enabled}") boolean profiling) {
+        DataSource dataSource = routing.getIfAvailable();
+        if (dataSource == null) {
+            dataSource = primary;
+        }
+        return profiling ? new StatementCountingDataSource(dataSource) : dataSource;
+    }
+
+    /**
+     * @param connectionFactory the R2DBC connection factory configured through {@code spring.r2dbc}.
+     * @return the {@link TransactionalOperator} running reactive pipelines in an R2DBC transaction.
+     */
+    @Bean
+    TransactionalOperator reactiveTransactionalOperator(ConnectionFactory connectionFactory) {
+        return TransactionalOperator.create(new R2dbcTransactionManager(connectionFactory));
+    }
+}
@@ -0,0 +1,79 @@
+package com.money.transfer.app.configuration;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Routes the connections of read-only transactions to a replica and every other connection to the primary.
+ * <p>
+ * Replicas apply the writes of the primary with some lag, so for {@code primaryAfterWrite} after a client writes,
+ * the read-only transactions of that client are routed to the primary as well, and it finds its own transfer,
+ * while every other client keeps reading from the replica. A zero duration always reads from the replica.
+ * The {@link ReadYourWritesInterceptor} binds the client of a request to the threads serving it and records its
+ * writes, whether they were committed through this data source or not. Without a client, as in scheduled jobs,
+ * read-only transactions read from the replica. Spring Data reads run in read-only transactions of their own unless
+ * they join one, so the lookups of the transfer path are declared read-write in their repositories.
+ * <p>
+ * The route is chosen when a transaction takes its connection, which only knows whether the transaction is read-only
+ * once it has begun, so this data source must be used through a {@link LazyConnectionDataSourceProxy}.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route {
+        PRIMARY, REPLICA
+    }
+
+    /**
+     * Bounds the clients remembered as recent writers, the least recent of which read from the replica early.
+     */
+    private static final long MAX_RECENT_WRITERS = 100_000;
+
+    private final Cache<String, Boolean> recentWriters;
+
+    private final ThreadLocal<String> client = new ThreadLocal<>();
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, Duration primaryAfterWrite) {
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(MAX_RECENT_WRITERS)
+                .expireAfterWrite(primaryAfterWrite)
+                .build();
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Route determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return Route.PRIMARY;
+        }
+        String currentClient = client.get();
+        return currentClient != null && recentWriters.getIfPresent(currentClient) != null ? Route.PRIMARY : Route.REPLICA;
+    }
+
+    /**
+     * Binds the client on whose behalf the current thread reads, until {@link #unbindClient()}.
+     */
+    public void bindClient(String client) {
+        this.client.set(client);
+    }
+
+    public void unbindClient() {
+        client.remove();
+    }
+
+    /**
+     * Records that a client has just written, so that its read-only transactions keep reading from the primary
+     * for {@code primaryAfterWrite}.
+     */
+    public void recordWrite(String client) {
+        recentWriters.put(client, Boolean.TRUE);
+    }
+}
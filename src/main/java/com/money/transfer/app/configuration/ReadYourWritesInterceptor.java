@@ -0,0 +1,66 @@
+package com.money.transfer.app.configuration;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Tells the {@link ReadWriteRoutingDataSource} which client every request is served for, and when that client writes.
+ * <p>
+ * The client is named by the {@code datasource.replica.client-header} header of the request, or else by its remote
+ * address. It is bound to the request thread and to the thread running an asynchronous request, such as a statement
+ * export. Every request but a {@code GET}, {@code HEAD} or {@code OPTIONS} one is recorded as a write of its client
+ * once it completes, which covers the commits made off the request thread, by the ledger writer or through R2DBC.
+ */
+public class ReadYourWritesInterceptor implements AsyncHandlerInterceptor, CallableProcessingInterceptor {
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final ReadWriteRoutingDataSource readWriteRouting;
+
+    private final String clientHeader;
+
+    public ReadYourWritesInterceptor(ReadWriteRoutingDataSource readWriteRouting, String clientHeader) {
+        this.readWriteRouting = readWriteRouting;
+        this.clientHeader = clientHeader;
+    }
+
+    private String client(HttpServletRequest request) {
+        String client = request.getHeader(clientHeader);
+        return client == null || client.isBlank() ? request.getRemoteAddr() : client;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        readWriteRouting.bindClient(client(request));
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        readWriteRouting.unbindClient();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (!READ_METHODS.contains(request.getMethod())) {
+            readWriteRouting.recordWrite(client(request));
+        }
+        readWriteRouting.unbindClient();
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        readWriteRouting.bindClient(client(request.getNativeRequest(HttpServletRequest.class)));
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        readWriteRouting.unbindClient();
+    }
+}
@@ -0,0 +1,111 @@
+package com.money.transfer.app.controller.v1;
+
+import com.money.transfer.app.dto.AccountImportError;
+import com.money.transfer.app.dto.AccountImportResponseBody;
+import com.money.transfer.app.dto.TransactionHistoryResponseBody;
+import com.money.transfer.app.service.AccountFileFormat;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Controller interface defining the read operations on accounts, their bulk import and export
+ * and the export of their statements.
+ */
+@RequestMapping("/api/v1")
+public interface AccountController {
+
+    /**
+     * Processes GET requests for the transaction history of an account, both outgoing and incoming,
+     * newest transaction first.
+     *
+     * The endpoint produces JSON data. A page ends with a cursor, which is sent back to read the next one.
+     *
+     * @param accountId the id of the account, not null.
+     * @param limit     the number of transactions per page, may be null for the default.
+     * @param cursor    the cursor returned with the previous page, null for the first page.
+     * @return a {@link TransactionHistoryResponseBody} encapsulated in a {@link ResponseEntity}, never null.
+     */
+    @GetMapping(value = "/accounts/{accountId}/transactions", produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<TransactionHistoryResponseBody> history(@PathVariable("accountId") String accountId,
+                                                           @RequestParam(name = "limit", required = false) Integer limit,
+                                                           @RequestParam(name = "cursor", required = false) String cursor);
+
+    /**
+     * Processes GET requests for the history of the transfers from one account to another,
+     * newest transaction first.
+     *
+     * The endpoint produces JSON data. A page ends with a cursor, which is sent back to read the next one.
+     *
+     * @param sourceAccountId the id of the account money were withdrawn from, not null.
+     * @param targetAccountId the id of the account money were deposited to, not null.
+     * @param limit           the number of transactions per page, may be null for the default.
+     * @param cursor          the cursor returned with the previous page, null for the first page.
+     * @return a {@link TransactionHistoryResponseBody} encapsulated in a {@link ResponseEntity}, never null.
+     */
+    @GetMapping(value = "/accounts/{sourceAccountId}/transactions/to/{targetAccountId}",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<TransactionHistoryResponseBody> history(@PathVariable("sourceAccountId") String sourceAccountId,
+                                                           @PathVariable("targetAccountId") String targetAccountId,
+                                                           @RequestParam(name = "limit", required = false) Integer limit,
+                                                           @RequestParam(name = "cursor", required = false) String cursor);
+
+    /**
+     * Processes POST requests importing accounts in bulk, from CSV with an {@code id,currency,balance} header
+     * or from NDJSON objects with the same fields. The id may be left empty to have one generated.
+     *
+     * The endpoint streams back an NDJSON report: one {@link AccountImportError} per rejected account,
+     * then an {@link AccountImportResponseBody} summary. A report without a summary was not imported.
+     *
+     * @param contentType the content type of the request body, which selects its {@link AccountFileFormat}.
+     * @param accounts    the request body, one account per line.
+     * @param response    the response the report is written to.
+     * @throws IOException if the request body cannot be read or the report cannot be written.
+     */
+    @PostMapping(value = "/accounts/import",
+            consumes = {AccountFileFormat.CSV_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    void importAccounts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream accounts,
+                        HttpServletResponse response) throws IOException;
+
+    /**
+     * Processes GET requests exporting every account, ordered by id, as an attachment in CSV or NDJSON,
+     * in the format accepted by the import.
+     *
+     * @param format   the {@link AccountFileFormat}, {@code csv} or {@code ndjson}, in any case.
+     * @param response the response the accounts are written to.
+     * @throws IOException if the response cannot be written.
+     */
+    @GetMapping(value = "/accounts/export")
+    void exportAccounts(@RequestParam(name = "format", defaultValue = "csv") String format,
+                        HttpServletResponse response) throws IOException;
+
+    /**
+     * Processes GET requests exporting the full statement of an account, every transaction from and to it
+     * oldest first, as an attachment in CSV or NDJSON.
+     *
+     * The statement is written while it is read, on a thread of its own, so it starts at once
+     * and takes constant memory however long it is.
+     *
+     * @param accountId the id of the account, not null.
+     * @param format    the {@link AccountFileFormat}, {@code csv} or {@code ndjson}, in any case.
+     * @param request   the request, whose asynchronous processing is given the timeout of statements.
+     * @return a {@link StreamingResponseBody} writing the statement, encapsulated in a {@link ResponseEntity}.
+     */
+    @GetMapping(value = "/accounts/{accountId}/statement")
+    ResponseEntity<StreamingResponseBody> statement(@PathVariable("accountId") String accountId,
+                                                    @RequestParam(name = "format", defaultValue = "csv") String format,
+                                                    HttpServletRequest request);
+}
@@ -0,0 +1,128 @@
+package com.money.transfer.app.controller.v1;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.money.transfer.app.annotation.StatementBudget;
+import com.money.transfer.app.dto.AccountImportResponseBody;
+import com.money.transfer.app.dto.TransactionHistoryResponseBody;
+import com.money.transfer.app.service.AccountBulkService;
+import com.money.transfer.app.service.AccountBulkServiceImpl;
+import com.money.transfer.app.service.AccountFileFormat;
+import com.money.transfer.app.service.AccountStatementService;
+import com.money.transfer.app.service.AccountStatementServiceImpl;
+import com.money.transfer.app.service.TransactionHistoryService;
+import com.money.transfer.app.service.TransactionHistoryServiceImpl;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * Implementation of the {@link AccountController}.
+ * <p>
+ * Utilizes {@link TransactionHistoryServiceImpl} to read transaction histories page by page,
+ * {@link AccountBulkServiceImpl} to import and export accounts in bulk
+ * and {@link AccountStatementServiceImpl} to export account statements.
+ */
+@Controller
+public class AccountControllerImpl implements AccountController {
+
+    private final TransactionHistoryService transactionHistoryService;
+
+    private final AccountBulkService accountBulkService;
+
+    private final AccountStatementService accountStatementService;
+
+    private final ObjectMapper objectMapper;
+
+    private final Duration statementTimeout;
+
+    public AccountControllerImpl(TransactionHistoryService transactionHistoryService,
+                                 AccountBulkService accountBulkService,
+                                 AccountStatementService accountStatementService,
+                                 ObjectMapper objectMapper,
+                                 @Value("${account.statement.timeout}") Duration statementTimeout) {
+        this.transactionHistoryService = transactionHistoryService;
+        this.accountBulkService = accountBulkService;
+        this.accountStatementService = accountStatementService;
+        this.objectMapper = objectMapper;
+        this.statementTimeout = statementTimeout;
+    }
+
+    @StatementBudget(4)
+    public ResponseEntity<TransactionHistoryResponseBody> history(String accountId, Integer limit, String cursor) {
+        return ResponseEntity.ok(this.transactionHistoryService.accountHistory(accountId, limit, cursor));
+    }
+
+    @StatementBudget(4)
+    public ResponseEntity<TransactionHistoryResponseBody> history(String sourceAccountId, String targetAccountId,
+                                                                  Integer limit, String cursor) {
+        return ResponseEntity.ok(this.transactionHistoryService.pairHistory(sourceAccountId, targetAccountId, limit, cursor));
+    }
+
+    /**
+     * Writes every line of the report as soon as it is known, so errors reach the client while the import goes on.
+     */
+    public void importAccounts(String contentType, InputStream accounts, HttpServletResponse response) throws IOException {
+        AccountFileFormat format = AccountFileFormat.of(MediaType.parseMediaType(contentType));
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        OutputStream report = response.getOutputStream();
+        AccountImportResponseBody summary;
+        try {
+            summary = this.accountBulkService.importAccounts(format, accounts, error -> writeLine(report, error));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writeLine(report, summary);
+        report.flush();
+    }
+
+    public void exportAccounts(String format, HttpServletResponse response) throws IOException {
+        AccountFileFormat fileFormat = AccountFileFormat.of(format);
+        response.setContentType(fileFormat.getMediaType().toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("accounts." + fileFormat.extension())
+                .build()
+                .toString());
+        this.accountBulkService.exportAccounts(fileFormat, response.getOutputStream());
+    }
+
+    /**
+     * Checks the account before the response starts, so that a missing account is reported as an error
+     * rather than as an empty statement. The statement may be written for as long as
+     * {@code account.statement.timeout}, while every other asynchronous request keeps the default timeout.
+     */
+    public ResponseEntity<StreamingResponseBody> statement(String accountId, String format, HttpServletRequest request) {
+        AccountFileFormat fileFormat = AccountFileFormat.of(format);
+        this.accountStatementService.requireAccount(accountId);
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest().setTimeout(statementTimeout.toMillis());
+        return ResponseEntity.ok()
+                .contentType(fileFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("statement-" + accountId + "." + fileFormat.extension(), StandardCharsets.UTF_8)
+                        .build()
+                        .toString())
+                .body(output -> this.accountStatementService.exportStatement(accountId, fileFormat, output));
+    }
+
+    private void writeLine(OutputStream output, Object value) {
+        try {
+            output.write(objectMapper.writeValueAsBytes(value));
+            output.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package com.money.transfer.app.controller.v1;
 
+import com.money.transfer.app.dto.BatchTransferResponseBody;
 import com.money.transfer.app.dto.TransferRequestBody;
 import com.money.transfer.app.dto.TransferResponseBody;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 /**
  * Controller interface defining the money transfer operations.
  *
@@ -17,14 +22,38 @@ import org.springframework.web.bind.annotation.RequestMapping;
 @RequestMapping("/api/v1")
 public interface MoneyTransferController {
 
+    /**
+     * Header by which clients make a transfer safe to retry.
+     */
+    String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     /**
      * Processes POST requests for transferring money between accounts.
      *
      * The endpoint consumes and produces JSON data.
+     * A request that carries an {@value #IDEMPOTENCY_KEY_HEADER} header is executed at most once,
+     * repeating it with the same key returns the response of the first one.
      *
+     * @param idempotencyKey      the key that identifies retries of the same transfer, may be null.
      * @param transferRequestBody the necessary data, not null.
      * @return a {@link TransferResponseBody} encapsulated in a {@link ResponseEntity}, never null.
      */
     @PostMapping(value = "/transfer", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    ResponseEntity<TransferResponseBody> transfer(@RequestBody TransferRequestBody transferRequestBody);
+    ResponseEntity<TransferResponseBody> transfer(@RequestHeader(name = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                  @RequestBody TransferRequestBody transferRequestBody);
+
+    /**
+     * Processes POST requests for transferring money between many pairs of accounts at once.
+     *
+     * The endpoint consumes either a JSON array or a newline delimited JSON stream of transfer requests
+     * and produces JSON data reporting the outcome of each one.
+     *
+     * @param transferRequestBodies the raw request body, not null.
+     * @return a {@link BatchTransferResponseBody} encapsulated in a {@link ResponseEntity}, never null.
+     * @throws IOException if the request body cannot be read or parsed.
+     */
+    @PostMapping(value = "/transfer/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<BatchTransferResponseBody> transferBatch(InputStream transferRequestBodies) throws IOException;
 }
@@ -1,20 +1,32 @@
 package com.money.transfer.app.controller.v1;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.money.transfer.app.annotation.LogRequestCourse;
+import com.money.transfer.app.annotation.StatementBudget;
+import com.money.transfer.app.dto.BatchTransferResponseBody;
 import com.money.transfer.app.dto.TransferRequestBody;
 import com.money.transfer.app.dto.TransferResponseBody;
+import com.money.transfer.app.service.BatchTransferService;
+import com.money.transfer.app.service.BatchTransferServiceImpl;
+import com.money.transfer.app.service.IdempotentTransferService;
+import com.money.transfer.app.service.IdempotentTransferServiceImpl;
 import com.money.transfer.app.service.MoneyTransferService;
 import com.money.transfer.app.service.MoneyTransferServiceImpl;
 import lombok.AllArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 
 /**
  * Implementation of the {@link MoneyTransferController}.
  * This controller defines the endpoint handling logic for transferring money as specified in the API.
  * <p>
- * Utilizes {@link MoneyTransferServiceImpl} to perform the core business logic associated with money transfers.
+ * Utilizes {@link MoneyTransferServiceImpl} to perform the core business logic associated with money transfers
+ * and {@link BatchTransferServiceImpl} for transfers submitted in batches.
+ * Transfers that carry an idempotency key go through {@link IdempotentTransferServiceImpl}.
  */
 @Controller
 @LogRequestCourse
@@ -23,7 +35,28 @@ public class MoneyTransferControllerImpl implements MoneyTransferController {
 
     private final MoneyTransferService moneyTransferService;
 
-    public ResponseEntity<TransferResponseBody> transfer(TransferRequestBody transferRequestBody) {
-        return ResponseEntity.ok(this.moneyTransferService.transfer(transferRequestBody));
+    private final BatchTransferService batchTransferService;
+
+    private final IdempotentTransferService idempotentTransferService;
+
+    private final ObjectMapper objectMapper;
+
+    @StatementBudget(10)
+    public ResponseEntity<TransferResponseBody> transfer(String idempotencyKey, TransferRequestBody transferRequestBody) {
+        if (idempotencyKey == null) {
+            return ResponseEntity.ok(this.moneyTransferService.transfer(transferRequestBody));
+        }
+        return ResponseEntity.ok(this.idempotentTransferService.transfer(idempotencyKey, transferRequestBody));
+    }
+
+    /**
+     * Reads the whole batch before any transfer is applied, so that a malformed body is rejected as a whole.
+     * The reader accepts both a JSON array and a sequence of root level JSON objects.
+     */
+    public ResponseEntity<BatchTransferResponseBody> transferBatch(InputStream transferRequestBodies) throws IOException {
+        try (var requests = objectMapper.readerFor(TransferRequestBody.class)
+                .<TransferRequestBody>readValues(transferRequestBodies)) {
+            return ResponseEntity.ok(this.batchTransferService.transfer(requests.readAll()));
+        }
     }
 }
@@ -0,0 +1,25 @@
+package com.money.transfer.app.controller.v1;
+
+import com.money.transfer.app.dto.ReconciliationReport;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+
+/**
+ * Controller interface defining the on-demand reconciliation of the accounts.
+ */
+@RequestMapping("/api/v1")
+public interface ReconciliationController {
+
+    /**
+     * Processes POST requests reconciling every account with the transaction table now,
+     * as the end-of-day job does.
+     *
+     * The endpoint produces JSON data.
+     *
+     * @return a {@link ReconciliationReport} encapsulated in a {@link ResponseEntity}, never null.
+     */
+    @PostMapping(value = "/reconciliation", produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<ReconciliationReport> reconcile();
+}
@@ -0,0 +1,26 @@
+package com.money.transfer.app.controller.v1;
+
+import com.money.transfer.app.annotation.StatementBudget;
+import com.money.transfer.app.dto.ReconciliationReport;
+import com.money.transfer.app.service.ReconciliationService;
+import com.money.transfer.app.service.ReconciliationServiceImpl;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+
+/**
+ * Implementation of the {@link ReconciliationController}.
+ * <p>
+ * Utilizes {@link ReconciliationServiceImpl} to reconcile the accounts.
+ */
+@Controller
+@AllArgsConstructor
+public class ReconciliationControllerImpl implements ReconciliationController {
+
+    private final ReconciliationService reconciliationService;
+
+    @StatementBudget(2)
+    public ResponseEntity<ReconciliationReport> reconcile() {
+        return ResponseEntity.ok(this.reconciliationService.reconcile());
+    }
+}
@@ -0,0 +1,31 @@
+package com.money.transfer.app.controller.v2;
+
+import com.money.transfer.app.dto.TransferRequestBody;
+import com.money.transfer.app.dto.TransferResponseBody;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import reactor.core.publisher.Mono;
+
+/**
+ * Controller interface defining the non-blocking money transfer operations.
+ *
+ * The request and response bodies are the same as in version 1, but no request thread is held
+ * while the transfer waits for the database or the exchange rate API.
+ */
+@RequestMapping("/api/v2")
+public interface ReactiveMoneyTransferController {
+
+    /**
+     * Processes POST requests for transferring money between accounts.
+     *
+     * The endpoint consumes and produces JSON data.
+     *
+     * @param transferRequestBody the necessary data, not null.
+     * @return a {@link Mono} emitting a {@link TransferResponseBody} encapsulated in a {@link ResponseEntity}, never null.
+     */
+    @PostMapping(value = "/transfer", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    Mono<ResponseEntity<TransferResponseBody>> transfer(@RequestBody TransferRequestBody transferRequestBody);
+}
@@ -0,0 +1,28 @@
+package com.money.transfer.app.controller.v2;
+
+import com.money.transfer.app.dto.TransferRequestBody;
+import com.money.transfer.app.dto.TransferResponseBody;
+import com.money.transfer.app.service.ReactiveMoneyTransferService;
+import com.money.transfer.app.service.ReactiveMoneyTransferServiceImpl;
+import lombok.AllArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Mono;
+
+
+/**
+ * Implementation of the {@link ReactiveMoneyTransferController}.
+ * <p>
+ * Utilizes {@link ReactiveMoneyTransferServiceImpl} to perform the money transfers. The returned {@link Mono}
+ * is completed asynchronously, the request thread is released as soon as the handler returns.
+ */
+@Controller
+@AllArgsConstructor
+public class ReactiveMoneyTransferControllerImpl implements ReactiveMoneyTransferController {
+
+    private final ReactiveMoneyTransferService reactiveMoneyTransferService;
+
+    public Mono<ResponseEntity<TransferResponseBody>> transfer(TransferRequestBody transferRequestBody) {
+        return this.reactiveMoneyTransferService.transfer(transferRequestBody).map(ResponseEntity::ok);
+    }
+}
@@ -0,0 +1,25 @@
+package com.money.transfer.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data transfer object representing an account of a bulk import that was rejected.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccountImportError {
+
+    /**
+     * The one-based line of the rejected account in the imported file.
+     */
+    private long line;
+
+    private String accountId;
+
+    private String error;
+}
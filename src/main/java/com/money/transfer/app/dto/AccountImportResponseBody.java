@@ -0,0 +1,20 @@
+package com.money.transfer.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data transfer object summarizing a bulk account import, the last line of its report.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccountImportResponseBody {
+
+    private long imported;
+
+    private long rejected;
+}
@@ -0,0 +1,30 @@
+package com.money.transfer.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Data transfer object representing one account of a bulk import or export, a line of NDJSON.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccountRecord {
+
+    /**
+     * The id of the account, generated on import when missing.
+     */
+    private String id;
+
+    private String currency;
+
+    /**
+     * The balance in major units of the currency, including the balance of its slots on export.
+     */
+    private BigDecimal balance;
+}
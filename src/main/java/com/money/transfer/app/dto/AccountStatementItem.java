@@ -0,0 +1,43 @@
+package com.money.transfer.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Data transfer object representing one transaction of an account statement, from the side of the account.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccountStatementItem {
+
+    private String id;
+
+    private LocalDateTime orderedAt;
+
+    private String counterpartyAccountId;
+
+    /**
+     * The amount credited to the account, negative if debited, in major units of the currency of the account,
+     * or null for a transfer in another currency recorded before such amounts were.
+     */
+    private BigDecimal amount;
+
+    /**
+     * The currency of the account.
+     */
+    private String currency;
+
+    /**
+     * The transferred amount in major units of the transaction currency.
+     */
+    private BigDecimal transactionAmount;
+
+    private String transactionCurrency;
+}
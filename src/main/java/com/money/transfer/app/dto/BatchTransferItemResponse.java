@@ -0,0 +1,27 @@
+package com.money.transfer.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Data transfer object representing the outcome of a single transfer within a batch.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchTransferItemResponse {
+
+    public enum Status { COMPLETED, REJECTED }
+
+    /**
+     * The zero-based position of the transfer in the submitted batch.
+     */
+    private int index;
+
+    private Status status;
+
+    private String response;
+}
@@ -0,0 +1,27 @@
+package com.money.transfer.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data transfer object representing the response body of a batch money transfer operation.
+ * It summarizes the batch and reports the outcome of every submitted transfer, in submission order.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchTransferResponseBody {
+
+    private int total;
+
+    private int completed;
+
+    private int rejected;
+
+    private List<BatchTransferItemResponse> results;
+}
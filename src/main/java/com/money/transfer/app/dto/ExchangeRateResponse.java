@@ -1,27 +1,43 @@
 package com.money.transfer.app.dto;
 
+import com.money.transfer.app.entity.Currency;
+import com.money.transfer.app.integration.ExchangeRateResponseDecoder;
 import com.money.transfer.app.integration.ExchangeRateRestClient;
 import lombok.AllArgsConstructor;
-import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Getter;
 
-import java.util.Map;
+import java.util.List;
 
 /**
- * Represents the response structure retrieved from the external API with {@link ExchangeRateRestClient}.
+ * Represents the response retrieved from the external API with {@link ExchangeRateRestClient},
+ * as decoded by the {@link ExchangeRateResponseDecoder}.
+ * <p>
+ * Only the rates of the supported currencies are kept, in a primitive array indexed by their ordinals
+ * among {@link #getCurrencies()}, the supported currencies the response was decoded against.
  */
-@Data
-@Builder
+@Getter
 @AllArgsConstructor
-@NoArgsConstructor
-public class ExchangeRateResponse{
+public class ExchangeRateResponse {
 
-    public String result;
+    private final String result;
+
+    private final List<Currency> currencies;
 
     /**
-     * A mapping of currency codes to their corresponding exchange rates.
+     * The exchange rate of every currency, by ordinal, {@link Double#NaN} when the response lacks it.
      */
-    public Map<String, Float> conversion_rates;
+    private final double[] rates;
 
+    /**
+     * @param code a normalized currency code.
+     * @return the exchange rate of the currency, or {@link Double#NaN} if the response lacks it.
+     */
+    public double rate(String code) {
+        for (int ordinal = 0; ordinal < currencies.size(); ordinal++) {
+            if (currencies.get(ordinal).getCode().equals(code)) {
+                return rates[ordinal];
+            }
+        }
+        return Double.NaN;
+    }
 }
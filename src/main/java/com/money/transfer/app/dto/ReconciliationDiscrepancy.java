@@ -0,0 +1,33 @@
+package com.money.transfer.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Data transfer object representing an account whose balance does not add up to its opening balance
+ * plus the net of its transactions. Amounts are in major units of the currency of the account.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReconciliationDiscrepancy {
+
+    private String accountId;
+
+    private String currency;
+
+    /**
+     * The opening balance plus every amount credited to the account minus every amount debited from it.
+     */
+    private BigDecimal expectedBalance;
+
+    /**
+     * The balance of the account plus the balances of its slots.
+     */
+    private BigDecimal actualBalance;
+}
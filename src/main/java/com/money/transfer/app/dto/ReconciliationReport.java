@@ -0,0 +1,35 @@
+package com.money.transfer.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Data transfer object reporting the outcome of a reconciliation of every account against the transaction table.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReconciliationReport {
+
+    private LocalDateTime reconciledAt;
+
+    private long accounts;
+
+    private long transactions;
+
+    /**
+     * The accounts without an opening balance, which were not checked.
+     */
+    private long unreconcilable;
+
+    /**
+     * The accounts that do not reconcile, ordered by id.
+     */
+    private List<ReconciliationDiscrepancy> discrepancies;
+}
@@ -0,0 +1,34 @@
+package com.money.transfer.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Data transfer object representing one transaction of an account history.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionHistoryItem {
+
+    private String id;
+
+    private String sourceAccountId;
+
+    private String targetAccountId;
+
+    /**
+     * The transferred amount in major units, with as many decimal places as the currency has.
+     */
+    private BigDecimal amount;
+
+    private String currency;
+
+    private LocalDateTime orderedAt;
+}
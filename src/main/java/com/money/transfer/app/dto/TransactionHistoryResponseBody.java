@@ -0,0 +1,26 @@
+package com.money.transfer.app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Data transfer object representing one page of a transaction history, newest transaction first.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionHistoryResponseBody {
+
+    private List<TransactionHistoryItem> transactions;
+
+    /**
+     * Opaque position after the last transaction of this page, to be sent back to read the next page,
+     * or null if this is the last page.
+     */
+    private String nextCursor;
+}
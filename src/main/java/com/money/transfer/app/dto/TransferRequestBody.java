@@ -2,6 +2,8 @@ package com.money.transfer.app.dto;
 
 import lombok.*;
 
+import java.math.BigDecimal;
+
 /**
  * Data transfer object representing the request body for initiating a money transfer.
  * This object includes all necessary details as requested in the README.
@@ -16,7 +18,10 @@ public class TransferRequestBody {
 
     private String targetAccountId;
 
-    private float amount;
+    /**
+     * The amount in major units, kept exactly as sent. It may not have more decimal places than the currency.
+     */
+    private BigDecimal amount;
 
     private String currency;
 }
@@ -13,7 +13,6 @@ import java.time.LocalDateTime;
 @Setter
 @ToString
 @Entity
-@AllArgsConstructor
 @NoArgsConstructor
 @Table(name = "account", schema = "public")
 public class Account {
@@ -22,11 +21,55 @@ public class Account {
     @GeneratedValue(strategy = GenerationType.UUID)
     private String id;
 
-    private float balance;
+    /**
+     * The balance in minor units of the account currency.
+     */
+    private long balance;
 
     private String currency;
 
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    /**
+     * Incremented on every balance update, used to detect concurrent modifications
+     * when transfers run with {@code transfer.locking.mode=optimistic}.
+     */
+    @Version
+    private long version;
+
+    /**
+     * Number of {@link BalanceSlot}s credits to a hot account are spread over, zero for a plain account.
+     * The balance of the account is then its own balance plus the balances of all its slots.
+     */
+    @Column(name = "balance_slots")
+    private int balanceSlots;
+
+    /**
+     * The balance the account was opened with, in minor units of the account currency, null if it cannot be
+     * reconciled. Its balance plus the balances of its slots always equals this plus the net of its transactions.
+     */
+    @Column(name = "opening_balance", updatable = false)
+    private Long openingBalance;
+
+    public Account(String id, long balance, String currency, LocalDateTime createdAt) {
+        this(id, balance, currency, createdAt, 0, 0);
+    }
+
+    public Account(String id, long balance, String currency, LocalDateTime createdAt, long version, int balanceSlots) {
+        this.id = id;
+        this.balance = balance;
+        this.currency = currency;
+        this.createdAt = createdAt;
+        this.version = version;
+        this.balanceSlots = balanceSlots;
+    }
+
+    @PrePersist
+    void recordOpeningBalance() {
+        if (openingBalance == null) {
+            openingBalance = balance;
+        }
+    }
+
 }
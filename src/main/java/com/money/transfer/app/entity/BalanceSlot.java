@@ -0,0 +1,43 @@
+package com.money.transfer.app.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Represents one of the sub-balances of a hot {@link Account}, see {@link Account#getBalanceSlots()}.
+ * Credits to the account are spread over its slots, so that concurrent transfers do not queue on a single row.
+ */
+@Getter
+@Setter
+@ToString
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@IdClass(BalanceSlot.Key.class)
+@Table(name = "account_balance_slot", schema = "public")
+public class BalanceSlot {
+
+    @Id
+    @Column(name = "account_id")
+    private String accountId;
+
+    @Id
+    private int slot;
+
+    /**
+     * The balance in minor units of the account currency, credited since the last consolidation.
+     */
+    private long balance;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+
+        private String accountId;
+
+        private int slot;
+    }
+}
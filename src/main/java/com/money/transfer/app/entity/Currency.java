@@ -1,5 +1,6 @@
 package com.money.transfer.app.entity;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
@@ -11,7 +12,7 @@ import lombok.ToString;
 /**
  * Represents a currency entity within the financial application.
  * This entity is mapped stores the code, name, and associated
- * country of each currency.
+ * country of each currency, along with the number of digits of its minor unit.
  *
  * This information is used to validate user requests and provide
  * users with acceptable currency options.
@@ -31,4 +32,10 @@ public class Currency {
 
     private String country;
 
+    /**
+     * The number of decimal places amounts of this currency are held in, 2 for cents, 0 for currencies without a minor unit.
+     */
+    @Column(name = "minor_units")
+    private int minorUnits;
+
 }
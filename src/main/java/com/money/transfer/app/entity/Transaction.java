@@ -36,11 +36,32 @@ public class Transaction {
     @OneToOne
     private Account targetAccount;
 
-    private float amount;
+    /**
+     * The transferred amount in minor units of the transaction currency.
+     */
+    private long amount;
 
     private String currency;
 
+    /**
+     * The amount debited from the source account, in minor units of its currency.
+     */
+    @Column(name = "source_amount")
+    private Long sourceAmount;
+
+    /**
+     * The amount credited to the target account, in minor units of its currency.
+     */
+    @Column(name = "target_amount")
+    private Long targetAmount;
+
     @Column(name = "ordered_at")
     private LocalDateTime orderedAt;
+
+    /**
+     * The key the client sent to make retries of this transfer safe, unique among all transactions if present.
+     */
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
 }
 
@@ -0,0 +1,16 @@
+package com.money.transfer.app.exception;
+
+/**
+ * Base class of the exceptions that reject a request for an expected reason, such as a negative amount
+ * or a balance too low, rather than report a failure.
+ * <p>
+ * They are thrown for a large share of requests during abuse, and their stack trace, captured through the
+ * controller, service and AOP proxies, would cost far more than the validation itself while telling nothing
+ * beyond the message. So they capture no stack trace and allow no suppressed exceptions.
+ */
+public abstract class BusinessException extends RuntimeException {
+
+    protected BusinessException(String message) {
+        super(message, null, false, false);
+    }
+}
@@ -1,13 +1,17 @@
 package com.money.transfer.app.exception;
 
+import com.money.transfer.app.util.MessageTemplate;
+
 import static com.money.transfer.app.util.constants.ExceptionConstants.CURRENCY_EXCEPTION_MESSAGE;
 
 /**
  * Custom exception thrown when a user requests to make a transaction with an invalid currency.
  */
-public class CurrencyException extends RuntimeException {
+public class CurrencyException extends BusinessException {
+
+    private static final MessageTemplate MESSAGE = MessageTemplate.of(CURRENCY_EXCEPTION_MESSAGE);
 
     public CurrencyException(String currency) {
-        super(String.format(CURRENCY_EXCEPTION_MESSAGE, currency));
+        super(MESSAGE.format(currency));
     }
 }
@@ -1,16 +1,21 @@
 package com.money.transfer.app.exception;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.money.transfer.app.dto.TransferResponseBody;
-import com.money.transfer.app.repository.CurrencyRepository;
-import lombok.AllArgsConstructor;
+import com.money.transfer.app.entity.Currency;
+import com.money.transfer.app.metrics.TransferMetrics;
+import com.money.transfer.app.service.CurrencyRegistry;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import java.util.List;
+
 
 /**
  * Provides global exception handling for the application.
@@ -18,13 +23,19 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
  * This class is marked with {@link ControllerAdvice} to apply to all controllers,
  * in order to centralize exception handling and reduce repetitive
  * error handling code inside the controllers.
+ * Every handled exception is counted through {@link TransferMetrics}, tagged with its type and response status.
+ * The listing of the acceptable currencies is serialized once per set of currencies, not once per response.
  */
 @Slf4j
 @ControllerAdvice
-@AllArgsConstructor
+@RequiredArgsConstructor
 public class GlobalExceptionHandler {
 
-    private final CurrencyRepository currencyRepository;
+    private final CurrencyRegistry currencyRegistry;
+
+    private final TransferMetrics transferMetrics;
+
+    private volatile CurrencyListing currencyListing = new CurrencyListing(List.of(), "");
 
     /**
      * Handles general {@link RuntimeException}s that may occur during the processing of a request.
@@ -37,6 +48,7 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler({RuntimeException.class})
     ResponseEntity<TransferResponseBody> handle(RuntimeException e) {
+        transferMetrics.countError(e, HttpStatus.BAD_REQUEST);
         return new ResponseEntity<>(TransferResponseBody.builder().response(e.getMessage()).build(), HttpStatus.BAD_REQUEST);
     }
 
@@ -50,6 +62,21 @@ public class GlobalExceptionHandler {
      */
     @ExceptionHandler(WebClientException.class)
     ResponseEntity<TransferResponseBody> handle(WebClientException e) {
+        transferMetrics.countError(e, HttpStatus.INTERNAL_SERVER_ERROR);
+        return new ResponseEntity<>(TransferResponseBody.builder().response(e.getMessage()).build(), HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    /**
+     * Handles {@link StatementBudgetExceededException}, which is thrown only where statement budgets are enforced,
+     * when an endpoint ran more database statements than it declares.
+     * Returns a {@link ResponseEntity} with the error message and a 500 status.
+     *
+     * @param e the StatementBudgetExceededException that was thrown
+     * @return a {@link ResponseEntity} containing the error message and HTTP status
+     */
+    @ExceptionHandler(StatementBudgetExceededException.class)
+    ResponseEntity<TransferResponseBody> handle(StatementBudgetExceededException e) {
+        transferMetrics.countError(e, HttpStatus.INTERNAL_SERVER_ERROR);
         return new ResponseEntity<>(TransferResponseBody.builder().response(e.getMessage()).build(), HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
@@ -59,15 +86,47 @@ public class GlobalExceptionHandler {
      * Returns a detailed JSON response, with all the acceptable currencies
      * that a user is able to utilize, and a 500 status.
      * This method uses {@link Gson} to serialize the currency data into JSON format and pretty print
-     * it to be more readable.
+     * it to be more readable, again only once the {@link CurrencyRegistry} has been refreshed.
      *
      * @param e the CurrencyException that was thrown
      * @return a {@link ResponseEntity} containing the error message and serialized currency details
      */
     @ExceptionHandler(CurrencyException.class)
     ResponseEntity<String> handle(CurrencyException e) {
-        return new ResponseEntity<>(e.getMessage() +
-                new GsonBuilder().setPrettyPrinting().create().toJson(currencyRepository.findAll())
-                , HttpStatus.BAD_REQUEST);
+        transferMetrics.countError(e, HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(e.getMessage() + currencyListing(), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * @return the pretty printed JSON of the current currencies, serialized again only if they changed.
+     */
+    private String currencyListing() {
+        List<Currency> currencies = currencyRegistry.currencies();
+        CurrencyListing listing = currencyListing;
+        if (listing.currencies() != currencies) {
+            listing = new CurrencyListing(currencies, new GsonBuilder().setPrettyPrinting().create().toJson(currencies));
+            currencyListing = listing;
+        }
+        return listing.json();
+    }
+
+    /**
+     * Handles {@link JsonProcessingException}s, which occur when a request body that is read manually,
+     * such as a batch of transfers, is not valid JSON.
+     * Returns a {@link ResponseEntity} with the parser's message and a 400 status.
+     *
+     * @param e the JsonProcessingException that was thrown
+     * @return a {@link ResponseEntity} containing the error message and HTTP status
+     */
+    @ExceptionHandler(JsonProcessingException.class)
+    ResponseEntity<TransferResponseBody> handle(JsonProcessingException e) {
+        transferMetrics.countError(e, HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(TransferResponseBody.builder().response(e.getOriginalMessage()).build(), HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * The currencies of one refresh of the {@link CurrencyRegistry}, along with their serialized listing.
+     */
+    private record CurrencyListing(List<Currency> currencies, String json) {
     }
 }
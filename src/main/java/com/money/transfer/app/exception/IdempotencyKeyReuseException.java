@@ -0,0 +1,13 @@
+package com.money.transfer.app.exception;
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.IDEMPOTENCY_KEY_REUSE_EXCEPTION_MESSAGE;
+
+/**
+ * Custom exception thrown when a transaction request reuses the idempotency key of a different transfer.
+ */
+public class IdempotencyKeyReuseException extends RuntimeException {
+
+    public IdempotencyKeyReuseException(String idempotencyKey) {
+        super(String.format(IDEMPOTENCY_KEY_REUSE_EXCEPTION_MESSAGE, idempotencyKey));
+    }
+}
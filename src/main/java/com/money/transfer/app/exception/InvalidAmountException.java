@@ -0,0 +1,18 @@
+package com.money.transfer.app.exception;
+
+import com.money.transfer.app.util.MessageTemplate;
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.INVALID_AMOUNT_EXCEPTION_MESSAGE;
+
+/**
+ * Custom exception thrown when a transaction request includes a missing amount, or an amount
+ * that cannot be expressed in minor units of its currency.
+ */
+public class InvalidAmountException extends BusinessException {
+
+    private static final MessageTemplate MESSAGE = MessageTemplate.of(INVALID_AMOUNT_EXCEPTION_MESSAGE);
+
+    public InvalidAmountException(String amount, String currency) {
+        super(MESSAGE.format(amount, currency));
+    }
+}
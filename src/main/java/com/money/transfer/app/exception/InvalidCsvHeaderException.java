@@ -0,0 +1,13 @@
+package com.money.transfer.app.exception;
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.INVALID_CSV_HEADER_EXCEPTION_MESSAGE;
+
+/**
+ * Custom exception thrown when an account import in CSV does not start with a header naming its columns.
+ */
+public class InvalidCsvHeaderException extends RuntimeException {
+
+    public InvalidCsvHeaderException(String header) {
+        super(String.format(INVALID_CSV_HEADER_EXCEPTION_MESSAGE, header));
+    }
+}
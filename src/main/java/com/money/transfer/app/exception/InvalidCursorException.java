@@ -0,0 +1,13 @@
+package com.money.transfer.app.exception;
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.INVALID_CURSOR_EXCEPTION_MESSAGE;
+
+/**
+ * Custom exception thrown when a history request carries a cursor that was not issued by the application.
+ */
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String cursor) {
+        super(String.format(INVALID_CURSOR_EXCEPTION_MESSAGE, cursor));
+    }
+}
@@ -0,0 +1,13 @@
+package com.money.transfer.app.exception;
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.INVALID_IDEMPOTENCY_KEY_EXCEPTION_MESSAGE;
+
+/**
+ * Custom exception thrown when a transaction request carries a blank or overly long idempotency key.
+ */
+public class InvalidIdempotencyKeyException extends RuntimeException {
+
+    public InvalidIdempotencyKeyException(int maxLength) {
+        super(String.format(INVALID_IDEMPOTENCY_KEY_EXCEPTION_MESSAGE, maxLength));
+    }
+}
@@ -0,0 +1,13 @@
+package com.money.transfer.app.exception;
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.INVALID_PAGE_SIZE_EXCEPTION_MESSAGE;
+
+/**
+ * Custom exception thrown when a history request asks for fewer than one or too many transactions per page.
+ */
+public class InvalidPageSizeException extends RuntimeException {
+
+    public InvalidPageSizeException(int maxPageSize) {
+        super(String.format(INVALID_PAGE_SIZE_EXCEPTION_MESSAGE, maxPageSize));
+    }
+}
@@ -2,16 +2,31 @@ package com.money.transfer.app.exception;
 
 import com.money.transfer.app.dto.TransferRequestBody;
 import com.money.transfer.app.entity.Account;
+import com.money.transfer.app.util.MessageTemplate;
+import com.money.transfer.app.util.Money;
 
 import static com.money.transfer.app.util.constants.ExceptionConstants.LOW_BALANCE_EXCEPTION_MESSAGE;
 
 /**
  * Custom exception thrown when an attempted transaction exceeds the available balance in the source account.
  */
-public class LowBalanceException extends RuntimeException {
+public class LowBalanceException extends BusinessException {
 
-    public LowBalanceException(TransferRequestBody requestBody, Account sourceAccount) {
-        super(String.format(LOW_BALANCE_EXCEPTION_MESSAGE, requestBody.getAmount(),
-                requestBody.getCurrency(), sourceAccount.getBalance(), sourceAccount.getCurrency()));
+    private static final MessageTemplate MESSAGE = MessageTemplate.of(LOW_BALANCE_EXCEPTION_MESSAGE);
+
+    /**
+     * @param balanceScale the number of minor unit digits of the source account currency.
+     */
+    public LowBalanceException(TransferRequestBody requestBody, Account sourceAccount, int balanceScale) {
+        this(requestBody, sourceAccount, sourceAccount.getBalance(), balanceScale);
+    }
+
+    /**
+     * @param balance      the available balance of the source account, in minor units of its currency.
+     * @param balanceScale the number of minor unit digits of the source account currency.
+     */
+    public LowBalanceException(TransferRequestBody requestBody, Account sourceAccount, long balance, int balanceScale) {
+        super(MESSAGE.format(requestBody.getAmount().toPlainString(),
+                requestBody.getCurrency(), Money.format(balance, balanceScale), sourceAccount.getCurrency()));
     }
 }
@@ -1,14 +1,17 @@
 package com.money.transfer.app.exception;
 
+import com.money.transfer.app.util.MessageTemplate;
+
 import static com.money.transfer.app.util.constants.ExceptionConstants.NEGATIVE_AMOUNT_EXCEPTION_MESSAGE;
 
 /**
  * Custom exception thrown when a transaction request includes a negative amount.
  */
-public class NegativeAmountException extends RuntimeException {
+public class NegativeAmountException extends BusinessException {
 
+    private static final MessageTemplate MESSAGE = MessageTemplate.of(NEGATIVE_AMOUNT_EXCEPTION_MESSAGE);
 
     public NegativeAmountException(String currency) {
-        super(String.format(NEGATIVE_AMOUNT_EXCEPTION_MESSAGE, currency));
+        super(MESSAGE.format(currency));
     }
 }
@@ -5,7 +5,7 @@ import static com.money.transfer.app.util.constants.ExceptionConstants.SAME_ACCO
 /**
  * Custom exception thrown when an attempt is made to perform a transaction between the same account.
  */
-public class SameAccountException extends RuntimeException {
+public class SameAccountException extends BusinessException {
 
     public SameAccountException() {
         super(SAME_ACCOUNT_EXCEPTION_MESSAGE);
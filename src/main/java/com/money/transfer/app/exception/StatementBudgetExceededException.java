@@ -0,0 +1,14 @@
+package com.money.transfer.app.exception;
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.STATEMENT_BUDGET_EXCEEDED_EXCEPTION_MESSAGE;
+
+/**
+ * Custom exception thrown, when budgets are enforced, once a request has run more database statements
+ * than the {@link com.money.transfer.app.annotation.StatementBudget} of its endpoint allows.
+ */
+public class StatementBudgetExceededException extends RuntimeException {
+
+    public StatementBudgetExceededException(String endpoint, int statements, int budget) {
+        super(String.format(STATEMENT_BUDGET_EXCEEDED_EXCEPTION_MESSAGE, endpoint, statements, budget));
+    }
+}
@@ -0,0 +1,13 @@
+package com.money.transfer.app.exception;
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.UNSUPPORTED_FILE_FORMAT_EXCEPTION_MESSAGE;
+
+/**
+ * Custom exception thrown when accounts are requested in a file format the application does not write.
+ */
+public class UnsupportedFileFormatException extends RuntimeException {
+
+    public UnsupportedFileFormatException(String format) {
+        super(String.format(UNSUPPORTED_FILE_FORMAT_EXCEPTION_MESSAGE, format));
+    }
+}
@@ -0,0 +1,229 @@
+package com.money.transfer.app.integration;
+
+import com.money.transfer.app.exception.WebClientException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.CIRCUIT_OPEN_EXCEPTION_MESSAGE;
+
+/**
+ * Circuit breaker guarding the calls of the {@link ExchangeRateRestClient} to the external exchange rate API.
+ * <p>
+ * While {@link State#CLOSED} the outcome of the last {@code window-size} calls is kept, a call failing or taking
+ * longer than {@code slow-call-duration} counting as a failure. Once at least half of the window has been recorded
+ * and the share of failures reaches {@code failure-rate-threshold} the circuit opens, and calls fail fast with a
+ * {@link WebClientException} for {@code open-duration}. After that {@code half-open-calls} probes are let through:
+ * if all of them succeed the circuit closes, if any fails it opens again.
+ * <p>
+ * The state is published as the {@value #STATE_GAUGE} gauge, every transition counted as {@value #TRANSITION_COUNTER}
+ * and every response served from the last known good rates recorded, with its age in seconds, as {@value #FALLBACK_SUMMARY}.
+ * Its state is guarded by a {@link ReentrantLock} rather than a monitor, so that a virtual thread waiting for it,
+ * or logging a transition while holding it, never pins its carrier thread.
+ */
+@Slf4j
+@Component
+public class ExchangeRateCircuitBreaker {
+
+    public static final String STATE_GAUGE = "exchange.rate.circuit.state";
+
+    public static final String TRANSITION_COUNTER = "exchange.rate.circuit.transitions";
+
+    public static final String FALLBACK_SUMMARY = "exchange.rate.fallback.age";
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int windowSize;
+
+    private final double failureRateThreshold;
+
+    private final long slowCallNanos;
+
+    private final long openNanos;
+
+    private final int halfOpenCalls;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<State, Map<State, Counter>> transitionCounters = new EnumMap<>(State.class);
+
+    private final DistributionSummary fallbackAges;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Outcomes of the last calls while closed, used as a ring, true for a failure.
+     */
+    private final boolean[] outcomes;
+
+    private int recorded;
+
+    private int next;
+
+    private int failures;
+
+    private State state = State.CLOSED;
+
+    private long openedAt;
+
+    private int probesLeft;
+
+    private int probesSucceeded;
+
+    public ExchangeRateCircuitBreaker(@Value("${exchange.rate.circuit-breaker.window-size}") int windowSize,
+                                      @Value("${exchange.rate.circuit-breaker.failure-rate-threshold}") double failureRateThreshold,
+                                      @Value("${exchange.rate.circuit-breaker.slow-call-duration}") Duration slowCallDuration,
+                                      @Value("${exchange.rate.circuit-breaker.open-duration}") Duration openDuration,
+                                      @Value("${exchange.rate.circuit-breaker.half-open-calls}") int halfOpenCalls,
+                                      MeterRegistry meterRegistry) {
+        this.windowSize = windowSize;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = slowCallDuration.toNanos();
+        this.openNanos = openDuration.toNanos();
+        this.halfOpenCalls = halfOpenCalls;
+        this.meterRegistry = meterRegistry;
+        this.outcomes = new boolean[windowSize];
+        Gauge.builder(STATE_GAUGE, this, breaker -> breaker.getState().ordinal())
+                .description("State of the exchange rate circuit breaker, 0 closed, 1 open, 2 half open")
+                .register(meterRegistry);
+        this.fallbackAges = DistributionSummary.builder(FALLBACK_SUMMARY)
+                .description("Age in seconds of the last known good exchange rates served while the API is unavailable")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs a call to the exchange rate API through the breaker, recording its outcome and duration.
+     *
+     * @param call the call, subscribed to only if the breaker lets it through.
+     * @return a {@link Mono} emitting the result of the call, or a {@link WebClientException} if the circuit is open.
+     */
+    public <T> Mono<T> protect(Mono<T> call) {
+        return Mono.defer(() -> {
+            if (!tryAcquire()) {
+                return Mono.error(new WebClientException(CIRCUIT_OPEN_EXCEPTION_MESSAGE));
+            }
+            long started = System.nanoTime();
+            // only the first signal counts, a cancellation after the result has been delivered is no failure
+            AtomicBoolean finished = new AtomicBoolean();
+            return call
+                    .doOnSuccess(result -> finish(finished, started, false))
+                    .doOnError(e -> finish(finished, started, true))
+                    .doOnCancel(() -> finish(finished, started, true));
+        });
+    }
+
+    /**
+     * Records that a response was served from the last known good exchange rates.
+     *
+     * @param age how long ago the served rates were fetched.
+     */
+    public void recordFallback(Duration age) {
+        fallbackAges.record(age.toMillis() / 1000.0);
+    }
+
+    public State getState() {
+        lock.lock();
+        try {
+            return state;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAt < openNanos) {
+                    return false;
+                }
+                transition(State.HALF_OPEN);
+                probesLeft = halfOpenCalls;
+                probesSucceeded = 0;
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesLeft == 0) {
+                    return false;
+                }
+                probesLeft--;
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void record(long durationNanos, boolean failed) {
+        boolean failure = failed || durationNanos >= slowCallNanos;
+        lock.lock();
+        try {
+            if (state == State.HALF_OPEN) {
+                if (failure) {
+                    open();
+                } else if (++probesSucceeded == halfOpenCalls) {
+                    transition(State.CLOSED);
+                }
+            } else if (state == State.CLOSED) {
+                if (recorded == windowSize) {
+                    failures -= outcomes[next] ? 1 : 0;
+                } else {
+                    recorded++;
+                }
+                outcomes[next] = failure;
+                failures += failure ? 1 : 0;
+                next = (next + 1) % windowSize;
+                if (recorded * 2 >= windowSize && failures >= failureRateThreshold * recorded) {
+                    open();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void finish(AtomicBoolean finished, long started, boolean failed) {
+        if (finished.compareAndSet(false, true)) {
+            record(System.nanoTime() - started, failed);
+        }
+    }
+
+    private void open() {
+        openedAt = System.nanoTime();
+        transition(State.OPEN);
+    }
+
+    private void transition(State to) {
+        log.warn("Exchange rate circuit breaker moves from {} to {}", state, to);
+        transitionCounters.computeIfAbsent(state, from -> new EnumMap<>(State.class))
+                .computeIfAbsent(to, this::registerTransition)
+                .increment();
+        if (to == State.CLOSED) {
+            recorded = 0;
+            next = 0;
+            failures = 0;
+        }
+        state = to;
+    }
+
+    private Counter registerTransition(State to) {
+        return Counter.builder(TRANSITION_COUNTER)
+                .description("Transitions of the exchange rate circuit breaker")
+                .tag("from", state.name())
+                .tag("to", to.name())
+                .register(meterRegistry);
+    }
+}
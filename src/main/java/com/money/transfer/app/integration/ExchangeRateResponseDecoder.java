@@ -0,0 +1,180 @@
+package com.money.transfer.app.integration;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.money.transfer.app.dto.ExchangeRateResponse;
+import com.money.transfer.app.service.CurrencyRegistry;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractDecoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.MALFORMED_EXCHANGE_RATE_RESPONSE_EXCEPTION_MESSAGE;
+
+/**
+ * Decodes the JSON responses of the exchange rate API into an {@link ExchangeRateResponse}, registered on the
+ * {@link org.springframework.web.reactive.function.client.WebClient} of the {@link ExchangeRateRestClient}.
+ * <p>
+ * Every buffer of the body is fed to a non-blocking Jackson parser as soon as it arrives, so the body is never
+ * aggregated nor mapped to a tree. Each rate is looked up by its currency code in one {@link CurrencyRegistry.View}
+ * and, if the currency is supported, read as a primitive {@code double} straight into the slot of its ordinal;
+ * the numbers of unsupported currencies are skipped without being parsed. Currency codes are canonicalized
+ * by the shared {@link JsonFactory}, so after the first response they are not allocated again either.
+ */
+@Component
+public class ExchangeRateResponseDecoder extends AbstractDecoder<ExchangeRateResponse> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final String RESULT_FIELD = "result";
+
+    private static final String RATES_FIELD = "conversion_rates";
+
+    private final CurrencyRegistry currencyRegistry;
+
+    public ExchangeRateResponseDecoder(CurrencyRegistry currencyRegistry) {
+        super(MediaType.APPLICATION_JSON);
+        this.currencyRegistry = currencyRegistry;
+    }
+
+    @Override
+    public boolean canDecode(ResolvableType elementType, @Nullable MimeType mimeType) {
+        return elementType.toClass() == ExchangeRateResponse.class && super.canDecode(elementType, mimeType);
+    }
+
+    @Override
+    public Flux<ExchangeRateResponse> decode(Publisher<DataBuffer> input, ResolvableType elementType,
+                                             @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return Flux.from(decodeToMono(input, elementType, mimeType, hints));
+    }
+
+    @Override
+    public Mono<ExchangeRateResponse> decodeToMono(Publisher<DataBuffer> input, ResolvableType elementType,
+                                                   @Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+        return Mono.fromCallable(() -> new RateParser(currencyRegistry.view()))
+                .flatMap(parser -> Flux.from(input)
+                        .doOnNext(parser::feed)
+                        .then(Mono.fromCallable(parser::finish)));
+    }
+
+    /**
+     * Parses one response, buffer by buffer. Only the top level {@value #RESULT_FIELD} and the rates directly
+     * within the top level {@value #RATES_FIELD} object are read, any other value is skipped.
+     */
+    private static final class RateParser {
+
+        private final JsonParser parser;
+
+        private final ByteBufferFeeder feeder;
+
+        private final CurrencyRegistry.View view;
+
+        private final double[] rates;
+
+        private String result;
+
+        private String field;
+
+        private int depth;
+
+        private boolean inRates;
+
+        private boolean complete;
+
+        private RateParser(CurrencyRegistry.View view) throws IOException {
+            this.parser = JSON_FACTORY.createNonBlockingByteBufferParser();
+            this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+            this.view = view;
+            this.rates = new double[view.currencies().size()];
+            Arrays.fill(rates, Double.NaN);
+        }
+
+        /**
+         * Parses every token the buffer completes and releases it.
+         */
+        private void feed(DataBuffer buffer) {
+            try (DataBuffer.ByteBufferIterator chunks = buffer.readableByteBuffers()) {
+                while (chunks.hasNext()) {
+                    feeder.feedInput(chunks.next());
+                    parseAvailableTokens();
+                }
+            } catch (IOException e) {
+                throw new DecodingException(MALFORMED_EXCHANGE_RATE_RESPONSE_EXCEPTION_MESSAGE, e);
+            } finally {
+                DataBufferUtils.release(buffer);
+            }
+        }
+
+        /**
+         * Parses the tokens completed by the end of the body and closes the parser, which hands its currency codes
+         * over to the shared {@link JsonFactory}.
+         */
+        private ExchangeRateResponse finish() {
+            try {
+                feeder.endOfInput();
+                parseAvailableTokens();
+                parser.close();
+            } catch (IOException e) {
+                throw new DecodingException(MALFORMED_EXCHANGE_RATE_RESPONSE_EXCEPTION_MESSAGE, e);
+            }
+            if (!complete) {
+                throw new DecodingException(MALFORMED_EXCHANGE_RATE_RESPONSE_EXCEPTION_MESSAGE);
+            }
+            return new ExchangeRateResponse(result, view.currencies(), rates);
+        }
+
+        private void parseAvailableTokens() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                switch (token) {
+                    case START_OBJECT -> {
+                        if (++depth == 2 && RATES_FIELD.equals(field)) {
+                            inRates = true;
+                        }
+                    }
+                    case START_ARRAY -> depth++;
+                    case END_OBJECT, END_ARRAY -> {
+                        if (--depth == 1) {
+                            inRates = false;
+                        }
+                        complete = depth == 0 && token == JsonToken.END_OBJECT;
+                    }
+                    case FIELD_NAME -> {
+                        if (depth == 1) {
+                            field = parser.currentName();
+                        }
+                    }
+                    case VALUE_STRING -> {
+                        if (depth == 1 && RESULT_FIELD.equals(field)) {
+                            result = parser.getText();
+                        }
+                    }
+                    case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> {
+                        if (inRates && depth == 2) {
+                            int ordinal = view.ordinal(parser.currentName());
+                            if (ordinal != CurrencyRegistry.UNSUPPORTED) {
+                                rates[ordinal] = parser.getDoubleValue();
+                            }
+                        }
+                    }
+                    default -> {
+                    }
+                }
+            }
+        }
+    }
+}
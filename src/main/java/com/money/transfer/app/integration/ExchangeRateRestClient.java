@@ -1,18 +1,27 @@
 package com.money.transfer.app.integration;
 
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.money.transfer.app.dto.ExchangeRateResponse;
 import com.money.transfer.app.exception.WebClientException;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientRequestException;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
 
 import static com.money.transfer.app.util.constants.ExceptionConstants.*;
 
@@ -20,46 +29,204 @@ import static com.money.transfer.app.util.constants.ExceptionConstants.*;
  * Rest Client to integrate with the external exchange rate API.
  * This component uses a {@link WebClient} to make HTTP requests to retrieve exchange rates
  * in order to help its caller service to accurately convert between currencies.
+ * <p>
+ * Responses are kept in a bounded cache keyed by base currency. Concurrent misses for the same
+ * base currency share a single outbound request, and once an entry is older than the refresh
+ * interval it keeps being served while a background reload replaces it.
+ * <p>
+ * Outbound requests go through the {@link ExchangeRateCircuitBreaker}, so a degraded API fails fast instead of
+ * holding every caller for the whole timeout. When a lookup fails, the last rates successfully fetched for its
+ * base currency are served instead, as long as they are not older than the configured maximum staleness.
+ * <p>
+ * Every phase of a request is bounded by the HTTP client, see
+ * {@link com.money.transfer.app.configuration.AppConfiguration#exchangeRateHttpClient}, and the whole request,
+ * as well as a caller waiting for it, by the {@code exchange.rate.http.deadline}.
  */
 @Slf4j
 @Component
-@RequiredArgsConstructor
 public class ExchangeRateRestClient {
 
     private final WebClient exchangeRateWebClient;
 
+    private final ExchangeRateCircuitBreaker circuitBreaker;
+
+    private final Duration maxStaleness;
+
+    private final Duration deadline;
+
+    private final Map<String, LastKnownGood> lastKnownGood = new ConcurrentHashMap<>();
+
+    private final AsyncLoadingCache<String, ExchangeRateResponse> exchangeRateCache;
+
+    private final LongAdder refreshCount = new LongAdder();
+
+    public ExchangeRateRestClient(WebClient exchangeRateWebClient,
+                                  ExchangeRateCircuitBreaker circuitBreaker,
+                                  @Value("${exchange.rate.cache.ttl}") Duration ttl,
+                                  @Value("${exchange.rate.cache.refresh-after}") Duration refreshAfter,
+                                  @Value("${exchange.rate.cache.max-size}") long maxSize,
+                                  @Value("${exchange.rate.circuit-breaker.max-staleness}") Duration maxStaleness,
+                                  @Value("${exchange.rate.http.deadline}") Duration deadline) {
+        this.exchangeRateWebClient = exchangeRateWebClient;
+        this.circuitBreaker = circuitBreaker;
+        this.maxStaleness = maxStaleness;
+        this.deadline = deadline;
+        this.exchangeRateCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .refreshAfterWrite(refreshAfter)
+                .recordStats()
+                .buildAsync(new AsyncCacheLoader<>() {
+                    @Override
+                    public CompletableFuture<ExchangeRateResponse> asyncLoad(String baseCurrency, Executor executor) {
+                        return requestExchangeRates(baseCurrency).toFuture();
+                    }
+
+                    @Override
+                    public CompletableFuture<ExchangeRateResponse> asyncReload(String baseCurrency,
+                                                                               ExchangeRateResponse oldValue,
+                                                                               Executor executor) {
+                        refreshCount.increment();
+                        return requestExchangeRates(baseCurrency).toFuture();
+                    }
+                });
+    }
+
     /**
      * Fetches exchange rate data for a given base currency.
      * <p>
-     * This method constructs a URL for the exchange rate API using the provided base currency
-     * and sends a GET request through the {@link WebClient}.
+     * Served from the cache when a fresh enough entry exists, otherwise loaded
+     * through {@link #requestExchangeRates(String)}, falling back to the last known good rates.
      *
      * @param baseCurrency The base currency code to fetch exchange rates in relation to.
      * @return {@link ExchangeRateResponse} containing exchange rate data
      * @throws WebClientException in case there is an error during the web client operation
      */
     public ExchangeRateResponse fetchExchangeRates(String baseCurrency) {
+        return block(fetchExchangeRatesAsync(baseCurrency));
+    }
+
+    /**
+     * Non-blocking variant of {@link #fetchExchangeRates(String)}.
+     *
+     * @param baseCurrency The base currency code to fetch exchange rates in relation to.
+     * @return a {@link Mono} emitting the exchange rate data or a {@link WebClientException}
+     */
+    public Mono<ExchangeRateResponse> fetchExchangeRatesAsync(String baseCurrency) {
+        return Mono.fromFuture(() -> exchangeRateCache.get(baseCurrency))
+                .onErrorMap(ExchangeRateRestClient::toWebClientException)
+                .onErrorResume(WebClientException.class, e -> fallback(baseCurrency, e));
+    }
+
+    /**
+     * @return a {@link Mono} emitting the last known good rates of the base currency if they are recent enough,
+     * otherwise the given failure.
+     */
+    private Mono<ExchangeRateResponse> fallback(String baseCurrency, WebClientException failure) {
+        LastKnownGood last = lastKnownGood.get(baseCurrency);
+        if (last == null) {
+            return Mono.error(failure);
+        }
+        Duration age = Duration.ofNanos(System.nanoTime() - last.fetchedAt());
+        if (age.compareTo(maxStaleness) > 0) {
+            return Mono.error(failure);
+        }
+        log.debug("Serving {} exchange rates fetched {} ago: {}", baseCurrency, age, failure.getMessage());
+        circuitBreaker.recordFallback(age);
+        return Mono.just(last.response());
+    }
+
+    /**
+     * Reloads the cached exchange rate data of a base currency from the external API, even if it is still fresh.
+     * <p>
+     * The cached entry keeps being served until the reload completes and is kept if the reload fails.
+     *
+     * @param baseCurrency The base currency code to fetch exchange rates in relation to.
+     * @return a {@link Mono} emitting the reloaded exchange rate data or a {@link WebClientException}
+     */
+    public Mono<ExchangeRateResponse> refreshExchangeRates(String baseCurrency) {
+        return Mono.fromFuture(() -> exchangeRateCache.synchronous().refresh(baseCurrency))
+                .onErrorMap(ExchangeRateRestClient::toWebClientException);
+    }
+
+    /**
+     * Requests exchange rate data for a given base currency from the external API, bypassing the cache.
+     * <p>
+     * This method constructs a URL for the exchange rate API using the provided base currency
+     * and sends a GET request through the {@link WebClient}, guarded by the {@link ExchangeRateCircuitBreaker}.
+     * A successful response is kept as the last known good rates of the base currency.
+     *
+     * @param baseCurrency The base currency code to fetch exchange rates in relation to.
+     * @return a {@link Mono} emitting the {@link ExchangeRateResponse} or a {@link WebClientException}
+     */
+    Mono<ExchangeRateResponse> requestExchangeRates(String baseCurrency) {
+        return circuitBreaker.protect(Mono.defer(() -> {
+                    final String url = UriComponentsBuilder.fromUriString(baseCurrency)
+                            .build()
+                            .toUriString();
+                    return exchangeRateWebClient.get()
+                            .uri(url)
+                            .retrieve()
+                            .toEntity(ExchangeRateResponse.class);
+                })
+                .timeout(deadline)
+                .doOnNext(responseEntity -> log.debug("ExchangeRate API responded: {}", responseEntity.getStatusCode()))
+                .map(ResponseEntity::getBody))
+                .doOnNext(response -> lastKnownGood.put(baseCurrency, new LastKnownGood(response, System.nanoTime())))
+                .onErrorMap(ExchangeRateRestClient::toWebClientException);
+    }
+
+    private <T> T block(Mono<T> mono) {
         try {
-            final String url = UriComponentsBuilder.fromUriString(baseCurrency)
-                    .build()
-                    .toUriString();
-            ResponseEntity<ExchangeRateResponse> responseEntity = exchangeRateWebClient.get()
-                    .uri(url)
-                    .retrieve()
-                    .toEntity(ExchangeRateResponse.class)
-                    .block(Duration.ofSeconds(10));
-            log.debug("ExchangeRate API responded: {}", responseEntity.getStatusCode());
-            return responseEntity.getBody();
-        } catch (WebClientResponseException e) {
-            throw new WebClientException(EXTERNAL_SERVER_EXCEPTION_MESSAGE);
-        } catch (WebClientRequestException e) {
-            throw new WebClientException(INTERNAL_SERVER_EXCEPTION_MESSAGE);
+            return mono.block(deadline);
+        } catch (WebClientException e) {
+            throw e;
         } catch (Exception e) {
-            if (e.getCause() instanceof TimeoutException) {
-                throw new WebClientException(REQUEST_TIME_OUT_EXCEPTION_MESSAGE);
-            } else {
-                throw new WebClientException(WEB_CLIENT_GENERAL_EXCEPTION_MESSAGE);
-            }
+            throw toWebClientException(e);
         }
     }
+
+    /**
+     * Translates any failure of the integration into the {@link WebClientException} reported to the user.
+     */
+    private static WebClientException toWebClientException(Throwable e) {
+        if (e instanceof WebClientException webClientException) {
+            return webClientException;
+        } else if (e instanceof WebClientResponseException) {
+            return new WebClientException(EXTERNAL_SERVER_EXCEPTION_MESSAGE);
+        } else if (e instanceof WebClientRequestException) {
+            return new WebClientException(INTERNAL_SERVER_EXCEPTION_MESSAGE);
+        } else if (e instanceof TimeoutException || e.getCause() instanceof TimeoutException) {
+            return new WebClientException(REQUEST_TIME_OUT_EXCEPTION_MESSAGE);
+        } else {
+            return new WebClientException(WEB_CLIENT_GENERAL_EXCEPTION_MESSAGE);
+        }
+    }
+
+    /**
+     * Rates successfully fetched for a base currency, with the {@link System#nanoTime()} they were fetched at.
+     */
+    private record LastKnownGood(ExchangeRateResponse response, long fetchedAt) {
+    }
+
+    /**
+     * @return the number of lookups answered from the cache.
+     */
+    public long getCacheHitCount() {
+        return exchangeRateCache.synchronous().stats().hitCount();
+    }
+
+    /**
+     * @return the number of lookups that had to wait for the external API.
+     */
+    public long getCacheMissCount() {
+        return exchangeRateCache.synchronous().stats().missCount();
+    }
+
+    /**
+     * @return the number of background reloads triggered for stale entries.
+     */
+    public long getCacheRefreshCount() {
+        return refreshCount.sum();
+    }
 }
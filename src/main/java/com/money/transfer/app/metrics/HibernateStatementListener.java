@@ -0,0 +1,27 @@
+package com.money.transfer.app.metrics;
+
+import org.hibernate.SessionEventListener;
+
+/**
+ * Counts the statements Hibernate executes and its flushes into the {@link QueryProfile} of the current thread.
+ * <p>
+ * Hibernate creates one per session, as it is listed in {@code spring.jpa.properties.hibernate.session.events.auto},
+ * so these are the per-session statistics of Hibernate, attributed to the request rather than summed up globally.
+ */
+public class HibernateStatementListener implements SessionEventListener {
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        QueryProfile.hibernateStatementExecuted();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        QueryProfile.hibernateStatementExecuted();
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        QueryProfile.flushed();
+    }
+}
@@ -0,0 +1,134 @@
+package com.money.transfer.app.metrics;
+
+/**
+ * Counts the database work done by the current thread while a profile is open, usually for one request.
+ * <p>
+ * JDBC statements are counted by the {@link StatementCountingDataSource}, whatever runs them, and the statements and
+ * flushes of Hibernate by the {@link HibernateStatementListener}. Work done on other threads, such as by the ledger
+ * writer or through R2DBC, is not counted.
+ */
+public final class QueryProfile implements AutoCloseable {
+
+    private static final ThreadLocal<QueryProfile> CURRENT = new ThreadLocal<>();
+
+    private int statements;
+
+    private int batches;
+
+    private int connections;
+
+    private int hibernateStatements;
+
+    private int flushes;
+
+    private QueryProfile() {
+    }
+
+    /**
+     * Opens a profile on the current thread, replacing any open one.
+     *
+     * @return the profile, to be closed on the same thread.
+     */
+    public static QueryProfile start() {
+        QueryProfile profile = new QueryProfile();
+        CURRENT.set(profile);
+        return profile;
+    }
+
+    /**
+     * @return the profile open on the current thread, or null if there is none.
+     */
+    public static QueryProfile current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @return the counts of the profile open on the current thread, for logging.
+     */
+    public static String summary() {
+        QueryProfile profile = CURRENT.get();
+        return profile != null ? profile.toString() : "statements=unprofiled";
+    }
+
+    static void connectionAcquired() {
+        QueryProfile profile = CURRENT.get();
+        if (profile != null) {
+            profile.connections++;
+        }
+    }
+
+    static void statementExecuted(boolean batch) {
+        QueryProfile profile = CURRENT.get();
+        if (profile != null) {
+            profile.statements++;
+            if (batch) {
+                profile.batches++;
+            }
+        }
+    }
+
+    static void hibernateStatementExecuted() {
+        QueryProfile profile = CURRENT.get();
+        if (profile != null) {
+            profile.hibernateStatements++;
+        }
+    }
+
+    static void flushed() {
+        QueryProfile profile = CURRENT.get();
+        if (profile != null) {
+            profile.flushes++;
+        }
+    }
+
+    /**
+     * @return the JDBC statements executed, every batch counting as one, as they are one round trip each.
+     */
+    public int statements() {
+        return statements;
+    }
+
+    /**
+     * @return the JDBC batches executed, included in the {@link #statements()}.
+     */
+    public int batches() {
+        return batches;
+    }
+
+    /**
+     * @return the JDBC connections taken from the pool.
+     */
+    public int connections() {
+        return connections;
+    }
+
+    /**
+     * @return the statements and batches executed by Hibernate, included in the {@link #statements()}.
+     */
+    public int hibernateStatements() {
+        return hibernateStatements;
+    }
+
+    /**
+     * @return the times a Hibernate session was flushed.
+     */
+    public int flushes() {
+        return flushes;
+    }
+
+    /**
+     * Stops counting, if this is still the profile of the current thread.
+     */
+    @Override
+    public void close() {
+        if (CURRENT.get() == this) {
+            CURRENT.remove();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "statements=" + statements + " batches=" + batches + " connections=" + connections +
+                " hibernateStatements=" + hibernateStatements + " flushes=" + flushes;
+    }
+}
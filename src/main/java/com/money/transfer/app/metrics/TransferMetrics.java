@@ -0,0 +1,165 @@
+package com.money.transfer.app.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Records how long every stage of a transfer takes and how often requests fail.
+ * <p>
+ * Durations are published as the {@value #STAGE_TIMER} timer, tagged with the {@code stage}, its {@code outcome}
+ * and, on failure, the simple name of the {@code exception}; errors reported to users are counted as
+ * {@value #ERROR_COUNTER}, tagged with the {@code exception} and the HTTP {@code status}.
+ * The histogram of the timer is enabled by {@code management.metrics.distribution.percentiles-histogram.transfer.stage}.
+ * The database statements every endpoint runs, per request, are published as the {@value #STATEMENT_SUMMARY} summary,
+ * tagged with the {@code endpoint} and the {@code source}, {@code jdbc} for all of them and {@code hibernate} for those
+ * of Hibernate, and requests exceeding the statement budget of their endpoint are counted as {@value #BUDGET_COUNTER}.
+ * Meters are resolved once and cached, so recording a duration costs a map lookup and no allocation.
+ */
+@Component
+public class TransferMetrics {
+
+    public static final String STAGE_TIMER = "transfer.stage";
+
+    public static final String ERROR_COUNTER = "transfer.errors";
+
+    public static final String STATEMENT_SUMMARY = "request.statements";
+
+    public static final String BUDGET_COUNTER = "request.statement.budget.exceeded";
+
+    public static final String VALIDATION = "validation";
+
+    public static final String ACCOUNT_LOADING = "account-loading";
+
+    public static final String EXCHANGE_RATES = "exchange-rates";
+
+    public static final String COMMIT = "commit";
+
+    public static final String TRANSFER = "transfer";
+
+    public static final String BATCH = "batch";
+
+    private static final String NONE = "none";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Timer> successTimers = new ConcurrentHashMap<>();
+
+    private final Map<String, Map<Class<?>, Timer>> failureTimers = new ConcurrentHashMap<>();
+
+    private final Map<Class<?>, Map<Integer, Counter>> errorCounters = new ConcurrentHashMap<>();
+
+    private final Map<String, DistributionSummary[]> statementSummaries = new ConcurrentHashMap<>();
+
+    private final Map<String, Counter> budgetCounters = new ConcurrentHashMap<>();
+
+    public TransferMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs one stage of a transfer, recording its duration and outcome.
+     *
+     * @param stage the name of the stage.
+     * @param step  the work of the stage.
+     * @return the result of the stage.
+     */
+    public <T> T time(String stage, Supplier<T> step) {
+        long started = System.nanoTime();
+        try {
+            T result = step.get();
+            record(stage, started, null);
+            return result;
+        } catch (RuntimeException e) {
+            record(stage, started, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Records the duration of a stage that started at the given time and ended now.
+     *
+     * @param stage        the name of the stage.
+     * @param startedNanos the {@link System#nanoTime()} at which the stage started.
+     * @param failure      the exception the stage ended with, or null if it succeeded.
+     */
+    public void record(String stage, long startedNanos, Throwable failure) {
+        timer(stage, failure).record(System.nanoTime() - startedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts an exception reported to the user by the global exception handler.
+     *
+     * @param exception the exception that was handled.
+     * @param status    the status of the response it was translated to.
+     */
+    public void countError(Throwable exception, HttpStatusCode status) {
+        errorCounters.computeIfAbsent(exception.getClass(), type -> new ConcurrentHashMap<>())
+                .computeIfAbsent(status.value(), value -> Counter.builder(ERROR_COUNTER)
+                        .description("Errors reported to users, by exception and status")
+                        .tag("exception", exception.getClass().getSimpleName())
+                        .tag("status", String.valueOf(value))
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    /**
+     * Records the database work of one request.
+     *
+     * @param endpoint the name of the endpoint that served the request.
+     * @param profile  the statements the request ran.
+     */
+    public void recordStatements(String endpoint, QueryProfile profile) {
+        DistributionSummary[] summaries = statementSummaries.computeIfAbsent(endpoint, name -> new DistributionSummary[]{
+                statementSummary(name, "jdbc"), statementSummary(name, "hibernate")});
+        summaries[0].record(profile.statements());
+        summaries[1].record(profile.hibernateStatements());
+    }
+
+    /**
+     * Counts a request that ran more statements than the budget of its endpoint.
+     *
+     * @param endpoint the name of the endpoint that served the request.
+     */
+    public void countBudgetExceeded(String endpoint) {
+        budgetCounters.computeIfAbsent(endpoint, name -> Counter.builder(BUDGET_COUNTER)
+                        .description("Requests that ran more database statements than their endpoint is allowed")
+                        .tag("endpoint", name)
+                        .register(meterRegistry))
+                .increment();
+    }
+
+    private DistributionSummary statementSummary(String endpoint, String source) {
+        return DistributionSummary.builder(STATEMENT_SUMMARY)
+                .description("Database statements run per request, by endpoint")
+                .tag("endpoint", endpoint)
+                .tag("source", source)
+                .register(meterRegistry);
+    }
+
+    private Timer timer(String stage, Throwable failure) {
+        if (failure == null) {
+            Timer timer = successTimers.get(stage);
+            return timer != null ? timer : successTimers.computeIfAbsent(stage, name -> register(name, "success", NONE));
+        }
+        return failureTimers.computeIfAbsent(stage, name -> new ConcurrentHashMap<>())
+                .computeIfAbsent(failure.getClass(), type -> register(stage, "failure", type.getSimpleName()));
+    }
+
+    private Timer register(String stage, String outcome, String exception) {
+        return Timer.builder(STAGE_TIMER)
+                .description("Duration of every stage of a transfer")
+                .tag("stage", stage)
+                .tag("outcome", outcome)
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+}
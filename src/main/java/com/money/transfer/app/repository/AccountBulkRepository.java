@@ -0,0 +1,224 @@
+package com.money.transfer.app.repository;
+
+import com.money.transfer.app.entity.Account;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Bulk access to the {@link Account} table through JDBC, which streams any number of accounts in constant memory.
+ * <p>
+ * On PostgreSQL accounts are imported with {@code COPY ... FROM STDIN} into a temporary staging table and moved
+ * into the account table by a single statement, and exported as CSV with {@code COPY ... TO STDOUT}.
+ * On any other database, H2 in the tests, they are inserted with batched statements instead.
+ * Both must be called within a transaction, which on PostgreSQL drops the staging table on commit.
+ */
+@Repository
+public class AccountBulkRepository {
+
+    static final String STAGE_SQL = "CREATE TEMP TABLE account_import (line BIGINT, id VARCHAR(255), " +
+            "balance BIGINT, currency VARCHAR(3)) ON COMMIT DROP";
+
+    static final String COPY_IN_SQL = "COPY account_import (line, id, balance, currency) FROM STDIN WITH (FORMAT csv)";
+
+    /**
+     * Inserts the first line of every id into the account table, unless the id already exists,
+     * and selects the line and id of every account that was not inserted.
+     */
+    static final String MOVE_SQL = "WITH first AS (SELECT DISTINCT ON (id) line, id, balance, currency " +
+            "FROM account_import ORDER BY id, line), " +
+            "inserted AS (INSERT INTO public.account (id, balance, opening_balance, currency, created_at, version, balance_slots) " +
+            "SELECT id, balance, balance, currency, ?, 0, 0 FROM first ON CONFLICT (id) DO NOTHING RETURNING id) " +
+            "SELECT i.line, i.id FROM account_import i " +
+            "WHERE NOT EXISTS (SELECT 1 FROM first f JOIN inserted n ON n.id = f.id WHERE f.line = i.line) " +
+            "ORDER BY i.line";
+
+    static final String INSERT_SQL = "INSERT INTO public.account (id, balance, opening_balance, currency, created_at, version, balance_slots) " +
+            "SELECT ?, ?, ?, ?, ?, 0, 0 WHERE NOT EXISTS (SELECT 1 FROM public.account WHERE id = ?)";
+
+    private static final String ACCOUNTS_FROM = "FROM public.account a " +
+            "JOIN public.currency c ON c.code = a.currency " +
+            "LEFT JOIN (SELECT account_id, SUM(balance) AS balance FROM public.account_balance_slot " +
+            "GROUP BY account_id) s ON s.account_id = a.id " +
+            "ORDER BY a.id";
+
+    static final String SELECT_SQL = "SELECT a.id, a.currency, a.balance + CAST(COALESCE(s.balance, 0) AS BIGINT) AS balance, " +
+            "c.minor_units " + ACCOUNTS_FROM;
+
+    static final String COPY_OUT_SQL = "COPY (SELECT a.id, a.currency, ROUND((a.balance + COALESCE(s.balance, 0)) " +
+            "/ POWER(10::numeric, c.minor_units), c.minor_units) AS balance " + ACCOUNTS_FROM + ") " +
+            "TO STDOUT WITH (FORMAT csv, HEADER)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int batchSize;
+
+    private final int fetchSize;
+
+    public AccountBulkRepository(JdbcTemplate jdbcTemplate,
+                                 @Value("${account.bulk.batch-size}") int batchSize,
+                                 @Value("${account.bulk.fetch-size}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Receives the accounts of an import that were not inserted because their id already exists,
+     * in the account table or on an earlier line of the import.
+     */
+    @FunctionalInterface
+    public interface Duplicates {
+
+        void report(long line, String id);
+    }
+
+    /**
+     * Inserts every account whose id does not exist yet, reading the accounts as they are inserted.
+     *
+     * @param accounts   the accounts to insert, in the order of their lines.
+     * @param createdAt  the creation time of the accounts.
+     * @param duplicates receives every account that was not inserted.
+     * @return the number of inserted accounts.
+     */
+    public long importAccounts(Iterator<ImportedAccount> accounts, LocalDateTime createdAt, Duplicates duplicates) {
+        Timestamp timestamp = Timestamp.valueOf(createdAt);
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            if (connection.isWrapperFor(PGConnection.class)) {
+                return copyIn(connection, accounts, timestamp, duplicates);
+            }
+            return insertInBatches(connection, accounts, timestamp, duplicates);
+        });
+    }
+
+    private long copyIn(Connection connection, Iterator<ImportedAccount> accounts, Timestamp createdAt,
+                        Duplicates duplicates) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(STAGE_SQL);
+        }
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        CopyIn copyIn = copyManager.copyIn(COPY_IN_SQL);
+        long copied = 0;
+        try {
+            StringBuilder rows = new StringBuilder();
+            while (accounts.hasNext()) {
+                ImportedAccount account = accounts.next();
+                rows.append(account.line()).append(",\"").append(account.id().replace("\"", "\"\"")).append("\",")
+                        .append(account.balance()).append(',').append(account.currency()).append('\n');
+                if (++copied % batchSize == 0) {
+                    write(copyIn, rows);
+                }
+            }
+            write(copyIn, rows);
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+        long rejected = 0;
+        try (PreparedStatement move = connection.prepareStatement(MOVE_SQL)) {
+            move.setTimestamp(1, createdAt);
+            move.setFetchSize(fetchSize);
+            try (ResultSet notInserted = move.executeQuery()) {
+                while (notInserted.next()) {
+                    duplicates.report(notInserted.getLong(1), notInserted.getString(2));
+                    rejected++;
+                }
+            }
+        }
+        return copied - rejected;
+    }
+
+    private static void write(CopyIn copyIn, StringBuilder rows) throws SQLException {
+        byte[] bytes = rows.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        rows.setLength(0);
+    }
+
+    private long insertInBatches(Connection connection, Iterator<ImportedAccount> accounts, Timestamp createdAt,
+                                 Duplicates duplicates) throws SQLException {
+        long inserted = 0;
+        List<ImportedAccount> batch = new ArrayList<>(batchSize);
+        try (PreparedStatement insert = connection.prepareStatement(INSERT_SQL)) {
+            while (accounts.hasNext()) {
+                ImportedAccount account = accounts.next();
+                insert.setString(1, account.id());
+                insert.setLong(2, account.balance());
+                insert.setLong(3, account.balance());
+                insert.setString(4, account.currency());
+                insert.setTimestamp(5, createdAt);
+                insert.setString(6, account.id());
+                insert.addBatch();
+                batch.add(account);
+                if (batch.size() == batchSize || !accounts.hasNext()) {
+                    int[] counts = insert.executeBatch();
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] == 0) {
+                            duplicates.report(batch.get(i).line(), batch.get(i).id());
+                        } else {
+                            inserted++;
+                        }
+                    }
+                    batch.clear();
+                }
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Writes every account as CSV with a header, ordered by id, if the database can produce it on its own.
+     *
+     * @param output the stream to write to, left open.
+     * @return false, with nothing written, if the database is not PostgreSQL.
+     */
+    public boolean copyCsv(OutputStream output) {
+        return jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            if (!connection.isWrapperFor(PGConnection.class)) {
+                return false;
+            }
+            try {
+                connection.unwrap(PGConnection.class).getCopyAPI().copyOut(COPY_OUT_SQL, output);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Reads every account, ordered by id, fetching {@code account.bulk.fetch-size} rows at a time.
+     *
+     * @param accounts receives every account as it is read.
+     */
+    public void forEach(Consumer<ExportedAccount> accounts) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement select = connection.prepareStatement(SELECT_SQL);
+            select.setFetchSize(fetchSize);
+            return select;
+        }, (RowCallbackHandler) row -> accounts.accept(new ExportedAccount(row.getString(1), row.getString(2),
+                row.getLong(3), row.getInt(4))));
+    }
+}
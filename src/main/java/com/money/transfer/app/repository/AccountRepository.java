@@ -1,13 +1,45 @@
 package com.money.transfer.app.repository;
 
 import com.money.transfer.app.entity.Account;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for the {@link Account} entity, extending {@link JpaRepository} for basic CRUD operations.
+ * <p>
+ * Spring Data runs its reads in read-only transactions, which go to the read replica where there is one.
+ * The lookups transfers start from are redeclared read-write, so that they read accounts from the primary.
  */
 @Repository
 public interface AccountRepository extends JpaRepository<Account, String> {
 
+    /**
+     * Read-write, so that the reads of transfers stay on the primary.
+     */
+    @Override
+    @Transactional
+    Optional<Account> findById(String id);
+
+    /**
+     * Read-write, so that the reads of transfers stay on the primary.
+     */
+    @Override
+    @Transactional
+    List<Account> findAllById(Iterable<String> ids);
+
+    /**
+     * Loads and locks the given accounts with a single query. Rows are locked in ascending id order,
+     * so transfers touching the same accounts always acquire their locks in the same order and cannot deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id IN :ids ORDER BY a.id")
+    List<Account> findAllByIdForUpdate(Collection<String> ids);
 }
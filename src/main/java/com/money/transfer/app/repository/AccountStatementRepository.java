@@ -0,0 +1,61 @@
+package com.money.transfer.app.repository;
+
+import com.money.transfer.app.entity.Transaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.function.Consumer;
+
+/**
+ * Reads the statement of an account from the {@link Transaction} table through a forward-only JDBC cursor,
+ * {@code account.statement.fetch-size} rows per round trip, as {@link StatementEntry} projections rather than
+ * entities, so a statement of any length is read in constant memory.
+ * <p>
+ * The outgoing and incoming transactions are each read through their history index, already in order,
+ * so the database merges them without sorting and the first rows arrive at once.
+ * It must be called within a transaction: on PostgreSQL only then does a fetch size read through a server-side
+ * cursor rather than the whole result at once.
+ */
+@Repository
+public class AccountStatementRepository {
+
+    static final String STATEMENT_SQL = "SELECT t.id, t.ordered_at, t.target_account_id, -t.source_amount, " +
+            "t.amount, t.currency FROM public.transaction t WHERE t.source_account_id = ? " +
+            "UNION ALL " +
+            "SELECT t.id, t.ordered_at, t.source_account_id, t.target_amount, " +
+            "t.amount, t.currency FROM public.transaction t WHERE t.target_account_id = ? " +
+            "ORDER BY 2, 1";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int fetchSize;
+
+    public AccountStatementRepository(JdbcTemplate jdbcTemplate,
+                                      @Value("${account.statement.fetch-size}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Reads every transaction from and to the account, oldest first.
+     */
+    public void forEach(String accountId, Consumer<StatementEntry> entries) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement select = connection.prepareStatement(STATEMENT_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            select.setFetchSize(fetchSize);
+            select.setString(1, accountId);
+            select.setString(2, accountId);
+            return select;
+        }, (RowCallbackHandler) row -> {
+            long amount = row.getLong(4);
+            Long accountAmount = row.wasNull() ? null : amount;
+            entries.accept(new StatementEntry(row.getString(1), row.getTimestamp(2).toLocalDateTime(),
+                    row.getString(3), accountAmount, row.getLong(5), row.getString(6)));
+        });
+    }
+}
@@ -0,0 +1,47 @@
+package com.money.transfer.app.repository;
+
+import com.money.transfer.app.entity.BalanceSlot;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for the {@link BalanceSlot} entity, extending {@link JpaRepository} for basic CRUD operations.
+ */
+@Repository
+public interface BalanceSlotRepository extends JpaRepository<BalanceSlot, BalanceSlot.Key> {
+
+    /**
+     * Adds to the balance of one slot relatively, without reading it first.
+     *
+     * @return the number of updated slots, zero if the slot does not exist.
+     */
+    @Modifying
+    @Query("UPDATE BalanceSlot s SET s.balance = s.balance + :amount WHERE s.accountId = :accountId AND s.slot = :slot")
+    int credit(String accountId, int slot, long amount);
+
+    @Query("SELECT COALESCE(SUM(s.balance), 0) FROM BalanceSlot s WHERE s.accountId = :accountId")
+    long sumBalance(String accountId);
+
+    /**
+     * @return pairs of account id and the sum of the balances of its slots.
+     */
+    @Query("SELECT s.accountId, SUM(s.balance) FROM BalanceSlot s WHERE s.accountId IN :accountIds GROUP BY s.accountId")
+    List<Object[]> sumBalances(Collection<String> accountIds);
+
+    /**
+     * Loads and locks every slot of an account, in slot order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM BalanceSlot s WHERE s.accountId = :accountId ORDER BY s.slot")
+    List<BalanceSlot> findAllByAccountIdForUpdate(String accountId);
+
+    @Query("SELECT DISTINCT s.accountId FROM BalanceSlot s WHERE s.balance <> 0")
+    List<String> findAccountIdsWithBalance();
+}
@@ -0,0 +1,12 @@
+package com.money.transfer.app.repository;
+
+/**
+ * An account as read by a bulk export.
+ *
+ * @param id       the id of the account.
+ * @param currency the currency code.
+ * @param balance  the balance of the account and its slots, in minor units of the currency.
+ * @param scale    the number of minor unit digits of the currency.
+ */
+public record ExportedAccount(String id, String currency, long balance, int scale) {
+}
@@ -0,0 +1,12 @@
+package com.money.transfer.app.repository;
+
+/**
+ * A validated account of a bulk import, ready to be inserted.
+ *
+ * @param line     the one-based line of the account in the imported file.
+ * @param id       the id of the account.
+ * @param balance  the balance in minor units of the currency.
+ * @param currency the normalized currency code.
+ */
+public record ImportedAccount(long line, String id, long balance, String currency) {
+}
@@ -0,0 +1,86 @@
+package com.money.transfer.app.repository;
+
+import com.money.transfer.app.entity.Account;
+import io.r2dbc.spi.Readable;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Non-blocking access to the {@link Account} table through R2DBC, used by the {@code /api/v2} transfers.
+ * <p>
+ * Balances are updated relatively and guarded in the statement itself, so a transfer needs no read
+ * before it writes and every row lock is held only for the duration of its own transaction.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReactiveAccountRepository {
+
+    private static final String COLUMNS = "SELECT id, balance, currency, created_at, version, balance_slots FROM public.account ";
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * @return a {@link Mono} emitting the account, or empty if it does not exist.
+     */
+    public Mono<Account> findById(String id) {
+        return databaseClient.sql(COLUMNS + "WHERE id = :id")
+                .bind("id", id)
+                .map(ReactiveAccountRepository::toAccount)
+                .one();
+    }
+
+    /**
+     * Loads and locks an account until the end of the current transaction.
+     *
+     * @return a {@link Mono} emitting the account, or empty if it does not exist.
+     */
+    public Mono<Account> findByIdForUpdate(String id) {
+        return databaseClient.sql(COLUMNS + "WHERE id = :id FOR UPDATE")
+                .bind("id", id)
+                .map(ReactiveAccountRepository::toAccount)
+                .one();
+    }
+
+    /**
+     * Subtracts from the balance of an account, unless the balance plus the given slot balance cannot cover it.
+     *
+     * @param slotBalance the sum of the balance slots of the account, zero for a plain account.
+     * @return a {@link Mono} emitting the number of updated accounts, zero if the account does not exist
+     * or cannot cover the amount.
+     */
+    public Mono<Long> debit(String id, long amount, long slotBalance) {
+        return databaseClient.sql("UPDATE public.account SET balance = balance - :amount, version = version + 1 " +
+                        "WHERE id = :id AND balance + :slotBalance >= :amount")
+                .bind("amount", amount)
+                .bind("id", id)
+                .bind("slotBalance", slotBalance)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * Adds to the balance of an account relatively, without reading it first.
+     *
+     * @return a {@link Mono} emitting the number of updated accounts, zero if the account does not exist.
+     */
+    public Mono<Long> credit(String id, long amount) {
+        return databaseClient.sql("UPDATE public.account SET balance = balance + :amount, version = version + 1 WHERE id = :id")
+                .bind("amount", amount)
+                .bind("id", id)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    private static Account toAccount(Readable row) {
+        return new Account(row.get("id", String.class),
+                row.get("balance", Long.class),
+                row.get("currency", String.class),
+                row.get("created_at", LocalDateTime.class),
+                row.get("version", Long.class),
+                row.get("balance_slots", Integer.class));
+    }
+}
@@ -0,0 +1,43 @@
+package com.money.transfer.app.repository;
+
+import com.money.transfer.app.entity.BalanceSlot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking access to the {@link BalanceSlot} table through R2DBC, used by the {@code /api/v2} transfers.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReactiveBalanceSlotRepository {
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Adds to the balance of one slot relatively, without reading it first.
+     *
+     * @return a {@link Mono} emitting the number of updated slots, zero if the slot does not exist.
+     */
+    public Mono<Long> credit(String accountId, int slot, long amount) {
+        return databaseClient.sql("UPDATE public.account_balance_slot SET balance = balance + :amount " +
+                        "WHERE account_id = :accountId AND slot = :slot")
+                .bind("amount", amount)
+                .bind("accountId", accountId)
+                .bind("slot", slot)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    /**
+     * @return a {@link Mono} emitting the sum of the balances of the slots of an account, zero if it has none.
+     */
+    public Mono<Long> sumBalance(String accountId) {
+        return databaseClient.sql("SELECT CAST(COALESCE(SUM(balance), 0) AS BIGINT) AS total " +
+                        "FROM public.account_balance_slot WHERE account_id = :accountId")
+                .bind("accountId", accountId)
+                .map(row -> row.get("total", Long.class))
+                .one();
+    }
+}
@@ -0,0 +1,41 @@
+package com.money.transfer.app.repository;
+
+import com.money.transfer.app.entity.Transaction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking access to the {@link Transaction} table through R2DBC, used by the {@code /api/v2} transfers.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReactiveTransactionRepository {
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Records a transaction, its id is generated by the database.
+     *
+     * @return a {@link Mono} completing once the transaction is inserted.
+     */
+    public Mono<Void> insert(Transaction transaction) {
+        DatabaseClient.GenericExecuteSpec insert = databaseClient.sql("INSERT INTO public.transaction " +
+                        "(source_account_id, target_account_id, amount, currency, source_amount, target_amount, " +
+                        "ordered_at, idempotency_key) " +
+                        "VALUES (:sourceAccountId, :targetAccountId, :amount, :currency, :sourceAmount, :targetAmount, " +
+                        ":orderedAt, :idempotencyKey)")
+                .bind("sourceAccountId", transaction.getSourceAccount().getId())
+                .bind("targetAccountId", transaction.getTargetAccount().getId())
+                .bind("amount", transaction.getAmount())
+                .bind("currency", transaction.getCurrency())
+                .bind("sourceAmount", transaction.getSourceAmount())
+                .bind("targetAmount", transaction.getTargetAmount())
+                .bind("orderedAt", transaction.getOrderedAt());
+        insert = transaction.getIdempotencyKey() == null
+                ? insert.bindNull("idempotencyKey", String.class)
+                : insert.bind("idempotencyKey", transaction.getIdempotencyKey());
+        return insert.then();
+    }
+}
@@ -0,0 +1,90 @@
+package com.money.transfer.app.repository;
+
+import com.money.transfer.app.entity.Account;
+import com.money.transfer.app.entity.Transaction;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+
+/**
+ * Streams the {@link Account} and {@link Transaction} tables through JDBC for the reconciliation, handing every row
+ * over as primitives, {@code reconciliation.fetch-size} rows per round trip.
+ * <p>
+ * Both must be called within a transaction: on PostgreSQL only then does a fetch size read through a server-side
+ * cursor rather than the whole result at once, and a repeatable read transaction makes both reads see one snapshot.
+ */
+@Repository
+public class ReconciliationRepository {
+
+    static final String ACCOUNTS_SQL = "SELECT a.id, a.currency, COALESCE(c.minor_units, 0), " +
+            "a.balance + CAST(COALESCE(s.balance, 0) AS BIGINT), a.opening_balance " +
+            "FROM public.account a " +
+            "LEFT JOIN public.currency c ON c.code = a.currency " +
+            "LEFT JOIN (SELECT account_id, SUM(balance) AS balance FROM public.account_balance_slot " +
+            "GROUP BY account_id) s ON s.account_id = a.id " +
+            "ORDER BY a.id";
+
+    static final String TRANSACTIONS_SQL = "SELECT source_account_id, target_account_id, " +
+            "COALESCE(source_amount, 0), COALESCE(target_amount, 0) FROM public.transaction";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int fetchSize;
+
+    public ReconciliationRepository(JdbcTemplate jdbcTemplate, @Value("${reconciliation.fetch-size}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fetchSize = fetchSize;
+    }
+
+    @FunctionalInterface
+    public interface AccountHandler {
+
+        /**
+         * @param balance        the balance of the account plus the balances of its slots, in minor units.
+         * @param opened         whether the account has an opening balance, false if it cannot be reconciled.
+         * @param openingBalance the opening balance in minor units, zero if there is none.
+         */
+        void account(String id, String currency, int scale, long balance, boolean opened, long openingBalance);
+    }
+
+    @FunctionalInterface
+    public interface TransactionHandler {
+
+        /**
+         * @param sourceAmount the amount debited from the source account in minor units, zero if it is unknown.
+         * @param targetAmount the amount credited to the target account in minor units, zero if it is unknown.
+         */
+        void transaction(String sourceAccountId, String targetAccountId, long sourceAmount, long targetAmount);
+    }
+
+    /**
+     * Reads every account, ordered by id.
+     */
+    public void forEachAccount(AccountHandler accounts) {
+        stream(ACCOUNTS_SQL, row -> {
+            long openingBalance = row.getLong(5);
+            boolean opened = !row.wasNull();
+            accounts.account(row.getString(1), row.getString(2), row.getInt(3), row.getLong(4),
+                    opened, openingBalance);
+        });
+    }
+
+    /**
+     * Reads every transaction, in no particular order.
+     */
+    public void forEachTransaction(TransactionHandler transactions) {
+        stream(TRANSACTIONS_SQL, row -> transactions.transaction(row.getString(1), row.getString(2),
+                row.getLong(3), row.getLong(4)));
+    }
+
+    private void stream(String sql, RowCallbackHandler rows) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement select = connection.prepareStatement(sql);
+            select.setFetchSize(fetchSize);
+            return select;
+        }, rows);
+    }
+}
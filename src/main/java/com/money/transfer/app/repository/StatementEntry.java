@@ -0,0 +1,18 @@
+package com.money.transfer.app.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * A transaction as read by an account statement, from the side of the account.
+ *
+ * @param id                    the id of the transaction.
+ * @param orderedAt             when the transaction was ordered.
+ * @param counterpartyAccountId the id of the other account of the transaction.
+ * @param amount                the amount credited to the account, negative if debited, in minor units of the
+ *                              currency of the account, or null if it was not recorded.
+ * @param transactionAmount     the transferred amount in minor units of the transaction currency.
+ * @param transactionCurrency   the currency code of the transaction.
+ */
+public record StatementEntry(String id, LocalDateTime orderedAt, String counterpartyAccountId, Long amount,
+                             long transactionAmount, String transactionCurrency) {
+}
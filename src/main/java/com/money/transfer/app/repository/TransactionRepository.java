@@ -1,21 +1,68 @@
 package com.money.transfer.app.repository;
 
 import com.money.transfer.app.entity.Transaction;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * Repository interface for the {@link Transaction} entity, extending {@link JpaRepository} for basic CRUD operations.
+ * <p>
+ * The history queries page through transactions newest first with keyset pagination on {@code (orderedAt, id)}:
+ * the first page is read with the {@code find...} queries and every further page with the {@code find...Before}
+ * queries, given the last entry of the previous page. Each of them is served by one of the history indexes,
+ * so its cost depends on the page size rather than on the size of the table.
+ * The page size is passed as an unsorted {@link Pageable} of the first page.
  */
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, String> {
 
-    @Query("SELECT t FROM Transaction t WHERE (t.sourceAccount.id = :sourceAccountId AND t.targetAccount.id = :targetAccountId) " +
-            "ORDER BY t.orderedAt DESC")
-    Optional<Transaction> findLatestTransactionBetweenAccounts(String sourceAccountId, String targetAccountId);
+    String SUMMARY = "SELECT t.id AS id, t.sourceAccount.id AS sourceAccountId, t.targetAccount.id AS targetAccountId, " +
+            "t.amount AS amount, t.currency AS currency, t.orderedAt AS orderedAt FROM Transaction t ";
 
+    String BEFORE = "AND t.orderedAt <= :orderedAt AND (t.orderedAt < :orderedAt OR t.id < :id) ";
 
+    String NEWEST_FIRST = "ORDER BY t.orderedAt DESC, t.id DESC";
+
+    /**
+     * @return the most recent transaction from the source to the target account, reading a single row.
+     */
+    default Optional<Transaction> findLatestTransactionBetweenAccounts(String sourceAccountId, String targetAccountId) {
+        return findFirstBySourceAccountIdAndTargetAccountIdOrderByOrderedAtDescIdDesc(sourceAccountId, targetAccountId);
+    }
+
+    Optional<Transaction> findFirstBySourceAccountIdAndTargetAccountIdOrderByOrderedAtDescIdDesc(String sourceAccountId,
+                                                                                                String targetAccountId);
+
+    /**
+     * Read-write, so that a retried transfer is looked up on the primary rather than on a lagging replica.
+     */
+    @Transactional
+    Optional<Transaction> findByIdempotencyKey(String idempotencyKey);
+
+    @Query(SUMMARY + "WHERE t.sourceAccount.id = :accountId " + NEWEST_FIRST)
+    List<TransactionSummary> findOutgoing(String accountId, Pageable page);
+
+    @Query(SUMMARY + "WHERE t.sourceAccount.id = :accountId " + BEFORE + NEWEST_FIRST)
+    List<TransactionSummary> findOutgoingBefore(String accountId, LocalDateTime orderedAt, String id, Pageable page);
+
+    @Query(SUMMARY + "WHERE t.targetAccount.id = :accountId " + NEWEST_FIRST)
+    List<TransactionSummary> findIncoming(String accountId, Pageable page);
+
+    @Query(SUMMARY + "WHERE t.targetAccount.id = :accountId " + BEFORE + NEWEST_FIRST)
+    List<TransactionSummary> findIncomingBefore(String accountId, LocalDateTime orderedAt, String id, Pageable page);
+
+    @Query(SUMMARY + "WHERE t.sourceAccount.id = :sourceAccountId AND t.targetAccount.id = :targetAccountId " + NEWEST_FIRST)
+    List<TransactionSummary> findBetween(String sourceAccountId, String targetAccountId, Pageable page);
+
+    @Query(SUMMARY + "WHERE t.sourceAccount.id = :sourceAccountId AND t.targetAccount.id = :targetAccountId " +
+            BEFORE + NEWEST_FIRST)
+    List<TransactionSummary> findBetweenBefore(String sourceAccountId, String targetAccountId,
+                                               LocalDateTime orderedAt, String id, Pageable page);
 }
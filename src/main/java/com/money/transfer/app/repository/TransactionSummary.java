@@ -0,0 +1,27 @@
+package com.money.transfer.app.repository;
+
+import com.money.transfer.app.entity.Transaction;
+
+import java.time.LocalDateTime;
+
+/**
+ * Projection of a {@link Transaction} on the columns of the history indexes,
+ * read without loading the referenced accounts.
+ */
+public interface TransactionSummary {
+
+    String getId();
+
+    String getSourceAccountId();
+
+    String getTargetAccountId();
+
+    /**
+     * @return the transferred amount in minor units of the transaction currency.
+     */
+    long getAmount();
+
+    String getCurrency();
+
+    LocalDateTime getOrderedAt();
+}
@@ -0,0 +1,16 @@
+package com.money.transfer.app.service;
+
+import com.money.transfer.app.dto.AccountImportError;
+import com.money.transfer.app.dto.AccountImportResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.Consumer;
+
+public interface AccountBulkService {
+
+    AccountImportResponseBody importAccounts(AccountFileFormat format, InputStream accounts, Consumer<AccountImportError> errors);
+
+    void exportAccounts(AccountFileFormat format, OutputStream output) throws IOException;
+}
@@ -0,0 +1,331 @@
+package com.money.transfer.app.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.money.transfer.app.dto.AccountImportError;
+import com.money.transfer.app.dto.AccountImportResponseBody;
+import com.money.transfer.app.dto.AccountRecord;
+import com.money.transfer.app.exception.InvalidCsvHeaderException;
+import com.money.transfer.app.repository.AccountBulkRepository;
+import com.money.transfer.app.repository.ImportedAccount;
+import com.money.transfer.app.util.Money;
+import com.money.transfer.app.util.UuidGenerator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.*;
+
+/**
+ * Service responsible for importing and exporting accounts in bulk, in any of the {@link AccountFileFormat}s.
+ * <p>
+ * An import is read line by line while the {@link AccountBulkRepository} inserts it, so memory use does not grow
+ * with its size. Every account is validated on its own: currencies through the {@link CurrencyRegistry}, balances
+ * against the minor units of their currency, and accounts without an id get a generated one. An account that fails
+ * validation, or whose id already exists, is reported to the caller and the rest are imported in one transaction.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class AccountBulkServiceImpl implements AccountBulkService {
+
+    static final int MAX_ID_LENGTH = 255;
+
+    static final String ID_COLUMN = "id";
+
+    static final String CURRENCY_COLUMN = "currency";
+
+    static final String BALANCE_COLUMN = "balance";
+
+    static final String CSV_HEADER = String.join(",", ID_COLUMN, CURRENCY_COLUMN, BALANCE_COLUMN);
+
+    private final AccountBulkRepository accountBulkRepository;
+
+    private final CurrencyRegistry currencyRegistry;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Imports every valid account of the file whose id does not exist yet.
+     * <p>
+     * Errors are reported in the order they are found, which for existing ids may be after later lines.
+     *
+     * @param format   the format of the file.
+     * @param accounts the file, one account per line.
+     * @param errors   receives every account that was not imported.
+     * @return {@link AccountImportResponseBody} with the number of imported and rejected accounts.
+     * @throws InvalidCsvHeaderException if a CSV file does not start with a valid header, before anything is imported.
+     */
+    @Transactional
+    public AccountImportResponseBody importAccounts(AccountFileFormat format, InputStream accounts,
+                                                    Consumer<AccountImportError> errors) {
+        AccountReader reader = new AccountReader(
+                new BufferedReader(new InputStreamReader(accounts, StandardCharsets.UTF_8)), format, errors);
+        long imported = accountBulkRepository.importAccounts(reader, LocalDateTime.now(),
+                (line, id) -> reader.reject(line, id, String.format(DUPLICATE_ACCOUNT_MESSAGE, id)));
+        log.info("Imported {} accounts from {}, rejected {}", imported, format, reader.rejected);
+        return new AccountImportResponseBody(imported, reader.rejected);
+    }
+
+    /**
+     * Writes every account, ordered by id, with its balance in major units including the balance of its slots.
+     * CSV is written by the database itself where it can, see {@link AccountBulkRepository#copyCsv}.
+     *
+     * @param format the format to write.
+     * @param output the stream to write to, flushed and left open.
+     * @throws IOException if the stream cannot be written.
+     */
+    @Transactional(readOnly = true)
+    public void exportAccounts(AccountFileFormat format, OutputStream output) throws IOException {
+        if (format == AccountFileFormat.CSV && accountBulkRepository.copyCsv(output)) {
+            return;
+        }
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        try {
+            if (format == AccountFileFormat.CSV) {
+                writer.write(CSV_HEADER + "\n");
+            }
+            accountBulkRepository.forEach(account -> {
+                try {
+                    if (format == AccountFileFormat.CSV) {
+                        writer.write(csvField(account.id()) + "," + account.currency() + ","
+                                + Money.format(account.balance(), account.scale()) + "\n");
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(new AccountRecord(account.id(), account.currency(),
+                                Money.toMajorUnits(account.balance(), account.scale()))) + "\n");
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return the field quoted if it holds a comma, a quote or a line break, as PostgreSQL writes CSV.
+     */
+    static String csvField(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return '"' + value.replace("\"", "\"\"") + '"';
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Splits a line of CSV into its fields, unquoting the quoted ones.
+     *
+     * @return the fields, or null if a quote is not closed.
+     */
+    static List<String> csvFields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append(c);
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Reads the accounts of a file one line at a time, skipping blank lines and reporting invalid ones.
+     */
+    private final class AccountReader implements Iterator<ImportedAccount> {
+
+        private final BufferedReader reader;
+
+        private final AccountFileFormat format;
+
+        private final Consumer<AccountImportError> errors;
+
+        private final ObjectReader jsonReader;
+
+        private int idColumn = -1;
+
+        private int currencyColumn = -1;
+
+        private int balanceColumn = -1;
+
+        private int columns;
+
+        private long line;
+
+        private long rejected;
+
+        private ImportedAccount next;
+
+        private AccountReader(BufferedReader reader, AccountFileFormat format, Consumer<AccountImportError> errors) {
+            this.reader = reader;
+            this.format = format;
+            this.errors = errors;
+            this.jsonReader = objectMapper.readerFor(AccountRecord.class)
+                    .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+            if (format == AccountFileFormat.CSV) {
+                readHeader();
+            }
+        }
+
+        private void readHeader() {
+            String header = readLine();
+            if (header == null) {
+                return;
+            }
+            List<String> names = csvFields(header);
+            if (names != null) {
+                for (int column = 0; column < names.size(); column++) {
+                    switch (names.get(column).trim().toLowerCase(Locale.ROOT)) {
+                        case ID_COLUMN -> idColumn = column;
+                        case CURRENCY_COLUMN -> currencyColumn = column;
+                        case BALANCE_COLUMN -> balanceColumn = column;
+                        default -> {
+                        }
+                    }
+                }
+                columns = names.size();
+            }
+            if (currencyColumn < 0 || balanceColumn < 0) {
+                throw new InvalidCsvHeaderException(header);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                next = advance();
+            }
+            return next != null;
+        }
+
+        @Override
+        public ImportedAccount next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ImportedAccount account = next;
+            next = null;
+            return account;
+        }
+
+        private ImportedAccount advance() {
+            String text;
+            while ((text = readLine()) != null) {
+                if (text.isBlank()) {
+                    continue;
+                }
+                ImportedAccount account = format == AccountFileFormat.CSV ? parseCsv(text) : parseJson(text);
+                if (account != null) {
+                    return account;
+                }
+            }
+            return null;
+        }
+
+        private String readLine() {
+            try {
+                String text = reader.readLine();
+                if (text != null) {
+                    line++;
+                }
+                return text;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private ImportedAccount parseCsv(String text) {
+            List<String> fields = csvFields(text);
+            if (fields == null || fields.size() != columns) {
+                return reject(line, null, MALFORMED_ACCOUNT_RECORD_MESSAGE);
+            }
+            return validate(idColumn < 0 ? null : fields.get(idColumn), fields.get(currencyColumn),
+                    fields.get(balanceColumn).trim());
+        }
+
+        private ImportedAccount parseJson(String text) {
+            AccountRecord account;
+            try {
+                account = jsonReader.readValue(text);
+            } catch (JsonProcessingException e) {
+                return reject(line, null, MALFORMED_ACCOUNT_RECORD_MESSAGE);
+            }
+            return validate(account.getId(), account.getCurrency(),
+                    account.getBalance() == null ? "" : account.getBalance().toPlainString());
+        }
+
+        private ImportedAccount validate(String id, String code, String balance) {
+            if (id != null && id.trim().length() > MAX_ID_LENGTH) {
+                return reject(line, null, String.format(INVALID_ACCOUNT_ID_MESSAGE, MAX_ID_LENGTH));
+            }
+            String currency = currencyRegistry.normalize(code);
+            if (currency == null) {
+                return reject(line, id, String.format(UNSUPPORTED_CURRENCY_MESSAGE, code));
+            }
+            long minorUnits;
+            try {
+                BigDecimal amount = new BigDecimal(balance);
+                if (amount.signum() < 0) {
+                    return reject(line, id, String.format(INVALID_AMOUNT_EXCEPTION_MESSAGE, balance, currency));
+                }
+                minorUnits = Money.toMinorUnits(amount, currencyRegistry.scale(currency));
+            } catch (NumberFormatException | ArithmeticException e) {
+                return reject(line, id, String.format(INVALID_AMOUNT_EXCEPTION_MESSAGE, balance, currency));
+            }
+            return new ImportedAccount(line, id == null || id.isBlank() ? UuidGenerator.generate() : id.trim(),
+                    minorUnits, currency);
+        }
+
+        private ImportedAccount reject(long line, String id, String error) {
+            rejected++;
+            errors.accept(new AccountImportError(line, id, error));
+            return null;
+        }
+    }
+}
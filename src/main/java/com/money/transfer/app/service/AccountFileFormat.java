@@ -0,0 +1,66 @@
+package com.money.transfer.app.service;
+
+import com.money.transfer.app.exception.UnsupportedFileFormatException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+/**
+ * The file formats accounts are imported from and exported to, one account per line,
+ * and account statements are exported to, one transaction per line.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum AccountFileFormat {
+
+    /**
+     * Comma separated values, starting with a header that names the columns.
+     */
+    CSV(MediaType.valueOf(AccountFileFormat.CSV_VALUE)),
+
+    /**
+     * Newline delimited JSON, one object per line.
+     */
+    NDJSON(MediaType.APPLICATION_NDJSON);
+
+    public static final String CSV_VALUE = "text/csv";
+
+    private final MediaType mediaType;
+
+    /**
+     * @return the extension of files in this format.
+     */
+    public String extension() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param name the name of a format, in any case.
+     * @return the format.
+     * @throws UnsupportedFileFormatException if there is no format of that name.
+     */
+    public static AccountFileFormat of(String name) {
+        for (AccountFileFormat format : values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
+        }
+        throw new UnsupportedFileFormatException(name);
+    }
+
+    /**
+     * @param contentType the content type of a file, parameters such as its charset are ignored.
+     * @return the format of the file.
+     * @throws UnsupportedFileFormatException if there is no format of that content type.
+     */
+    public static AccountFileFormat of(MediaType contentType) {
+        for (AccountFileFormat format : values()) {
+            if (format.mediaType.isCompatibleWith(contentType)) {
+                return format;
+            }
+        }
+        throw new UnsupportedFileFormatException(contentType.toString());
+    }
+}
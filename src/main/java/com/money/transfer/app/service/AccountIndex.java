@@ -0,0 +1,71 @@
+package com.money.transfer.app.service;
+
+import java.util.Arrays;
+
+/**
+ * Numbers account ids densely in the order they are added, so that per-account figures can be kept in primitive
+ * arrays rather than in maps of boxed values.
+ * <p>
+ * Ids are found by open addressing with linear probing in a table of ordinals at most half full. Once every id is
+ * added, lookups may be made from any number of threads.
+ */
+final class AccountIndex {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] ids = new String[INITIAL_CAPACITY];
+
+    /**
+     * The ordinal of the id hashed to each slot plus one, zero for an empty slot.
+     */
+    private int[] slots = new int[2 * INITIAL_CAPACITY];
+
+    private int size;
+
+    /**
+     * @return the ordinal of the id, the next one unless it was added before.
+     */
+    int add(String id) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, 2 * size);
+            slots = new int[4 * size];
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                slots[find(ids[ordinal])] = ordinal + 1;
+            }
+        }
+        int slot = find(id);
+        if (slots[slot] == 0) {
+            ids[size] = id;
+            slots[slot] = ++size;
+        }
+        return slots[slot] - 1;
+    }
+
+    /**
+     * @return the ordinal of the id, or -1 if it was not added.
+     */
+    int get(String id) {
+        return slots[find(id)] - 1;
+    }
+
+    String id(int ordinal) {
+        return ids[ordinal];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the slot of the id, or the empty slot it would take.
+     */
+    private int find(String id) {
+        int mask = slots.length - 1;
+        int hash = id.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (slots[slot] != 0 && !ids[slots[slot] - 1].equals(id)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+}
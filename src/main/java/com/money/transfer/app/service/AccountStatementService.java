@@ -0,0 +1,11 @@
+package com.money.transfer.app.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface AccountStatementService {
+
+    void requireAccount(String accountId);
+
+    void exportStatement(String accountId, AccountFileFormat format, OutputStream output) throws IOException;
+}
@@ -0,0 +1,116 @@
+package com.money.transfer.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.money.transfer.app.dto.AccountStatementItem;
+import com.money.transfer.app.entity.Account;
+import com.money.transfer.app.exception.CurrencyException;
+import com.money.transfer.app.exception.NonExistentAccountException;
+import com.money.transfer.app.repository.AccountRepository;
+import com.money.transfer.app.repository.AccountStatementRepository;
+import com.money.transfer.app.repository.StatementEntry;
+import com.money.transfer.app.util.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Service responsible for exporting the full statement of an account, every transaction from and to it oldest first,
+ * in either of the {@link AccountFileFormat}s.
+ * <p>
+ * The transactions are written as the {@link AccountStatementRepository} reads them, so memory use does not grow with
+ * the length of the statement. Amounts are written from the side of the account, in its currency, next to the amount
+ * and currency of the transaction itself.
+ */
+@Service
+@RequiredArgsConstructor
+public class AccountStatementServiceImpl implements AccountStatementService {
+
+    static final String CSV_HEADER = "id,orderedAt,counterpartyAccountId,amount,currency,transactionAmount,transactionCurrency";
+
+    private final AccountRepository accountRepository;
+
+    private final AccountStatementRepository accountStatementRepository;
+
+    private final CurrencyRegistry currencyRegistry;
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Checks that an account exists, before its statement starts to be written.
+     *
+     * @param accountId the id of the account.
+     * @throws NonExistentAccountException if the account does not exist.
+     */
+    public void requireAccount(String accountId) {
+        if (!accountRepository.existsById(accountId)) {
+            throw new NonExistentAccountException(accountId);
+        }
+    }
+
+    /**
+     * Writes every transaction from and to an account, oldest first.
+     *
+     * @param accountId the id of the account.
+     * @param format    the format to write.
+     * @param output    the stream to write to, flushed and left open.
+     * @throws NonExistentAccountException if the account does not exist.
+     * @throws CurrencyException           if the account or a transaction is in a currency no longer supported.
+     * @throws IOException                 if the stream cannot be written.
+     */
+    @Transactional(readOnly = true)
+    public void exportStatement(String accountId, AccountFileFormat format, OutputStream output) throws IOException {
+        String currency = accountRepository.findById(accountId)
+                .map(Account::getCurrency)
+                .orElseThrow(() -> new NonExistentAccountException(accountId));
+        int scale = currencyRegistry.scale(currency);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        try {
+            if (format == AccountFileFormat.CSV) {
+                writer.write(CSV_HEADER + "\n");
+            }
+            accountStatementRepository.forEach(accountId, entry -> {
+                try {
+                    writer.write(format == AccountFileFormat.CSV
+                            ? csvLine(entry, currency, scale)
+                            : objectMapper.writeValueAsString(item(entry, currency, scale)) + "\n");
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private String csvLine(StatementEntry entry, String currency, int scale) {
+        return AccountBulkServiceImpl.csvField(entry.id()) + ","
+                + DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(entry.orderedAt()) + ","
+                + AccountBulkServiceImpl.csvField(entry.counterpartyAccountId()) + ","
+                + (entry.amount() == null ? "" : Money.format(entry.amount(), scale)) + "," + currency + ","
+                + Money.format(entry.transactionAmount(), currencyRegistry.scale(entry.transactionCurrency())) + ","
+                + entry.transactionCurrency() + "\n";
+    }
+
+    private AccountStatementItem item(StatementEntry entry, String currency, int scale) {
+        return AccountStatementItem.builder()
+                .id(entry.id())
+                .orderedAt(entry.orderedAt())
+                .counterpartyAccountId(entry.counterpartyAccountId())
+                .amount(entry.amount() == null ? null : Money.toMajorUnits(entry.amount(), scale))
+                .currency(currency)
+                .transactionAmount(Money.toMajorUnits(entry.transactionAmount(),
+                        currencyRegistry.scale(entry.transactionCurrency())))
+                .transactionCurrency(entry.transactionCurrency())
+                .build();
+    }
+}
@@ -0,0 +1,65 @@
+package com.money.transfer.app.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Applies the configured balance slots of hot accounts at startup and consolidates their slots in the background,
+ * see {@link BalanceSlotServiceImpl}.
+ * <p>
+ * Hot accounts are listed in {@code transfer.balance-slots.accounts} as {@code accountId:slots} pairs.
+ */
+@Slf4j
+@Component
+public class BalanceSlotMaintenance {
+
+    private final BalanceSlotService balanceSlotService;
+
+    private final List<String> accounts;
+
+    public BalanceSlotMaintenance(BalanceSlotService balanceSlotService,
+                                  @Value("${transfer.balance-slots.accounts}") List<String> accounts) {
+        this.balanceSlotService = balanceSlotService;
+        this.accounts = accounts;
+    }
+
+    /**
+     * Configures the slots of every listed account, skipping the entries that cannot be applied.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void configure() {
+        for (String entry : accounts) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            try {
+                int separator = entry.lastIndexOf(':');
+                balanceSlotService.configure(entry.substring(0, separator).trim(),
+                        Integer.parseInt(entry.substring(separator + 1).trim()));
+            } catch (RuntimeException e) {
+                log.warn("Cannot configure balance slots {}: {}", entry, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Consolidates every account with slot balances, each one in a transaction of its own,
+     * so that the account rows are locked only briefly.
+     */
+    @Scheduled(fixedDelayString = "${transfer.balance-slots.consolidation-interval}")
+    public void consolidate() {
+        for (String accountId : balanceSlotService.accountsToConsolidate()) {
+            try {
+                balanceSlotService.consolidate(accountId);
+            } catch (RuntimeException e) {
+                log.warn("Cannot consolidate the balance slots of account {}: {}", accountId, e.getMessage());
+            }
+        }
+    }
+}
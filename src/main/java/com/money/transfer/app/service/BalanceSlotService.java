@@ -0,0 +1,22 @@
+package com.money.transfer.app.service;
+
+import com.money.transfer.app.entity.Account;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface BalanceSlotService {
+
+    void configure(String accountId, int slots);
+
+    long availableBalance(Account account);
+
+    Map<String, Long> slotBalances(Collection<Account> accounts);
+
+    void credit(Account account, long amount);
+
+    void consolidate(String accountId);
+
+    List<String> accountsToConsolidate();
+}
@@ -0,0 +1,149 @@
+package com.money.transfer.app.service;
+
+import com.money.transfer.app.entity.Account;
+import com.money.transfer.app.entity.BalanceSlot;
+import com.money.transfer.app.exception.NonExistentAccountException;
+import com.money.transfer.app.repository.AccountRepository;
+import com.money.transfer.app.repository.BalanceSlotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Service responsible for the sharded balance of hot accounts, such as merchant and fee collection accounts,
+ * that are the target of a large share of all transfers.
+ * <p>
+ * The balance of such an account is split between its own row and a number of {@link BalanceSlot} rows.
+ * Credits go to a random slot, so concurrent transfers into the account lock different rows instead of queueing
+ * on the account row. Debits keep going to the account row, which is locked or version checked as usual,
+ * and are checked against the aggregate balance. Slots only ever grow between consolidations, so an aggregate
+ * read after the account row is locked can only understate the balance, never overstate it.
+ * <p>
+ * Consolidation moves the slot balances into the account row while holding both the account and the slot locks.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BalanceSlotServiceImpl implements BalanceSlotService {
+
+    private final AccountRepository accountRepository;
+
+    private final BalanceSlotRepository balanceSlotRepository;
+
+    /**
+     * Sets the number of slots credits to an account are spread over, creating the missing ones.
+     * Slots beyond a reduced number are kept until they are consolidated, zero turns the account back
+     * into a plain single row account.
+     *
+     * @param accountId the id of the account.
+     * @param slots     the number of slots, zero to disable.
+     * @throws IllegalArgumentException    if the number of slots is negative.
+     * @throws NonExistentAccountException if the account does not exist.
+     */
+    @Transactional
+    public void configure(String accountId, int slots) {
+        if (slots < 0) {
+            throw new IllegalArgumentException("Number of balance slots cannot be negative: " + slots);
+        }
+        Account account = accountRepository.findAllByIdForUpdate(List.of(accountId)).stream()
+                .findFirst()
+                .orElseThrow(() -> new NonExistentAccountException(accountId));
+
+        Set<Integer> existing = new HashSet<>();
+        for (BalanceSlot slot : balanceSlotRepository.findAllByAccountIdForUpdate(accountId)) {
+            existing.add(slot.getSlot());
+        }
+        List<BalanceSlot> missing = new ArrayList<>();
+        for (int slot = 0; slot < slots; slot++) {
+            if (!existing.contains(slot)) {
+                missing.add(new BalanceSlot(accountId, slot, 0));
+            }
+        }
+        balanceSlotRepository.saveAll(missing);
+        account.setBalanceSlots(slots);
+        log.info("Account {} spreads its credits over {} balance slots", accountId, slots);
+    }
+
+    /**
+     * Reads the balance of an account including its slots. When the account row is locked by the caller,
+     * the result can only be lower than the true balance, because concurrent transfers only add to the slots.
+     *
+     * @param account the account, as read by the caller.
+     * @return the balance available for debits, in minor units of the account currency.
+     */
+    public long availableBalance(Account account) {
+        if (account.getBalanceSlots() == 0) {
+            return account.getBalance();
+        }
+        return account.getBalance() + balanceSlotRepository.sumBalance(account.getId());
+    }
+
+    /**
+     * Sums, with a single query, the slot balances of the given accounts that have slots.
+     *
+     * @param accounts the accounts.
+     * @return the sum of the slot balances, keyed by account id, of the accounts that have slots.
+     */
+    public Map<String, Long> slotBalances(Collection<Account> accounts) {
+        List<String> shardedAccountIds = accounts.stream()
+                .filter(account -> account.getBalanceSlots() > 0)
+                .map(Account::getId)
+                .toList();
+        if (shardedAccountIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, Long> slotBalances = new HashMap<>();
+        for (Object[] row : balanceSlotRepository.sumBalances(shardedAccountIds)) {
+            slotBalances.put((String) row[0], ((Number) row[1]).longValue());
+        }
+        return slotBalances;
+    }
+
+    /**
+     * Credits a random slot of a hot account, locking that slot only.
+     * Must run inside the transaction of the transfer.
+     *
+     * @param account the account, with at least one slot.
+     * @param amount  the amount to credit, in minor units of the account currency.
+     * @throws NonExistentAccountException if the account no longer exists.
+     */
+    public void credit(Account account, long amount) {
+        int slot = ThreadLocalRandom.current().nextInt(account.getBalanceSlots());
+        if (balanceSlotRepository.credit(account.getId(), slot, amount) == 0) {
+            throw new NonExistentAccountException(account.getId());
+        }
+    }
+
+    /**
+     * Moves the balances of all slots of an account into the account row.
+     * The account row is locked before its slots, the same order in which debits lock it and then read the slots.
+     *
+     * @param accountId the id of the account.
+     */
+    @Transactional
+    public void consolidate(String accountId) {
+        List<Account> accounts = accountRepository.findAllByIdForUpdate(List.of(accountId));
+        if (accounts.isEmpty()) {
+            return;
+        }
+        long total = 0;
+        for (BalanceSlot slot : balanceSlotRepository.findAllByAccountIdForUpdate(accountId)) {
+            total += slot.getBalance();
+            slot.setBalance(0);
+        }
+        Account account = accounts.get(0);
+        account.setBalance(account.getBalance() + total);
+        log.debug("Consolidated {} from the balance slots of account {}", total, accountId);
+    }
+
+    /**
+     * @return the ids of the accounts with slot balances left to consolidate.
+     */
+    public List<String> accountsToConsolidate() {
+        return balanceSlotRepository.findAccountIdsWithBalance();
+    }
+}
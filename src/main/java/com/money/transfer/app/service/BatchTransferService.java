@@ -0,0 +1,12 @@
+package com.money.transfer.app.service;
+
+import com.money.transfer.app.dto.BatchTransferResponseBody;
+import com.money.transfer.app.dto.TransferRequestBody;
+
+import java.util.List;
+
+public interface BatchTransferService {
+
+    BatchTransferResponseBody transfer(List<TransferRequestBody> requestBodies);
+
+}
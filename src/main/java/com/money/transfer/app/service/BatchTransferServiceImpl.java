@@ -0,0 +1,289 @@
+package com.money.transfer.app.service;
+
+import com.money.transfer.app.annotation.TimedStage;
+import com.money.transfer.app.dto.BatchTransferItemResponse;
+import com.money.transfer.app.dto.BatchTransferResponseBody;
+import com.money.transfer.app.dto.TransferRequestBody;
+import com.money.transfer.app.entity.Account;
+import com.money.transfer.app.entity.Transaction;
+import com.money.transfer.app.exception.*;
+import com.money.transfer.app.metrics.TransferMetrics;
+import com.money.transfer.app.repository.AccountRepository;
+import com.money.transfer.app.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.money.transfer.app.dto.BatchTransferItemResponse.Status.COMPLETED;
+import static com.money.transfer.app.dto.BatchTransferItemResponse.Status.REJECTED;
+import static com.money.transfer.app.util.constants.ExceptionConstants.BATCH_PERSISTENCE_EXCEPTION_MESSAGE;
+
+/**
+ * Service responsible for executing many money transfers submitted together.
+ * <p>
+ * The batch is processed in chunks of configurable size. Currencies are validated in memory through the
+ * {@link CurrencyRegistry}. For every chunk the referenced accounts are
+ * loaded with a single query, the rates of the {@link ExchangeRateEngine} are resolved once, the transfers are applied
+ * in submission order against running balances and the accepted ones are persisted in one database
+ * transaction through {@link TransactionalService#processTransactions}.
+ * A transfer that fails validation is rejected on its own without affecting the rest of its chunk.
+ * If the chunk cannot be persisted, its accepted transfers are persisted one by one, so that only those
+ * failing on their own are rejected.
+ */
+@Slf4j
+@Service
+public class BatchTransferServiceImpl implements BatchTransferService {
+
+    private final AccountRepository accountRepository;
+
+    private final CurrencyRegistry currencyRegistry;
+
+    private final TransactionalService transactionalService;
+
+    private final ExchangeRateEngine exchangeRateEngine;
+
+    private final BalanceSlotService balanceSlotService;
+
+    private final int chunkSize;
+
+    public BatchTransferServiceImpl(AccountRepository accountRepository,
+                                    CurrencyRegistry currencyRegistry,
+                                    TransactionalService transactionalService,
+                                    ExchangeRateEngine exchangeRateEngine,
+                                    BalanceSlotService balanceSlotService,
+                                    @Value("${transfer.batch.chunk-size}") int chunkSize) {
+        this.accountRepository = accountRepository;
+        this.currencyRegistry = currencyRegistry;
+        this.transactionalService = transactionalService;
+        this.exchangeRateEngine = exchangeRateEngine;
+        this.balanceSlotService = balanceSlotService;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Performs every transfer of the batch and reports the outcome of each one.
+     *
+     * @param requestBodies the transfer requests, in the order they were submitted.
+     * @return {@link BatchTransferResponseBody} with one result per request.
+     */
+    @TimedStage(TransferMetrics.BATCH)
+    public BatchTransferResponseBody transfer(List<TransferRequestBody> requestBodies) {
+
+        List<BatchTransferItemResponse> results = new ArrayList<>(requestBodies.size());
+        for (int from = 0; from < requestBodies.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, requestBodies.size());
+            results.addAll(transferChunk(requestBodies.subList(from, to), from));
+        }
+
+        int completed = (int) results.stream().filter(result -> result.getStatus() == COMPLETED).count();
+        return BatchTransferResponseBody.builder()
+                .total(results.size())
+                .completed(completed)
+                .rejected(results.size() - completed)
+                .results(results)
+                .build();
+    }
+
+    /**
+     * Validates, converts and applies one chunk of the batch, persisting the accepted transfers together.
+     *
+     * @param chunk               the transfer requests of this chunk.
+     * @param offset the index of the first request of the chunk in the whole batch.
+     * @return the result of every request in the chunk.
+     */
+    private List<BatchTransferItemResponse> transferChunk(List<TransferRequestBody> chunk, int offset) {
+
+        BatchTransferItemResponse[] results = new BatchTransferItemResponse[chunk.size()];
+
+        long[] amounts = new long[chunk.size()];
+        List<Integer> valid = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            try {
+                amounts[i] = MoneyTransferServiceImpl.validateTransferRequest(chunk.get(i), currencyRegistry);
+                valid.add(i);
+            } catch (RuntimeException e) {
+                results[i] = rejected(offset + i, e);
+            }
+        }
+
+        Map<String, Account> accounts = loadAccounts(chunk, valid);
+        Map<String, Long> slotBalances = balanceSlotService.slotBalances(accounts.values());
+        ExchangeRateEngine.Matrix exchangeRates = null;
+        WebClientException exchangeRateFailure = null;
+        try {
+            exchangeRates = fetchRequiredExchangeRates(chunk, valid, accounts);
+        } catch (WebClientException e) {
+            exchangeRateFailure = e;
+        }
+
+        Map<String, Long> balances = new HashMap<>();
+        Map<String, Long> balanceDeltas = new HashMap<>();
+        List<Transaction> transactions = new ArrayList<>(valid.size());
+        List<Map<String, Long>> transferDeltas = new ArrayList<>(valid.size());
+        List<Integer> accepted = new ArrayList<>(valid.size());
+        for (int i : valid) {
+            TransferRequestBody requestBody = chunk.get(i);
+            try {
+                Account sourceAccount = getAccount(accounts, requestBody.getSourceAccountId());
+                Account targetAccount = getAccount(accounts, requestBody.getTargetAccountId());
+
+                long amountInSourceCurrency = calculateAmountInAccountCurrency(
+                        amounts[i], requestBody, sourceAccount, exchangeRates, exchangeRateFailure);
+                long amountInTargetCurrency = calculateAmountInAccountCurrency(
+                        amounts[i], requestBody, targetAccount, exchangeRates, exchangeRateFailure);
+
+                long sourceBalance = balances.getOrDefault(sourceAccount.getId(),
+                        sourceAccount.getBalance() + slotBalances.getOrDefault(sourceAccount.getId(), 0L));
+                if (sourceBalance < amountInSourceCurrency) {
+                    throw new LowBalanceException(requestBody, new Account(sourceAccount.getId(), sourceBalance,
+                            sourceAccount.getCurrency(), sourceAccount.getCreatedAt()),
+                            currencyRegistry.scale(sourceAccount.getCurrency()));
+                }
+                balances.put(sourceAccount.getId(), sourceBalance - amountInSourceCurrency);
+                balances.merge(targetAccount.getId(),
+                        targetAccount.getBalance() + slotBalances.getOrDefault(targetAccount.getId(), 0L) + amountInTargetCurrency,
+                        (balance, ignored) -> balance + amountInTargetCurrency);
+                balanceDeltas.merge(sourceAccount.getId(), -amountInSourceCurrency, Long::sum);
+                balanceDeltas.merge(targetAccount.getId(), amountInTargetCurrency, Long::sum);
+
+                transactions.add(Transaction.builder()
+                        .sourceAccount(sourceAccount)
+                        .targetAccount(targetAccount)
+                        .amount(amounts[i])
+                        .currency(requestBody.getCurrency())
+                        .sourceAmount(amountInSourceCurrency)
+                        .targetAmount(amountInTargetCurrency)
+                        .orderedAt(LocalDateTime.now())
+                        .build());
+                transferDeltas.add(Map.of(sourceAccount.getId(), -amountInSourceCurrency,
+                        targetAccount.getId(), amountInTargetCurrency));
+                accepted.add(i);
+            } catch (RuntimeException e) {
+                results[i] = rejected(offset + i, e);
+            }
+        }
+
+        try {
+            if (!transactions.isEmpty()) {
+                transactionalService.processTransactions(transactions, balanceDeltas);
+            }
+            for (int i : accepted) {
+                results[i] = completed(chunk.get(i), offset + i);
+            }
+        } catch (RuntimeException e) {
+            log.warn("{} while persisting transfers {} to {} of batch, persisting them one by one",
+                    e.getClass().getSimpleName(), offset, offset + chunk.size() - 1);
+            for (int n = 0; n < accepted.size(); n++) {
+                int i = accepted.get(n);
+                results[i] = persistAlone(transactions.get(n), transferDeltas.get(n), chunk.get(i), offset + i);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Persists an accepted transfer in a database transaction of its own, once its chunk could not be persisted.
+     * The cause of a failure is only logged, as it may hold SQL or driver details the client has no use for.
+     */
+    private BatchTransferItemResponse persistAlone(Transaction transaction, Map<String, Long> balanceDeltas,
+                                                   TransferRequestBody requestBody, int index) {
+        try {
+            transactionalService.processTransactions(List.of(transaction), balanceDeltas);
+            return completed(requestBody, index);
+        } catch (RuntimeException e) {
+            log.error("{} while persisting transfer {} of batch", e.getClass().getSimpleName(), index, e);
+            return BatchTransferItemResponse.builder()
+                    .index(index)
+                    .status(REJECTED)
+                    .response(BATCH_PERSISTENCE_EXCEPTION_MESSAGE)
+                    .build();
+        }
+    }
+
+    /**
+     * Loads every account referenced by the valid requests of a chunk with a single query.
+     */
+    private Map<String, Account> loadAccounts(List<TransferRequestBody> chunk, List<Integer> valid) {
+        Set<String> accountIds = new HashSet<>();
+        for (int i : valid) {
+            accountIds.add(chunk.get(i).getSourceAccountId());
+            accountIds.add(chunk.get(i).getTargetAccountId());
+        }
+        if (accountIds.isEmpty()) {
+            return Map.of();
+        }
+        return accountRepository.findAllById(accountIds).stream()
+                .collect(Collectors.toMap(Account::getId, Function.identity()));
+    }
+
+    /**
+     * Resolves the exchange rates once for a chunk, if any of its valid requests needs a conversion.
+     *
+     * @return the rates of every currency pair, or null if no conversion is needed.
+     */
+    private ExchangeRateEngine.Matrix fetchRequiredExchangeRates(List<TransferRequestBody> chunk,
+                                                                List<Integer> valid,
+                                                                Map<String, Account> accounts) {
+        for (int i : valid) {
+            TransferRequestBody requestBody = chunk.get(i);
+            for (String accountId : List.of(requestBody.getSourceAccountId(), requestBody.getTargetAccountId())) {
+                Account account = accounts.get(accountId);
+                if (account != null && !requestBody.getCurrency().equalsIgnoreCase(account.getCurrency())) {
+                    return exchangeRateEngine.rates();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Account getAccount(Map<String, Account> accounts, String accountId) {
+        Account account = accounts.get(accountId);
+        if (account == null) {
+            throw new NonExistentAccountException(accountId);
+        }
+        return account;
+    }
+
+    /**
+     * Converts the amount of a request, in minor units, to the currency of an account,
+     * using the rates resolved for the chunk.
+     *
+     * @throws WebClientException if a conversion is needed but the rates of the chunk could not be fetched.
+     */
+    private long calculateAmountInAccountCurrency(long amount, TransferRequestBody requestBody, Account account,
+                                                  ExchangeRateEngine.Matrix exchangeRates,
+                                                  WebClientException exchangeRateFailure) {
+        if (requestBody.getCurrency().equalsIgnoreCase(account.getCurrency())) {
+            return amount;
+        }
+        if (exchangeRateFailure != null) {
+            throw exchangeRateFailure;
+        }
+        int accountScale = currencyRegistry.scale(account.getCurrency());
+        return Money.convert(amount, currencyRegistry.scale(requestBody.getCurrency()),
+                exchangeRates.rate(currencyRegistry.ordinal(requestBody.getCurrency()),
+                        currencyRegistry.ordinal(account.getCurrency())),
+                accountScale);
+    }
+
+    private static BatchTransferItemResponse completed(TransferRequestBody requestBody, int index) {
+        return BatchTransferItemResponse.builder()
+                .index(index)
+                .status(COMPLETED)
+                .response(MoneyTransferServiceImpl.createResponse(requestBody).getResponse())
+                .build();
+    }
+
+    private static BatchTransferItemResponse rejected(int index, RuntimeException e) {
+        return BatchTransferItemResponse.builder()
+                .index(index)
+                .status(REJECTED)
+                .response(e.getMessage())
+                .build();
+    }
+}
@@ -0,0 +1,226 @@
+package com.money.transfer.app.service;
+
+import com.money.transfer.app.entity.Currency;
+import com.money.transfer.app.exception.CurrencyException;
+import com.money.transfer.app.repository.CurrencyRepository;
+import com.money.transfer.app.util.Money;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * In-memory, immutable view of the supported currencies, loaded from the {@code currency} table at startup.
+ * <p>
+ * Every currency is given an ordinal, its position in the code-sorted list, and codes are normalized to
+ * upper case once at load time. Lookups are case-insensitive and run in constant time: three letter codes
+ * are resolved through a table indexed by their letters, so no string is allocated per call.
+ * The scale of every currency, the number of its minor unit digits, is kept alongside its ordinal.
+ * {@link #refresh()} reloads the table and swaps the whole view atomically.
+ * A caller resolving many codes against the same currencies takes one {@link View} through {@link #view()}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CurrencyRegistry {
+
+    /**
+     * Ordinal returned for a code that is not a supported currency.
+     */
+    public static final int UNSUPPORTED = -1;
+
+    private static final int LETTERS = 26;
+
+    private final CurrencyRepository currencyRepository;
+
+    private volatile Snapshot snapshot = new Snapshot(List.of());
+
+    /**
+     * Loads the supported currencies from the database, replacing the current view.
+     */
+    @PostConstruct
+    public void refresh() {
+        snapshot = new Snapshot(currencyRepository.findAll());
+        log.info("Currency registry loaded {} currencies", snapshot.codes.length);
+    }
+
+    /**
+     * @param code a currency code, in any case.
+     * @return the ordinal of the currency, or {@link #UNSUPPORTED} if it is not supported.
+     */
+    public int ordinal(String code) {
+        return snapshot.ordinal(code);
+    }
+
+    /**
+     * @return the current view of the supported currencies, unaffected by a later {@link #refresh()}.
+     */
+    public View view() {
+        return snapshot;
+    }
+
+    /**
+     * @param code a currency code, in any case.
+     * @return whether the currency is supported.
+     */
+    public boolean isSupported(String code) {
+        return ordinal(code) != UNSUPPORTED;
+    }
+
+    /**
+     * @param ordinal the ordinal of a supported currency.
+     * @return the normalized, upper case code of the currency.
+     */
+    public String code(int ordinal) {
+        return snapshot.codes[ordinal];
+    }
+
+    /**
+     * @param ordinal the ordinal of a supported currency.
+     * @return the number of minor unit digits of the currency.
+     */
+    public int scale(int ordinal) {
+        return snapshot.scales[ordinal];
+    }
+
+    /**
+     * @param code a currency code, in any case.
+     * @return the number of minor unit digits of the currency.
+     * @throws CurrencyException if the currency is not supported.
+     */
+    public int scale(String code) {
+        Snapshot current = snapshot;
+        int ordinal = current.ordinal(code);
+        if (ordinal == UNSUPPORTED) {
+            throw new CurrencyException(code);
+        }
+        return current.scales[ordinal];
+    }
+
+    /**
+     * @param code a currency code, in any case.
+     * @return the normalized, upper case code of the currency, or null if it is not supported.
+     */
+    public String normalize(String code) {
+        Snapshot current = snapshot;
+        int ordinal = current.ordinal(code);
+        return ordinal == UNSUPPORTED ? null : current.codes[ordinal];
+    }
+
+    /**
+     * @return the number of supported currencies, ordinals range from zero to this value exclusive.
+     */
+    public int size() {
+        return snapshot.codes.length;
+    }
+
+    /**
+     * @return the supported currencies, ordered by ordinal.
+     */
+    public List<Currency> currencies() {
+        return snapshot.currencies();
+    }
+
+    /**
+     * The supported currencies as loaded by one {@link #refresh()}, with the lookup of their ordinals.
+     */
+    public interface View {
+
+        /**
+         * @return the supported currencies, ordered by ordinal.
+         */
+        List<Currency> currencies();
+
+        /**
+         * @param code a currency code, in any case.
+         * @return the ordinal of the currency, or {@link CurrencyRegistry#UNSUPPORTED} if it is not supported.
+         */
+        int ordinal(String code);
+    }
+
+    private static final class Snapshot implements View {
+
+        private final List<Currency> currencies;
+
+        private final String[] codes;
+
+        private final byte[] scales;
+
+        /**
+         * Ordinal plus one of every three letter code, indexed by its letters. Zero marks an unknown code.
+         */
+        private final short[] ordinalsByLetters = new short[LETTERS * LETTERS * LETTERS];
+
+        /**
+         * Ordinals of the codes that are not made of three latin letters, keyed by their normalized code.
+         */
+        private final Map<String, Integer> otherOrdinals = new HashMap<>();
+
+        private Snapshot(List<Currency> loaded) {
+            SortedMap<String, Currency> sorted = new TreeMap<>();
+            for (Currency currency : loaded) {
+                String code = currency.getCode().trim().toUpperCase(Locale.ROOT);
+                if (currency.getMinorUnits() < 0 || currency.getMinorUnits() > Money.MAX_SCALE) {
+                    throw new IllegalStateException(String.format("Currency %s has %d minor unit digits, at most %d are supported.",
+                            code, currency.getMinorUnits(), Money.MAX_SCALE));
+                }
+                sorted.put(code, new Currency(code, currency.getName(), currency.getCountry(), currency.getMinorUnits()));
+            }
+            this.currencies = List.copyOf(sorted.values());
+            this.codes = sorted.keySet().toArray(String[]::new);
+            this.scales = new byte[codes.length];
+            for (int ordinal = 0; ordinal < codes.length; ordinal++) {
+                scales[ordinal] = (byte) currencies.get(ordinal).getMinorUnits();
+                int index = lettersIndex(codes[ordinal]);
+                if (index >= 0) {
+                    ordinalsByLetters[index] = (short) (ordinal + 1);
+                } else {
+                    otherOrdinals.put(codes[ordinal], ordinal);
+                }
+            }
+        }
+
+        @Override
+        public List<Currency> currencies() {
+            return currencies;
+        }
+
+        @Override
+        public int ordinal(String code) {
+            if (code == null) {
+                return UNSUPPORTED;
+            }
+            int index = lettersIndex(code);
+            if (index >= 0) {
+                return ordinalsByLetters[index] - 1;
+            }
+            if (otherOrdinals.isEmpty()) {
+                return UNSUPPORTED;
+            }
+            return otherOrdinals.getOrDefault(code.trim().toUpperCase(Locale.ROOT), UNSUPPORTED);
+        }
+
+        /**
+         * @return the table index of a three latin letter code in any case, or -1 for any other string.
+         */
+        private static int lettersIndex(String code) {
+            if (code.length() != 3) {
+                return -1;
+            }
+            int first = letter(code.charAt(0));
+            int second = letter(code.charAt(1));
+            int third = letter(code.charAt(2));
+            if (first < 0 || second < 0 || third < 0) {
+                return -1;
+            }
+            return (first * LETTERS + second) * LETTERS + third;
+        }
+
+        private static int letter(char c) {
+            int upper = c & ~0x20;
+            return upper >= 'A' && upper <= 'Z' ? upper - 'A' : -1;
+        }
+    }
+}
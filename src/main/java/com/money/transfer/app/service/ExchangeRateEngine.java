@@ -0,0 +1,143 @@
+package com.money.transfer.app.service;
+
+import com.money.transfer.app.annotation.TimedStage;
+import com.money.transfer.app.dto.ExchangeRateResponse;
+import com.money.transfer.app.entity.Currency;
+import com.money.transfer.app.exception.WebClientException;
+import com.money.transfer.app.integration.ExchangeRateRestClient;
+import com.money.transfer.app.metrics.TransferMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.MISSING_EXCHANGE_RATE_EXCEPTION_MESSAGE;
+
+/**
+ * Derives the exchange rate between every pair of supported currencies from a single snapshot of the rates
+ * of one pivot currency.
+ * <p>
+ * The rate from currency {@code a} to currency {@code b} is triangulated through the pivot as
+ * {@code pivot/b} over {@code pivot/a}. All rates are kept in a dense {@link Matrix} indexed by the ordinals
+ * of the {@link CurrencyRegistry}, so a conversion is an array lookup and the exchange rate API is only called
+ * for the pivot, once per refresh interval of the {@link ExchangeRateRestClient} cache.
+ * The matrix is rebuilt when the cache hands out a new pivot snapshot or the registry is reloaded,
+ * and swapped atomically, so a transfer always converts with rates of one and the same snapshot.
+ */
+@Slf4j
+@Component
+public class ExchangeRateEngine {
+
+    private final ExchangeRateRestClient exchangeRateRestClient;
+
+    private final CurrencyRegistry currencyRegistry;
+
+    private final String pivotCurrency;
+
+    private volatile Matrix matrix;
+
+    public ExchangeRateEngine(ExchangeRateRestClient exchangeRateRestClient,
+                              CurrencyRegistry currencyRegistry,
+                              @Value("${exchange.rate.pivot}") String pivotCurrency) {
+        this.exchangeRateRestClient = exchangeRateRestClient;
+        this.currencyRegistry = currencyRegistry;
+        this.pivotCurrency = pivotCurrency;
+    }
+
+    /**
+     * Resolves the rates of every supported currency pair.
+     *
+     * @return the {@link Matrix} derived from the current pivot snapshot.
+     * @throws WebClientException in case the rates of the pivot currency cannot be fetched.
+     */
+    @TimedStage(TransferMetrics.EXCHANGE_RATES)
+    public Matrix rates() {
+        return derive(exchangeRateRestClient.fetchExchangeRates(pivotCurrency));
+    }
+
+    /**
+     * Resolves the rates of every supported currency pair without blocking the calling thread.
+     *
+     * @return a {@link Mono} emitting the {@link Matrix} derived from the current pivot snapshot,
+     * or a {@link WebClientException}.
+     */
+    public Mono<Matrix> ratesAsync() {
+        return exchangeRateRestClient.fetchExchangeRatesAsync(pivotCurrency).map(this::derive);
+    }
+
+    /**
+     * Reloads the rates of the pivot currency, even if the cached ones are still fresh, and derives the matrix
+     * from them, so that transfers never wait for the exchange rate API.
+     *
+     * @return a {@link Mono} emitting the {@link Matrix} derived from the reloaded pivot snapshot,
+     * or a {@link WebClientException}.
+     */
+    public Mono<Matrix> refresh() {
+        return exchangeRateRestClient.refreshExchangeRates(pivotCurrency).map(this::derive);
+    }
+
+    private Matrix derive(ExchangeRateResponse snapshot) {
+        List<Currency> currencies = currencyRegistry.currencies();
+        Matrix current = matrix;
+        if (current != null && current.snapshot == snapshot && current.currencies == currencies) {
+            return current;
+        }
+        Matrix derived = new Matrix(pivotCurrency, snapshot, currencies);
+        matrix = derived;
+        log.debug("Exchange rate matrix of {} currencies derived from {} rates", currencies.size(), pivotCurrency);
+        return derived;
+    }
+
+    /**
+     * Immutable rates between every pair of currencies, indexed by their {@link CurrencyRegistry} ordinals.
+     * A pair is unavailable when the pivot snapshot lacks the rate of either currency. The rates of a snapshot
+     * decoded against other currencies than the current ones, before a registry reload, are matched by code.
+     */
+    public static final class Matrix {
+
+        private final ExchangeRateResponse snapshot;
+
+        private final List<Currency> currencies;
+
+        private final double[][] rates;
+
+        Matrix(String pivotCurrency, ExchangeRateResponse snapshot, List<Currency> currencies) {
+            this.snapshot = snapshot;
+            this.currencies = currencies;
+            boolean sameOrdinals = snapshot.getCurrencies() == currencies;
+            int size = currencies.size();
+            double[] fromPivot = new double[size];
+            for (int ordinal = 0; ordinal < size; ordinal++) {
+                String code = currencies.get(ordinal).getCode();
+                double rate = sameOrdinals ? snapshot.getRates()[ordinal] : snapshot.rate(code);
+                if (Double.isNaN(rate) && code.equals(pivotCurrency)) {
+                    rate = 1.0;
+                }
+                fromPivot[ordinal] = rate > 0 && rate != Double.POSITIVE_INFINITY ? rate : Double.NaN;
+            }
+            this.rates = new double[size][size];
+            for (int from = 0; from < size; from++) {
+                for (int to = 0; to < size; to++) {
+                    rates[from][to] = from == to ? 1.0 : fromPivot[to] / fromPivot[from];
+                }
+            }
+        }
+
+        /**
+         * @param from the ordinal of the currency to convert from.
+         * @param to   the ordinal of the currency to convert to.
+         * @return the units of the second currency one unit of the first one is worth.
+         * @throws WebClientException if the rate of either currency was missing from the pivot snapshot.
+         */
+        public double rate(int from, int to) {
+            double rate = rates[from][to];
+            if (Double.isNaN(rate)) {
+                throw new WebClientException(String.format(MISSING_EXCHANGE_RATE_EXCEPTION_MESSAGE,
+                        currencies.get(from).getCode(), currencies.get(to).getCode()));
+            }
+            return rate;
+        }
+    }
+}
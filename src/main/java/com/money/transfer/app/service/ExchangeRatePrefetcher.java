@@ -0,0 +1,95 @@
+package com.money.transfer.app.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loads the exchange rates when the application starts and reloads them in the background,
+ * see {@link ExchangeRateEngine#refresh()}, so that no transfer waits for the exchange rate API.
+ * <p>
+ * Reloads run every {@code exchange.rate.prefetch.interval}, which should be shorter than the refresh interval
+ * of the rate cache. A failed reload is retried with exponential, jittered backoff while the previous rates
+ * keep being served. As a {@link HealthIndicator} it is part of the readiness group, reporting
+ * {@code OUT_OF_SERVICE} until the rates have been loaded once, so the instance only takes traffic afterwards.
+ */
+@Slf4j
+@Component
+public class ExchangeRatePrefetcher implements HealthIndicator {
+
+    private static final double JITTER = 0.5;
+
+    private final ExchangeRateEngine exchangeRateEngine;
+
+    private final boolean enabled;
+
+    private final RetryBackoffSpec retry;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile Instant loadedAt;
+
+    public ExchangeRatePrefetcher(ExchangeRateEngine exchangeRateEngine,
+                                  @Value("${exchange.rate.prefetch.enabled}") boolean enabled,
+                                  @Value("${exchange.rate.prefetch.retry.max-attempts}") long maxAttempts,
+                                  @Value("${exchange.rate.prefetch.retry.min-backoff}") Duration minBackoff,
+                                  @Value("${exchange.rate.prefetch.retry.max-backoff}") Duration maxBackoff) {
+        this.exchangeRateEngine = exchangeRateEngine;
+        this.enabled = enabled;
+        this.retry = Retry.backoff(maxAttempts, minBackoff)
+                .maxBackoff(maxBackoff)
+                .jitter(JITTER)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure())
+                .doBeforeRetry(signal -> log.debug("Retrying exchange rate prefetch (attempt {}): {}",
+                        signal.totalRetries() + 2, signal.failure().getMessage()));
+    }
+
+    /**
+     * Starts a reload of the exchange rates, unless the previous one is still retrying.
+     * The first run happens as soon as the scheduler starts.
+     */
+    @Scheduled(fixedRateString = "${exchange.rate.prefetch.interval}")
+    public void prefetch() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        refresh()
+                .doFinally(signal -> running.set(false))
+                .subscribe(matrix -> { },
+                        e -> log.warn("Cannot prefetch exchange rates, serving the previous ones: {}", e.getMessage()));
+    }
+
+    /**
+     * @return a {@link Mono} reloading the exchange rates, retried with backoff.
+     */
+    Mono<ExchangeRateEngine.Matrix> refresh() {
+        return Mono.defer(exchangeRateEngine::refresh)
+                .retryWhen(retry)
+                .doOnNext(matrix -> loadedAt = Instant.now());
+    }
+
+    /**
+     * @return {@code UP} once the exchange rates have been loaded, {@code OUT_OF_SERVICE} before.
+     */
+    @Override
+    public Health health() {
+        if (!enabled) {
+            return Health.up().withDetail("prefetch", "disabled").build();
+        }
+        Instant loaded = loadedAt;
+        if (loaded == null) {
+            return Health.outOfService().build();
+        }
+        return Health.up().withDetail("loadedAt", loaded).build();
+    }
+}
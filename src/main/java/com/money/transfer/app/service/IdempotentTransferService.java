@@ -0,0 +1,9 @@
+package com.money.transfer.app.service;
+
+import com.money.transfer.app.dto.TransferRequestBody;
+import com.money.transfer.app.dto.TransferResponseBody;
+
+public interface IdempotentTransferService {
+
+    TransferResponseBody transfer(String idempotencyKey, TransferRequestBody requestBody);
+}
@@ -0,0 +1,173 @@
+package com.money.transfer.app.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.money.transfer.app.dto.TransferRequestBody;
+import com.money.transfer.app.dto.TransferResponseBody;
+import com.money.transfer.app.entity.Transaction;
+import com.money.transfer.app.exception.IdempotencyKeyReuseException;
+import com.money.transfer.app.exception.InvalidIdempotencyKeyException;
+import com.money.transfer.app.repository.TransactionRepository;
+import com.money.transfer.app.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Service that makes transfers safe to retry, by executing every idempotency key at most once.
+ * <p>
+ * Recent keys are kept in a bounded in-memory cache together with the outcome of their transfer, so that a retry
+ * is answered without touching the database and a concurrent duplicate waits for the first request to finish
+ * instead of executing again. Keys that have been evicted are found through the unique idempotency key of the
+ * recorded {@link Transaction}, which also rejects a duplicate that slipped past the cache, for instance on
+ * another instance of the application.
+ * <p>
+ * A transfer that fails is forgotten, so the client may retry it with the same key once the cause is resolved.
+ */
+@Slf4j
+@Service
+public class IdempotentTransferServiceImpl implements IdempotentTransferService {
+
+    /**
+     * Longest accepted idempotency key, the length of the database column.
+     */
+    static final int MAX_KEY_LENGTH = 255;
+
+    private final MoneyTransferService moneyTransferService;
+
+    private final TransactionRepository transactionRepository;
+
+    private final CurrencyRegistry currencyRegistry;
+
+    private final Cache<String, KeyedTransfer> recentTransfers;
+
+    public IdempotentTransferServiceImpl(MoneyTransferService moneyTransferService,
+                                         TransactionRepository transactionRepository,
+                                         CurrencyRegistry currencyRegistry,
+                                         @Value("${transfer.idempotency.cache.ttl}") Duration ttl,
+                                         @Value("${transfer.idempotency.cache.max-size}") long maxSize) {
+        this.moneyTransferService = moneyTransferService;
+        this.transactionRepository = transactionRepository;
+        this.currencyRegistry = currencyRegistry;
+        this.recentTransfers = Caffeine.newBuilder()
+                .expireAfterWrite(ttl)
+                .maximumSize(maxSize)
+                .build();
+    }
+
+    /**
+     * Performs the transfer unless the idempotency key was already used, in which case the response
+     * of the first transfer is returned again.
+     *
+     * @param idempotencyKey the key the client chose for this transfer.
+     * @param requestBody    the transfer request.
+     * @return {@link TransferResponseBody} of the transfer performed for this key.
+     * @throws InvalidIdempotencyKeyException if the key is blank or too long.
+     * @throws IdempotencyKeyReuseException   if the key was used for a different transfer.
+     */
+    public TransferResponseBody transfer(String idempotencyKey, TransferRequestBody requestBody) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException(MAX_KEY_LENGTH);
+        }
+
+        KeyedTransfer transfer = new KeyedTransfer(fingerprint(requestBody), new CompletableFuture<>());
+        KeyedTransfer previous = recentTransfers.asMap().putIfAbsent(idempotencyKey, transfer);
+        if (previous != null) {
+            checkFingerprint(idempotencyKey, previous.fingerprint(), transfer.fingerprint());
+            log.debug("Transfer with idempotency key {} was already requested", idempotencyKey);
+            return await(previous.response());
+        }
+
+        try {
+            TransferResponseBody response = execute(idempotencyKey, requestBody, transfer.fingerprint());
+            transfer.response().complete(response);
+            return response;
+        } catch (Throwable e) {
+            // whatever the failure, duplicates waiting for this transfer must not wait forever
+            recentTransfers.asMap().remove(idempotencyKey, transfer);
+            transfer.response().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Executes the transfer, unless a transaction was already recorded under its key.
+     */
+    private TransferResponseBody execute(String idempotencyKey, TransferRequestBody requestBody, String fingerprint) {
+        Optional<TransferResponseBody> recorded = findRecordedResponse(idempotencyKey, fingerprint);
+        if (recorded.isPresent()) {
+            return recorded.get();
+        }
+        try {
+            return moneyTransferService.transfer(requestBody, idempotencyKey);
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Transfer with idempotency key {} was recorded concurrently", idempotencyKey);
+            return findRecordedResponse(idempotencyKey, fingerprint).orElseThrow(() -> e);
+        }
+    }
+
+    /**
+     * Rebuilds the response of a transfer from the transaction recorded under its idempotency key.
+     */
+    private Optional<TransferResponseBody> findRecordedResponse(String idempotencyKey, String fingerprint) {
+        return transactionRepository.findByIdempotencyKey(idempotencyKey).map(transaction -> {
+            TransferRequestBody recorded = TransferRequestBody.builder()
+                    .sourceAccountId(transaction.getSourceAccount().getId())
+                    .targetAccountId(transaction.getTargetAccount().getId())
+                    .amount(Money.toMajorUnits(transaction.getAmount(), currencyRegistry.scale(transaction.getCurrency())))
+                    .currency(transaction.getCurrency())
+                    .build();
+            checkFingerprint(idempotencyKey, fingerprint(recorded), fingerprint);
+            return MoneyTransferServiceImpl.createResponse(recorded);
+        });
+    }
+
+    private static void checkFingerprint(String idempotencyKey, String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new IdempotencyKeyReuseException(idempotencyKey);
+        }
+    }
+
+    /**
+     * @return what identifies a transfer regardless of how its amount and currency are written.
+     */
+    private String fingerprint(TransferRequestBody requestBody) {
+        BigDecimal amount = requestBody.getAmount();
+        return String.join("|",
+                requestBody.getSourceAccountId(),
+                requestBody.getTargetAccountId(),
+                amount == null ? null : amount.stripTrailingZeros().toPlainString(),
+                currencyRegistry.normalize(requestBody.getCurrency()));
+    }
+
+    /**
+     * @return the response of the first transfer, or its failure rethrown as is if unchecked.
+     */
+    private static TransferResponseBody await(CompletableFuture<TransferResponseBody> response) {
+        try {
+            return response.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * A transfer requested under an idempotency key and its eventual response.
+     */
+    private record KeyedTransfer(String fingerprint, CompletableFuture<TransferResponseBody> response) {
+    }
+}
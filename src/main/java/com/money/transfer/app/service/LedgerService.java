@@ -0,0 +1,11 @@
+package com.money.transfer.app.service;
+
+import com.money.transfer.app.dto.TransferRequestBody;
+import com.money.transfer.app.entity.Account;
+
+public interface LedgerService {
+
+    void append(Account sourceAccount, Account targetAccount,
+                long amountInSourceCurrency, long amountInTargetCurrency, long amount,
+                TransferRequestBody requestBody, String idempotencyKey);
+}
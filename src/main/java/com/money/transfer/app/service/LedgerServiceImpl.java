@@ -0,0 +1,253 @@
+package com.money.transfer.app.service;
+
+import com.money.transfer.app.dto.TransferRequestBody;
+import com.money.transfer.app.entity.Account;
+import com.money.transfer.app.entity.Transaction;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Service that commits transfers in groups, so that many of them share one database transaction and its fsync.
+ * <p>
+ * Transfers are appended to a bounded queue, from which a single writer thread takes as many as
+ * {@code transfer.ledger.max-batch-size} at a time, waiting at most {@code transfer.ledger.max-delay} after the
+ * first one for more to arrive. A group is persisted through {@link TransactionalService#processTransactions},
+ * which records one transaction per transfer and applies the net balance change of every involved account.
+ * The caller of {@link #append} is blocked until its transfer is committed, so its acknowledgement is durable.
+ * <p>
+ * A group is committed atomically, yet every debit has to be covered at its turn, in the order the transfers were
+ * appended, as if they were committed one by one. If the group cannot be committed, because an account cannot
+ * cover one of its debits or an idempotency key was already recorded, its transfers are committed one by one
+ * instead and only the failing ones are reported to their callers.
+ */
+@Slf4j
+@Service
+public class LedgerServiceImpl implements LedgerService {
+
+    /**
+     * How long the idle writer waits for a transfer before checking whether it has been stopped.
+     */
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final TransactionalService transactionalService;
+
+    private final int maxBatchSize;
+
+    private final long maxDelayNanos;
+
+    private final BlockingQueue<LedgerEntry> queue;
+
+    private final ReadWriteLock lifecycle = new ReentrantReadWriteLock();
+
+    private volatile boolean running;
+
+    private final PersistenceMode persistenceMode;
+
+    private volatile Thread writer;
+
+    public LedgerServiceImpl(TransactionalService transactionalService,
+                             @Value("${transfer.persistence.mode}") PersistenceMode persistenceMode,
+                             @Value("${transfer.ledger.max-batch-size}") int maxBatchSize,
+                             @Value("${transfer.ledger.max-delay}") Duration maxDelay,
+                             @Value("${transfer.ledger.queue-capacity}") int queueCapacity) {
+        this.transactionalService = transactionalService;
+        this.persistenceMode = persistenceMode;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.queue = new LinkedBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Appends a transfer to the ledger and waits until it is committed, together with the transfers appended
+     * around the same time.
+     *
+     * @param sourceAccount          The account from which money are withdrawn.
+     * @param targetAccount          The account to which money are deposited.
+     * @param amountInSourceCurrency The amount of money to withdraw from the source account, in minor units of its currency.
+     * @param amountInTargetCurrency The amount of money to deposit to the target account, in minor units of its currency.
+     * @param amount                 The amount of the transfer, in minor units of the transaction currency.
+     * @param requestBody            Contains the original transfer details.
+     * @param idempotencyKey         The idempotency key of the request, or null if the client sent none.
+     * @throws IllegalStateException if the ledger is not running or the caller was interrupted while the queue was full.
+     * @throws RuntimeException      any exception of {@link TransactionalService#processTransaction}, if the transfer failed.
+     */
+    public void append(Account sourceAccount, Account targetAccount,
+                       long amountInSourceCurrency, long amountInTargetCurrency, long amount,
+                       TransferRequestBody requestBody, String idempotencyKey) {
+        LedgerEntry entry = new LedgerEntry(sourceAccount, targetAccount,
+                amountInSourceCurrency, amountInTargetCurrency, amount,
+                requestBody, idempotencyKey, new CompletableFuture<>());
+        // appending under the read lock guarantees the writer sees every entry appended before it was stopped
+        lifecycle.readLock().lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("The ledger is not running and accepts no transfers.");
+            }
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while appending a transfer to the ledger.", e);
+        } finally {
+            lifecycle.readLock().unlock();
+        }
+        try {
+            entry.committed().join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Stops accepting transfers and waits until the ones already appended are committed.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        lifecycle.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            lifecycle.writeLock().unlock();
+        }
+        Thread currentWriter = writer;
+        if (currentWriter != null) {
+            currentWriter.join();
+        }
+    }
+
+    /**
+     * Starts the writer, unless transfers are committed directly, in which case the ledger accepts no transfers.
+     */
+    @PostConstruct
+    public void start() {
+        if (persistenceMode == PersistenceMode.LEDGER) {
+            running = true;
+            writer = new Thread(this::write, "ledger-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    /**
+     * Commits groups of transfers until the ledger is stopped and its queue is empty.
+     * The writer ignores interrupts, since its callers are waiting for it, and is only ended by {@link #stop}.
+     */
+    private void write() {
+        List<LedgerEntry> group = new ArrayList<>(maxBatchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                collect(group);
+            } catch (InterruptedException e) {
+                log.warn("Ledger writer interrupted, it keeps running until the ledger is stopped");
+            }
+            if (!group.isEmpty()) {
+                commit(group);
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * Waits for a transfer and collects the ones that arrive within the latency budget after it,
+     * up to the size of a group.
+     */
+    private void collect(List<LedgerEntry> group) throws InterruptedException {
+        LedgerEntry first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        group.add(first);
+        long deadline = System.nanoTime() + maxDelayNanos;
+        for (;;) {
+            queue.drainTo(group, maxBatchSize - group.size());
+            long remaining = deadline - System.nanoTime();
+            if (group.size() == maxBatchSize || remaining <= 0) {
+                return;
+            }
+            LedgerEntry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            group.add(next);
+        }
+    }
+
+    /**
+     * Commits a group of transfers in one database transaction, or one by one if that fails.
+     */
+    private void commit(List<LedgerEntry> group) {
+        if (group.size() == 1) {
+            commitAlone(group.get(0));
+            return;
+        }
+        List<Transaction> transactions = new ArrayList<>(group.size());
+        Map<String, Long> balanceDeltas = new HashMap<>();
+        for (LedgerEntry entry : group) {
+            transactions.add(Transaction.builder()
+                    .sourceAccount(entry.sourceAccount())
+                    .targetAccount(entry.targetAccount())
+                    .amount(entry.amount())
+                    .currency(entry.requestBody().getCurrency())
+                    .sourceAmount(entry.amountInSourceCurrency())
+                    .targetAmount(entry.amountInTargetCurrency())
+                    .orderedAt(LocalDateTime.now())
+                    .idempotencyKey(entry.idempotencyKey())
+                    .build());
+            balanceDeltas.merge(entry.sourceAccount().getId(), -entry.amountInSourceCurrency(), Long::sum);
+            balanceDeltas.merge(entry.targetAccount().getId(), entry.amountInTargetCurrency(), Long::sum);
+        }
+        try {
+            transactionalService.processTransactions(transactions, balanceDeltas);
+        } catch (RuntimeException e) {
+            log.debug("{} while committing a group of {} transfers, committing them one by one",
+                    e.getClass().getSimpleName(), group.size());
+            group.forEach(this::commitAlone);
+            return;
+        }
+        group.forEach(entry -> entry.committed().complete(null));
+    }
+
+    private void commitAlone(LedgerEntry entry) {
+        try {
+            transactionalService.processTransaction(entry.sourceAccount(), entry.targetAccount(),
+                    entry.amountInSourceCurrency(), entry.amountInTargetCurrency(), entry.amount(),
+                    entry.requestBody(), entry.idempotencyKey());
+            entry.committed().complete(null);
+        } catch (Throwable e) {
+            // whatever the failure, the caller waiting for this transfer must not wait forever
+            entry.committed().completeExceptionally(e);
+        }
+    }
+
+    /**
+     * A transfer appended to the ledger and the signal of its commit.
+     */
+    private record LedgerEntry(Account sourceAccount, Account targetAccount,
+                               long amountInSourceCurrency, long amountInTargetCurrency, long amount,
+                               TransferRequestBody requestBody, String idempotencyKey,
+                               CompletableFuture<Void> committed) {
+    }
+}
@@ -0,0 +1,20 @@
+package com.money.transfer.app.service;
+
+/**
+ * Strategy used to keep concurrent transfers on the same account from overwriting each other's balance updates.
+ * Selected with the {@code transfer.locking.mode} property.
+ */
+public enum LockingMode {
+
+    /**
+     * Both accounts of a transfer are locked, in ascending id order and with a single query, before their
+     * balances are read. Concurrent transfers on the same account wait for each other.
+     */
+    PESSIMISTIC,
+
+    /**
+     * Balances are read without locking and written only if the account version is unchanged.
+     * A transfer that loses the race is retried a bounded number of times.
+     */
+    OPTIMISTIC
+}
@@ -8,4 +8,6 @@ public interface MoneyTransferService {
 
     TransferResponseBody transfer(TransferRequestBody requestBody);
 
+    TransferResponseBody transfer(TransferRequestBody requestBody, String idempotencyKey);
+
 }
@@ -1,83 +1,185 @@
 package com.money.transfer.app.service;
 
-import com.money.transfer.app.dto.ExchangeRateResponse;
 import com.money.transfer.app.dto.TransferRequestBody;
 import com.money.transfer.app.dto.TransferResponseBody;
 import com.money.transfer.app.entity.Account;
 import com.money.transfer.app.exception.*;
-import com.money.transfer.app.integration.ExchangeRateRestClient;
+import com.money.transfer.app.annotation.TimedStage;
+import com.money.transfer.app.metrics.TransferMetrics;
 import com.money.transfer.app.repository.AccountRepository;
-import com.money.transfer.app.repository.CurrencyRepository;
-import lombok.AllArgsConstructor;
+import com.money.transfer.app.util.Money;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+
+import static com.money.transfer.app.metrics.TransferMetrics.*;
+
 
 /**
  * Service responsible to perform the core business logic.
  * That is, executing money transfers between accounts, performing validations
  * and currency conversions.
+ * <p>
+ * Amounts are handled as {@code long} minor units of their currency, see {@link Money}, and converted with
+ * the cross rates of the {@link ExchangeRateEngine}.
+ * Every stage of a transfer is timed through {@link TransferMetrics}.
  */
 @Slf4j
 @Service
-@AllArgsConstructor
 public class MoneyTransferServiceImpl implements MoneyTransferService {
 
     private final AccountRepository accountRepository;
 
-    private final CurrencyRepository currencyRepository;
+    private final CurrencyRegistry currencyRegistry;
 
     private final TransactionalService transactionalService;
 
-    private final ExchangeRateRestClient exchangeRateRestClient;
+    private final ExchangeRateEngine exchangeRateEngine;
+
+    private final BalanceSlotService balanceSlotService;
+
+    private final LedgerService ledgerService;
+
+    private final TransferMetrics transferMetrics;
+
+    private final PersistenceMode persistenceMode;
+
+    private final int maxAttempts;
+
+    public MoneyTransferServiceImpl(AccountRepository accountRepository,
+                                    CurrencyRegistry currencyRegistry,
+                                    TransactionalService transactionalService,
+                                    ExchangeRateEngine exchangeRateEngine,
+                                    BalanceSlotService balanceSlotService,
+                                    LedgerService ledgerService,
+                                    TransferMetrics transferMetrics,
+                                    @Value("${transfer.persistence.mode}") PersistenceMode persistenceMode,
+                                    @Value("${transfer.locking.optimistic.max-attempts}") int maxAttempts) {
+        this.accountRepository = accountRepository;
+        this.currencyRegistry = currencyRegistry;
+        this.transactionalService = transactionalService;
+        this.exchangeRateEngine = exchangeRateEngine;
+        this.balanceSlotService = balanceSlotService;
+        this.ledgerService = ledgerService;
+        this.transferMetrics = transferMetrics;
+        this.persistenceMode = persistenceMode;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * Performs a transfer that carries no idempotency key, see {@link #transfer(TransferRequestBody, String)}.
+     */
+    @TimedStage(TRANSFER)
+    public TransferResponseBody transfer(TransferRequestBody requestBody) {
+        return transfer(requestBody, null);
+    }
 
     /**
      * Performs a transfer between two accounts after validating conditions and converting currency if necessary.
      *
-     * @param requestBody the transfer request.
+     * @param requestBody    the transfer request.
+     * @param idempotencyKey the idempotency key recorded with the transaction, or null.
      * @return {@link TransferResponseBody}
      * @throws CurrencyException           if the specified currency is not supported.
      * @throws NegativeAmountException     if the amount specified to transact is negative.
+     * @throws InvalidAmountException      if the amount is missing or has more decimal places than its currency.
      * @throws SameAccountException        if the source and target accounts are the same.
      * @throws NonExistentAccountException if an account does not exist.
      * @throws LowBalanceException         if the source account does not have enough balance to support the requested transaction.
+     * @throws org.springframework.dao.DataIntegrityViolationException if the idempotency key was already recorded.
      */
-    public TransferResponseBody transfer(TransferRequestBody requestBody) {
+    @TimedStage(TRANSFER)
+    public TransferResponseBody transfer(TransferRequestBody requestBody, String idempotencyKey) {
+
+        long amount = transferMetrics.time(VALIDATION, () -> validateTransferRequest(requestBody, currencyRegistry));
 
-        validateTransferRequest(requestBody);
+        Account sourceAccount = transferMetrics.time(ACCOUNT_LOADING, () -> findAccount(requestBody.getSourceAccountId()));
 
-        Account sourceAccount = accountRepository.findById(requestBody.getSourceAccountId())
-                .orElseThrow(() -> new NonExistentAccountException(requestBody.getSourceAccountId()));
+        Account targetAccount = transferMetrics.time(ACCOUNT_LOADING, () -> findAccount(requestBody.getTargetAccountId()));
 
-        Account targetAccount = accountRepository.findById(requestBody.getTargetAccountId())
-                .orElseThrow(() -> new NonExistentAccountException(requestBody.getTargetAccountId()));
+        ExchangeRateEngine.Matrix exchangeRates = fetchRequiredExchangeRates(
+                requestBody.getCurrency(), sourceAccount.getCurrency(), targetAccount.getCurrency());
 
-        float amountInSourceCurrency = calculateAmountInAccountCurrency(
-                requestBody.getAmount(), requestBody.getCurrency(), sourceAccount.getCurrency());
-        float amountInTargetCurrency = calculateAmountInAccountCurrency(
-                requestBody.getAmount(), requestBody.getCurrency(), targetAccount.getCurrency());
+        long amountInSourceCurrency = calculateAmountInAccountCurrency(
+                amount, requestBody.getCurrency(), sourceAccount.getCurrency(), exchangeRates);
+        long amountInTargetCurrency = calculateAmountInAccountCurrency(
+                amount, requestBody.getCurrency(), targetAccount.getCurrency(), exchangeRates);
 
         checkBalance(requestBody, sourceAccount, amountInSourceCurrency);
 
-        transactionalService.processTransaction(sourceAccount, targetAccount,
-                amountInSourceCurrency, amountInTargetCurrency,
-                requestBody);
+        processTransaction(sourceAccount, targetAccount, amountInSourceCurrency, amountInTargetCurrency, amount,
+                requestBody, idempotencyKey);
 
         return createResponse(requestBody);
     }
 
     /**
-     * Validates the transfer request by checking for negative amounts, identical account IDs,
+     * @param accountId the id of the account.
+     * @return the account.
+     * @throws NonExistentAccountException if the account does not exist.
+     */
+    private Account findAccount(String accountId) {
+        return accountRepository.findById(accountId).orElseThrow(() -> new NonExistentAccountException(accountId));
+    }
+
+    /**
+     * Persists the transfer through the {@link TransactionalService}, which re-checks the balance
+     * against the current state of the accounts, or in {@link PersistenceMode#LEDGER} through the
+     * {@link LedgerService}, which commits it together with other transfers. When the transaction loses
+     * an optimistic locking race it is retried, up to the configured number of attempts.
+     *
+     * @throws OptimisticLockingFailureException if every attempt conflicted with a concurrent update.
+     */
+    private void processTransaction(Account sourceAccount, Account targetAccount,
+                                    long amountInSourceCurrency, long amountInTargetCurrency, long amount,
+                                    TransferRequestBody requestBody, String idempotencyKey) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                if (persistenceMode == PersistenceMode.LEDGER) {
+                    ledgerService.append(sourceAccount, targetAccount,
+                            amountInSourceCurrency, amountInTargetCurrency, amount,
+                            requestBody, idempotencyKey);
+                } else {
+                    transactionalService.processTransaction(sourceAccount, targetAccount,
+                            amountInSourceCurrency, amountInTargetCurrency, amount,
+                            requestBody, idempotencyKey);
+                }
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                log.debug("Concurrent update on accounts {} and {}, retrying transfer (attempt {})",
+                        sourceAccount.getId(), targetAccount.getId(), attempt + 1);
+            }
+        }
+    }
+
+    /**
+     * Validates the transfer request by checking for missing or negative amounts, identical account IDs,
      * and unsupported currencies, before processing.
+     * The currency is looked up in memory, case-insensitively, and replaced by its normalized code,
+     * the amount is rewritten with exactly as many decimal places as the currency has.
      *
-     * @param requestBody the transfer request details.
+     * @param requestBody      the transfer request details.
+     * @param currencyRegistry the supported currencies.
+     * @return the amount of the request in minor units of its currency.
+     * @throws InvalidAmountException  if the amount is missing or cannot be expressed in minor units of the currency.
      * @throws NegativeAmountException if the amount specified in the request is negative.
      * @throws SameAccountException    if the source and target account IDs are identical.
      * @throws CurrencyException       if the specified currency is invalid.
      */
-    private void validateTransferRequest(TransferRequestBody requestBody) {
+    static long validateTransferRequest(TransferRequestBody requestBody, CurrencyRegistry currencyRegistry) {
+
+        BigDecimal amount = requestBody.getAmount();
+        if (amount == null) {
+            throw new InvalidAmountException(null, requestBody.getCurrency());
+        }
 
-        if (requestBody.getAmount() < 0) {
+        if (amount.signum() < 0) {
             throw new NegativeAmountException(requestBody.getCurrency());
         }
 
@@ -85,50 +187,90 @@ public class MoneyTransferServiceImpl implements MoneyTransferService {
             throw new SameAccountException();
         }
 
-        if (currencyRepository.findById(requestBody.getCurrency()).isEmpty()) {
+        int ordinal = currencyRegistry.ordinal(requestBody.getCurrency());
+        if (ordinal == CurrencyRegistry.UNSUPPORTED) {
             throw new CurrencyException(requestBody.getCurrency());
         }
+        String currency = currencyRegistry.code(ordinal);
+        int scale = currencyRegistry.scale(ordinal);
+        long amountInMinorUnits;
+        try {
+            amountInMinorUnits = Money.toMinorUnits(amount, scale);
+        } catch (ArithmeticException e) {
+            throw new InvalidAmountException(amount.toPlainString(), currency);
+        }
+        requestBody.setCurrency(currency);
+        requestBody.setAmount(Money.toMajorUnits(amountInMinorUnits, scale));
+        return amountInMinorUnits;
     }
 
 
     /**
      * Ensures the source account has sufficient balance for the transfer.
+     * This is an early rejection based on the balance read outside the transaction,
+     * the authoritative check happens again while persisting.
      *
      * @param sourceAccount          The account from which money will be withdrawn.
      * @param amountInSourceCurrency The amount to be withdrawn, converted to the account's currency if necessary.
      */
-    private static void checkBalance(TransferRequestBody requestBody, Account sourceAccount, float amountInSourceCurrency) {
-        if (sourceAccount.getBalance() < amountInSourceCurrency)
-            throw new LowBalanceException(requestBody, sourceAccount);
+    private void checkBalance(TransferRequestBody requestBody, Account sourceAccount, long amountInSourceCurrency) {
+        long availableBalance = balanceSlotService.availableBalance(sourceAccount);
+        if (availableBalance < amountInSourceCurrency)
+            throw new LowBalanceException(requestBody, sourceAccount, availableBalance,
+                    currencyRegistry.scale(sourceAccount.getCurrency()));
+    }
+
+    /**
+     * Resolves, once for the whole request, the exchange rates needed to convert the transaction currency
+     * into the currencies of the involved accounts.
+     *
+     * @param transactionCurrency The currency of the transaction.
+     * @param accountCurrencies   The currencies of the involved accounts.
+     * @return the rates of every currency pair, or null if no conversion is needed.
+     */
+    private ExchangeRateEngine.Matrix fetchRequiredExchangeRates(String transactionCurrency,
+                                                                String... accountCurrencies) {
+        for (String accountCurrency : accountCurrencies) {
+            if (!transactionCurrency.equalsIgnoreCase(accountCurrency)) {
+                return exchangeRateEngine.rates();
+            }
+        }
+        return null;
     }
 
     /**
      * Converts the transfer amount to the target account's currency if necessary.
      *
-     * @param amount              The original amount to be transferred.
+     * @param amount              The original amount to be transferred, in minor units of the transaction currency.
      * @param transactionCurrency The currency of the transaction.
      * @param accountCurrency     The currency of the account.
-     * @return The converted amount or the original amount if no conversion is needed.
+     * @param exchangeRates       The exchange rates resolved for this request.
+     * @return The converted amount or the original amount if no conversion is needed, in minor units.
      */
-    private float calculateAmountInAccountCurrency(float amount, String transactionCurrency, String accountCurrency) {
+    private long calculateAmountInAccountCurrency(long amount, String transactionCurrency, String accountCurrency,
+                                                  ExchangeRateEngine.Matrix exchangeRates) {
         if (transactionCurrency.equalsIgnoreCase(accountCurrency)) {
             return amount;
         } else {
-            return convertCurrency(amount, transactionCurrency, accountCurrency);
+            return convertCurrency(amount, transactionCurrency, accountCurrency, exchangeRates);
         }
     }
 
     /**
-     * Converts a given amount from one currency to another.
+     * Converts a given amount from one currency to another, rounding half to even to the minor unit of the new currency.
      *
-     * @param oldAmount   The amount to convert.
+     * @param oldAmount   The amount to convert, in minor units.
      * @param oldCurrency The currency of the old amount.
      * @param newCurrency The target currency.
-     * @return The amount converted to the new currency.
+     * @param rates       The exchange rates of every currency pair.
+     * @return The amount converted to the new currency, in minor units.
+     * @throws CurrencyException if the new currency is not supported.
      */
-    private float convertCurrency(float oldAmount, String oldCurrency, String newCurrency) {
-        ExchangeRateResponse response = exchangeRateRestClient.fetchExchangeRates(oldCurrency);
-        float newAmount = oldAmount * response.conversion_rates.get(newCurrency);
+    private long convertCurrency(long oldAmount, String oldCurrency, String newCurrency,
+                                 ExchangeRateEngine.Matrix rates) {
+        int newScale = currencyRegistry.scale(newCurrency);
+        long newAmount = Money.convert(oldAmount, currencyRegistry.scale(oldCurrency),
+                rates.rate(currencyRegistry.ordinal(oldCurrency), currencyRegistry.ordinal(newCurrency)), newScale);
         log.debug("Currency converted: {} {} to {} {}", oldAmount, oldCurrency, newAmount, newCurrency);
         return newAmount;
     }
@@ -139,10 +281,10 @@ public class MoneyTransferServiceImpl implements MoneyTransferService {
      * @param requestBody contains the details of the transfer request.
      * @return A response summarizing the successful transaction.
      */
-    private static TransferResponseBody createResponse(TransferRequestBody requestBody) {
+    static TransferResponseBody createResponse(TransferRequestBody requestBody) {
         return TransferResponseBody.builder()
-                .response(String.format("Transfer of %.2f %s from account %s to account %s completed successfully.",
-                        requestBody.getAmount(),
+                .response(String.format("Transfer of %s %s from account %s to account %s completed successfully.",
+                        requestBody.getAmount().toPlainString(),
                         requestBody.getCurrency(),
                         requestBody.getSourceAccountId(),
                         requestBody.getTargetAccountId()))
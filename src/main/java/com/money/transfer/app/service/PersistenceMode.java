@@ -0,0 +1,20 @@
+package com.money.transfer.app.service;
+
+/**
+ * How a single transfer is committed to the database.
+ * Selected with the {@code transfer.persistence.mode} property.
+ */
+public enum PersistenceMode {
+
+    /**
+     * Every transfer updates both accounts and records its transaction in a database transaction of its own,
+     * see {@link TransactionalServiceImpl#processTransaction}.
+     */
+    DIRECT,
+
+    /**
+     * Transfers are appended to the ledger and committed in groups, many of them per database transaction,
+     * see {@link LedgerServiceImpl}.
+     */
+    LEDGER
+}
@@ -0,0 +1,11 @@
+package com.money.transfer.app.service;
+
+import com.money.transfer.app.dto.TransferRequestBody;
+import com.money.transfer.app.dto.TransferResponseBody;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveMoneyTransferService {
+
+    Mono<TransferResponseBody> transfer(TransferRequestBody requestBody);
+
+}
@@ -0,0 +1,184 @@
+package com.money.transfer.app.service;
+
+import com.money.transfer.app.dto.TransferRequestBody;
+import com.money.transfer.app.dto.TransferResponseBody;
+import com.money.transfer.app.entity.Account;
+import com.money.transfer.app.entity.Transaction;
+import com.money.transfer.app.exception.*;
+import com.money.transfer.app.metrics.TransferMetrics;
+import com.money.transfer.app.repository.ReactiveAccountRepository;
+import com.money.transfer.app.repository.ReactiveBalanceSlotRepository;
+import com.money.transfer.app.repository.ReactiveTransactionRepository;
+import com.money.transfer.app.util.Money;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import static com.money.transfer.app.metrics.TransferMetrics.TRANSFER;
+
+/**
+ * Non-blocking counterpart of the {@link MoneyTransferServiceImpl}, behind the {@code /api/v2} endpoints.
+ * <p>
+ * Accounts are read and written through R2DBC and the exchange rates resolved through
+ * {@link ExchangeRateEngine#ratesAsync()}, so no thread waits for the database or the exchange rate API
+ * and a few event loop threads can carry thousands of transfers in flight. Validation, conversions and
+ * the response are the same as in {@link MoneyTransferServiceImpl}.
+ * <p>
+ * A transfer is persisted in one R2DBC transaction without reading the balances first: the source account
+ * is debited by a statement that only succeeds if the account can cover the amount, and the target account
+ * is credited relatively. Both accounts are updated in ascending id order, the order in which every other
+ * transfer locks them, a target account with balance slots is credited through one of its slots instead, see
+ * {@link BalanceSlotServiceImpl}. A source account with balance slots is locked before its slots are summed.
+ * Idempotency keys and {@link PersistenceMode#LEDGER} are only supported by the {@code /api/v1} endpoints.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ReactiveMoneyTransferServiceImpl implements ReactiveMoneyTransferService {
+
+    private final ReactiveAccountRepository accountRepository;
+
+    private final ReactiveBalanceSlotRepository balanceSlotRepository;
+
+    private final ReactiveTransactionRepository transactionRepository;
+
+    private final CurrencyRegistry currencyRegistry;
+
+    private final ExchangeRateEngine exchangeRateEngine;
+
+    private final TransactionalOperator reactiveTransactionalOperator;
+
+    private final TransferMetrics transferMetrics;
+
+    /**
+     * Performs a transfer between two accounts after validating conditions and converting currency if necessary.
+     *
+     * @param requestBody the transfer request.
+     * @return a {@link Mono} emitting the {@link TransferResponseBody}, or failing with a {@link CurrencyException},
+     * {@link NegativeAmountException}, {@link InvalidAmountException}, {@link SameAccountException},
+     * {@link NonExistentAccountException}, {@link LowBalanceException} or {@link WebClientException},
+     * under the same conditions as {@link MoneyTransferServiceImpl#transfer(TransferRequestBody)}.
+     */
+    public Mono<TransferResponseBody> transfer(TransferRequestBody requestBody) {
+        return Mono.defer(() -> {
+            long started = System.nanoTime();
+            return Mono.fromSupplier(() -> MoneyTransferServiceImpl.validateTransferRequest(requestBody, currencyRegistry))
+                    .flatMap(amount -> Mono.zip(findAccount(requestBody.getSourceAccountId()),
+                                    findAccount(requestBody.getTargetAccountId()))
+                            .flatMap(accounts -> convert(requestBody, amount, accounts.getT1(), accounts.getT2())))
+                    .then(Mono.fromSupplier(() -> MoneyTransferServiceImpl.createResponse(requestBody)))
+                    .doOnSuccess(response -> transferMetrics.record(TRANSFER, started, null))
+                    .doOnError(e -> transferMetrics.record(TRANSFER, started, e));
+        });
+    }
+
+    /**
+     * @return a {@link Mono} emitting the account, or failing with a {@link NonExistentAccountException}.
+     */
+    private Mono<Account> findAccount(String accountId) {
+        return accountRepository.findById(accountId)
+                .switchIfEmpty(Mono.error(() -> new NonExistentAccountException(accountId)));
+    }
+
+    /**
+     * Converts the amount into the currencies of both accounts, resolving the exchange rates only if needed,
+     * and persists the transfer.
+     */
+    private Mono<Void> convert(TransferRequestBody requestBody, long amount, Account sourceAccount, Account targetAccount) {
+        String currency = requestBody.getCurrency();
+        if (currency.equalsIgnoreCase(sourceAccount.getCurrency()) && currency.equalsIgnoreCase(targetAccount.getCurrency())) {
+            return persist(requestBody, sourceAccount, targetAccount, amount, amount, amount);
+        }
+        return exchangeRateEngine.ratesAsync()
+                .flatMap(rates -> persist(requestBody, sourceAccount, targetAccount,
+                        convertCurrency(amount, currency, sourceAccount.getCurrency(), rates),
+                        convertCurrency(amount, currency, targetAccount.getCurrency(), rates),
+                        amount));
+    }
+
+    /**
+     * Converts a given amount from one currency to another, rounding half to even to the minor unit of the new currency.
+     *
+     * @return The amount converted to the new currency, or the given amount if the currencies are the same, in minor units.
+     * @throws CurrencyException if the new currency is not supported.
+     */
+    private long convertCurrency(long amount, String oldCurrency, String newCurrency, ExchangeRateEngine.Matrix rates) {
+        if (oldCurrency.equalsIgnoreCase(newCurrency)) {
+            return amount;
+        }
+        int newScale = currencyRegistry.scale(newCurrency);
+        long newAmount = Money.convert(amount, currencyRegistry.scale(oldCurrency),
+                rates.rate(currencyRegistry.ordinal(oldCurrency), currencyRegistry.ordinal(newCurrency)), newScale);
+        log.debug("Currency converted: {} {} to {} {}", amount, oldCurrency, newAmount, newCurrency);
+        return newAmount;
+    }
+
+    /**
+     * Updates both accounts and records the transaction in a single R2DBC transaction.
+     */
+    private Mono<Void> persist(TransferRequestBody requestBody, Account sourceAccount, Account targetAccount,
+                               long amountInSourceCurrency, long amountInTargetCurrency, long amount) {
+        boolean slottedTarget = targetAccount.getBalanceSlots() > 0;
+        Mono<Void> debit = debit(requestBody, sourceAccount, amountInSourceCurrency);
+        Mono<Void> credit = slottedTarget ? Mono.empty() : credit(targetAccount, amountInTargetCurrency);
+        Mono<Void> accountUpdates = sourceAccount.getId().compareTo(targetAccount.getId()) < 0
+                ? debit.then(credit)
+                : credit.then(debit);
+        return accountUpdates
+                .then(slottedTarget ? creditSlot(targetAccount, amountInTargetCurrency) : Mono.empty())
+                .then(Mono.defer(() -> transactionRepository.insert(Transaction.builder()
+                        .sourceAccount(sourceAccount)
+                        .targetAccount(targetAccount)
+                        .amount(amount)
+                        .currency(requestBody.getCurrency())
+                        .sourceAmount(amountInSourceCurrency)
+                        .targetAmount(amountInTargetCurrency)
+                        .orderedAt(LocalDateTime.now())
+                        .build())))
+                .as(reactiveTransactionalOperator::transactional);
+    }
+
+    /**
+     * Debits the source account. An account with balance slots is locked first, so that no consolidation
+     * moves its slot balances while they are summed.
+     *
+     * @return a {@link Mono} completing once the account is debited, or failing with a {@link LowBalanceException}
+     * or a {@link NonExistentAccountException}.
+     */
+    private Mono<Void> debit(TransferRequestBody requestBody, Account sourceAccount, long amount) {
+        String accountId = sourceAccount.getId();
+        Mono<Long> slotBalance = sourceAccount.getBalanceSlots() == 0
+                ? Mono.just(0L)
+                : accountRepository.findByIdForUpdate(accountId).then(balanceSlotRepository.sumBalance(accountId));
+        return slotBalance.flatMap(slots -> whenUpdated(accountRepository.debit(accountId, amount, slots),
+                () -> findAccount(accountId).flatMap(account -> Mono.error(new LowBalanceException(requestBody, account,
+                        account.getBalance() + slots, currencyRegistry.scale(account.getCurrency()))))));
+    }
+
+    private Mono<Void> credit(Account targetAccount, long amount) {
+        return whenUpdated(accountRepository.credit(targetAccount.getId(), amount),
+                () -> Mono.error(new NonExistentAccountException(targetAccount.getId())));
+    }
+
+    /**
+     * Credits a random slot of a hot account, locking that slot only.
+     */
+    private Mono<Void> creditSlot(Account targetAccount, long amount) {
+        return Mono.defer(() -> whenUpdated(balanceSlotRepository.credit(targetAccount.getId(),
+                        ThreadLocalRandom.current().nextInt(targetAccount.getBalanceSlots()), amount),
+                () -> Mono.error(new NonExistentAccountException(targetAccount.getId()))));
+    }
+
+    /**
+     * @return a {@link Mono} completing if the update changed a row, otherwise the given alternative.
+     */
+    private static Mono<Void> whenUpdated(Mono<Long> update, Supplier<Mono<Void>> otherwise) {
+        return update.flatMap(updated -> updated > 0 ? Mono.empty() : otherwise.get());
+    }
+}
@@ -0,0 +1,36 @@
+package com.money.transfer.app.service;
+
+import com.money.transfer.app.dto.ReconciliationDiscrepancy;
+import com.money.transfer.app.dto.ReconciliationReport;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reconciles every account at the end of the day, on the {@code reconciliation.cron} schedule,
+ * and logs the accounts that do not reconcile, see {@link ReconciliationServiceImpl}.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ReconciliationJob {
+
+    private final ReconciliationService reconciliationService;
+
+    @Scheduled(cron = "${reconciliation.cron}")
+    public void reconcile() {
+        ReconciliationReport report;
+        try {
+            report = reconciliationService.reconcile();
+        } catch (RuntimeException e) {
+            log.error("Cannot reconcile the accounts", e);
+            return;
+        }
+        for (ReconciliationDiscrepancy discrepancy : report.getDiscrepancies()) {
+            log.warn("Account {} does not reconcile: expected {} {}, found {} {}", discrepancy.getAccountId(),
+                    discrepancy.getExpectedBalance(), discrepancy.getCurrency(),
+                    discrepancy.getActualBalance(), discrepancy.getCurrency());
+        }
+    }
+}
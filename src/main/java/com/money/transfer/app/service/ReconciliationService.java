@@ -0,0 +1,8 @@
+package com.money.transfer.app.service;
+
+import com.money.transfer.app.dto.ReconciliationReport;
+
+public interface ReconciliationService {
+
+    ReconciliationReport reconcile();
+}
@@ -0,0 +1,316 @@
+package com.money.transfer.app.service;
+
+import com.money.transfer.app.dto.ReconciliationDiscrepancy;
+import com.money.transfer.app.dto.ReconciliationReport;
+import com.money.transfer.app.repository.ReconciliationRepository;
+import com.money.transfer.app.util.Money;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Service responsible for reconciling every account with the transaction table: the balance of an account plus the
+ * balances of its slots must equal its opening balance, plus every amount credited to it, minus every amount debited
+ * from it.
+ * <p>
+ * The accounts are numbered by an {@link AccountIndex} and their figures kept in primitive arrays. The transactions
+ * are then streamed through the {@link ReconciliationRepository} in chunks of {@code reconciliation.chunk-size} rows,
+ * which a fork-join pool of {@code reconciliation.parallelism} workers, every core by default, aggregates while the
+ * next chunks are read. Each worker adds up the deltas of the chunks it takes into an array of its own, so no
+ * aggregation is ever contended, and at most two chunks per worker are held at once, so memory use grows with the
+ * number of accounts but not with the number of transactions. Finally the arrays of the workers are added up and
+ * compared with the balances, in parallel as well.
+ * <p>
+ * Accounts without an opening balance, whose transactions lack the amounts of their currency, cannot be reconciled
+ * and are only counted.
+ */
+@Slf4j
+@Service
+public class ReconciliationServiceImpl implements ReconciliationService {
+
+    /**
+     * The number of rows or accounts below which a fork-join task does its work rather than splitting it.
+     */
+    static final int LEAF_SIZE = 1024;
+
+    private final ReconciliationRepository reconciliationRepository;
+
+    private final int parallelism;
+
+    private final int chunkSize;
+
+    public ReconciliationServiceImpl(ReconciliationRepository reconciliationRepository,
+                                     @Value("${reconciliation.parallelism}") int parallelism,
+                                     @Value("${reconciliation.chunk-size}") int chunkSize) {
+        this.reconciliationRepository = reconciliationRepository;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reconciles every account within one repeatable read transaction, so that the accounts and the transactions
+     * are read as of the same moment while transfers go on.
+     *
+     * @return {@link ReconciliationReport} listing the accounts that do not reconcile.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public ReconciliationReport reconcile() {
+        long start = System.nanoTime();
+        LocalDateTime reconciledAt = LocalDateTime.now();
+        Accounts accounts = new Accounts();
+        reconciliationRepository.forEachAccount(accounts);
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Aggregation aggregation = new Aggregation(pool, accounts);
+            reconciliationRepository.forEachTransaction(aggregation);
+            aggregation.finish();
+            List<ReconciliationDiscrepancy> discrepancies = pool.invoke(
+                    new Comparison(accounts, aggregation.deltas.values().toArray(long[][]::new), 0, accounts.index.size()));
+
+            log.info("Reconciled {} accounts against {} transactions in {} ms: {} discrepancies, {} unreconcilable",
+                    accounts.index.size(), aggregation.transactions, (System.nanoTime() - start) / 1_000_000,
+                    discrepancies.size(), accounts.unreconcilable);
+            return ReconciliationReport.builder()
+                    .reconciledAt(reconciledAt)
+                    .accounts(accounts.index.size())
+                    .transactions(aggregation.transactions)
+                    .unreconcilable(accounts.unreconcilable)
+                    .discrepancies(discrepancies)
+                    .build();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * The figures of every account, by ordinal.
+     */
+    private static final class Accounts implements ReconciliationRepository.AccountHandler {
+
+        private final AccountIndex index = new AccountIndex();
+
+        private String[] currencies = new String[0];
+
+        private int[] scales = new int[0];
+
+        private long[] balances = new long[0];
+
+        private long[] openingBalances = new long[0];
+
+        private boolean[] opened = new boolean[0];
+
+        private long unreconcilable;
+
+        @Override
+        public void account(String id, String currency, int scale, long balance, boolean opened, long openingBalance) {
+            int ordinal = index.add(id);
+            if (ordinal == balances.length) {
+                int capacity = Math.max(16, 2 * ordinal);
+                currencies = Arrays.copyOf(currencies, capacity);
+                scales = Arrays.copyOf(scales, capacity);
+                balances = Arrays.copyOf(balances, capacity);
+                openingBalances = Arrays.copyOf(openingBalances, capacity);
+                this.opened = Arrays.copyOf(this.opened, capacity);
+            }
+            currencies[ordinal] = currency;
+            scales[ordinal] = scale;
+            balances[ordinal] = balance;
+            openingBalances[ordinal] = openingBalance;
+            this.opened[ordinal] = opened;
+            if (!opened) {
+                unreconcilable++;
+            }
+        }
+    }
+
+    /**
+     * Hands the transactions over to the pool a chunk at a time, waiting for the oldest chunk once enough are queued.
+     */
+    private final class Aggregation implements ReconciliationRepository.TransactionHandler {
+
+        private final ForkJoinPool pool;
+
+        private final AccountIndex index;
+
+        private final int accounts;
+
+        /**
+         * The deltas of every worker, by account ordinal.
+         */
+        private final Map<Thread, long[]> deltas = new ConcurrentHashMap<>();
+
+        private final Deque<ForkJoinTask<Void>> inFlight = new ArrayDeque<>();
+
+        private Chunk chunk;
+
+        private long transactions;
+
+        private Aggregation(ForkJoinPool pool, Accounts accounts) {
+            this.pool = pool;
+            this.index = accounts.index;
+            this.accounts = accounts.index.size();
+        }
+
+        @Override
+        public void transaction(String sourceAccountId, String targetAccountId, long sourceAmount, long targetAmount) {
+            if (chunk == null) {
+                chunk = new Chunk(chunkSize);
+            }
+            chunk.add(sourceAccountId, targetAccountId, sourceAmount, targetAmount);
+            transactions++;
+            if (chunk.size == chunkSize) {
+                submit();
+            }
+        }
+
+        private void submit() {
+            if (inFlight.size() == 2 * parallelism) {
+                inFlight.remove().join();
+            }
+            inFlight.add(pool.submit(new AggregateChunk(chunk, 0, chunk.size)));
+            chunk = null;
+        }
+
+        /**
+         * Submits the last chunk and waits for every chunk to be aggregated, rethrowing the failure of any.
+         */
+        private void finish() {
+            if (chunk != null) {
+                submit();
+            }
+            while (!inFlight.isEmpty()) {
+                inFlight.remove().join();
+            }
+        }
+
+        /**
+         * Adds the transactions of a range of a chunk to the deltas of the worker running it.
+         */
+        private final class AggregateChunk extends RecursiveAction {
+
+            private final Chunk chunk;
+
+            private final int from;
+
+            private final int to;
+
+            private AggregateChunk(Chunk chunk, int from, int to) {
+                this.chunk = chunk;
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from > LEAF_SIZE) {
+                    int middle = (from + to) >>> 1;
+                    invokeAll(new AggregateChunk(chunk, from, middle), new AggregateChunk(chunk, middle, to));
+                    return;
+                }
+                long[] worker = deltas.computeIfAbsent(Thread.currentThread(), thread -> new long[accounts]);
+                for (int i = from; i < to; i++) {
+                    worker[index.get(chunk.sourceAccountIds[i])] -= chunk.sourceAmounts[i];
+                    worker[index.get(chunk.targetAccountIds[i])] += chunk.targetAmounts[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Transactions as read, column by column.
+     */
+    private static final class Chunk {
+
+        private final String[] sourceAccountIds;
+
+        private final String[] targetAccountIds;
+
+        private final long[] sourceAmounts;
+
+        private final long[] targetAmounts;
+
+        private int size;
+
+        private Chunk(int capacity) {
+            sourceAccountIds = new String[capacity];
+            targetAccountIds = new String[capacity];
+            sourceAmounts = new long[capacity];
+            targetAmounts = new long[capacity];
+        }
+
+        private void add(String sourceAccountId, String targetAccountId, long sourceAmount, long targetAmount) {
+            sourceAccountIds[size] = sourceAccountId;
+            targetAccountIds[size] = targetAccountId;
+            sourceAmounts[size] = sourceAmount;
+            targetAmounts[size] = targetAmount;
+            size++;
+        }
+    }
+
+    /**
+     * Compares the expected and actual balances of a range of accounts, reporting discrepancies in ordinal order.
+     */
+    private static final class Comparison extends RecursiveTask<List<ReconciliationDiscrepancy>> {
+
+        private final Accounts accounts;
+
+        private final long[][] deltas;
+
+        private final int from;
+
+        private final int to;
+
+        private Comparison(Accounts accounts, long[][] deltas, int from, int to) {
+            this.accounts = accounts;
+            this.deltas = deltas;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<ReconciliationDiscrepancy> compute() {
+            if (to - from > LEAF_SIZE) {
+                int middle = (from + to) >>> 1;
+                Comparison right = new Comparison(accounts, deltas, middle, to);
+                right.fork();
+                List<ReconciliationDiscrepancy> discrepancies = new Comparison(accounts, deltas, from, middle).compute();
+                discrepancies.addAll(right.join());
+                return discrepancies;
+            }
+            List<ReconciliationDiscrepancy> discrepancies = new ArrayList<>();
+            for (int ordinal = from; ordinal < to; ordinal++) {
+                if (!accounts.opened[ordinal]) {
+                    continue;
+                }
+                long expected = accounts.openingBalances[ordinal];
+                for (long[] worker : deltas) {
+                    expected += worker[ordinal];
+                }
+                long actual = accounts.balances[ordinal];
+                if (expected != actual) {
+                    int scale = accounts.scales[ordinal];
+                    discrepancies.add(new ReconciliationDiscrepancy(accounts.index.id(ordinal),
+                            accounts.currencies[ordinal], Money.toMajorUnits(expected, scale),
+                            Money.toMajorUnits(actual, scale)));
+                }
+            }
+            return discrepancies;
+        }
+    }
+}
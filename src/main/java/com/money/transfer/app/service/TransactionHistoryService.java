@@ -0,0 +1,10 @@
+package com.money.transfer.app.service;
+
+import com.money.transfer.app.dto.TransactionHistoryResponseBody;
+
+public interface TransactionHistoryService {
+
+    TransactionHistoryResponseBody accountHistory(String accountId, Integer limit, String cursor);
+
+    TransactionHistoryResponseBody pairHistory(String sourceAccountId, String targetAccountId, Integer limit, String cursor);
+}
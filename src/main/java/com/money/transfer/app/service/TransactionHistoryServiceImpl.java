@@ -0,0 +1,207 @@
+package com.money.transfer.app.service;
+
+import com.money.transfer.app.dto.TransactionHistoryItem;
+import com.money.transfer.app.dto.TransactionHistoryResponseBody;
+import com.money.transfer.app.exception.InvalidCursorException;
+import com.money.transfer.app.exception.InvalidPageSizeException;
+import com.money.transfer.app.exception.NonExistentAccountException;
+import com.money.transfer.app.repository.AccountRepository;
+import com.money.transfer.app.repository.TransactionRepository;
+import com.money.transfer.app.repository.TransactionSummary;
+import com.money.transfer.app.util.Money;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Service that reads the transaction history of an account, or of the transfers from one account to another,
+ * newest transaction first.
+ * <p>
+ * Pages are read with keyset pagination on {@code (orderedAt, id)}: a page ends with a cursor encoding the
+ * position of its last transaction and the next page starts strictly after it, so reading a page costs the same
+ * however deep into the history it is and transactions recorded in the meantime neither shift nor repeat entries.
+ * The history of an account merges its outgoing and incoming transactions, each read through its own index.
+ * A page is read in one read-only transaction, which goes to the read replica where there is one.
+ */
+@Service
+public class TransactionHistoryServiceImpl implements TransactionHistoryService {
+
+    private static final Comparator<TransactionSummary> NEWEST_FIRST = Comparator
+            .comparing(TransactionSummary::getOrderedAt)
+            .thenComparing(TransactionSummary::getId)
+            .reversed();
+
+    private static final char CURSOR_SEPARATOR = '|';
+
+    private final AccountRepository accountRepository;
+
+    private final TransactionRepository transactionRepository;
+
+    private final CurrencyRegistry currencyRegistry;
+
+    private final int defaultPageSize;
+
+    private final int maxPageSize;
+
+    public TransactionHistoryServiceImpl(AccountRepository accountRepository,
+                                         TransactionRepository transactionRepository,
+                                         CurrencyRegistry currencyRegistry,
+                                         @Value("${transfer.history.default-page-size}") int defaultPageSize,
+                                         @Value("${transfer.history.max-page-size}") int maxPageSize) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.currencyRegistry = currencyRegistry;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Reads a page of the transactions from and to an account.
+     *
+     * @param accountId the id of the account.
+     * @param limit     the number of transactions per page, or null for the default.
+     * @param cursor    the cursor of the previous page, or null for the first page.
+     * @return {@link TransactionHistoryResponseBody} with the page and the cursor of the next one.
+     * @throws InvalidPageSizeException    if the limit is not between 1 and the maximum page size.
+     * @throws InvalidCursorException      if the cursor cannot be decoded.
+     * @throws NonExistentAccountException if the account does not exist.
+     */
+    @Transactional(readOnly = true)
+    public TransactionHistoryResponseBody accountHistory(String accountId, Integer limit, String cursor) {
+        int pageSize = pageSize(limit);
+        Cursor position = Cursor.decode(cursor);
+        requireAccount(accountId);
+
+        // one row more than the page tells whether there is a next page
+        Pageable page = PageRequest.of(0, pageSize + 1);
+        List<TransactionSummary> outgoing = position == null
+                ? transactionRepository.findOutgoing(accountId, page)
+                : transactionRepository.findOutgoingBefore(accountId, position.orderedAt(), position.id(), page);
+        List<TransactionSummary> incoming = position == null
+                ? transactionRepository.findIncoming(accountId, page)
+                : transactionRepository.findIncomingBefore(accountId, position.orderedAt(), position.id(), page);
+        return toPage(merge(outgoing, incoming, pageSize + 1), pageSize);
+    }
+
+    /**
+     * Reads a page of the transfers from one account to another.
+     *
+     * @param sourceAccountId the id of the account money were withdrawn from.
+     * @param targetAccountId the id of the account money were deposited to.
+     * @param limit           the number of transactions per page, or null for the default.
+     * @param cursor          the cursor of the previous page, or null for the first page.
+     * @return {@link TransactionHistoryResponseBody} with the page and the cursor of the next one.
+     * @throws InvalidPageSizeException    if the limit is not between 1 and the maximum page size.
+     * @throws InvalidCursorException      if the cursor cannot be decoded.
+     * @throws NonExistentAccountException if an account does not exist.
+     */
+    @Transactional(readOnly = true)
+    public TransactionHistoryResponseBody pairHistory(String sourceAccountId, String targetAccountId,
+                                                      Integer limit, String cursor) {
+        int pageSize = pageSize(limit);
+        Cursor position = Cursor.decode(cursor);
+        requireAccount(sourceAccountId);
+        requireAccount(targetAccountId);
+
+        Pageable page = PageRequest.of(0, pageSize + 1);
+        List<TransactionSummary> transactions = position == null
+                ? transactionRepository.findBetween(sourceAccountId, targetAccountId, page)
+                : transactionRepository.findBetweenBefore(sourceAccountId, targetAccountId,
+                position.orderedAt(), position.id(), page);
+        return toPage(transactions, pageSize);
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return defaultPageSize;
+        }
+        if (limit < 1 || limit > maxPageSize) {
+            throw new InvalidPageSizeException(maxPageSize);
+        }
+        return limit;
+    }
+
+    private void requireAccount(String accountId) {
+        if (!accountRepository.existsById(accountId)) {
+            throw new NonExistentAccountException(accountId);
+        }
+    }
+
+    /**
+     * Merges two lists that are both sorted newest first, keeping at most the given number of transactions.
+     */
+    private static List<TransactionSummary> merge(List<TransactionSummary> first, List<TransactionSummary> second,
+                                                  int size) {
+        List<TransactionSummary> merged = new ArrayList<>(size);
+        int i = 0;
+        int j = 0;
+        while (merged.size() < size && (i < first.size() || j < second.size())) {
+            if (j == second.size() || (i < first.size() && NEWEST_FIRST.compare(first.get(i), second.get(j)) <= 0)) {
+                merged.add(first.get(i++));
+            } else {
+                merged.add(second.get(j++));
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Converts the transactions read for a page, which may hold one more than the page size, to its response.
+     */
+    private TransactionHistoryResponseBody toPage(List<TransactionSummary> transactions, int pageSize) {
+        List<TransactionSummary> page = transactions.subList(0, Math.min(pageSize, transactions.size()));
+        List<TransactionHistoryItem> items = new ArrayList<>(page.size());
+        for (TransactionSummary transaction : page) {
+            items.add(TransactionHistoryItem.builder()
+                    .id(transaction.getId())
+                    .sourceAccountId(transaction.getSourceAccountId())
+                    .targetAccountId(transaction.getTargetAccountId())
+                    .amount(Money.toMajorUnits(transaction.getAmount(), currencyRegistry.scale(transaction.getCurrency())))
+                    .currency(transaction.getCurrency())
+                    .orderedAt(transaction.getOrderedAt())
+                    .build());
+        }
+        TransactionSummary last = page.isEmpty() ? null : page.get(page.size() - 1);
+        return TransactionHistoryResponseBody.builder()
+                .transactions(items)
+                .nextCursor(transactions.size() > pageSize ? new Cursor(last.getOrderedAt(), last.getId()).encode() : null)
+                .build();
+    }
+
+    /**
+     * Position of a transaction in the history, sent to clients as URL safe Base64 text.
+     */
+    record Cursor(LocalDateTime orderedAt, String id) {
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((orderedAt.toString() + CURSOR_SEPARATOR + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * @return the decoded position, or null if there is no cursor.
+         * @throws InvalidCursorException if the cursor cannot be decoded.
+         */
+        static Cursor decode(String cursor) {
+            if (cursor == null) {
+                return null;
+            }
+            try {
+                String position = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = position.indexOf(CURSOR_SEPARATOR);
+                return new Cursor(LocalDateTime.parse(position.substring(0, separator)), position.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new InvalidCursorException(cursor);
+            }
+        }
+    }
+}
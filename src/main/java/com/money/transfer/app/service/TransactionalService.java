@@ -2,10 +2,16 @@ package com.money.transfer.app.service;
 
 import com.money.transfer.app.dto.TransferRequestBody;
 import com.money.transfer.app.entity.Account;
+import com.money.transfer.app.entity.Transaction;
+
+import java.util.List;
+import java.util.Map;
 
 public interface TransactionalService {
 
     void processTransaction(Account sourceAccount, Account targetAccount,
-                            float amountInSourceCurrency, float amountInTargetCurrency,
-                            TransferRequestBody requestBody);
+                            long amountInSourceCurrency, long amountInTargetCurrency, long amount,
+                            TransferRequestBody requestBody, String idempotencyKey);
+
+    void processTransactions(List<Transaction> transactions, Map<String, Long> balanceDeltas);
 }
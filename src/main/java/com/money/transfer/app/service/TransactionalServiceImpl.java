@@ -1,55 +1,231 @@
 package com.money.transfer.app.service;
 
+import com.money.transfer.app.annotation.TimedStage;
 import com.money.transfer.app.dto.TransferRequestBody;
 import com.money.transfer.app.entity.Account;
 import com.money.transfer.app.entity.Transaction;
+import com.money.transfer.app.exception.LowBalanceException;
+import com.money.transfer.app.exception.NonExistentAccountException;
+import com.money.transfer.app.metrics.TransferMetrics;
 import com.money.transfer.app.repository.AccountRepository;
 import com.money.transfer.app.repository.TransactionRepository;
-import lombok.AllArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Service responsible for persisting a transaction as a whole.
+ * <p>
+ * Balances are always read and checked inside the same database transaction that updates them,
+ * guarded according to the configured {@link LockingMode}, so concurrent transfers on the same
+ * account cannot overwrite each other.
  */
 @Service
-@AllArgsConstructor
 public class TransactionalServiceImpl implements TransactionalService{
 
     private final AccountRepository accountRepository;
 
     private final TransactionRepository transactionRepository;
 
+    private final JdbcTemplate jdbcTemplate;
+
+    private final CurrencyRegistry currencyRegistry;
+
+    private final BalanceSlotService balanceSlotService;
+
+    private final LockingMode lockingMode;
+
+    public TransactionalServiceImpl(AccountRepository accountRepository,
+                                    TransactionRepository transactionRepository,
+                                    JdbcTemplate jdbcTemplate,
+                                    CurrencyRegistry currencyRegistry,
+                                    BalanceSlotService balanceSlotService,
+                                    @Value("${transfer.locking.mode}") LockingMode lockingMode) {
+        this.accountRepository = accountRepository;
+        this.transactionRepository = transactionRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.currencyRegistry = currencyRegistry;
+        this.balanceSlotService = balanceSlotService;
+        this.lockingMode = lockingMode;
+    }
+
     /**
      * Processes a transaction by updating balances of the source and target accounts and recording
      * the transaction details. This method is {@link Transactional}, meaning all operations either complete
      * successfully together or fail together without any partial updates being committed to the database.
+     * <p>
+     * The given accounts only identify the parties of the transfer; their current balances are re-read inside
+     * the transaction, either locked or version checked, and the source balance is verified against them.
+     * A target account with balance slots is neither read nor locked, it is credited through one of its slots,
+     * see {@link BalanceSlotServiceImpl}.
      *
      * @param sourceAccount          The account from which money are withdrawn.
      * @param targetAccount          The account to which money are deposited.
-     * @param amountInSourceCurrency The amount of money to withdraw from the source account in its currency.
-     * @param amountInTargetCurrency The amount of money to deposit to the target account in its currency.
+     * @param amountInSourceCurrency The amount of money to withdraw from the source account, in minor units of its currency.
+     * @param amountInTargetCurrency The amount of money to deposit to the target account, in minor units of its currency.
+     * @param amount                 The amount of the transfer, in minor units of the transaction currency.
      * @param requestBody            Contains the original transfer details, is needed to persist a meaningful transaction log.
+     * @param idempotencyKey         The idempotency key of the request, or null if the client sent none.
+     * @throws LowBalanceException                if the current balance of the source account is not enough.
+     * @throws OptimisticLockingFailureException  if, in optimistic mode, an account was updated concurrently.
+     * @throws DataIntegrityViolationException    if a transaction with the same idempotency key was already recorded.
      */
     @Transactional
+    @TimedStage(TransferMetrics.COMMIT)
     public void processTransaction(Account sourceAccount, Account targetAccount,
-                                   float amountInSourceCurrency, float amountInTargetCurrency,
-                                   TransferRequestBody requestBody) {
-        sourceAccount.setBalance(sourceAccount.getBalance() - amountInSourceCurrency);
-        targetAccount.setBalance(targetAccount.getBalance() + amountInTargetCurrency);
+                                   long amountInSourceCurrency, long amountInTargetCurrency, long amount,
+                                   TransferRequestBody requestBody, String idempotencyKey) {
+        boolean slottedTarget = targetAccount.getBalanceSlots() > 0;
+        Map<String, Account> accounts = loadAccounts(slottedTarget
+                ? List.of(sourceAccount.getId())
+                : List.of(sourceAccount.getId(), targetAccount.getId()));
+        Account currentSourceAccount = getAccount(accounts, sourceAccount.getId());
+
+        long availableBalance = balanceSlotService.availableBalance(currentSourceAccount);
+        if (availableBalance < amountInSourceCurrency) {
+            throw new LowBalanceException(requestBody, currentSourceAccount, availableBalance,
+                    currencyRegistry.scale(currentSourceAccount.getCurrency()));
+        }
 
-        accountRepository.save(sourceAccount);
-        accountRepository.save(targetAccount);
+        currentSourceAccount.setBalance(currentSourceAccount.getBalance() - amountInSourceCurrency);
+        accountRepository.save(currentSourceAccount);
+
+        Account currentTargetAccount;
+        if (slottedTarget) {
+            balanceSlotService.credit(targetAccount, amountInTargetCurrency);
+            currentTargetAccount = accountRepository.getReferenceById(targetAccount.getId());
+        } else {
+            currentTargetAccount = getAccount(accounts, targetAccount.getId());
+            currentTargetAccount.setBalance(currentTargetAccount.getBalance() + amountInTargetCurrency);
+            accountRepository.save(currentTargetAccount);
+        }
 
         transactionRepository.save(Transaction.builder()
-                .sourceAccount(sourceAccount)
-                .targetAccount(targetAccount)
-                .amount(requestBody.getAmount())
+                .sourceAccount(currentSourceAccount)
+                .targetAccount(currentTargetAccount)
+                .amount(amount)
                 .currency(requestBody.getCurrency())
+                .sourceAmount(amountInSourceCurrency)
+                .targetAmount(amountInTargetCurrency)
                 .orderedAt(LocalDateTime.now())
+                .idempotencyKey(idempotencyKey)
                 .build());
     }
 
+    /**
+     * Persists many transfers at once by applying the net balance change of every involved account and
+     * recording the transactions, using JDBC batch statements inside a single {@link Transactional} unit.
+     * Balances are updated relatively, so the statement count depends on the number of distinct accounts
+     * rather than on the number of transfers.
+     * <p>
+     * Every account of the unit is locked first, in ascending id order, the same order in which single transfers
+     * lock them, and the transactions are replayed in order against the locked balances, slots included: a debit
+     * is covered only by the balance and the credits received before it, never by the net effect of the unit,
+     * so two transfers crossing between empty accounts are rejected. Credits to accounts with balance slots
+     * go to the account row. Every update bumps the account version, and a debit that would overdraw
+     * the current balance rolls back the whole unit.
+     *
+     * @param transactions  The transactions to record, referencing their source and target accounts.
+     * @param balanceDeltas The net amount to add to the balance of each account, in minor units of its currency, keyed by account id.
+     * @throws OptimisticLockingFailureException if an account cannot cover one of its debits.
+     * @throws DataIntegrityViolationException   if a transaction with the same idempotency key was already recorded.
+     */
+    @Transactional
+    @TimedStage(TransferMetrics.COMMIT)
+    public void processTransactions(List<Transaction> transactions, Map<String, Long> balanceDeltas) {
+        List<String> accountIds = new ArrayList<>(new TreeMap<>(balanceDeltas).keySet());
+        Map<String, Long> slotBalances = checkDebits(transactions, accountIds);
+        List<Object[]> balanceUpdates = new ArrayList<>(accountIds.size());
+        for (String accountId : accountIds) {
+            Long delta = balanceDeltas.get(accountId);
+            balanceUpdates.add(new Object[]{delta, accountId, delta, slotBalances.getOrDefault(accountId, 0L)});
+        }
+        int[] updated = jdbcTemplate.batchUpdate("UPDATE public.account SET balance = balance + ?, version = version + 1 " +
+                "WHERE id = ? AND balance + ? + ? >= 0", balanceUpdates);
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                throw new OptimisticLockingFailureException(
+                        String.format("Balance of account %s changed concurrently.", accountIds.get(i)));
+            }
+        }
+
+        List<Object[]> inserts = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            inserts.add(new Object[]{
+                    transaction.getSourceAccount().getId(),
+                    transaction.getTargetAccount().getId(),
+                    transaction.getAmount(),
+                    transaction.getCurrency(),
+                    transaction.getSourceAmount(),
+                    transaction.getTargetAmount(),
+                    Timestamp.valueOf(transaction.getOrderedAt()),
+                    transaction.getIdempotencyKey()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO public.transaction " +
+                "(source_account_id, target_account_id, amount, currency, source_amount, target_amount, ordered_at, idempotency_key) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)", inserts);
+    }
+
+    /**
+     * Locks every account of the unit in ascending id order and replays its transactions, in the order they
+     * were made, against the current balances of their source accounts, slots included, so that the unit is
+     * accepted only if every debit is covered at its turn, as if the transfers were committed one by one.
+     *
+     * @return the sum of the slot balances of the debited accounts with slots, keyed by account id.
+     * @throws OptimisticLockingFailureException if an account cannot cover one of its debits at its turn.
+     */
+    private Map<String, Long> checkDebits(List<Transaction> transactions, List<String> accountIds) {
+        Set<String> sourceAccountIds = new HashSet<>();
+        for (Transaction transaction : transactions) {
+            sourceAccountIds.add(transaction.getSourceAccount().getId());
+        }
+        List<Account> debitedAccounts = accountRepository.findAllByIdForUpdate(accountIds).stream()
+                .filter(account -> sourceAccountIds.contains(account.getId()))
+                .toList();
+        Map<String, Long> slotBalances = balanceSlotService.slotBalances(debitedAccounts);
+        Map<String, Long> balances = new HashMap<>();
+        for (Account account : debitedAccounts) {
+            balances.put(account.getId(), account.getBalance() + slotBalances.getOrDefault(account.getId(), 0L));
+        }
+        for (Transaction transaction : transactions) {
+            String sourceAccountId = transaction.getSourceAccount().getId();
+            long balance = balances.getOrDefault(sourceAccountId, 0L) - transaction.getSourceAmount();
+            if (balance < 0) {
+                throw new OptimisticLockingFailureException(
+                        String.format("Account %s cannot cover its debit in the unit.", sourceAccountId));
+            }
+            balances.put(sourceAccountId, balance);
+            balances.computeIfPresent(transaction.getTargetAccount().getId(),
+                    (accountId, targetBalance) -> targetBalance + transaction.getTargetAmount());
+        }
+        return slotBalances;
+    }
+
+    /**
+     * Reads the current state of the given accounts, locking them in pessimistic mode.
+     */
+    private Map<String, Account> loadAccounts(Collection<String> accountIds) {
+        List<Account> accounts = lockingMode == LockingMode.PESSIMISTIC
+                ? accountRepository.findAllByIdForUpdate(accountIds)
+                : accountRepository.findAllById(accountIds);
+        return accounts.stream().collect(Collectors.toMap(Account::getId, Function.identity()));
+    }
+
+    private static Account getAccount(Map<String, Account> accounts, String accountId) {
+        Account account = accounts.get(accountId);
+        if (account == null) {
+            throw new NonExistentAccountException(accountId);
+        }
+        return account;
+    }
+
 }
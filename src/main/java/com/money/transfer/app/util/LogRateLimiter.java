@@ -0,0 +1,55 @@
+package com.money.transfer.app.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Lets through at most a given number of log lines per second and counts the ones held back,
+ * so that a burst of expected events, such as rejected requests, cannot flood the logs.
+ * <p>
+ * Callers contend on atomic counters only. When a second begins, callers racing the reset may let
+ * through a line or two more than the limit, which is harmless for logging.
+ */
+public class LogRateLimiter {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final int perSecond;
+
+    private final LongSupplier nanoTime;
+
+    private final AtomicLong second = new AtomicLong(Long.MIN_VALUE);
+
+    private final AtomicInteger logged = new AtomicInteger();
+
+    private final LongAdder suppressed = new LongAdder();
+
+    /**
+     * @param perSecond the number of lines let through per second, none if zero.
+     */
+    public LogRateLimiter(int perSecond) {
+        this(perSecond, System::nanoTime);
+    }
+
+    LogRateLimiter(int perSecond, LongSupplier nanoTime) {
+        this.perSecond = perSecond;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * @return the number of lines held back since the last one let through, or -1 if this one is held back too.
+     */
+    public long acquire() {
+        long now = nanoTime.getAsLong() / SECOND;
+        if (second.getAndAccumulate(now, Math::max) < now) {
+            logged.set(0);
+        }
+        if (logged.incrementAndGet() > perSecond) {
+            suppressed.increment();
+            return -1;
+        }
+        return suppressed.sumThenReset();
+    }
+}
@@ -0,0 +1,63 @@
+package com.money.transfer.app.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A message with {@code %s} and {@code %d} placeholders, such as those of the
+ * {@link com.money.transfer.app.util.constants.ExceptionConstants}, split once into its literal parts.
+ * <p>
+ * Formatting then only appends the parts and the arguments, where {@link String#format} parses the whole pattern
+ * on every call, which matters for messages built on every rejected request.
+ * Arguments are rendered through {@link String#valueOf(Object)}, as {@code %s} and {@code %d} render them.
+ */
+public final class MessageTemplate {
+
+    private final String[] parts;
+
+    private final int length;
+
+    private MessageTemplate(String[] parts) {
+        this.parts = parts;
+        int length = 0;
+        for (String part : parts) {
+            length += part.length();
+        }
+        this.length = length;
+    }
+
+    /**
+     * @param pattern the message, with a {@code %s} or {@code %d} in place of every argument.
+     * @return the template of the message.
+     */
+    public static MessageTemplate of(String pattern) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < pattern.length() - 1; i++) {
+            char conversion = pattern.charAt(i + 1);
+            if (pattern.charAt(i) == '%' && (conversion == 's' || conversion == 'd')) {
+                parts.add(pattern.substring(start, i));
+                start = i + 2;
+                i++;
+            }
+        }
+        parts.add(pattern.substring(start));
+        return new MessageTemplate(parts.toArray(String[]::new));
+    }
+
+    /**
+     * @param args one argument per placeholder, in order.
+     * @return the message with every placeholder replaced by its argument.
+     * @throws IllegalArgumentException if there are not as many arguments as placeholders.
+     */
+    public String format(Object... args) {
+        if (args.length != parts.length - 1) {
+            throw new IllegalArgumentException("Expected " + (parts.length - 1) + " arguments but got " + args.length);
+        }
+        StringBuilder message = new StringBuilder(length + 16 * args.length).append(parts[0]);
+        for (int i = 0; i < args.length; i++) {
+            message.append(args[i]).append(parts[i + 1]);
+        }
+        return message.toString();
+    }
+}
@@ -0,0 +1,76 @@
+package com.money.transfer.app.util;
+
+import lombok.experimental.UtilityClass;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point arithmetic on amounts of money held as a {@code long} count of minor units,
+ * for example cents, where the scale of a currency is the number of its minor unit digits.
+ * <p>
+ * Conversions between currencies work on primitives only and round half to even,
+ * so they allocate nothing and never drift by more than half a minor unit.
+ */
+@UtilityClass
+public class Money {
+
+    /**
+     * Largest supported scale, ISO 4217 currencies use at most four decimal places.
+     */
+    public static final int MAX_SCALE = 4;
+
+    /**
+     * Factor moving an amount from one scale to another, indexed by the scale difference plus {@link #MAX_SCALE}.
+     */
+    private static final double[] SCALE_FACTORS = {1e-4, 1e-3, 1e-2, 1e-1, 1, 1e1, 1e2, 1e3, 1e4};
+
+    private static final double LONG_RANGE = 0x1p63;
+
+    /**
+     * Converts a decimal amount to minor units of a currency.
+     *
+     * @param amount the amount in major units.
+     * @param scale  the number of minor unit digits of the currency.
+     * @return the amount in minor units.
+     * @throws ArithmeticException if the amount has more decimal places than the currency or does not fit in a long.
+     */
+    public static long toMinorUnits(BigDecimal amount, int scale) {
+        return amount.movePointRight(scale).longValueExact();
+    }
+
+    /**
+     * @param amount the amount in minor units.
+     * @param scale  the number of minor unit digits of the currency.
+     * @return the amount in major units, with exactly as many decimal places as the currency has.
+     */
+    public static BigDecimal toMajorUnits(long amount, int scale) {
+        return BigDecimal.valueOf(amount, scale);
+    }
+
+    /**
+     * @param amount the amount in minor units.
+     * @param scale  the number of minor unit digits of the currency.
+     * @return the amount in major units as plain text, for instance {@code 5069.50}.
+     */
+    public static String format(long amount, int scale) {
+        return toMajorUnits(amount, scale).toPlainString();
+    }
+
+    /**
+     * Converts an amount between two currencies, rounding half to even to the minor unit of the new currency.
+     *
+     * @param amount    the amount in minor units of the old currency.
+     * @param fromScale the number of minor unit digits of the old currency.
+     * @param rate      the units of the new currency one unit of the old currency is worth.
+     * @param toScale   the number of minor unit digits of the new currency.
+     * @return the converted amount in minor units of the new currency.
+     * @throws ArithmeticException if the converted amount does not fit in a long.
+     */
+    public static long convert(long amount, int fromScale, double rate, int toScale) {
+        double converted = Math.rint(amount * rate * SCALE_FACTORS[toScale - fromScale + MAX_SCALE]);
+        if (!(converted >= -LONG_RANGE && converted < LONG_RANGE)) {
+            throw new ArithmeticException("Converted amount out of range: " + converted);
+        }
+        return (long) converted;
+    }
+}
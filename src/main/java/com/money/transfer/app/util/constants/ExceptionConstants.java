@@ -7,14 +7,30 @@ public class ExceptionConstants {
 
     public static final String CURRENCY_EXCEPTION_MESSAGE = "%s is not a valid currency.\nAcceptable currencies are listed below:\n";
     public static final String LOW_BALANCE_EXCEPTION_MESSAGE = "Cannot proceed to money transfer due to low balance. " +
-            "Unable to transfer %.2f %s with a balance of %.2f %s.";
+            "Unable to transfer %s %s with a balance of %s %s.";
+    public static final String INVALID_AMOUNT_EXCEPTION_MESSAGE = "%s is not a valid amount of %s.";
     public static final String NEGATIVE_AMOUNT_EXCEPTION_MESSAGE = "Cannot transfer negative amount of %s.";
     public static final String NON_EXISTENT_ACCOUNT_EXCEPTION_MESSAGE = "Account with ID: %s is non existent.";
     public static final String SAME_ACCOUNT_EXCEPTION_MESSAGE = "Source and target account cannot be the same.";
+    public static final String BATCH_PERSISTENCE_EXCEPTION_MESSAGE = "Cannot persist the transfer, no money was moved.";
+    public static final String INVALID_IDEMPOTENCY_KEY_EXCEPTION_MESSAGE = "Idempotency-Key must be between 1 and %d characters long.";
+    public static final String IDEMPOTENCY_KEY_REUSE_EXCEPTION_MESSAGE = "Idempotency-Key %s was already used for a different transfer.";
+    public static final String INVALID_CURSOR_EXCEPTION_MESSAGE = "%s is not a valid cursor.";
+    public static final String INVALID_PAGE_SIZE_EXCEPTION_MESSAGE = "Limit must be between 1 and %d.";
+    public static final String UNSUPPORTED_FILE_FORMAT_EXCEPTION_MESSAGE = "%s is not a supported format, use csv or ndjson.";
+    public static final String INVALID_CSV_HEADER_EXCEPTION_MESSAGE = "%s is not a valid header, it must name a currency and a balance column.";
+    public static final String MALFORMED_ACCOUNT_RECORD_MESSAGE = "Malformed account record.";
+    public static final String UNSUPPORTED_CURRENCY_MESSAGE = "%s is not a supported currency.";
+    public static final String INVALID_ACCOUNT_ID_MESSAGE = "Account ID must be at most %d characters long.";
+    public static final String DUPLICATE_ACCOUNT_MESSAGE = "Account with ID: %s already exists.";
+    public static final String STATEMENT_BUDGET_EXCEEDED_EXCEPTION_MESSAGE = "%s ran %d database statements, over its budget of %d.";
     public static final String WEB_CLIENT_GENERAL_EXCEPTION_MESSAGE = "Error while fetching exchange rates from API.";
 
     public static final String EXTERNAL_SERVER_EXCEPTION_MESSAGE = "Failed to retrieve exchange rates due to external server error.";
 
     public static final String INTERNAL_SERVER_EXCEPTION_MESSAGE = "Failed to send request to the exchange rate service.";
     public static final String REQUEST_TIME_OUT_EXCEPTION_MESSAGE = "Request to the exchange rate service timed out.";
+    public static final String CIRCUIT_OPEN_EXCEPTION_MESSAGE = "The exchange rate service is unavailable, please retry later.";
+    public static final String MALFORMED_EXCHANGE_RATE_RESPONSE_EXCEPTION_MESSAGE = "The exchange rate service sent a malformed response.";
+    public static final String MISSING_EXCHANGE_RATE_EXCEPTION_MESSAGE = "No exchange rate from %s to %s is available.";
 }
@@ -0,0 +1,73 @@
+package com.money.transfer.app.annotation
+
+import ch.qos.logback.classic.Logger
+import ch.qos.logback.classic.spi.ILoggingEvent
+import ch.qos.logback.core.read.ListAppender
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.money.transfer.app.controller.v1.MoneyTransferControllerImpl
+import com.money.transfer.app.dto.TransferRequestBody
+import com.money.transfer.app.dto.TransferResponseBody
+import com.money.transfer.app.service.BatchTransferServiceImpl
+import com.money.transfer.app.service.IdempotentTransferServiceImpl
+import com.money.transfer.app.service.MoneyTransferServiceImpl
+import org.slf4j.LoggerFactory
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory
+import spock.lang.Specification
+
+/**
+ * Unit test for the LogAspect, woven around a MoneyTransferControllerImpl as Spring would.
+ */
+class LogAspectSpec extends Specification {
+
+    private MoneyTransferServiceImpl moneyTransferService
+
+    private IdempotentTransferServiceImpl idempotentTransferService
+
+    private MoneyTransferControllerImpl controller
+
+    private ListAppender<ILoggingEvent> appender
+
+    def setup() {
+        moneyTransferService = Mock(MoneyTransferServiceImpl)
+        idempotentTransferService = Mock(IdempotentTransferServiceImpl)
+        def proxyFactory = new AspectJProxyFactory(new MoneyTransferControllerImpl(moneyTransferService,
+                Mock(BatchTransferServiceImpl), idempotentTransferService, new ObjectMapper()))
+        proxyFactory.setProxyTargetClass(true)
+        proxyFactory.addAspect(new LogAspect(10))
+        controller = proxyFactory.getProxy()
+        appender = new ListAppender<>()
+        appender.start()
+        (LoggerFactory.getLogger(LogAspect) as Logger).addAppender(appender)
+    }
+
+    def cleanup() {
+        (LoggerFactory.getLogger(LogAspect) as Logger).detachAppender(appender)
+    }
+
+    /**
+     * Verifies that the request course is logged whether or not the transfer carries an idempotency key,
+     * which comes before the request body among the arguments of the endpoint.
+     */
+    def "test the course of a transfer is logged"() {
+        given:
+        def requestBody = TransferRequestBody.builder()
+                .sourceAccountId("sourceAccountId")
+                .targetAccountId("targetAccountId")
+                .amount(1)
+                .currency("EUR")
+                .build()
+        moneyTransferService.transfer(requestBody) >> TransferResponseBody.builder().build()
+        idempotentTransferService.transfer("key", requestBody) >> TransferResponseBody.builder().build()
+
+        when:
+        controller.transfer(idempotencyKey, requestBody)
+
+        then:
+        appender.list*.formattedMessage.size() == 2
+        appender.list[0].formattedMessage == "Initiating transfer from account sourceAccountId to account targetAccountId for amount 1 EUR"
+        appender.list[1].formattedMessage.startsWith("Transfer of 1EUR from account sourceAccountId to account targetAccountId completed successfully.")
+
+        where:
+        idempotencyKey << [null, "key"]
+    }
+}
@@ -1,20 +1,58 @@
 package com.money.transfer.app.configuration
 
 import com.money.transfer.app.configuration.AppConfiguration
+import com.money.transfer.app.integration.ExchangeRateResponseDecoder
+import com.money.transfer.app.service.CurrencyRegistry
 import org.springframework.web.reactive.function.client.WebClient
+import reactor.netty.http.client.HttpClient
+import reactor.netty.resources.ConnectionProvider
 import spock.lang.Specification
 
+import java.time.Duration
+
 class AppConfigurationSpec extends Specification {
 
     private AppConfiguration appConfiguration
 
+    private ConnectionProvider connectionProvider
+
     def setup(){
         appConfiguration = new AppConfiguration()
+        connectionProvider = appConfiguration.exchangeRateConnectionProvider(4, Duration.ofSeconds(2),
+                Duration.ofSeconds(20), Duration.ofMinutes(5), Duration.ofSeconds(10))
+    }
+
+    def cleanup(){
+        connectionProvider.dispose()
+    }
+
+    def "test exchangeRateConnectionProvider"(){
+        expect:
+        connectionProvider.name() == "exchange-rate"
+        connectionProvider.maxConnections() == 4
+    }
+
+    def "test exchangeRateHttpClient"(){
+        when:
+        def httpClient = appConfiguration.exchangeRateHttpClient(connectionProvider, Duration.ofSeconds(2),
+                Duration.ofSeconds(5), true, warmUp)
+
+        then:
+        noExceptionThrown()
+        httpClient instanceof HttpClient
+        httpClient.configuration().connectionProvider() == connectionProvider
+        httpClient.configuration().responseTimeout() == Duration.ofSeconds(5)
+        httpClient.configuration().isAcceptGzip()
+        httpClient.configuration().uriTagValue().apply("/latest/USD") == "/latest/{baseCurrency}"
+
+        where:
+        warmUp << [true, false]
     }
 
     def "test exchangeRateWebClient"(){
         when:
-        def client = appConfiguration.exchangeRateWebClient()
+        def client = appConfiguration.exchangeRateWebClient(new ExchangeRateResponseDecoder(Mock(CurrencyRegistry)),
+                HttpClient.create(connectionProvider))
 
         then:
         noExceptionThrown()
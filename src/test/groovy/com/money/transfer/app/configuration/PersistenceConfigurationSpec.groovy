@@ -0,0 +1,119 @@
+package com.money.transfer.app.configuration
+
+import com.money.transfer.app.metrics.StatementCountingDataSource
+import com.zaxxer.hikari.HikariDataSource
+import io.r2dbc.spi.ConnectionFactory
+import org.springframework.beans.factory.ObjectProvider
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy
+import org.springframework.transaction.reactive.TransactionalOperator
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry
+import spock.lang.Specification
+
+import java.sql.Connection
+import java.time.Duration
+
+class PersistenceConfigurationSpec extends Specification {
+
+    private PersistenceConfiguration persistenceConfiguration
+
+    def setup() {
+        persistenceConfiguration = new PersistenceConfiguration()
+    }
+
+    def "test dataSource"() {
+        given:
+        def properties = new DataSourceProperties()
+        properties.setUrl("jdbc:h2:mem:persistence")
+        properties.setUsername("sa")
+        properties.afterPropertiesSet()
+
+        when:
+        def dataSource = persistenceConfiguration.dataSource(properties)
+
+        then:
+        dataSource instanceof HikariDataSource
+        dataSource.getJdbcUrl() == "jdbc:h2:mem:persistence"
+        dataSource.getUsername() == "sa"
+
+        cleanup:
+        dataSource.close()
+    }
+
+    def "test replicaDataSource"() {
+        when:
+        def dataSource = persistenceConfiguration.replicaDataSource("jdbc:h2:mem:replica", "sa", "")
+
+        then:
+        dataSource.getJdbcUrl() == "jdbc:h2:mem:replica"
+        dataSource.getUsername() == "sa"
+        dataSource.getPoolName() == "replica"
+
+        cleanup:
+        dataSource.close()
+    }
+
+    def "test routingDataSource"() {
+        when:
+        def pool = Stub(HikariDataSource) {
+            getConnection() >> Stub(Connection)
+        }
+        def readWriteRouting = persistenceConfiguration.readWriteRoutingDataSource(pool, pool, Duration.ofSeconds(1))
+        def dataSource = persistenceConfiguration.routingDataSource(readWriteRouting)
+
+        then:
+        dataSource.getTargetDataSource().is(readWriteRouting)
+    }
+
+    def "test readYourWritesConfigurer"() {
+        given:
+        def configurer = persistenceConfiguration.readYourWritesConfigurer(Mock(ReadWriteRoutingDataSource), "X-Client-Id")
+        def registry = new InterceptorRegistry()
+        def asyncSupport = new AsyncSupportConfigurer()
+
+        when:
+        configurer.addInterceptors(registry)
+        configurer.configureAsyncSupport(asyncSupport)
+
+        then:
+        registry.getInterceptors().size() == 1
+        registry.getInterceptors()[0] instanceof ReadYourWritesInterceptor
+        asyncSupport.getCallableInterceptors() == registry.getInterceptors()
+    }
+
+    def "test applicationDataSource counts the statements of the primary"() {
+        given:
+        def primary = Stub(HikariDataSource)
+        def routing = Stub(ObjectProvider) {
+            getIfAvailable() >> null
+        }
+
+        when:
+        def dataSource = persistenceConfiguration.applicationDataSource(primary, routing, true)
+
+        then:
+        dataSource instanceof StatementCountingDataSource
+        dataSource.getTargetDataSource().is(primary)
+    }
+
+    def "test applicationDataSource routes through the replica unprofiled"() {
+        given:
+        def replicaRouting = Stub(LazyConnectionDataSourceProxy)
+        def routing = Stub(ObjectProvider) {
+            getIfAvailable() >> replicaRouting
+        }
+
+        expect:
+        persistenceConfiguration.applicationDataSource(Stub(HikariDataSource), routing, false).is(replicaRouting)
+    }
+
+    def "test reactiveTransactionalOperator"() {
+        when:
+        def operator = persistenceConfiguration.reactiveTransactionalOperator(Mock(ConnectionFactory))
+
+        then:
+        noExceptionThrown()
+        operator instanceof TransactionalOperator
+    }
+}
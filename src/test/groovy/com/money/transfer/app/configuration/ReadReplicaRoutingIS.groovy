@@ -0,0 +1,172 @@
+package com.money.transfer.app.configuration
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.money.transfer.app.MoneyTransferApplication
+import com.money.transfer.app.dto.TransactionHistoryResponseBody
+import com.money.transfer.app.dto.TransferRequestBody
+import com.money.transfer.app.entity.Account
+import com.money.transfer.app.repository.AccountRepository
+import com.money.transfer.app.service.MoneyTransferService
+import com.money.transfer.app.service.TransactionHistoryService
+import liquibase.integration.spring.SpringLiquibase
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.beans.factory.annotation.Qualifier
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.core.io.DefaultResourceLoader
+import org.springframework.http.MediaType
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.datasource.DriverManagerDataSource
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.TestPropertySource
+import org.springframework.test.web.servlet.MockMvc
+import spock.lang.Specification
+
+import javax.sql.DataSource
+import java.time.LocalDateTime
+import java.util.concurrent.Callable
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status
+
+/**
+ * Integration test routing read-only transactions to a replica, using two H2 databases for the primary
+ * and the replica. Nothing replicates between them, so the test copies the rows the replica should have seen,
+ * and a transfer that is not copied shows which database a read went to.
+ */
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:test.properties", properties = [
+        "datasource.replica.url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+        "datasource.replica.username=sa",
+        "datasource.replica.primary-after-write=1h"])
+@SpringBootTest(classes = MoneyTransferApplication)
+@AutoConfigureMockMvc
+class ReadReplicaRoutingIS extends Specification {
+
+    static {
+        // the replica has the schema and the currencies before the application starts, as a real one would
+        def liquibase = new SpringLiquibase()
+        liquibase.setDataSource(new DriverManagerDataSource(
+                "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", ""))
+        liquibase.setChangeLog("classpath:/db/migrations/liquibase/master.xml")
+        liquibase.setResourceLoader(new DefaultResourceLoader())
+        liquibase.afterPropertiesSet()
+    }
+
+    @Autowired
+    private MockMvc mockMvc
+
+    @Autowired
+    private ObjectMapper objectMapper
+
+    @Autowired
+    private AccountRepository accountRepository
+
+    @Autowired
+    private MoneyTransferService moneyTransferService
+
+    @Autowired
+    private TransactionHistoryService transactionHistoryService
+
+    @Autowired
+    @Qualifier("dataSource")
+    private DataSource primary
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replica
+
+    def "test history is read from the replica"() {
+        given:
+        def first = accountRepository.save(new Account(null, 100000, "EUR", LocalDateTime.now()))
+        def second = accountRepository.save(new Account(null, 100000, "EUR", LocalDateTime.now()))
+        transfer(first, second, 1)
+        replicate("account", "id IN (?, ?)", first.id, second.id)
+        replicate("transaction", "source_account_id = ?", first.id)
+        transfer(first, second, 2)
+
+        when:
+        def history = transactionHistoryService.accountHistory(first.id, 10, null)
+
+        then:
+        history.transactions*.amount == [1.00]
+        new JdbcTemplate(primary).queryForObject(
+                "SELECT COUNT(*) FROM public.transaction WHERE source_account_id = ?", Integer, first.id) == 2
+    }
+
+    /**
+     * Verifies that while a client posts transfers, the reads of another client keep going to the replica,
+     * whereas the client that wrote reads its own transfers from the primary.
+     */
+    def "test reads of other clients stay on the replica while a client writes"() {
+        given:
+        def first = accountRepository.save(new Account(null, 100000, "EUR", LocalDateTime.now()))
+        def second = accountRepository.save(new Account(null, 100000, "EUR", LocalDateTime.now()))
+        replicate("account", "id IN (?, ?)", first.id, second.id)
+        def executor = Executors.newFixedThreadPool(4)
+
+        when:
+        def transfers = (1..20).collect { amount ->
+            executor.submit({
+                mockMvc.perform(post("/api/v1/transfer")
+                        .header("X-Client-Id", "writer")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(TransferRequestBody.builder()
+                                .sourceAccountId(first.id)
+                                .targetAccountId(second.id)
+                                .amount(amount)
+                                .currency("EUR")
+                                .build())))
+                        .andExpect(status().isOk())
+            } as Callable)
+        }
+        def readsWhileWriting = []
+        while (!transfers.every { it.isDone() }) {
+            readsWhileWriting << history("reader", first)
+        }
+        transfers*.get(30, TimeUnit.SECONDS)
+
+        then:
+        readsWhileWriting.every { it.isEmpty() }
+        history("reader", first).isEmpty()
+        history("writer", first).size() == 20
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    /**
+     * @return the transactions of the account the client reads through the history endpoint.
+     */
+    private List history(String client, Account account) {
+        def response = mockMvc.perform(get("/api/v1/accounts/{accountId}/transactions", account.id)
+                .header("X-Client-Id", client)
+                .param("limit", "100"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+        return objectMapper.readValue(response.getContentAsString(), TransactionHistoryResponseBody).transactions
+    }
+
+    private void transfer(Account source, Account target, int amount) {
+        moneyTransferService.transfer(TransferRequestBody.builder()
+                .sourceAccountId(source.id)
+                .targetAccountId(target.id)
+                .amount(amount)
+                .currency("EUR")
+                .build())
+    }
+
+    /**
+     * Copies the rows of a table the condition selects from the primary to the replica.
+     */
+    private void replicate(String table, String condition, Object... args) {
+        new JdbcTemplate(primary).queryForList("SELECT * FROM public." + table + " WHERE " + condition, args).each { row ->
+            new JdbcTemplate(replica).update("INSERT INTO public." + table + " (" + row.keySet().join(", ") +
+                    ") VALUES (" + row.collect { "?" }.join(", ") + ")", row.values() as Object[])
+        }
+    }
+}
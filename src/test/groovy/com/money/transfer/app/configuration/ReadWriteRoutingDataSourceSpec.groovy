@@ -0,0 +1,119 @@
+package com.money.transfer.app.configuration
+
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.datasource.DataSourceTransactionManager
+import org.springframework.jdbc.datasource.DriverManagerDataSource
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy
+import org.springframework.transaction.support.TransactionTemplate
+import spock.lang.Specification
+
+import javax.sql.DataSource
+import java.time.Duration
+
+/**
+ * Unit test for the ReadWriteRoutingDataSource, against two in-memory H2 databases standing in
+ * for the primary and the replica, each of which names itself in an {@code instance} table.
+ */
+class ReadWriteRoutingDataSourceSpec extends Specification {
+
+    private DataSource primary
+
+    private DataSource replica
+
+    def setup() {
+        primary = database("primary")
+        replica = database("replica")
+    }
+
+    private static DataSource database(String name) {
+        def dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", "")
+        def jdbcTemplate = new JdbcTemplate(dataSource)
+        jdbcTemplate.execute("CREATE TABLE instance (name VARCHAR(16), writes INT)")
+        jdbcTemplate.update("INSERT INTO instance VALUES (?, 0)", name)
+        return dataSource
+    }
+
+    private static Map routing(DataSource primary, DataSource replica, Duration primaryAfterWrite) {
+        def readWriteRouting = new ReadWriteRoutingDataSource(primary, replica, primaryAfterWrite)
+        def dataSource = new LazyConnectionDataSourceProxy(readWriteRouting)
+        return [readWriteRouting  : readWriteRouting,
+                jdbcTemplate      : new JdbcTemplate(dataSource),
+                transactionManager: new DataSourceTransactionManager(dataSource)]
+    }
+
+    /**
+     * @return the name of the database a transaction of the given kind reads from.
+     */
+    private static String instance(Map routing, boolean readOnly) {
+        def transaction = new TransactionTemplate(routing.transactionManager)
+        transaction.setReadOnly(readOnly)
+        return transaction.execute { routing.jdbcTemplate.queryForObject("SELECT name FROM instance", String) }
+    }
+
+    private static void write(Map routing) {
+        new TransactionTemplate(routing.transactionManager).executeWithoutResult {
+            routing.jdbcTemplate.update("UPDATE instance SET writes = writes + 1")
+        }
+    }
+
+    def "test read-only transactions read from the replica"() {
+        given:
+        def routing = routing(primary, replica, Duration.ZERO)
+
+        expect:
+        instance(routing, true) == "replica"
+        instance(routing, false) == "primary"
+        routing.jdbcTemplate.queryForObject("SELECT name FROM instance", String) == "primary"
+
+        when:
+        routing.readWriteRouting.bindClient("client")
+        write(routing)
+        routing.readWriteRouting.recordWrite("client")
+
+        then:
+        instance(routing, true) == "replica"
+        new JdbcTemplate(primary).queryForObject("SELECT writes FROM instance", Integer) == 1
+        new JdbcTemplate(replica).queryForObject("SELECT writes FROM instance", Integer) == 0
+
+        cleanup:
+        routing.readWriteRouting.unbindClient()
+    }
+
+    /**
+     * Verifies that the read-only transactions of a client read from the primary for a while after it writes,
+     * while those of other clients, and those without a client, keep reading from the replica.
+     */
+    def "test read-only transactions of a client read from the primary after it writes"() {
+        given:
+        def routing = routing(primary, replica, Duration.ofHours(1))
+        routing.readWriteRouting.bindClient("writer")
+
+        expect:
+        instance(routing, true) == "replica"
+
+        when:
+        write(routing)
+
+        then:
+        instance(routing, true) == "replica"
+
+        when:
+        routing.readWriteRouting.recordWrite("writer")
+
+        then:
+        instance(routing, true) == "primary"
+
+        when:
+        routing.readWriteRouting.bindClient("reader")
+
+        then:
+        instance(routing, true) == "replica"
+
+        when:
+        routing.readWriteRouting.unbindClient()
+
+        then:
+        instance(routing, true) == "replica"
+    }
+}
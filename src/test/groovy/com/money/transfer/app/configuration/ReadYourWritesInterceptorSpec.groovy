@@ -0,0 +1,93 @@
+package com.money.transfer.app.configuration
+
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import org.springframework.web.context.request.ServletWebRequest
+import spock.lang.Specification
+
+import java.util.concurrent.Callable
+
+class ReadYourWritesInterceptorSpec extends Specification {
+
+    private ReadWriteRoutingDataSource readWriteRouting
+
+    private ReadYourWritesInterceptor interceptor
+
+    private MockHttpServletResponse response
+
+    def setup() {
+        readWriteRouting = Mock(ReadWriteRoutingDataSource)
+        interceptor = new ReadYourWritesInterceptor(readWriteRouting, "X-Client-Id")
+        response = new MockHttpServletResponse()
+    }
+
+    private static MockHttpServletRequest request(String method, String client) {
+        def request = new MockHttpServletRequest(method, "/api/v1/transfer")
+        request.setRemoteAddr("10.0.0.1")
+        if (client != null) {
+            request.addHeader("X-Client-Id", client)
+        }
+        return request
+    }
+
+    /**
+     * Verifies that the client is named by its header, or else by the remote address of the request.
+     */
+    def "test request binds its client"() {
+        when:
+        def proceed = interceptor.preHandle(request("GET", client), response, null)
+
+        then:
+        proceed
+        1 * readWriteRouting.bindClient(expected)
+
+        where:
+        client   || expected
+        "client" || "client"
+        " "      || "10.0.0.1"
+        null     || "10.0.0.1"
+    }
+
+    /**
+     * Verifies that only the requests which may write are recorded as writes of their client once they complete.
+     */
+    def "test completed request records its writes"() {
+        when:
+        interceptor.afterCompletion(request(method, "client"), response, null, null)
+
+        then:
+        writes * readWriteRouting.recordWrite("client")
+        1 * readWriteRouting.unbindClient()
+
+        where:
+        method    || writes
+        "POST"    || 1
+        "PUT"     || 1
+        "GET"     || 0
+        "HEAD"    || 0
+        "OPTIONS" || 0
+    }
+
+    def "test asynchronous request moves its client to the thread processing it"() {
+        given:
+        def request = request("GET", "client")
+
+        when:
+        interceptor.afterConcurrentHandlingStarted(request, response, null)
+
+        then:
+        1 * readWriteRouting.unbindClient()
+
+        when:
+        interceptor.preProcess(new ServletWebRequest(request), Stub(Callable))
+
+        then:
+        1 * readWriteRouting.bindClient("client")
+
+        when:
+        interceptor.postProcess(new ServletWebRequest(request), Stub(Callable), null)
+
+        then:
+        1 * readWriteRouting.unbindClient()
+    }
+}
@@ -0,0 +1,137 @@
+package com.money.transfer.app.controller.v1
+
+import com.money.transfer.app.MoneyTransferApplication
+import com.money.transfer.app.dto.TransactionHistoryItem
+import com.money.transfer.app.dto.TransferRequestBody
+import com.money.transfer.app.entity.Account
+import com.money.transfer.app.repository.AccountRepository
+import com.money.transfer.app.repository.TransactionRepository
+import com.money.transfer.app.service.MoneyTransferService
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.TestPropertySource
+import org.springframework.web.context.request.async.StandardServletAsyncWebRequest
+import org.springframework.web.context.request.async.WebAsyncUtils
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.time.LocalDateTime
+
+/**
+ * Integration test for the AccountControllerImpl using an H2 database,
+ * paging through the histories of accounts that transferred money to each other
+ * importing and exporting accounts in bulk and exporting their statements.
+ */
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:test.properties")
+@SpringBootTest(classes = MoneyTransferApplication)
+class AccountControllerImplIS extends Specification {
+
+    @Autowired
+    private AccountRepository accountRepository
+
+    @Autowired
+    private TransactionRepository transactionRepository
+
+    @Autowired
+    private MoneyTransferService moneyTransferService
+
+    @Autowired
+    private AccountControllerImpl accountControllerImpl
+
+    def "test paging through account histories"() {
+        given:
+        def first = accountRepository.save(new Account(null, 100000, "EUR", LocalDateTime.now()))
+        def second = accountRepository.save(new Account(null, 100000, "EUR", LocalDateTime.now()))
+        def third = accountRepository.save(new Account(null, 100000, "EUR", LocalDateTime.now()))
+        [[first, second], [second, first], [first, second], [third, first], [first, second]].eachWithIndex { pair, i ->
+            moneyTransferService.transfer(TransferRequestBody.builder()
+                    .sourceAccountId(pair[0].id)
+                    .targetAccountId(pair[1].id)
+                    .amount(i + 1)
+                    .currency("EUR")
+                    .build())
+        }
+
+        when:
+        def history = readAll { cursor -> accountControllerImpl.history(first.id, 2, cursor).body }
+        def transfers = readAll { cursor -> accountControllerImpl.history(first.id, second.id, 2, cursor).body }
+
+        then:
+        history*.amount == [5.00, 4.00, 3.00, 2.00, 1.00]
+        transfers*.amount == [5.00, 3.00, 1.00]
+        transfers.every { it.sourceAccountId == first.id && it.targetAccountId == second.id }
+        history.collect { [it.orderedAt, it.id] } == history.collect { [it.orderedAt, it.id] }
+                .sort { a, b -> b[0] <=> a[0] ?: b[1] <=> a[1] }
+        transactionRepository.findLatestTransactionBetweenAccounts(first.id, second.id).get().id == transfers[0].id
+    }
+
+    def "test import and export accounts"() {
+        given:
+        def existing = accountRepository.save(new Account(null, 100000, "EUR", LocalDateTime.now()))
+        def csv = "id,currency,balance\nimportedId,usd,12.34\n${existing.id},EUR,1\n,JPY,500\nbadId,XYZ,1\n"
+        def report = new MockHttpServletResponse()
+        def export = new MockHttpServletResponse()
+
+        when:
+        accountControllerImpl.importAccounts("text/csv",
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), report)
+        accountControllerImpl.exportAccounts("ndjson", export)
+
+        then:
+        def lines = report.getContentAsString().readLines()
+        // duplicate ids are only found once their batch is inserted, possibly after later lines
+        lines.init() as Set == [
+                '{"line":3,"accountId":"' + existing.id + '","error":"Account with ID: ' + existing.id + ' already exists."}',
+                '{"line":5,"accountId":"badId","error":"XYZ is not a supported currency."}'] as Set
+        lines.last() == '{"imported":2,"rejected":2}'
+        accountRepository.findById("importedId").get().balance == 1234
+        accountRepository.findById("importedId").get().currency == "USD"
+        export.getContentAsString().readLines().contains('{"id":"importedId","currency":"USD","balance":12.34}')
+        accountRepository.findAll().findAll { it.currency == "JPY" && it.balance == 500 }.size() == 1
+    }
+
+    def "test statement"() {
+        given:
+        def account = accountRepository.save(new Account(null, 100000, "EUR", LocalDateTime.now()))
+        def other = accountRepository.save(new Account(null, 100000, "EUR", LocalDateTime.now()))
+        [[account, other, 1], [other, account, 2]].each { transfer ->
+            moneyTransferService.transfer(TransferRequestBody.builder()
+                    .sourceAccountId(transfer[0].id)
+                    .targetAccountId(transfer[1].id)
+                    .amount(transfer[2])
+                    .currency("EUR")
+                    .build())
+        }
+        def output = new ByteArrayOutputStream()
+        def request = new MockHttpServletRequest()
+        WebAsyncUtils.getAsyncManager(request)
+                .setAsyncWebRequest(new StandardServletAsyncWebRequest(request, new MockHttpServletResponse()))
+
+        when:
+        accountControllerImpl.statement(account.id, "csv", request).body.writeTo(output)
+
+        then:
+        def lines = output.toString(StandardCharsets.UTF_8).readLines()
+        lines[0] == "id,orderedAt,counterpartyAccountId,amount,currency,transactionAmount,transactionCurrency"
+        lines.drop(1).collect { it.split(",").drop(2).toList() } as Set ==
+                [[other.id, "-1.00", "EUR", "1.00", "EUR"], [other.id, "2.00", "EUR", "2.00", "EUR"]] as Set
+    }
+
+    private static List<TransactionHistoryItem> readAll(Closure page) {
+        def items = []
+        def cursor = null
+        def pages = 0
+        do {
+            def response = page(cursor)
+            assert response.transactions.size() <= 2
+            items.addAll(response.transactions)
+            cursor = response.nextCursor
+            pages++
+        } while (cursor != null && pages < 10)
+        return items
+    }
+}
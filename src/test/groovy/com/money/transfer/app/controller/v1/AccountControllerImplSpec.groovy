@@ -0,0 +1,228 @@
+package com.money.transfer.app.controller.v1
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.money.transfer.app.dto.AccountImportError
+import com.money.transfer.app.dto.AccountImportResponseBody
+import com.money.transfer.app.dto.TransactionHistoryResponseBody
+import com.money.transfer.app.exception.InvalidCsvHeaderException
+import com.money.transfer.app.exception.NonExistentAccountException
+import com.money.transfer.app.exception.UnsupportedFileFormatException
+import com.money.transfer.app.service.AccountBulkServiceImpl
+import com.money.transfer.app.service.AccountFileFormat
+import com.money.transfer.app.service.AccountStatementServiceImpl
+import com.money.transfer.app.service.TransactionHistoryServiceImpl
+import jakarta.servlet.ServletOutputStream
+import jakarta.servlet.http.HttpServletResponse
+import org.springframework.http.ContentDisposition
+import org.springframework.http.HttpStatusCode
+import org.springframework.mock.web.MockHttpServletRequest
+import org.springframework.mock.web.MockHttpServletResponse
+import org.springframework.web.context.request.async.AsyncWebRequest
+import org.springframework.web.context.request.async.WebAsyncUtils
+import spock.lang.Specification
+
+import java.time.Duration
+
+class AccountControllerImplSpec extends Specification {
+
+    private TransactionHistoryServiceImpl transactionHistoryService
+
+    private AccountBulkServiceImpl accountBulkService
+
+    private AccountStatementServiceImpl accountStatementService
+
+    private AccountControllerImpl accountControllerImpl
+
+    def setup() {
+        transactionHistoryService = Mock(TransactionHistoryServiceImpl)
+        accountBulkService = Mock(AccountBulkServiceImpl)
+        accountStatementService = Mock(AccountStatementServiceImpl)
+        accountControllerImpl = new AccountControllerImpl(transactionHistoryService, accountBulkService,
+                accountStatementService, new ObjectMapper(), Duration.ofMinutes(30))
+    }
+
+    def "test account history"() {
+        given:
+        def history = new TransactionHistoryResponseBody([], "cursor")
+
+        when:
+        def response = accountControllerImpl.history("accountId", 10, null)
+
+        then:
+        1 * transactionHistoryService.accountHistory("accountId", 10, null) >> history
+        response.getStatusCode() == HttpStatusCode.valueOf(200)
+        response.getBody().is(history)
+    }
+
+    def "test history between accounts"() {
+        given:
+        def history = new TransactionHistoryResponseBody([], null)
+
+        when:
+        def response = accountControllerImpl.history("sourceAccountId", "targetAccountId", null, "cursor")
+
+        then:
+        1 * transactionHistoryService.pairHistory("sourceAccountId", "targetAccountId", null, "cursor") >> history
+        response.getStatusCode() == HttpStatusCode.valueOf(200)
+        response.getBody().is(history)
+    }
+
+    def "test history fail"() {
+        given:
+        transactionHistoryService.accountHistory("accountId", null, null) >> { throw new NonExistentAccountException("accountId") }
+
+        when:
+        accountControllerImpl.history("accountId", null, null)
+
+        then:
+        thrown(NonExistentAccountException)
+    }
+
+    def "test import accounts"() {
+        given:
+        def accounts = new ByteArrayInputStream(new byte[0])
+        def response = new MockHttpServletResponse()
+
+        when:
+        accountControllerImpl.importAccounts(contentType, accounts, response)
+
+        then:
+        1 * accountBulkService.importAccounts(format, accounts, _) >> { args ->
+            args[2].accept(new AccountImportError(2, "accountId", "error"))
+            new AccountImportResponseBody(3, 1)
+        }
+        response.getContentType() == "application/x-ndjson"
+        response.getContentAsString() == '{"line":2,"accountId":"accountId","error":"error"}\n{"imported":3,"rejected":1}\n'
+
+        where:
+        contentType                | format
+        "text/csv; charset=UTF-8"  | AccountFileFormat.CSV
+        "application/x-ndjson"     | AccountFileFormat.NDJSON
+    }
+
+    def "test import accounts with an unsupported content type"() {
+        when:
+        accountControllerImpl.importAccounts("text/plain", new ByteArrayInputStream(new byte[0]), new MockHttpServletResponse())
+
+        then:
+        thrown(UnsupportedFileFormatException)
+        0 * accountBulkService._
+    }
+
+    def "test import accounts fail"() {
+        given:
+        accountBulkService.importAccounts(_, _, _) >> { throw new InvalidCsvHeaderException("name") }
+
+        when:
+        accountControllerImpl.importAccounts("text/csv", new ByteArrayInputStream(new byte[0]), new MockHttpServletResponse())
+
+        then:
+        thrown(InvalidCsvHeaderException)
+    }
+
+    /**
+     * Verifies that a report the client stopped reading fails the import with the cause of the failed write.
+     */
+    def "test import accounts when the report cannot be written"() {
+        given:
+        def response = Mock(HttpServletResponse)
+        response.getOutputStream() >> Stub(ServletOutputStream) {
+            write(_ as byte[]) >> { throw new IOException("Broken pipe") }
+        }
+        accountBulkService.importAccounts(_, _, _) >> { args ->
+            args[2].accept(new AccountImportError(1, null, "error"))
+            new AccountImportResponseBody(0, 1)
+        }
+
+        when:
+        accountControllerImpl.importAccounts("application/x-ndjson", new ByteArrayInputStream(new byte[0]), response)
+
+        then:
+        def e = thrown(IOException)
+        e.message == "Broken pipe"
+    }
+
+    def "test export accounts"() {
+        given:
+        def response = new MockHttpServletResponse()
+
+        when:
+        accountControllerImpl.exportAccounts(format, response)
+
+        then:
+        1 * accountBulkService.exportAccounts(expected, response.getOutputStream()) >> { args -> args[1].write("accounts".bytes) }
+        response.getContentType() == contentType
+        response.getHeader("Content-Disposition") == "attachment; filename=\"accounts.${expected.extension()}\""
+        response.getContentAsString() == "accounts"
+
+        where:
+        format   | expected                  | contentType
+        "csv"    | AccountFileFormat.CSV     | "text/csv"
+        "NDJSON" | AccountFileFormat.NDJSON  | "application/x-ndjson"
+    }
+
+    def "test export accounts in an unsupported format"() {
+        when:
+        accountControllerImpl.exportAccounts("xml", new MockHttpServletResponse())
+
+        then:
+        def e = thrown(UnsupportedFileFormatException)
+        e.message == "xml is not a supported format, use csv or ndjson."
+        0 * accountBulkService._
+    }
+
+    /**
+     * Verifies that the account is checked before the response starts and that the statement is only written
+     * once the body is, as it would be on a thread of its own.
+     */
+    def "test statement"() {
+        given:
+        def output = new ByteArrayOutputStream()
+        def request = new MockHttpServletRequest()
+        def asyncWebRequest = Mock(AsyncWebRequest)
+        WebAsyncUtils.getAsyncManager(request).setAsyncWebRequest(asyncWebRequest)
+
+        when:
+        def response = accountControllerImpl.statement("accountId", format, request)
+
+        then:
+        1 * accountStatementService.requireAccount("accountId")
+        1 * asyncWebRequest.setTimeout(Duration.ofMinutes(30).toMillis())
+        0 * accountStatementService.exportStatement(_, _, _)
+        response.getStatusCode() == HttpStatusCode.valueOf(200)
+        response.getHeaders().getContentType().toString() == contentType
+        ContentDisposition.parse(response.getHeaders().getFirst("Content-Disposition")).getFilename() ==
+                "statement-accountId.${expected.extension()}"
+
+        when:
+        response.getBody().writeTo(output)
+
+        then:
+        1 * accountStatementService.exportStatement("accountId", expected, output) >> { args -> args[2].write("statement".bytes) }
+        output.toString() == "statement"
+
+        where:
+        format   | expected                 | contentType
+        "csv"    | AccountFileFormat.CSV    | "text/csv"
+        "ndjson" | AccountFileFormat.NDJSON | "application/x-ndjson"
+    }
+
+    def "test statement of a non-existent account"() {
+        when:
+        accountControllerImpl.statement("accountId", "csv", new MockHttpServletRequest())
+
+        then:
+        1 * accountStatementService.requireAccount("accountId") >> { throw new NonExistentAccountException("accountId") }
+        thrown(NonExistentAccountException)
+        0 * accountStatementService.exportStatement(_, _, _)
+    }
+
+    def "test statement in an unsupported format"() {
+        when:
+        accountControllerImpl.statement("accountId", "xml", new MockHttpServletRequest())
+
+        then:
+        thrown(UnsupportedFileFormatException)
+        0 * accountStatementService._
+    }
+}
@@ -5,8 +5,14 @@ import com.money.transfer.app.dto.TransferRequestBody
 import com.money.transfer.app.entity.Account
 import com.money.transfer.app.entity.Transaction
 import com.money.transfer.app.exception.*
+import com.money.transfer.app.metrics.TransferMetrics
 import com.money.transfer.app.repository.AccountRepository
 import com.money.transfer.app.repository.TransactionRepository
+import com.money.transfer.app.service.CurrencyRegistry
+import com.money.transfer.app.service.IdempotentTransferServiceImpl
+import com.money.transfer.app.service.MoneyTransferService
+import com.money.transfer.app.util.Money
+import io.micrometer.core.instrument.MeterRegistry
 import org.springframework.beans.factory.annotation.Autowired
 import org.springframework.boot.test.context.SpringBootTest
 import org.springframework.data.domain.Pageable
@@ -17,6 +23,8 @@ import spock.lang.Specification
 import java.time.Duration
 import java.time.LocalDateTime
 
+import static com.money.transfer.app.dto.BatchTransferItemResponse.Status.COMPLETED
+import static com.money.transfer.app.dto.BatchTransferItemResponse.Status.REJECTED
 import static com.money.transfer.app.util.constants.ExceptionConstants.*
 
 /**
@@ -38,9 +46,18 @@ class MoneyTransferControllerImplIS extends Specification {
     @Autowired
     private TransactionRepository transactionRepository
 
+    @Autowired
+    private CurrencyRegistry currencyRegistry
+
     @Autowired
     private MoneyTransferControllerImpl moneyTransferControllerImpl
 
+    @Autowired
+    private MoneyTransferService moneyTransferService
+
+    @Autowired
+    private MeterRegistry meterRegistry
+
     void setup() {
         accounts = accountRepository.findAll(Pageable.ofSize(2)).toList()
         assert accounts.size() == 2
@@ -63,7 +80,7 @@ class MoneyTransferControllerImplIS extends Specification {
                 .build()
 
         when:
-        def response = moneyTransferControllerImpl.transfer(request)
+        def response = moneyTransferControllerImpl.transfer(null, request)
         def optional = transactionRepository.findLatestTransactionBetweenAccounts(src.getId(), trg.getId())
         Transaction transaction = optional.orElseThrow(() -> new Exception("Transaction was not persisted."))
 
@@ -76,6 +93,42 @@ class MoneyTransferControllerImplIS extends Specification {
         println response.body.getResponse()
     }
 
+    /**
+     * Tests that the statements of a transfer are recorded for its endpoint, and stay within the budget it declares,
+     * which the test properties enforce on every endpoint.
+     */
+    def "test transfer statements are profiled"() {
+        given:
+        def src = accountRepository.save(new Account(null, 10000, "EUR", LocalDateTime.now()))
+        def trg = accountRepository.save(new Account(null, 0, "EUR", LocalDateTime.now()))
+        def request = TransferRequestBody.builder()
+                .amount(5)
+                .currency("EUR")
+                .sourceAccountId(src.getId())
+                .targetAccountId(trg.getId())
+                .build()
+        def jdbc = statementSummary("jdbc")
+        def hibernate = statementSummary("hibernate")
+        def transfers = jdbc?.count() ?: 0
+        def statements = jdbc?.totalAmount() ?: 0
+        def hibernateStatements = hibernate?.totalAmount() ?: 0
+
+        when:
+        moneyTransferControllerImpl.transfer(null, request)
+
+        then:
+        statementSummary("jdbc").count() == transfers + 1
+        statementSummary("jdbc").totalAmount() - statements >= 1
+        statementSummary("jdbc").totalAmount() - statements <= 10
+        statementSummary("hibernate").totalAmount() - hibernateStatements > 0
+    }
+
+    private statementSummary(String source) {
+        return meterRegistry.find(TransferMetrics.STATEMENT_SUMMARY)
+                .tags("endpoint", "MoneyTransferControllerImpl.transfer", "source", source)
+                .summary()
+    }
+
     /**
      * Tests the scenario where a negative amount is attempted to be transferred, expecting an exception.
      */
@@ -89,7 +142,7 @@ class MoneyTransferControllerImplIS extends Specification {
                 .build()
 
         when:
-        moneyTransferControllerImpl.transfer(request)
+        moneyTransferControllerImpl.transfer(null, request)
 
         then:
         def e = thrown(NegativeAmountException)
@@ -111,7 +164,7 @@ class MoneyTransferControllerImplIS extends Specification {
                 .build()
 
         when:
-        moneyTransferControllerImpl.transfer(request)
+        moneyTransferControllerImpl.transfer(null, request)
 
         then:
         def e = thrown(CurrencyException)
@@ -133,7 +186,7 @@ class MoneyTransferControllerImplIS extends Specification {
                 .build()
 
         when:
-        moneyTransferControllerImpl.transfer(request)
+        moneyTransferControllerImpl.transfer(null, request)
 
         then:
         def e = thrown(NonExistentAccountException)
@@ -154,7 +207,7 @@ class MoneyTransferControllerImplIS extends Specification {
                 .build()
 
         when:
-        moneyTransferControllerImpl.transfer(request)
+        moneyTransferControllerImpl.transfer(null, request)
 
         then:
         def e = thrown(SameAccountException)
@@ -167,8 +220,9 @@ class MoneyTransferControllerImplIS extends Specification {
      */
     def "test low balance"() {
         given:
-        def amount = (accounts.get(0).getBalance() + 1).floatValue()
         def currency = accounts.get(0).getCurrency()
+        def scale = currencyRegistry.scale(currency)
+        def amount = Money.toMajorUnits(accounts.get(0).getBalance() + 1, scale)
         def request = TransferRequestBody.builder()
                 .currency(currency)
                 .amount(amount)
@@ -177,12 +231,72 @@ class MoneyTransferControllerImplIS extends Specification {
                 .build()
 
         when:
-        moneyTransferControllerImpl.transfer(request)
+        moneyTransferControllerImpl.transfer(null, request)
 
         then:
         def e = thrown(LowBalanceException)
         e.message == String.format(LOW_BALANCE_EXCEPTION_MESSAGE,
-                amount, currency, accounts.get(0).getBalance(), currency)
+                amount.toPlainString(), currency, Money.format(accounts.get(0).getBalance(), scale), currency)
         println e.message
     }
+
+    /**
+     * Tests a batch of transfers between two accounts of the same currency, submitted as NDJSON,
+     * and verifies that the accepted ones are persisted while the rejected one leaves no trace.
+     */
+    def "test transfer batch"() {
+        given:
+        def src = accountRepository.save(new Account(null, 10000, "EUR", LocalDateTime.now()))
+        def trg = accountRepository.save(new Account(null, 0, "EUR", LocalDateTime.now()))
+        def body = [60, 50, 30].collect {
+            "{\"sourceAccountId\":\"${src.id}\",\"targetAccountId\":\"${trg.id}\",\"amount\":${it},\"currency\":\"EUR\"}"
+        }.join("\n")
+
+        when:
+        def response = moneyTransferControllerImpl.transferBatch(new ByteArrayInputStream(body.bytes))
+
+        then:
+        response.getStatusCode() == HttpStatusCode.valueOf(200)
+        response.body.results*.status == [COMPLETED, REJECTED, COMPLETED]
+        accountRepository.findById(src.id).get().balance == 1000
+        accountRepository.findById(trg.id).get().balance == 9000
+        transactionRepository.findAll().count { it.sourceAccount.id == src.id } == 2
+        println response.body
+    }
+
+    /**
+     * Tests that retrying a transfer with the same idempotency key, even after the in-memory entry is gone,
+     * returns the first response and moves the money only once.
+     */
+    def "test transfer with idempotency key"() {
+        given:
+        def src = accountRepository.save(new Account(null, 10000, "EUR", LocalDateTime.now()))
+        def trg = accountRepository.save(new Account(null, 0, "EUR", LocalDateTime.now()))
+        def key = UUID.randomUUID().toString()
+        def request = {
+            TransferRequestBody.builder()
+                    .amount(25)
+                    .currency("EUR")
+                    .sourceAccountId(src.getId())
+                    .targetAccountId(trg.getId())
+                    .build()
+        }
+
+        when:
+        def first = moneyTransferControllerImpl.transfer(key, request())
+        def retry = moneyTransferControllerImpl.transfer(key, request())
+        def recorded = idempotentTransferServiceWithoutMemory().transfer(key, request())
+
+        then:
+        first.body.response == retry.body.response
+        first.body.response == recorded.response
+        accountRepository.findById(src.id).get().balance == 7500
+        accountRepository.findById(trg.id).get().balance == 2500
+        transactionRepository.findByIdempotencyKey(key).get().amount == 2500
+    }
+
+    private IdempotentTransferServiceImpl idempotentTransferServiceWithoutMemory() {
+        return new IdempotentTransferServiceImpl(moneyTransferService, transactionRepository, currencyRegistry,
+                Duration.ofHours(1), 1)
+    }
 }
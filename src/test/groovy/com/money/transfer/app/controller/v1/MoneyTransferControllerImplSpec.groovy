@@ -1,7 +1,12 @@
 package com.money.transfer.app.controller.v1
 
+import com.fasterxml.jackson.core.JsonProcessingException
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.money.transfer.app.dto.BatchTransferResponseBody
 import com.money.transfer.app.dto.TransferRequestBody
 import com.money.transfer.app.dto.TransferResponseBody
+import com.money.transfer.app.service.BatchTransferServiceImpl
+import com.money.transfer.app.service.IdempotentTransferServiceImpl
 import com.money.transfer.app.service.MoneyTransferServiceImpl
 import org.springframework.http.HttpStatusCode
 import spock.lang.Specification
@@ -10,11 +15,18 @@ class MoneyTransferControllerImplSpec extends Specification {
 
     private MoneyTransferServiceImpl moneyTransferService
 
+    private BatchTransferServiceImpl batchTransferService
+
+    private IdempotentTransferServiceImpl idempotentTransferService
+
     private MoneyTransferControllerImpl moneyTransferControllerImpl
 
     def setup() {
         moneyTransferService = Mock(MoneyTransferServiceImpl)
-        moneyTransferControllerImpl = new MoneyTransferControllerImpl(moneyTransferService)
+        batchTransferService = Mock(BatchTransferServiceImpl)
+        idempotentTransferService = Mock(IdempotentTransferServiceImpl)
+        moneyTransferControllerImpl = new MoneyTransferControllerImpl(moneyTransferService, batchTransferService,
+                idempotentTransferService, new ObjectMapper())
     }
 
     def "test transfer success"() {
@@ -30,7 +42,7 @@ class MoneyTransferControllerImplSpec extends Specification {
                 .build()
         moneyTransferService.transfer(transferRequestBody) >> transferResponseBody
         when:
-        def response = moneyTransferControllerImpl.transfer(transferRequestBody)
+        def response = moneyTransferControllerImpl.transfer(null, transferRequestBody)
 
         then:
         response.getStatusCode() == HttpStatusCode.valueOf(200)
@@ -38,6 +50,28 @@ class MoneyTransferControllerImplSpec extends Specification {
         response.getBody().getResponse() == transferResponseBody.getResponse()
     }
 
+    def "test transfer with idempotency key"() {
+        given:
+        def transferResponseBody = TransferResponseBody.builder()
+                .response("Transfer Successful")
+                .build()
+        def transferRequestBody = TransferRequestBody.builder()
+                .sourceAccountId("sourceAccountId")
+                .targetAccountId("targetAccountId")
+                .amount(128.5)
+                .currency("EUR")
+                .build()
+
+        when:
+        def response = moneyTransferControllerImpl.transfer("idempotencyKey", transferRequestBody)
+
+        then:
+        1 * idempotentTransferService.transfer("idempotencyKey", transferRequestBody) >> transferResponseBody
+        0 * moneyTransferService.transfer(_)
+        response.getStatusCode() == HttpStatusCode.valueOf(200)
+        response.getBody().is(transferResponseBody)
+    }
+
     def "test transfer fail"() {
         given:
         def transferRequestBody = TransferRequestBody.builder()
@@ -49,12 +83,54 @@ class MoneyTransferControllerImplSpec extends Specification {
         moneyTransferService.transfer(transferRequestBody) >> new RuntimeException()
 
         when:
-        def response = moneyTransferControllerImpl.transfer(transferRequestBody)
+        def response = moneyTransferControllerImpl.transfer(null, transferRequestBody)
 
         then:
         thrown(RuntimeException)
         response == null
     }
 
+    def "test transfer batch from json array"() {
+        given:
+        def body = '[{"sourceAccountId":"a","targetAccountId":"b","amount":1.5,"currency":"EUR"},' +
+                '{"sourceAccountId":"b","targetAccountId":"a","amount":2,"currency":"USD"}]'
+        def batchResponseBody = BatchTransferResponseBody.builder().total(2).completed(2).build()
+
+        when:
+        def response = moneyTransferControllerImpl.transferBatch(new ByteArrayInputStream(body.bytes))
+
+        then:
+        1 * batchTransferService.transfer({ List<TransferRequestBody> requests ->
+            requests.size() == 2 &&
+                    requests[0] == new TransferRequestBody("a", "b", new BigDecimal("1.5"), "EUR") &&
+                    requests[1] == new TransferRequestBody("b", "a", new BigDecimal("2"), "USD")
+        }) >> batchResponseBody
+        response.getStatusCode() == HttpStatusCode.valueOf(200)
+        response.getBody().is(batchResponseBody)
+    }
+
+    def "test transfer batch from ndjson stream"() {
+        given:
+        def body = '{"sourceAccountId":"a","targetAccountId":"b","amount":1.5,"currency":"EUR"}\n' +
+                '{"sourceAccountId":"b","targetAccountId":"a","amount":2,"currency":"USD"}\n'
+
+        when:
+        def response = moneyTransferControllerImpl.transferBatch(new ByteArrayInputStream(body.bytes))
+
+        then:
+        1 * batchTransferService.transfer({ it.size() == 2 }) >> new BatchTransferResponseBody()
+        response.getStatusCode() == HttpStatusCode.valueOf(200)
+    }
+
+    def "test transfer batch malformed"() {
+        given:
+        def body = '[{"sourceAccountId":"a","targetAccountId":"b","amount":'
+
+        when:
+        moneyTransferControllerImpl.transferBatch(new ByteArrayInputStream(body.bytes))
 
+        then:
+        0 * batchTransferService.transfer(_)
+        thrown(JsonProcessingException)
+    }
 }
@@ -0,0 +1,31 @@
+package com.money.transfer.app.controller.v1
+
+import com.money.transfer.app.dto.ReconciliationReport
+import com.money.transfer.app.service.ReconciliationServiceImpl
+import org.springframework.http.HttpStatusCode
+import spock.lang.Specification
+
+class ReconciliationControllerImplSpec extends Specification {
+
+    private ReconciliationServiceImpl reconciliationService
+
+    private ReconciliationControllerImpl reconciliationControllerImpl
+
+    def setup() {
+        reconciliationService = Mock(ReconciliationServiceImpl)
+        reconciliationControllerImpl = new ReconciliationControllerImpl(reconciliationService)
+    }
+
+    def "test reconcile"() {
+        given:
+        def report = ReconciliationReport.builder().accounts(2).discrepancies([]).build()
+
+        when:
+        def response = reconciliationControllerImpl.reconcile()
+
+        then:
+        1 * reconciliationService.reconcile() >> report
+        response.getStatusCode() == HttpStatusCode.valueOf(200)
+        response.getBody().is(report)
+    }
+}
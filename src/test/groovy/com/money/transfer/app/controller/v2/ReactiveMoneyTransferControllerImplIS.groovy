@@ -0,0 +1,121 @@
+package com.money.transfer.app.controller.v2
+
+import com.money.transfer.app.MoneyTransferApplication
+import com.money.transfer.app.dto.TransferRequestBody
+import com.money.transfer.app.entity.Account
+import com.money.transfer.app.exception.LowBalanceException
+import com.money.transfer.app.exception.NonExistentAccountException
+import com.money.transfer.app.repository.AccountRepository
+import com.money.transfer.app.repository.TransactionRepository
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.http.HttpStatusCode
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.TestPropertySource
+import reactor.core.publisher.Flux
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.NON_EXISTENT_ACCOUNT_EXCEPTION_MESSAGE
+
+/**
+ * Integration test for the ReactiveMoneyTransferControllerImpl using an H2 database, shared through R2DBC
+ * with the JPA repositories of version 1.
+ */
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:test.properties")
+@SpringBootTest(classes = MoneyTransferApplication)
+class ReactiveMoneyTransferControllerImplIS extends Specification {
+
+    @Autowired
+    private AccountRepository accountRepository
+
+    @Autowired
+    private TransactionRepository transactionRepository
+
+    @Autowired
+    private ReactiveMoneyTransferControllerImpl reactiveMoneyTransferControllerImpl
+
+    private static TransferRequestBody request(Account source, Account target, BigDecimal amount) {
+        return TransferRequestBody.builder()
+                .amount(amount)
+                .currency("EUR")
+                .sourceAccountId(source.getId())
+                .targetAccountId(target.getId())
+                .build()
+    }
+
+    /**
+     * Tests a transfer through version 2 and verifies it through the repositories of version 1.
+     */
+    def "test happy path"() {
+        given:
+        def source = accountRepository.save(new Account(null, 10000, "EUR", LocalDateTime.now()))
+        def target = accountRepository.save(new Account(null, 0, "EUR", LocalDateTime.now()))
+
+        when:
+        def response = reactiveMoneyTransferControllerImpl.transfer(request(source, target, 12.50)).block()
+        def transaction = transactionRepository.findLatestTransactionBetweenAccounts(source.getId(), target.getId())
+                .orElseThrow(() -> new Exception("Transaction was not persisted."))
+
+        then:
+        response.getStatusCode() == HttpStatusCode.valueOf(200)
+        accountRepository.findById(source.getId()).get().getBalance() == 8750
+        accountRepository.findById(target.getId()).get().getBalance() == 1250
+        transaction.getAmount() == 1250
+        transaction.getCurrency() == "EUR"
+    }
+
+    def "test low balance"() {
+        given:
+        def source = accountRepository.save(new Account(null, 100, "EUR", LocalDateTime.now()))
+        def target = accountRepository.save(new Account(null, 0, "EUR", LocalDateTime.now()))
+
+        when:
+        reactiveMoneyTransferControllerImpl.transfer(request(source, target, 2)).block()
+
+        then:
+        thrown(LowBalanceException)
+        accountRepository.findById(source.getId()).get().getBalance() == 100
+        accountRepository.findById(target.getId()).get().getBalance() == 0
+    }
+
+    def "test non existent account"() {
+        given:
+        def source = accountRepository.save(new Account(null, 100, "EUR", LocalDateTime.now()))
+        def target = new Account("ACCOUNT_DOES_NOT_EXIST", 0, "EUR", LocalDateTime.now())
+
+        when:
+        reactiveMoneyTransferControllerImpl.transfer(request(source, target, 1)).block()
+
+        then:
+        def e = thrown(NonExistentAccountException)
+        e.message == String.format(NON_EXISTENT_ACCOUNT_EXCEPTION_MESSAGE, target.getId())
+    }
+
+    /**
+     * Runs many transfers back and forth between the same two accounts at once, all of them in flight together,
+     * verifying that no balance update is lost.
+     */
+    def "test concurrent transfers do not lose updates"() {
+        given:
+        def first = accountRepository.save(new Account(null, 100000, "EUR", LocalDateTime.now()))
+        def second = accountRepository.save(new Account(null, 100000, "EUR", LocalDateTime.now()))
+
+        when:
+        def completed = Flux.range(0, 400)
+                .flatMap({ i ->
+                    reactiveMoneyTransferControllerImpl.transfer(i % 2 == 0
+                            ? request(first, second, 1)
+                            : request(second, first, 1))
+                }, 400)
+                .count()
+                .block()
+
+        then:
+        completed == 400
+        accountRepository.findById(first.getId()).get().getBalance() == 100000
+        accountRepository.findById(second.getId()).get().getBalance() == 100000
+    }
+}
@@ -0,0 +1,57 @@
+package com.money.transfer.app.controller.v2
+
+import com.money.transfer.app.dto.TransferRequestBody
+import com.money.transfer.app.dto.TransferResponseBody
+import com.money.transfer.app.exception.SameAccountException
+import com.money.transfer.app.service.ReactiveMoneyTransferService
+import org.springframework.http.HttpStatusCode
+import reactor.core.publisher.Mono
+import spock.lang.Specification
+
+class ReactiveMoneyTransferControllerImplSpec extends Specification {
+
+    private ReactiveMoneyTransferService reactiveMoneyTransferService
+
+    private ReactiveMoneyTransferControllerImpl reactiveMoneyTransferControllerImpl
+
+    private TransferRequestBody transferRequestBody
+
+    def setup() {
+        reactiveMoneyTransferService = Mock(ReactiveMoneyTransferService)
+        reactiveMoneyTransferControllerImpl = new ReactiveMoneyTransferControllerImpl(reactiveMoneyTransferService)
+        transferRequestBody = TransferRequestBody.builder()
+                .sourceAccountId("sourceAccountId")
+                .targetAccountId("targetAccountId")
+                .amount(128.5)
+                .currency("EUR")
+                .build()
+    }
+
+    def "test transfer success"() {
+        given:
+        def transferResponseBody = TransferResponseBody.builder()
+                .response("Transfer Successful")
+                .build()
+        reactiveMoneyTransferService.transfer(transferRequestBody) >> Mono.just(transferResponseBody)
+
+        when:
+        def response = reactiveMoneyTransferControllerImpl.transfer(transferRequestBody).block()
+
+        then:
+        response.getStatusCode() == HttpStatusCode.valueOf(200)
+        response.getBody().getResponse() == transferResponseBody.getResponse()
+    }
+
+    def "test transfer failure"() {
+        given:
+        def exception = new SameAccountException()
+        reactiveMoneyTransferService.transfer(transferRequestBody) >> Mono.error(exception)
+
+        when:
+        reactiveMoneyTransferControllerImpl.transfer(transferRequestBody).block()
+
+        then:
+        def e = thrown(SameAccountException)
+        e.is(exception)
+    }
+}
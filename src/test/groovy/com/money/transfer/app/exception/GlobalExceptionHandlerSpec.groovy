@@ -1,9 +1,13 @@
 package com.money.transfer.app.exception
 
+import com.fasterxml.jackson.core.JsonParseException
 import com.money.transfer.app.dto.TransferRequestBody
 import com.money.transfer.app.dto.TransferResponseBody
 import com.money.transfer.app.entity.Account
-import com.money.transfer.app.repository.CurrencyRepository
+import com.money.transfer.app.entity.Currency
+import com.money.transfer.app.metrics.TransferMetrics
+import com.money.transfer.app.service.CurrencyRegistry
+import org.springframework.http.HttpStatus
 import org.springframework.http.HttpStatusCode
 import spock.lang.Specification
 
@@ -13,13 +17,32 @@ import static com.money.transfer.app.util.constants.ExceptionConstants.*
 
 class GlobalExceptionHandlerSpec extends Specification {
 
-    private CurrencyRepository currencyRepository
+    private CurrencyRegistry currencyRegistry
+
+    private TransferMetrics transferMetrics
 
     private GlobalExceptionHandler globalExceptionHandler
 
     def setup() {
-        currencyRepository = Mock(CurrencyRepository)
-        globalExceptionHandler = new GlobalExceptionHandler(currencyRepository)
+        currencyRegistry = Mock(CurrencyRegistry)
+        transferMetrics = Mock(TransferMetrics)
+        globalExceptionHandler = new GlobalExceptionHandler(currencyRegistry, transferMetrics)
+    }
+
+    def "test rejections capture no stack trace"() {
+        given:
+        exception.addSuppressed(new IllegalStateException())
+
+        expect:
+        exception instanceof BusinessException
+        exception.stackTrace.length == 0
+        exception.suppressed.length == 0
+
+        where:
+        exception << [new NegativeAmountException("EUR"), new SameAccountException(), new CurrencyException("ABC"),
+                      new NonExistentAccountException("accountId"), new InvalidAmountException("1.001", "EUR"),
+                      new LowBalanceException(TransferRequestBody.builder().amount(15).currency("EUR").build(),
+                              new Account("id", 100, "EUR", LocalDateTime.now()), 2)]
     }
 
     def "handleRuntimeException"() {
@@ -31,6 +54,7 @@ class GlobalExceptionHandlerSpec extends Specification {
         def response = globalExceptionHandler.handle(exception)
 
         then:
+        1 * transferMetrics.countError(exception, HttpStatus.BAD_REQUEST)
         response.getStatusCode() == HttpStatusCode.valueOf(400)
         response.getBody() instanceof TransferResponseBody
         response.getBody().getResponse() == message
@@ -44,10 +68,25 @@ class GlobalExceptionHandlerSpec extends Specification {
         def response = globalExceptionHandler.handle(exception)
 
         then:
+        1 * transferMetrics.countError(exception, HttpStatus.INTERNAL_SERVER_ERROR)
         response.getStatusCode() == HttpStatusCode.valueOf(500)
         response.getBody() instanceof TransferResponseBody
     }
 
+    def "handleStatementBudgetExceededException"() {
+        given:
+        def exception = new StatementBudgetExceededException("MoneyTransferControllerImpl.transfer", 12, 10)
+
+        when:
+        def response = globalExceptionHandler.handle(exception)
+
+        then:
+        1 * transferMetrics.countError(exception, HttpStatus.INTERNAL_SERVER_ERROR)
+        response.getStatusCode() == HttpStatusCode.valueOf(500)
+        response.getBody().getResponse() ==
+                String.format(STATEMENT_BUDGET_EXCEEDED_EXCEPTION_MESSAGE, "MoneyTransferControllerImpl.transfer", 12, 10)
+    }
+
     def "handleCurrencyException"() {
         given:
         def exception = new CurrencyException()
@@ -56,18 +95,36 @@ class GlobalExceptionHandlerSpec extends Specification {
         def response = globalExceptionHandler.handle(exception)
 
         then:
+        1 * transferMetrics.countError(exception, HttpStatus.BAD_REQUEST)
         response.getStatusCode() == HttpStatusCode.valueOf(400)
         response.getBody() instanceof String
     }
 
+    def "handleCurrencyException lists the currencies of the latest refresh"() {
+        given:
+        def first = [new Currency("EUR", "Euro", "European Union", 2)]
+        def second = [new Currency("JPY", "Yen", "Japan", 0)]
+        currencyRegistry.currencies() >>> [first, first, second]
+
+        when:
+        def responses = (1..3).collect { globalExceptionHandler.handle(new CurrencyException("ABC")).getBody() }
+
+        then:
+        responses[0].startsWith(String.format(CURRENCY_EXCEPTION_MESSAGE, "ABC"))
+        responses[0].contains("\"EUR\"")
+        responses[1] == responses[0]
+        responses[2].contains("\"JPY\"")
+        !responses[2].contains("\"EUR\"")
+    }
+
     def "handleLowBalanceException"() {
         given:
         def requestBody = TransferRequestBody.builder()
                 .amount(15)
                 .currency("USD")
                 .build()
-        def sourceAccount = new Account("id", 11, "USD", LocalDateTime.now().minusYears(1))
-        def exception = new LowBalanceException(requestBody, sourceAccount)
+        def sourceAccount = new Account("id", 1100, "USD", LocalDateTime.now().minusYears(1))
+        def exception = new LowBalanceException(requestBody, sourceAccount, 2)
 
         when:
         def response = globalExceptionHandler.handle(exception)
@@ -76,8 +133,7 @@ class GlobalExceptionHandlerSpec extends Specification {
         response.getStatusCode() == HttpStatusCode.valueOf(400)
         response.getBody() instanceof TransferResponseBody
         response.getBody().getResponse() == String.format(LOW_BALANCE_EXCEPTION_MESSAGE,
-                requestBody.getAmount(), requestBody.getCurrency(),
-                sourceAccount.getBalance(), sourceAccount.getCurrency())
+                "15", requestBody.getCurrency(), "11.00", sourceAccount.getCurrency())
     }
 
     def "handleNegativeAmountException"() {
@@ -120,4 +176,18 @@ class GlobalExceptionHandlerSpec extends Specification {
         response.getBody() instanceof TransferResponseBody
         response.getBody().getResponse() == SAME_ACCOUNT_EXCEPTION_MESSAGE
     }
+
+    def "handleJsonProcessingException"() {
+        given:
+        def exception = new JsonParseException(null, "Unexpected end-of-input")
+
+        when:
+        def response = globalExceptionHandler.handle(exception)
+
+        then:
+        1 * transferMetrics.countError(exception, HttpStatus.BAD_REQUEST)
+        response.getStatusCode() == HttpStatusCode.valueOf(400)
+        response.getBody() instanceof TransferResponseBody
+        response.getBody().getResponse() == "Unexpected end-of-input"
+    }
 }
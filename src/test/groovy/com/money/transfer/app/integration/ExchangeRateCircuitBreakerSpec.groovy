@@ -0,0 +1,242 @@
+package com.money.transfer.app.integration
+
+import com.money.transfer.app.entity.Currency
+import com.money.transfer.app.exception.WebClientException
+import com.money.transfer.app.repository.CurrencyRepository
+import com.money.transfer.app.service.CurrencyRegistry
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.web.reactive.function.client.WebClient
+import reactor.core.publisher.BaseSubscriber
+import reactor.core.publisher.Mono
+import spock.lang.Specification
+
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicInteger
+
+import static com.money.transfer.app.integration.ExchangeRateCircuitBreaker.*
+import static com.money.transfer.app.util.constants.ExceptionConstants.CIRCUIT_OPEN_EXCEPTION_MESSAGE
+import static com.money.transfer.app.util.constants.ExceptionConstants.EXTERNAL_SERVER_EXCEPTION_MESSAGE
+
+/**
+ * Unit test for the ExchangeRateCircuitBreaker, on its own and guarding the ExchangeRateRestClient
+ * against a local rate server that fails or slows down on demand.
+ */
+class ExchangeRateCircuitBreakerSpec extends Specification {
+
+    private SimpleMeterRegistry meterRegistry
+
+    private ExchangeRateCircuitBreaker circuitBreaker
+
+    private AtomicInteger calls
+
+    def setup() {
+        meterRegistry = new SimpleMeterRegistry()
+        circuitBreaker = new ExchangeRateCircuitBreaker(4, 0.5, Duration.ofMillis(100), Duration.ofMillis(50), 2, meterRegistry)
+        calls = new AtomicInteger()
+    }
+
+    private <T> Mono<T> protect(Mono<T> result) {
+        return circuitBreaker.protect(Mono.defer { calls.incrementAndGet(); result })
+    }
+
+    /**
+     * @return a {@link WebClient} of the rate server, decoding its responses as the application does.
+     */
+    private WebClient webClient(FaultyRateServer server) {
+        def currencyRepository = Mock(CurrencyRepository)
+        currencyRepository.findAll() >> [new Currency("USD", "United States Dollar", "United States", 2),
+                                         new Currency("EUR", "Euro", "Eurozone", 2)]
+        def currencyRegistry = new CurrencyRegistry(currencyRepository)
+        currencyRegistry.refresh()
+        return WebClient.builder()
+                .baseUrl(server.url())
+                .codecs { it.customCodecs().register(new ExchangeRateResponseDecoder(currencyRegistry)) }
+                .build()
+    }
+
+    private double transitions(State from, State to) {
+        return meterRegistry.find(TRANSITION_COUNTER).tags("from", from.name(), "to", to.name()).counter()?.count() ?: 0
+    }
+
+    def "test circuit opens once the failure rate is reached and fails fast"() {
+        when:
+        2.times { protect(Mono.just("rates")).block() }
+        protect(Mono.error(new IllegalStateException())).onErrorResume { Mono.empty() }.block()
+        protect(Mono.error(new IllegalStateException())).onErrorResume { Mono.empty() }.block()
+        protect(Mono.just("rates")).block()
+
+        then:
+        def e = thrown(WebClientException)
+        e.message == CIRCUIT_OPEN_EXCEPTION_MESSAGE
+        calls.get() == 4
+        circuitBreaker.state == State.OPEN
+        meterRegistry.get(STATE_GAUGE).gauge().value() == State.OPEN.ordinal()
+        transitions(State.CLOSED, State.OPEN) == 1
+    }
+
+    def "test failures leave the window"() {
+        when:
+        3.times { protect(Mono.just("rates")).block() }
+        protect(Mono.error(new IllegalStateException())).onErrorResume { Mono.empty() }.block()
+        4.times { protect(Mono.just("rates")).block() }
+        protect(Mono.error(new IllegalStateException())).onErrorResume { Mono.empty() }.block()
+
+        then:
+        circuitBreaker.state == State.CLOSED
+        calls.get() == 9
+    }
+
+    def "test cancellation after the result is no failure"() {
+        when:
+        4.times {
+            protect(Mono.just("rates")).subscribe(new BaseSubscriber<String>() {
+                @Override
+                protected void hookOnNext(String value) {
+                    cancel()
+                }
+            })
+        }
+
+        then:
+        calls.get() == 4
+        circuitBreaker.state == State.CLOSED
+    }
+
+    def "test slow calls count as failures"() {
+        when:
+        2.times { protect(Mono.just("rates").delayElement(Duration.ofMillis(150))).block() }
+
+        then:
+        circuitBreaker.state == State.OPEN
+    }
+
+    def "test successful probes close the circuit"() {
+        given:
+        2.times { protect(Mono.error(new IllegalStateException())).onErrorResume { Mono.empty() }.block() }
+        Thread.sleep(60)
+
+        when:
+        def first = circuitBreaker.tryAcquire()
+        def second = circuitBreaker.tryAcquire()
+        def third = circuitBreaker.tryAcquire()
+
+        then:
+        first
+        second
+        !third
+        circuitBreaker.state == State.HALF_OPEN
+
+        when:
+        circuitBreaker.record(0, false)
+        circuitBreaker.record(0, false)
+
+        then:
+        circuitBreaker.state == State.CLOSED
+        meterRegistry.get(STATE_GAUGE).gauge().value() == State.CLOSED.ordinal()
+        transitions(State.OPEN, State.HALF_OPEN) == 1
+        transitions(State.HALF_OPEN, State.CLOSED) == 1
+    }
+
+    def "test failed probe opens the circuit again"() {
+        given:
+        2.times { protect(Mono.error(new IllegalStateException())).onErrorResume { Mono.empty() }.block() }
+        Thread.sleep(60)
+
+        when:
+        protect(Mono.error(new IllegalStateException())).onErrorResume { Mono.empty() }.block()
+
+        then:
+        circuitBreaker.state == State.OPEN
+        transitions(State.HALF_OPEN, State.OPEN) == 1
+        !circuitBreaker.tryAcquire()
+    }
+
+    def "test cancelled probe counts as a failure"() {
+        given:
+        2.times { protect(Mono.error(new IllegalStateException())).onErrorResume { Mono.empty() }.block() }
+        Thread.sleep(60)
+
+        when:
+        protect(Mono.never()).subscribe().dispose()
+
+        then:
+        circuitBreaker.state == State.OPEN
+    }
+
+    def "test late results while open are ignored"() {
+        given:
+        2.times { protect(Mono.error(new IllegalStateException())).onErrorResume { Mono.empty() }.block() }
+
+        when:
+        circuitBreaker.record(0, false)
+
+        then:
+        circuitBreaker.state == State.OPEN
+    }
+
+    /**
+     * Verifies against a failing rate server that the client fails fast once the circuit is open,
+     * serves the last known good rates within the maximum staleness and recovers through probes.
+     */
+    def "test stale rates are served while the rate server fails"() {
+        given:
+        // only errors of the server count as failures, however slow it is to warm up, and the circuit stays open
+        // long enough to be observed
+        meterRegistry = new SimpleMeterRegistry()
+        circuitBreaker = new ExchangeRateCircuitBreaker(4, 0.5, Duration.ofSeconds(10), Duration.ofMillis(500), 2, meterRegistry)
+        def server = new FaultyRateServer()
+        def client = new ExchangeRateRestClient(webClient(server), circuitBreaker,
+                Duration.ofMillis(1), Duration.ofMillis(1), 64, Duration.ofMinutes(1), Duration.ofSeconds(10))
+        def fresh = client.fetchExchangeRates("USD")
+        // a second success keeps the first failure below the failure rate once half of the window is recorded
+        circuitBreaker.record(0, false)
+        server.fault = FaultyRateServer.Fault.ERROR
+
+        when:
+        def failures = (1..2).collect { client.requestExchangeRates("USD").onErrorResume { error -> Mono.just(error) }.block() }
+        def requestsWhenOpened = server.requests.get()
+        def stale = client.fetchExchangeRates("USD")
+        client.fetchExchangeRates("EUR")
+
+        then:
+        def e = thrown(WebClientException)
+        e.message == CIRCUIT_OPEN_EXCEPTION_MESSAGE
+        failures*.message == [EXTERNAL_SERVER_EXCEPTION_MESSAGE, EXTERNAL_SERVER_EXCEPTION_MESSAGE]
+        circuitBreaker.state == State.OPEN
+        stale.is(fresh)
+        server.requests.get() == requestsWhenOpened
+        meterRegistry.get(FALLBACK_SUMMARY).summary().count() == 1
+
+        when:
+        server.fault = FaultyRateServer.Fault.NONE
+        Thread.sleep(550)
+        2.times { client.requestExchangeRates("USD").block() }
+
+        then:
+        circuitBreaker.state == State.CLOSED
+        !client.fetchExchangeRates("USD").is(fresh)
+
+        cleanup:
+        server.close()
+    }
+
+    def "test slow rate server opens the circuit"() {
+        given:
+        def server = new FaultyRateServer()
+        def client = new ExchangeRateRestClient(webClient(server), circuitBreaker,
+                Duration.ofMillis(1), Duration.ofMillis(1), 64, Duration.ZERO, Duration.ofSeconds(10))
+        server.fault = FaultyRateServer.Fault.SLOW
+
+        when:
+        2.times { client.refreshExchangeRates("USD").block() }
+        client.fetchExchangeRates("USD")
+
+        then:
+        def e = thrown(WebClientException)
+        e.message == CIRCUIT_OPEN_EXCEPTION_MESSAGE
+        server.requests.get() == 2
+
+        cleanup:
+        server.close()
+    }
+}
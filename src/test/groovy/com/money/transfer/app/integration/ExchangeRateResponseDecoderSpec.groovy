@@ -0,0 +1,159 @@
+package com.money.transfer.app.integration
+
+import com.money.transfer.app.dto.ExchangeRateResponse
+import com.money.transfer.app.entity.Currency
+import com.money.transfer.app.repository.CurrencyRepository
+import com.money.transfer.app.service.CurrencyRegistry
+import io.netty.buffer.UnpooledByteBufAllocator
+import org.springframework.core.ResolvableType
+import org.springframework.core.codec.DecodingException
+import org.springframework.core.io.buffer.NettyDataBuffer
+import org.springframework.core.io.buffer.NettyDataBufferFactory
+import org.springframework.http.MediaType
+import reactor.core.publisher.Flux
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.MALFORMED_EXCHANGE_RATE_RESPONSE_EXCEPTION_MESSAGE
+
+/**
+ * Unit test for the ExchangeRateResponseDecoder, which parses the rates of the supported currencies
+ * out of the responses of the exchange rate API as their buffers arrive.
+ */
+class ExchangeRateResponseDecoderSpec extends Specification {
+
+    private static final ResolvableType TYPE = ResolvableType.forClass(ExchangeRateResponse)
+
+    /**
+     * A response with values the decoder skips: unsupported currencies, rates that are not numbers,
+     * numbers and objects nested at other levels and a {@code conversion_rates} field that is not at the top level.
+     */
+    private static final String RESPONSE = '''{
+        "result": "success",
+        "documentation": "https://www.exchangerate-api.com/docs",
+        "time_last_update_unix": 1714521601,
+        "meta": {"result": "ignored", "conversion_rates": {"EUR": 9}, "limits": [1, {"EUR": 9}]},
+        "conversion_rates": {
+            "USD": 1,
+            "AED": 3.6725,
+            "eur": 0.9341,
+            "XYZ": {"EUR": 7},
+            "GBP": [0.5],
+            "JPY": 162.5,
+            "FOK": true
+        },
+        "flags": [true, null]
+    }'''
+
+    private NettyDataBufferFactory bufferFactory
+
+    private CurrencyRegistry currencyRegistry
+
+    private ExchangeRateResponseDecoder decoder
+
+    def setup() {
+        bufferFactory = new NettyDataBufferFactory(UnpooledByteBufAllocator.DEFAULT)
+        def currencyRepository = Mock(CurrencyRepository)
+        currencyRepository.findAll() >> [new Currency("EUR", "Euro", "Eurozone", 2),
+                                         new Currency("USD", "United States Dollar", "United States", 2),
+                                         new Currency("GBP", "British Pound Sterling", "United Kingdom", 2),
+                                         new Currency("JPY", "Japanese Yen", "Japan", 0),
+                                         new Currency("CHF", "Swiss Franc", "Switzerland", 2)]
+        currencyRegistry = new CurrencyRegistry(currencyRepository)
+        currencyRegistry.refresh()
+        decoder = new ExchangeRateResponseDecoder(currencyRegistry)
+    }
+
+    /**
+     * @return the body split into buffers of the given number of bytes.
+     */
+    private List<NettyDataBuffer> buffers(String body, int size) {
+        def bytes = body.getBytes(StandardCharsets.UTF_8)
+        return (0..<bytes.length).step(size).collect { int offset ->
+            bufferFactory.wrap(Arrays.copyOfRange(bytes, offset, Math.min(offset + size, bytes.length)))
+        }
+    }
+
+    private static boolean released(List<NettyDataBuffer> buffers) {
+        return buffers.every { it.getNativeBuffer().refCnt() == 0 }
+    }
+
+    /**
+     * Verifies that however the body is split, only the rates of supported currencies are kept, by ordinal,
+     * and every buffer is released.
+     */
+    def "test decode"() {
+        given:
+        def body = buffers(RESPONSE, size)
+
+        when:
+        def response = decoder.decodeToMono(Flux.fromIterable(body), TYPE, MediaType.APPLICATION_JSON, null).block()
+
+        then:
+        response.result == "success"
+        response.currencies.is(currencyRegistry.currencies())
+        response.currencies*.code == ["CHF", "EUR", "GBP", "JPY", "USD"]
+        response.rates.collect { Double.isNaN(it) ? null : it } == [null, 0.9341d, null, 162.5d, 1d]
+        response.rate("EUR") == 0.9341d
+        released(body)
+
+        where:
+        size << [1, 7, 64, RESPONSE.length()]
+    }
+
+    def "test decode as flux"() {
+        when:
+        def responses = decoder.decode(Flux.fromIterable(buffers(RESPONSE, 16)), TYPE, null, null).collectList().block()
+
+        then:
+        responses.size() == 1
+        responses[0].rate("JPY") == 162.5d
+    }
+
+    def "test rates of an unsuccessful response are missing"() {
+        when:
+        def response = decoder.decodeToMono(Flux.fromIterable(buffers('{"result":"error","error-type":"invalid-key"}', 8)),
+                TYPE, null, null).block()
+
+        then:
+        response.result == "error"
+        response.rates.every { Double.isNaN(it) }
+    }
+
+    /**
+     * Verifies that a body which is not a complete JSON object is reported as malformed.
+     */
+    def "test malformed response"() {
+        when:
+        decoder.decodeToMono(Flux.fromIterable(buffers(json, 4)), TYPE, null, null).block()
+
+        then:
+        def e = thrown(DecodingException)
+        e.message == MALFORMED_EXCHANGE_RATE_RESPONSE_EXCEPTION_MESSAGE
+
+        where:
+        json << ['{"result":}', '{"result":"succ', '[1.5]', '42', '<html></html>']
+    }
+
+    def "test empty response"() {
+        when:
+        decoder.decodeToMono(Flux.empty(), TYPE, null, null).block()
+
+        then:
+        def e = thrown(DecodingException)
+        e.message == MALFORMED_EXCHANGE_RATE_RESPONSE_EXCEPTION_MESSAGE
+    }
+
+    def "test can decode"() {
+        expect:
+        decoder.canDecode(ResolvableType.forClass(type), mimeType) == expected
+
+        where:
+        type                 | mimeType                   || expected
+        ExchangeRateResponse | MediaType.APPLICATION_JSON || true
+        ExchangeRateResponse | null                       || true
+        ExchangeRateResponse | MediaType.TEXT_HTML        || false
+        String               | MediaType.APPLICATION_JSON || false
+    }
+}
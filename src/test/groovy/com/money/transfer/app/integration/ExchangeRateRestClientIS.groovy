@@ -1,9 +1,14 @@
 package com.money.transfer.app.integration
 
-
+import com.money.transfer.app.entity.Currency
+import com.money.transfer.app.repository.CurrencyRepository
+import com.money.transfer.app.service.CurrencyRegistry
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
 import org.springframework.web.reactive.function.client.WebClient
 import spock.lang.Specification
 
+import java.time.Duration
+
 /**
  * Integration test for the ExchangeRateRestClient that verifies the functionality of communicating
  * with the external exchange rate API and successfully coverting a currency with the info fetched.
@@ -17,10 +22,16 @@ class ExchangeRateRestClientIS extends Specification {
 
 
     def setup() {
+        def currencyRepository = Mock(CurrencyRepository)
+        currencyRepository.findAll() >> [new Currency("USD", "United States Dollar", "United States", 2),
+                                         new Currency("EUR", "Euro", "Eurozone", 2)]
+        def currencyRegistry = new CurrencyRegistry(currencyRepository)
+        currencyRegistry.refresh()
         exchangeRateWebClient = WebClient.builder()
                 .baseUrl('https://v6.exchangerate-api.com/v6/5eba9759ea7dbf15cc278c52/latest/')
+                .codecs { it.customCodecs().register(new ExchangeRateResponseDecoder(currencyRegistry)) }
                 .build()
-        exchangeRateRestClient = new ExchangeRateRestClient(exchangeRateWebClient)
+        exchangeRateRestClient = new ExchangeRateRestClient(exchangeRateWebClient, circuitBreaker(), Duration.ofHours(1), Duration.ofMinutes(10), 64, Duration.ZERO, Duration.ofSeconds(10))
     }
 
     def "test fetch exchange rates"() {
@@ -31,12 +42,16 @@ class ExchangeRateRestClientIS extends Specification {
 
         when:
         def response = exchangeRateRestClient.fetchExchangeRates(oldCurrency)
-        def newAmount = oldAmount * response.conversion_rates.get(newCurrency)
+        def newAmount = oldAmount * response.rate(newCurrency)
 
         then:
         noExceptionThrown()
         println(response.result)
-        println response.conversion_rates
+        println response.rates
         println oldAmount + oldCurrency + " == " + newAmount + newCurrency
     }
+
+    private static ExchangeRateCircuitBreaker circuitBreaker() {
+        return new ExchangeRateCircuitBreaker(10, 0.5, Duration.ofSeconds(10), Duration.ofSeconds(30), 2, new SimpleMeterRegistry())
+    }
 }
@@ -1,7 +1,9 @@
 package com.money.transfer.app.integration
 
 import com.money.transfer.app.dto.ExchangeRateResponse
+import com.money.transfer.app.entity.Currency
 import com.money.transfer.app.exception.WebClientException
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
 import org.springframework.http.HttpHeaders
 import org.springframework.http.HttpMethod
 import org.springframework.http.HttpStatus
@@ -12,8 +14,13 @@ import org.springframework.web.reactive.function.client.WebClientResponseExcepti
 import org.springframework.web.util.UriComponentsBuilder
 import reactor.core.publisher.Mono
 import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
 
 import java.nio.charset.Charset
+import java.time.Duration
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
 import java.util.concurrent.TimeoutException
 
 import static com.money.transfer.app.util.constants.ExceptionConstants.EXTERNAL_SERVER_EXCEPTION_MESSAGE
@@ -23,6 +30,10 @@ import static com.money.transfer.app.util.constants.ExceptionConstants.WEB_CLIEN
 
 class ExchangeRateRestClientSpec extends Specification {
 
+    private static final Currency EUR = new Currency("EUR", "Euro", "Eurozone", 2)
+
+    private static final Currency USD = new Currency("USD", "United States Dollar", "United States", 2)
+
     private ExchangeRateRestClient exchangeRateRestClient
 
     private WebClient exchangeRateWebClient
@@ -36,7 +47,7 @@ class ExchangeRateRestClientSpec extends Specification {
         requestHeadersSpec = Mock(WebClient.RequestHeadersSpec)
         responseSpec = Mock(WebClient.ResponseSpec)
         requestHeadersUriSpec = Mock(WebClient.RequestHeadersUriSpec)
-        exchangeRateRestClient = new ExchangeRateRestClient(exchangeRateWebClient)
+        exchangeRateRestClient = new ExchangeRateRestClient(exchangeRateWebClient, circuitBreaker(), Duration.ofHours(1), Duration.ofMinutes(10), 64, Duration.ZERO, Duration.ofSeconds(10))
     }
 
     def "test fetch exchange rates"() {
@@ -49,7 +60,7 @@ class ExchangeRateRestClientSpec extends Specification {
         1 * exchangeRateWebClient.get() >> requestHeadersUriSpec
         1 * requestHeadersUriSpec.uri(uri) >> requestHeadersSpec
         1 * requestHeadersSpec.retrieve() >> responseSpec
-        1 * responseSpec.toEntity(ExchangeRateResponse.class) >> Mono.just(new ResponseEntity<ExchangeRateResponse>(new ExchangeRateResponse("success", Map.of("EUR", 1.450 as Float, "USD", 1.25 as Float)), HttpStatus.OK))
+        1 * responseSpec.toEntity(ExchangeRateResponse.class) >> Mono.just(new ResponseEntity<ExchangeRateResponse>(new ExchangeRateResponse("success", [EUR, USD], [1.450, 1.25] as double[]), HttpStatus.OK))
 
         when:
         def response = exchangeRateRestClient.fetchExchangeRates(baseCurrency)
@@ -57,7 +68,7 @@ class ExchangeRateRestClientSpec extends Specification {
         then:
         noExceptionThrown()
         response instanceof ExchangeRateResponse
-        assert response.getConversion_rates().size() > 0
+        response.rate("USD") == 1.25d
         response.getResult() == "success"
 
     }
@@ -138,6 +149,40 @@ class ExchangeRateRestClientSpec extends Specification {
         e.message == REQUEST_TIME_OUT_EXCEPTION_MESSAGE
     }
 
+    def "test timeout of the request while fetch exchange rates"() {
+        given:
+        exchangeRateWebClient.get() >> requestHeadersUriSpec
+        requestHeadersUriSpec.uri(_) >> requestHeadersSpec
+        requestHeadersSpec.retrieve() >> responseSpec
+        responseSpec.toEntity(ExchangeRateResponse.class) >> Mono.error(new TimeoutException())
+
+        when:
+        exchangeRateRestClient.fetchExchangeRates("EUR")
+
+        then:
+        def e = thrown(WebClientException)
+        e.message == REQUEST_TIME_OUT_EXCEPTION_MESSAGE
+    }
+
+    def "test interrupted while waiting for exchange rates"() {
+        given:
+        exchangeRateWebClient.get() >> requestHeadersUriSpec
+        requestHeadersUriSpec.uri(_) >> requestHeadersSpec
+        requestHeadersSpec.retrieve() >> responseSpec
+        responseSpec.toEntity(ExchangeRateResponse.class) >> Mono.never()
+
+        when:
+        Thread.currentThread().interrupt()
+        exchangeRateRestClient.fetchExchangeRates("EUR")
+
+        then:
+        def e = thrown(WebClientException)
+        e.message == WEB_CLIENT_GENERAL_EXCEPTION_MESSAGE
+
+        cleanup:
+        Thread.interrupted()
+    }
+
     def "test general exception while fetch exchange rates"() {
         given:
         def baseCurrency = "EUR"
@@ -156,4 +201,134 @@ class ExchangeRateRestClientSpec extends Specification {
         def e = thrown(WebClientException)
         e.message == WEB_CLIENT_GENERAL_EXCEPTION_MESSAGE
     }
+
+    def "test cached exchange rates are reused"() {
+        given:
+        def baseCurrency = "EUR"
+        def rates = rates(1.25)
+        1 * exchangeRateWebClient.get() >> requestHeadersUriSpec
+        1 * requestHeadersUriSpec.uri(baseCurrency) >> requestHeadersSpec
+        1 * requestHeadersSpec.retrieve() >> responseSpec
+        1 * responseSpec.toEntity(ExchangeRateResponse.class) >> Mono.just(new ResponseEntity<ExchangeRateResponse>(rates, HttpStatus.OK))
+
+        when:
+        def first = exchangeRateRestClient.fetchExchangeRates(baseCurrency)
+        def second = exchangeRateRestClient.fetchExchangeRates(baseCurrency)
+
+        then:
+        first.is(rates)
+        second.is(rates)
+        exchangeRateRestClient.getCacheMissCount() == 1
+        exchangeRateRestClient.getCacheHitCount() == 1
+        exchangeRateRestClient.getCacheRefreshCount() == 0
+    }
+
+    def "test concurrent misses share one request"() {
+        given:
+        def baseCurrency = "EUR"
+        def rates = rates(1.25)
+        def start = new CountDownLatch(1)
+        def executor = Executors.newFixedThreadPool(4)
+        1 * exchangeRateWebClient.get() >> requestHeadersUriSpec
+        1 * requestHeadersUriSpec.uri(baseCurrency) >> requestHeadersSpec
+        1 * requestHeadersSpec.retrieve() >> responseSpec
+        1 * responseSpec.toEntity(ExchangeRateResponse.class) >>
+                Mono.just(new ResponseEntity<ExchangeRateResponse>(rates, HttpStatus.OK)).delayElement(Duration.ofMillis(300))
+
+        when:
+        def futures = (1..4).collect {
+            executor.submit({ start.await(); exchangeRateRestClient.fetchExchangeRates(baseCurrency) } as Callable)
+        }
+        start.countDown()
+        def responses = futures.collect { it.get() }
+
+        then:
+        responses.every { it.is(rates) }
+
+        cleanup:
+        executor.shutdownNow()
+    }
+
+    def "test stale exchange rates are served while refreshing"() {
+        given:
+        exchangeRateRestClient = new ExchangeRateRestClient(exchangeRateWebClient, circuitBreaker(), Duration.ofHours(1), Duration.ofMillis(1), 64, Duration.ZERO, Duration.ofSeconds(10))
+        def baseCurrency = "EUR"
+        def stale = rates(1.25)
+        def fresh = rates(1.30)
+        exchangeRateWebClient.get() >> requestHeadersUriSpec
+        requestHeadersUriSpec.uri(baseCurrency) >> requestHeadersSpec
+        requestHeadersSpec.retrieve() >> responseSpec
+        responseSpec.toEntity(ExchangeRateResponse.class) >>>
+                [Mono.just(new ResponseEntity<ExchangeRateResponse>(stale, HttpStatus.OK)),
+                 Mono.just(new ResponseEntity<ExchangeRateResponse>(fresh, HttpStatus.OK)).delayElement(Duration.ofMillis(200))]
+
+        when:
+        def first = exchangeRateRestClient.fetchExchangeRates(baseCurrency)
+        Thread.sleep(10)
+        def second = exchangeRateRestClient.fetchExchangeRates(baseCurrency)
+
+        then:
+        first.is(stale)
+        second.is(stale)
+        new PollingConditions(timeout: 5).eventually {
+            assert exchangeRateRestClient.getCacheRefreshCount() == 1
+            assert exchangeRateRestClient.fetchExchangeRates(baseCurrency).is(fresh)
+        }
+    }
+
+    def "test cached exchange rates are reloaded on demand"() {
+        given:
+        def baseCurrency = "EUR"
+        def cached = rates(1.25)
+        def reloaded = rates(1.30)
+        2 * exchangeRateWebClient.get() >> requestHeadersUriSpec
+        2 * requestHeadersUriSpec.uri(baseCurrency) >> requestHeadersSpec
+        2 * requestHeadersSpec.retrieve() >> responseSpec
+        2 * responseSpec.toEntity(ExchangeRateResponse.class) >>>
+                [Mono.just(new ResponseEntity<ExchangeRateResponse>(cached, HttpStatus.OK)),
+                 Mono.just(new ResponseEntity<ExchangeRateResponse>(reloaded, HttpStatus.OK))]
+
+        when:
+        def first = exchangeRateRestClient.fetchExchangeRates(baseCurrency)
+        def refreshed = exchangeRateRestClient.refreshExchangeRates(baseCurrency).block()
+        def second = exchangeRateRestClient.fetchExchangeRates(baseCurrency)
+
+        then:
+        first.is(cached)
+        refreshed.is(reloaded)
+        second.is(reloaded)
+        exchangeRateRestClient.getCacheRefreshCount() == 1
+    }
+
+    def "test failed reload keeps the cached exchange rates"() {
+        given:
+        def baseCurrency = "EUR"
+        def cached = rates(1.25)
+        exchangeRateWebClient.get() >> requestHeadersUriSpec
+        requestHeadersUriSpec.uri(baseCurrency) >> requestHeadersSpec
+        requestHeadersSpec.retrieve() >> responseSpec
+        responseSpec.toEntity(ExchangeRateResponse.class) >>>
+                [Mono.just(new ResponseEntity<ExchangeRateResponse>(cached, HttpStatus.OK)),
+                 Mono.error(new TimeoutException())]
+        exchangeRateRestClient.fetchExchangeRates(baseCurrency)
+
+        when:
+        exchangeRateRestClient.refreshExchangeRates(baseCurrency).block()
+
+        then:
+        def e = thrown(WebClientException)
+        e.message == REQUEST_TIME_OUT_EXCEPTION_MESSAGE
+        exchangeRateRestClient.fetchExchangeRates(baseCurrency).is(cached)
+    }
+
+    /**
+     * @return a response carrying the given rate of the US dollar.
+     */
+    private static ExchangeRateResponse rates(double usd) {
+        return new ExchangeRateResponse("success", [USD], [usd] as double[])
+    }
+
+    private static ExchangeRateCircuitBreaker circuitBreaker() {
+        return new ExchangeRateCircuitBreaker(10, 0.5, Duration.ofSeconds(10), Duration.ofSeconds(30), 2, new SimpleMeterRegistry())
+    }
 }
@@ -0,0 +1,57 @@
+package com.money.transfer.app.integration
+
+import com.sun.net.httpserver.HttpServer
+
+import java.nio.charset.StandardCharsets
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Local stand-in for the exchange rate API that answers with fixed rates, failing or slowing down on demand.
+ */
+class FaultyRateServer implements AutoCloseable {
+
+    enum Fault {
+        NONE, ERROR, SLOW
+    }
+
+    private static final byte[] RESPONSE = '{"result":"success","conversion_rates":{"USD":1.0,"EUR":0.5}}'
+            .getBytes(StandardCharsets.UTF_8)
+
+    volatile Fault fault = Fault.NONE
+
+    volatile long delayMillis = 200
+
+    final AtomicInteger requests = new AtomicInteger()
+
+    private final HttpServer server
+
+    FaultyRateServer() {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0)
+        server.setExecutor(Executors.newFixedThreadPool(4))
+        server.createContext("/", { exchange ->
+            requests.incrementAndGet()
+            if (fault == Fault.ERROR) {
+                exchange.sendResponseHeaders(500, -1)
+                exchange.close()
+                return
+            }
+            if (fault == Fault.SLOW) {
+                Thread.sleep(delayMillis)
+            }
+            exchange.getResponseHeaders().add("Content-Type", "application/json")
+            exchange.sendResponseHeaders(200, RESPONSE.length)
+            exchange.getResponseBody().withCloseable { it.write(RESPONSE) }
+        })
+        server.start()
+    }
+
+    String url() {
+        return "http://${server.getAddress().getHostString()}:${server.getAddress().getPort()}/latest/"
+    }
+
+    @Override
+    void close() {
+        server.stop(0)
+    }
+}
@@ -0,0 +1,23 @@
+package com.money.transfer.app.metrics
+
+import spock.lang.Specification
+
+class HibernateStatementListenerSpec extends Specification {
+
+    def "test statements, batches and flushes are counted"() {
+        given:
+        def listener = new HibernateStatementListener()
+        def profile = QueryProfile.start()
+
+        when:
+        listener.jdbcExecuteStatementEnd()
+        listener.jdbcExecuteBatchEnd()
+        listener.flushEnd(2, 0)
+        profile.close()
+
+        then:
+        profile.hibernateStatements() == 2
+        profile.flushes() == 1
+        profile.statements() == 0
+    }
+}
@@ -0,0 +1,139 @@
+package com.money.transfer.app.metrics
+
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.datasource.ConnectionProxy
+import org.springframework.jdbc.datasource.DriverManagerDataSource
+import spock.lang.Specification
+
+import java.sql.CallableStatement
+import java.sql.PreparedStatement
+import java.sql.SQLException
+
+/**
+ * Unit test for the StatementCountingDataSource and the QueryProfile it counts into,
+ * against an in-memory H2 database.
+ */
+class StatementCountingDataSourceSpec extends Specification {
+
+    private static final String URL = "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL"
+
+    private StatementCountingDataSource dataSource
+
+    def setup() {
+        dataSource = new StatementCountingDataSource(new DriverManagerDataSource(URL, "sa", ""))
+        new JdbcTemplate(dataSource).execute("CREATE TABLE IF NOT EXISTS counted (id INT PRIMARY KEY)")
+        new JdbcTemplate(dataSource).execute("DELETE FROM counted")
+    }
+
+    def cleanup() {
+        QueryProfile.current()?.close()
+    }
+
+    def "test statements are counted per profile"() {
+        given:
+        def jdbcTemplate = new JdbcTemplate(dataSource)
+        def profile = QueryProfile.start()
+
+        when:
+        jdbcTemplate.update("INSERT INTO counted VALUES (?)", 1)
+        jdbcTemplate.batchUpdate("INSERT INTO counted VALUES (?)", [[2] as Object[], [3] as Object[]])
+        def count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM counted", Integer)
+        profile.close()
+        jdbcTemplate.queryForObject("SELECT COUNT(*) FROM counted", Integer)
+
+        then:
+        count == 3
+        profile.statements() == 3
+        profile.batches() == 1
+        profile.connections() == 3
+        profile.hibernateStatements() == 0
+        profile.flushes() == 0
+        QueryProfile.current() == null
+    }
+
+    def "test every kind of statement is counted"() {
+        given:
+        def profile = QueryProfile.start()
+
+        when:
+        def connection = dataSource.getConnection("sa", "")
+        def statement = connection.createStatement()
+        statement.execute("SELECT 1")
+        def prepared = connection.prepareStatement("SELECT 1")
+        prepared.executeQuery()
+        def callable = connection.prepareCall("SELECT 1")
+        callable.execute()
+        connection.close()
+
+        then:
+        profile.statements() == 3
+        profile.connections() == 1
+        prepared instanceof PreparedStatement
+        callable instanceof CallableStatement
+        statement.getConnection().is(connection)
+        !(statement instanceof PreparedStatement)
+    }
+
+    def "test proxies compare by identity and expose their target"() {
+        when:
+        def connection = dataSource.getConnection()
+        def other = dataSource.getConnection()
+        def statement = connection.createStatement()
+
+        then:
+        connection instanceof ConnectionProxy
+        connection.equals(connection)
+        !connection.equals(other)
+        connection.hashCode() == System.identityHashCode(connection)
+        statement.equals(statement)
+        !statement.equals(connection.createStatement())
+        statement.hashCode() == System.identityHashCode(statement)
+        !(((ConnectionProxy) connection).getTargetConnection() instanceof ConnectionProxy)
+        connection.isWrapperFor(java.sql.Connection)
+
+        cleanup:
+        connection.close()
+        other.close()
+    }
+
+    def "test exceptions of the target are thrown as they are"() {
+        given:
+        def connection = dataSource.getConnection()
+
+        when:
+        connection.createStatement().execute("NOT SQL")
+
+        then:
+        thrown(SQLException)
+
+        cleanup:
+        connection.close()
+    }
+
+    def "test nothing is counted without a profile"() {
+        when:
+        QueryProfile.connectionAcquired()
+        QueryProfile.statementExecuted(true)
+        QueryProfile.hibernateStatementExecuted()
+        QueryProfile.flushed()
+
+        then:
+        QueryProfile.current() == null
+        QueryProfile.summary() == "statements=unprofiled"
+    }
+
+    def "test a replaced profile is not closed by the former one"() {
+        given:
+        def first = QueryProfile.start()
+        def second = QueryProfile.start()
+
+        when:
+        first.close()
+        QueryProfile.hibernateStatementExecuted()
+        QueryProfile.flushed()
+
+        then:
+        QueryProfile.current().is(second)
+        QueryProfile.summary() == "statements=0 batches=0 connections=0 hibernateStatements=1 flushes=1"
+    }
+}
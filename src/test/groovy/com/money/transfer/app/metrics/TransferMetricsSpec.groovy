@@ -0,0 +1,102 @@
+package com.money.transfer.app.metrics
+
+import com.money.transfer.app.exception.NonExistentAccountException
+import com.money.transfer.app.exception.WebClientException
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.http.HttpStatus
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+import static com.money.transfer.app.metrics.TransferMetrics.*
+
+class TransferMetricsSpec extends Specification {
+
+    private SimpleMeterRegistry meterRegistry
+
+    private TransferMetrics transferMetrics
+
+    def setup() {
+        meterRegistry = new SimpleMeterRegistry()
+        transferMetrics = new TransferMetrics(meterRegistry)
+    }
+
+    def "test successful stages share one timer"() {
+        when:
+        def first = transferMetrics.time(VALIDATION, { 1 })
+        def second = transferMetrics.time(VALIDATION, { 2 })
+
+        then:
+        first == 1
+        second == 2
+        def timer = meterRegistry.get(STAGE_TIMER).tags("stage", VALIDATION, "outcome", "success", "exception", "none").timer()
+        timer.count() == 2
+        meterRegistry.find(STAGE_TIMER).timers().size() == 1
+    }
+
+    def "test failed stages are tagged with the exception"() {
+        given:
+        def exception = new NonExistentAccountException("accountId")
+
+        when:
+        transferMetrics.time(ACCOUNT_LOADING, { throw exception })
+
+        then:
+        def e = thrown(NonExistentAccountException)
+        e.is(exception)
+        meterRegistry.get(STAGE_TIMER)
+                .tags("stage", ACCOUNT_LOADING, "outcome", "failure", "exception", "NonExistentAccountException")
+                .timer().count() == 1
+    }
+
+    def "test recording a stage that started earlier"() {
+        when:
+        transferMetrics.record(COMMIT, System.nanoTime() - 1_000_000, null)
+        transferMetrics.record(COMMIT, System.nanoTime(), new IllegalStateException())
+        transferMetrics.record(COMMIT, System.nanoTime(), new IllegalStateException())
+
+        then:
+        meterRegistry.get(STAGE_TIMER).tags("stage", COMMIT, "outcome", "success").timer().totalTime(TimeUnit.NANOSECONDS) >= 1_000_000
+        meterRegistry.get(STAGE_TIMER).tags("stage", COMMIT, "exception", "IllegalStateException").timer().count() == 2
+    }
+
+    def "test errors are counted by exception and status"() {
+        when:
+        transferMetrics.countError(new WebClientException("down"), HttpStatus.INTERNAL_SERVER_ERROR)
+        transferMetrics.countError(new WebClientException("down"), HttpStatus.INTERNAL_SERVER_ERROR)
+        transferMetrics.countError(new WebClientException("down"), HttpStatus.BAD_REQUEST)
+
+        then:
+        meterRegistry.get(ERROR_COUNTER).tags("exception", "WebClientException", "status", "500").counter().count() == 2
+        meterRegistry.get(ERROR_COUNTER).tags("exception", "WebClientException", "status", "400").counter().count() == 1
+    }
+
+    def "test statements are recorded by endpoint and source"() {
+        given:
+        def profile = QueryProfile.start()
+        QueryProfile.statementExecuted(false)
+        QueryProfile.statementExecuted(true)
+        QueryProfile.hibernateStatementExecuted()
+        profile.close()
+
+        when:
+        transferMetrics.recordStatements("Controller.endpoint", profile)
+        transferMetrics.recordStatements("Controller.endpoint", profile)
+
+        then:
+        def jdbc = meterRegistry.get(STATEMENT_SUMMARY).tags("endpoint", "Controller.endpoint", "source", "jdbc").summary()
+        jdbc.count() == 2
+        jdbc.totalAmount() == 4
+        meterRegistry.get(STATEMENT_SUMMARY).tags("endpoint", "Controller.endpoint", "source", "hibernate")
+                .summary().totalAmount() == 2
+    }
+
+    def "test exceeded budgets are counted by endpoint"() {
+        when:
+        transferMetrics.countBudgetExceeded("Controller.endpoint")
+        transferMetrics.countBudgetExceeded("Controller.endpoint")
+
+        then:
+        meterRegistry.get(BUDGET_COUNTER).tags("endpoint", "Controller.endpoint").counter().count() == 2
+    }
+}
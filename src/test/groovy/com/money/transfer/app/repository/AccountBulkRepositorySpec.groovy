@@ -0,0 +1,210 @@
+package com.money.transfer.app.repository
+
+import org.postgresql.PGConnection
+import org.postgresql.copy.CopyIn
+import org.postgresql.copy.CopyManager
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.datasource.DriverManagerDataSource
+import spock.lang.Specification
+
+import javax.sql.DataSource
+import java.nio.charset.StandardCharsets
+import java.sql.Connection
+import java.sql.PreparedStatement
+import java.sql.ResultSet
+import java.sql.Statement
+import java.sql.Timestamp
+import java.time.LocalDateTime
+
+/**
+ * Unit test for the AccountBulkRepository, against an in-memory H2 database for the batched statements
+ * and against a mocked PostgreSQL connection for {@code COPY}.
+ */
+class AccountBulkRepositorySpec extends Specification {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 5, 1, 12, 0)
+
+    private JdbcTemplate jdbcTemplate
+
+    private AccountBulkRepository accountBulkRepository
+
+    def setup() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", ""))
+        jdbcTemplate.execute("CREATE TABLE public.currency (code VARCHAR(3) PRIMARY KEY, minor_units INT NOT NULL)")
+        jdbcTemplate.execute("CREATE TABLE public.account (id VARCHAR(255) PRIMARY KEY, balance BIGINT NOT NULL, " +
+                "currency VARCHAR(3), created_at TIMESTAMP, version BIGINT DEFAULT 0 NOT NULL, " +
+                "balance_slots INT DEFAULT 0 NOT NULL, opening_balance BIGINT)")
+        jdbcTemplate.execute("CREATE TABLE public.account_balance_slot (account_id VARCHAR(255), slot INT, " +
+                "balance BIGINT NOT NULL, PRIMARY KEY (account_id, slot))")
+        jdbcTemplate.execute("INSERT INTO public.currency VALUES ('EUR', 2), ('JPY', 0)")
+        jdbcTemplate.execute("INSERT INTO public.account (id, balance, currency, created_at) " +
+                "VALUES ('existingId', 500, 'EUR', CURRENT_TIMESTAMP), ('hotId', 100, 'JPY', CURRENT_TIMESTAMP)")
+        jdbcTemplate.execute("INSERT INTO public.account_balance_slot VALUES ('hotId', 0, 20), ('hotId', 1, 5)")
+        accountBulkRepository = new AccountBulkRepository(jdbcTemplate, 2, 10)
+    }
+
+    def "test import in batches"() {
+        given:
+        def accounts = [new ImportedAccount(2, "first", 1250, "EUR"),
+                        new ImportedAccount(3, "existingId", 1, "EUR"),
+                        new ImportedAccount(4, "second", 300, "JPY"),
+                        new ImportedAccount(5, "first", 2, "EUR"),
+                        new ImportedAccount(7, "third", 0, "EUR")]
+        def duplicates = []
+
+        when:
+        def imported = accountBulkRepository.importAccounts(accounts.iterator(), CREATED_AT,
+                { line, id -> duplicates << [line, id] })
+
+        then:
+        imported == 3
+        duplicates == [[3L, "existingId"], [5L, "first"]]
+        jdbcTemplate.queryForList("SELECT id, balance, opening_balance, currency FROM public.account " +
+                "WHERE id IN ('first', 'second', 'third') ORDER BY id").collect { it.values().toList() } ==
+                [["first", 1250, 1250, "EUR"], ["second", 300, 300, "JPY"], ["third", 0, 0, "EUR"]]
+        jdbcTemplate.queryForList("SELECT DISTINCT created_at FROM public.account " +
+                "WHERE id IN ('first', 'second', 'third')", Timestamp) == [Timestamp.valueOf(CREATED_AT)]
+        jdbcTemplate.queryForObject("SELECT balance FROM public.account WHERE id = 'existingId'", Long) == 500
+    }
+
+    def "test import nothing"() {
+        expect:
+        accountBulkRepository.importAccounts(Collections.emptyIterator(), CREATED_AT, { line, id -> }) == 0
+    }
+
+    def "test for each"() {
+        given:
+        def accounts = []
+
+        when:
+        accountBulkRepository.forEach(accounts.&add)
+
+        then:
+        accounts == [new ExportedAccount("existingId", "EUR", 500, 2), new ExportedAccount("hotId", "JPY", 125, 0)]
+    }
+
+    def "test copy csv is not supported"() {
+        given:
+        def output = new ByteArrayOutputStream()
+
+        expect:
+        !accountBulkRepository.copyCsv(output)
+        output.size() == 0
+    }
+
+    /**
+     * @return a mocked PostgreSQL connection, copying through the given manager.
+     */
+    private Connection postgresConnection(CopyManager copyManager) {
+        def pgConnection = Stub(PGConnection) {
+            getCopyAPI() >> copyManager
+        }
+        return Mock(Connection) {
+            isWrapperFor(PGConnection) >> true
+            unwrap(PGConnection) >> pgConnection
+        }
+    }
+
+    private AccountBulkRepository postgresRepository(Connection connection) {
+        def dataSource = Stub(DataSource) {
+            getConnection() >> connection
+        }
+        return new AccountBulkRepository(new JdbcTemplate(dataSource), 2, 10)
+    }
+
+    /**
+     * Verifies that accounts are copied into the staging table in CSV, {@code account.bulk.batch-size} rows
+     * per write, and that every line the move statement selects is reported as a duplicate.
+     */
+    def "test import with copy"() {
+        given:
+        def copyManager = Mock(CopyManager)
+        def connection = postgresConnection(copyManager)
+        def copyIn = Mock(CopyIn)
+        def statement = Mock(Statement)
+        def move = Mock(PreparedStatement)
+        def notInserted = Mock(ResultSet)
+        def repository = postgresRepository(connection)
+        def written = []
+        def accounts = [new ImportedAccount(2, "first", 1250, "EUR"),
+                        new ImportedAccount(3, 'a "quoted", id', 300, "JPY"),
+                        new ImportedAccount(4, "first", 1, "EUR")]
+        def duplicates = []
+
+        when:
+        def imported = repository.importAccounts(accounts.iterator(), CREATED_AT, { line, id -> duplicates << [line, id] })
+
+        then:
+        1 * connection.createStatement() >> statement
+        1 * statement.execute(AccountBulkRepository.STAGE_SQL)
+        1 * copyManager.copyIn(AccountBulkRepository.COPY_IN_SQL) >> copyIn
+        2 * copyIn.writeToCopy(_, _, _) >> { byte[] bytes, int offset, int length ->
+            written << new String(bytes, offset, length, StandardCharsets.UTF_8)
+        }
+        1 * copyIn.endCopy()
+        copyIn.isActive() >> false
+        0 * copyIn.cancelCopy()
+        1 * connection.prepareStatement(AccountBulkRepository.MOVE_SQL) >> move
+        1 * move.setTimestamp(1, Timestamp.valueOf(CREATED_AT))
+        1 * move.setFetchSize(10)
+        1 * move.executeQuery() >> notInserted
+        notInserted.next() >>> [true, false]
+        notInserted.getLong(1) >> 4
+        notInserted.getString(2) >> "first"
+        written == ['2,"first",1250,EUR\n3,"a ""quoted"", id",300,JPY\n', '4,"first",1,EUR\n']
+        duplicates == [[4L, "first"]]
+        imported == 2
+    }
+
+    /**
+     * Verifies that a copy is cancelled when reading the accounts fails, so the connection can be used again.
+     */
+    def "test import with copy cancelled"() {
+        given:
+        def copyManager = Mock(CopyManager)
+        def connection = postgresConnection(copyManager)
+        def copyIn = Mock(CopyIn)
+        connection.createStatement() >> Mock(Statement)
+        copyManager.copyIn(_) >> copyIn
+        def repository = postgresRepository(connection)
+        def accounts = Stub(Iterator) {
+            hasNext() >> { throw new UncheckedIOException(new IOException("Connection reset")) }
+        }
+
+        when:
+        repository.importAccounts(accounts, CREATED_AT, { line, id -> })
+
+        then:
+        thrown(UncheckedIOException)
+        copyIn.isActive() >> true
+        1 * copyIn.cancelCopy()
+        0 * connection.prepareStatement(_)
+    }
+
+    def "test copy csv"() {
+        given:
+        def copyManager = Mock(CopyManager)
+        def output = new ByteArrayOutputStream()
+
+        when:
+        def copied = postgresRepository(postgresConnection(copyManager)).copyCsv(output)
+
+        then:
+        1 * copyManager.copyOut(AccountBulkRepository.COPY_OUT_SQL, output) >> 2L
+        copied
+    }
+
+    def "test copy csv fails when the output cannot be written"() {
+        given:
+        def copyManager = Mock(CopyManager)
+        copyManager.copyOut(_, _) >> { throw new IOException("Broken pipe") }
+
+        when:
+        postgresRepository(postgresConnection(copyManager)).copyCsv(new ByteArrayOutputStream())
+
+        then:
+        def e = thrown(UncheckedIOException)
+        e.cause.message == "Broken pipe"
+    }
+}
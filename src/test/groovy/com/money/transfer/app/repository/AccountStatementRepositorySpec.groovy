@@ -0,0 +1,56 @@
+package com.money.transfer.app.repository
+
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.datasource.DriverManagerDataSource
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+
+/**
+ * Unit test for the AccountStatementRepository, against an in-memory H2 database.
+ */
+class AccountStatementRepositorySpec extends Specification {
+
+    private static final LocalDateTime ORDERED_AT = LocalDateTime.of(2024, 5, 1, 12, 0)
+
+    private AccountStatementRepository accountStatementRepository
+
+    def setup() {
+        def jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", ""))
+        jdbcTemplate.execute("CREATE TABLE public.transaction (id VARCHAR(255) PRIMARY KEY, " +
+                "source_account_id VARCHAR(255), target_account_id VARCHAR(255), amount BIGINT, currency VARCHAR(3), " +
+                "source_amount BIGINT, target_amount BIGINT, ordered_at TIMESTAMP)")
+        jdbcTemplate.update("INSERT INTO public.transaction VALUES " +
+                "('b', 'account', 'other', 100, 'EUR', 100, 110, ?), " +
+                "('a', 'other', 'account', 5000, 'JPY', 5000, NULL, ?), " +
+                "('c', 'other', 'account', 20, 'EUR', 22, 20, ?), " +
+                "('d', 'other', 'third', 1, 'EUR', 1, 1, ?)",
+                ORDERED_AT, ORDERED_AT, ORDERED_AT.minusDays(1), ORDERED_AT.minusDays(2))
+        accountStatementRepository = new AccountStatementRepository(jdbcTemplate, 1)
+    }
+
+    def "test for each"() {
+        given:
+        def entries = []
+
+        when:
+        accountStatementRepository.forEach("account", entries.&add)
+
+        then:
+        entries == [new StatementEntry("c", ORDERED_AT.minusDays(1), "other", 20, 20, "EUR"),
+                    new StatementEntry("a", ORDERED_AT, "other", null, 5000, "JPY"),
+                    new StatementEntry("b", ORDERED_AT, "other", -100, 100, "EUR")]
+    }
+
+    def "test for each without transactions"() {
+        given:
+        def entries = []
+
+        when:
+        accountStatementRepository.forEach("missing", entries.&add)
+
+        then:
+        entries.isEmpty()
+    }
+}
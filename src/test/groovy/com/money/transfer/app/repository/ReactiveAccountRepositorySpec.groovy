@@ -0,0 +1,79 @@
+package com.money.transfer.app.repository
+
+import io.r2dbc.spi.ConnectionFactories
+import org.springframework.r2dbc.core.DatabaseClient
+import spock.lang.Specification
+
+/**
+ * Unit test for the ReactiveAccountRepository against an in-memory H2 database.
+ */
+class ReactiveAccountRepositorySpec extends Specification {
+
+    private DatabaseClient databaseClient
+
+    private ReactiveAccountRepository accountRepository
+
+    def setup() {
+        databaseClient = DatabaseClient.create(ConnectionFactories.get(
+                "r2dbc:h2:mem:///" + UUID.randomUUID() + "?options=DB_CLOSE_DELAY=-1;MODE=PostgreSQL"))
+        databaseClient.sql("CREATE TABLE public.account (id VARCHAR(255) PRIMARY KEY, balance BIGINT NOT NULL, " +
+                "currency VARCHAR(3), created_at TIMESTAMP, version BIGINT DEFAULT 0 NOT NULL, " +
+                "balance_slots INT DEFAULT 0 NOT NULL)").then().block()
+        databaseClient.sql("INSERT INTO public.account (id, balance, currency, created_at, balance_slots) " +
+                "VALUES ('sourceAccountId', 500, 'EUR', CURRENT_TIMESTAMP, 2)").then().block()
+        accountRepository = new ReactiveAccountRepository(databaseClient)
+    }
+
+    private long balance(String id) {
+        return accountRepository.findById(id).block().getBalance()
+    }
+
+    def "test findById"() {
+        when:
+        def account = accountRepository.findById("sourceAccountId").block()
+
+        then:
+        account.getId() == "sourceAccountId"
+        account.getBalance() == 500
+        account.getCurrency() == "EUR"
+        account.getCreatedAt() != null
+        account.getVersion() == 0
+        account.getBalanceSlots() == 2
+        accountRepository.findById("missingAccountId").block() == null
+    }
+
+    def "test findByIdForUpdate"() {
+        expect:
+        accountRepository.findByIdForUpdate("sourceAccountId").block().getId() == "sourceAccountId"
+        accountRepository.findByIdForUpdate("missingAccountId").block() == null
+    }
+
+    def "test debit"() {
+        when:
+        def updated = accountRepository.debit("sourceAccountId", 100, 0).block()
+
+        then:
+        updated == 1
+        balance("sourceAccountId") == 400
+        accountRepository.findById("sourceAccountId").block().getVersion() == 1
+    }
+
+    /**
+     * Verifies that a debit only succeeds if the balance, including the given slot balance, covers it.
+     */
+    def "test debit beyond the balance"() {
+        expect:
+        accountRepository.debit("sourceAccountId", 600, 0).block() == 0
+        balance("sourceAccountId") == 500
+        accountRepository.debit("sourceAccountId", 600, 100).block() == 1
+        balance("sourceAccountId") == -100
+        accountRepository.debit("missingAccountId", 1, 0).block() == 0
+    }
+
+    def "test credit"() {
+        expect:
+        accountRepository.credit("sourceAccountId", 100).block() == 1
+        balance("sourceAccountId") == 600
+        accountRepository.credit("missingAccountId", 100).block() == 0
+    }
+}
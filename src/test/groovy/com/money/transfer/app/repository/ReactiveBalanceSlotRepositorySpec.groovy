@@ -0,0 +1,36 @@
+package com.money.transfer.app.repository
+
+import io.r2dbc.spi.ConnectionFactories
+import org.springframework.r2dbc.core.DatabaseClient
+import spock.lang.Specification
+
+/**
+ * Unit test for the ReactiveBalanceSlotRepository against an in-memory H2 database.
+ */
+class ReactiveBalanceSlotRepositorySpec extends Specification {
+
+    private ReactiveBalanceSlotRepository balanceSlotRepository
+
+    def setup() {
+        def databaseClient = DatabaseClient.create(ConnectionFactories.get(
+                "r2dbc:h2:mem:///" + UUID.randomUUID() + "?options=DB_CLOSE_DELAY=-1;MODE=PostgreSQL"))
+        databaseClient.sql("CREATE TABLE public.account_balance_slot (account_id VARCHAR(255) NOT NULL, slot INT NOT NULL, " +
+                "balance BIGINT DEFAULT 0 NOT NULL, PRIMARY KEY (account_id, slot))").then().block()
+        databaseClient.sql("INSERT INTO public.account_balance_slot (account_id, slot, balance) " +
+                "VALUES ('hotAccountId', 0, 10), ('hotAccountId', 1, 20)").then().block()
+        balanceSlotRepository = new ReactiveBalanceSlotRepository(databaseClient)
+    }
+
+    def "test credit"() {
+        expect:
+        balanceSlotRepository.credit("hotAccountId", 1, 5).block() == 1
+        balanceSlotRepository.sumBalance("hotAccountId").block() == 35
+        balanceSlotRepository.credit("hotAccountId", 2, 5).block() == 0
+    }
+
+    def "test sumBalance"() {
+        expect:
+        balanceSlotRepository.sumBalance("hotAccountId").block() == 30
+        balanceSlotRepository.sumBalance("plainAccountId").block() == 0
+    }
+}
@@ -0,0 +1,60 @@
+package com.money.transfer.app.repository
+
+import com.money.transfer.app.entity.Account
+import com.money.transfer.app.entity.Transaction
+import io.r2dbc.spi.ConnectionFactories
+import org.springframework.r2dbc.core.DatabaseClient
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+
+/**
+ * Unit test for the ReactiveTransactionRepository against an in-memory H2 database.
+ */
+class ReactiveTransactionRepositorySpec extends Specification {
+
+    private DatabaseClient databaseClient
+
+    private ReactiveTransactionRepository transactionRepository
+
+    def setup() {
+        databaseClient = DatabaseClient.create(ConnectionFactories.get(
+                "r2dbc:h2:mem:///" + UUID.randomUUID() + "?options=DB_CLOSE_DELAY=-1;MODE=PostgreSQL"))
+        databaseClient.sql("CREATE TABLE public.transaction (id VARCHAR(255) DEFAULT RANDOM_UUID() PRIMARY KEY, " +
+                "source_account_id VARCHAR(255), target_account_id VARCHAR(255), amount BIGINT, currency VARCHAR(3), " +
+                "source_amount BIGINT, target_amount BIGINT, ordered_at TIMESTAMP, idempotency_key VARCHAR(255))").then().block()
+        transactionRepository = new ReactiveTransactionRepository(databaseClient)
+    }
+
+    private static Transaction transaction(String idempotencyKey) {
+        return Transaction.builder()
+                .sourceAccount(new Account("sourceAccountId", 500, "EUR", LocalDateTime.now()))
+                .targetAccount(new Account("targetAccountId", 100, "USD", LocalDateTime.now()))
+                .amount(1050)
+                .currency("EUR")
+                .sourceAmount(1050)
+                .targetAmount(1130)
+                .orderedAt(LocalDateTime.now())
+                .idempotencyKey(idempotencyKey)
+                .build()
+    }
+
+    def "test insert"() {
+        when:
+        transactionRepository.insert(transaction(null)).block()
+        transactionRepository.insert(transaction("key")).block()
+        def rows = databaseClient.sql("SELECT * FROM public.transaction ORDER BY idempotency_key NULLS FIRST").fetch().all()
+                .collectList().block()
+
+        then:
+        rows.size() == 2
+        rows*.get("SOURCE_ACCOUNT_ID") == ["sourceAccountId", "sourceAccountId"]
+        rows*.get("TARGET_ACCOUNT_ID") == ["targetAccountId", "targetAccountId"]
+        rows*.get("AMOUNT") == [1050L, 1050L]
+        rows*.get("CURRENCY") == ["EUR", "EUR"]
+        rows*.get("SOURCE_AMOUNT") == [1050L, 1050L]
+        rows*.get("TARGET_AMOUNT") == [1130L, 1130L]
+        rows*.get("IDEMPOTENCY_KEY") == [null, "key"]
+        rows.every { it.get("ID") != null && it.get("ORDERED_AT") != null }
+    }
+}
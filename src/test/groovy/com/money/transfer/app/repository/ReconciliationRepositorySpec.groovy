@@ -0,0 +1,60 @@
+package com.money.transfer.app.repository
+
+import org.springframework.jdbc.core.JdbcTemplate
+import org.springframework.jdbc.datasource.DriverManagerDataSource
+import spock.lang.Specification
+
+/**
+ * Unit test for the ReconciliationRepository, against an in-memory H2 database.
+ */
+class ReconciliationRepositorySpec extends Specification {
+
+    private ReconciliationRepository reconciliationRepository
+
+    def setup() {
+        def jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", ""))
+        jdbcTemplate.execute("CREATE TABLE public.currency (code VARCHAR(3) PRIMARY KEY, minor_units INT NOT NULL)")
+        jdbcTemplate.execute("CREATE TABLE public.account (id VARCHAR(255) PRIMARY KEY, balance BIGINT NOT NULL, " +
+                "currency VARCHAR(3), opening_balance BIGINT)")
+        jdbcTemplate.execute("CREATE TABLE public.account_balance_slot (account_id VARCHAR(255), slot INT, " +
+                "balance BIGINT NOT NULL, PRIMARY KEY (account_id, slot))")
+        jdbcTemplate.execute("CREATE TABLE public.transaction (id VARCHAR(255) PRIMARY KEY, " +
+                "source_account_id VARCHAR(255), target_account_id VARCHAR(255), source_amount BIGINT, target_amount BIGINT)")
+        jdbcTemplate.execute("INSERT INTO public.currency VALUES ('EUR', 2), ('JPY', 0)")
+        jdbcTemplate.execute("INSERT INTO public.account VALUES ('hot', 100, 'JPY', 200), ('eur', 500, 'EUR', 0), " +
+                "('legacy', 7, 'XAU', NULL)")
+        jdbcTemplate.execute("INSERT INTO public.account_balance_slot VALUES ('hot', 0, 20), ('hot', 1, 5)")
+        jdbcTemplate.execute("INSERT INTO public.transaction VALUES ('1', 'hot', 'eur', 75, 500), " +
+                "('2', 'eur', 'legacy', 0, NULL)")
+        reconciliationRepository = new ReconciliationRepository(jdbcTemplate, 1)
+    }
+
+    def "test for each account"() {
+        given:
+        def accounts = []
+
+        when:
+        reconciliationRepository.forEachAccount { id, currency, scale, balance, opened, openingBalance ->
+            accounts << [id, currency, scale, balance, opened, openingBalance]
+        }
+
+        then:
+        accounts == [["eur", "EUR", 2, 500L, true, 0L],
+                     ["hot", "JPY", 0, 125L, true, 200L],
+                     ["legacy", "XAU", 0, 7L, false, 0L]]
+    }
+
+    def "test for each transaction"() {
+        given:
+        def transactions = []
+
+        when:
+        reconciliationRepository.forEachTransaction { sourceAccountId, targetAccountId, sourceAmount, targetAmount ->
+            transactions << [sourceAccountId, targetAccountId, sourceAmount, targetAmount]
+        }
+
+        then:
+        transactions as Set == [["hot", "eur", 75L, 500L], ["eur", "legacy", 0L, 0L]] as Set
+    }
+}
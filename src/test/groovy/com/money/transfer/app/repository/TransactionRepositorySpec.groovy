@@ -0,0 +1,24 @@
+package com.money.transfer.app.repository
+
+import com.money.transfer.app.entity.Transaction
+import spock.lang.Specification
+
+/**
+ * Unit test for the default methods of the TransactionRepository.
+ */
+class TransactionRepositorySpec extends Specification {
+
+    def "test findLatestTransactionBetweenAccounts reads the newest transaction only"() {
+        given:
+        def transactionRepository = Spy(TransactionRepository)
+        def latest = Optional.of(new Transaction())
+
+        when:
+        def transaction = transactionRepository.findLatestTransactionBetweenAccounts("sourceAccountId", "targetAccountId")
+
+        then:
+        1 * transactionRepository.findFirstBySourceAccountIdAndTargetAccountIdOrderByOrderedAtDescIdDesc(
+                "sourceAccountId", "targetAccountId") >> latest
+        transaction.is(latest)
+    }
+}
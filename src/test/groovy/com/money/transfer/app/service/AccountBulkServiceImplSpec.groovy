@@ -0,0 +1,265 @@
+package com.money.transfer.app.service
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.money.transfer.app.dto.AccountImportError
+import com.money.transfer.app.entity.Currency
+import com.money.transfer.app.exception.InvalidCsvHeaderException
+import com.money.transfer.app.repository.AccountBulkRepository
+import com.money.transfer.app.repository.CurrencyRepository
+import com.money.transfer.app.repository.ExportedAccount
+import com.money.transfer.app.repository.ImportedAccount
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.*
+
+/**
+ * Unit test for the AccountBulkService, which validates imported accounts line by line
+ * and writes exported accounts in either file format.
+ */
+class AccountBulkServiceImplSpec extends Specification {
+
+    private AccountBulkRepository accountBulkRepository
+
+    private AccountBulkServiceImpl accountBulkService
+
+    /**
+     * The accounts the repository received on the last import.
+     */
+    private List<ImportedAccount> imported
+
+    /**
+     * The ids the repository reports as already existing.
+     */
+    private Set<String> existing
+
+    def setup() {
+        accountBulkRepository = Mock(AccountBulkRepository)
+        def currencyRepository = Mock(CurrencyRepository)
+        currencyRepository.findAll() >> [new Currency("EUR", "Euro", "Eurozone", 2),
+                                         new Currency("JPY", "Japanese Yen", "Japan", 0)]
+        def currencyRegistry = new CurrencyRegistry(currencyRepository)
+        currencyRegistry.refresh()
+        accountBulkService = new AccountBulkServiceImpl(accountBulkRepository, currencyRegistry, new ObjectMapper())
+        imported = []
+        existing = ["existingId"] as Set
+        accountBulkRepository.importAccounts(_, _, _) >> { Iterator<ImportedAccount> accounts, createdAt, duplicates ->
+            long inserted = 0
+            while (accounts.hasNext()) {
+                def account = accounts.next()
+                if (existing.add(account.id())) {
+                    imported << account
+                    inserted++
+                } else {
+                    duplicates.report(account.line(), account.id())
+                }
+            }
+            return inserted
+        }
+    }
+
+    private static InputStream file(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8))
+    }
+
+    def "test import csv"() {
+        given:
+        def errors = []
+        def csv = '''Balance, ID ,currency,note
+12.50,first,eur,"a, quoted ""note"""
+
+100,"second",JPY,
+0,,EUR,generated
+1,existingId,EUR,
+2,first,EUR,
+3,third,EUR,"unterminated
+4,fourth,EUR
+5,fifth,XYZ,
+-1,sixth,EUR,
+abc,seventh,EUR,
+1.5,eighth,JPY,
+'''
+
+        when:
+        def summary = accountBulkService.importAccounts(AccountFileFormat.CSV, file(csv), errors.&add)
+
+        then:
+        imported.collect { [it.line(), it.id(), it.balance(), it.currency()] }.take(2) ==
+                [[2L, "first", 1250L, "EUR"], [4L, "second", 100L, "JPY"]]
+        imported[2].line() == 5L
+        UUID.fromString(imported[2].id())
+        imported[2].balance() == 0L
+        summary.imported == 3
+        summary.rejected == 8
+        errors == [new AccountImportError(6, "existingId", String.format(DUPLICATE_ACCOUNT_MESSAGE, "existingId")),
+                   new AccountImportError(7, "first", String.format(DUPLICATE_ACCOUNT_MESSAGE, "first")),
+                   new AccountImportError(8, null, MALFORMED_ACCOUNT_RECORD_MESSAGE),
+                   new AccountImportError(9, null, MALFORMED_ACCOUNT_RECORD_MESSAGE),
+                   new AccountImportError(10, "fifth", String.format(UNSUPPORTED_CURRENCY_MESSAGE, "XYZ")),
+                   new AccountImportError(11, "sixth", String.format(INVALID_AMOUNT_EXCEPTION_MESSAGE, "-1", "EUR")),
+                   new AccountImportError(12, "seventh", String.format(INVALID_AMOUNT_EXCEPTION_MESSAGE, "abc", "EUR")),
+                   new AccountImportError(13, "eighth", String.format(INVALID_AMOUNT_EXCEPTION_MESSAGE, "1.5", "JPY"))]
+    }
+
+    def "test import csv without an id column"() {
+        when:
+        def summary = accountBulkService.importAccounts(AccountFileFormat.CSV, file("currency,balance\nEUR,1\n"), {})
+
+        then:
+        summary.imported == 1
+        UUID.fromString(imported[0].id())
+    }
+
+    def "test import an empty csv"() {
+        when:
+        def summary = accountBulkService.importAccounts(AccountFileFormat.CSV, file(""), {})
+
+        then:
+        summary.imported == 0
+        summary.rejected == 0
+    }
+
+    /**
+     * Verifies that a CSV file without a valid header is rejected before any account reaches the repository.
+     */
+    def "test import csv with an invalid header"() {
+        when:
+        accountBulkService.importAccounts(AccountFileFormat.CSV, file(header + "\nEUR,1\n"), {})
+
+        then:
+        def e = thrown(InvalidCsvHeaderException)
+        e.message == String.format(INVALID_CSV_HEADER_EXCEPTION_MESSAGE, header)
+        0 * accountBulkRepository.importAccounts(_, _, _)
+
+        where:
+        header << ["currency,amount", "id,balance", '"currency,balance']
+    }
+
+    def "test import ndjson"() {
+        given:
+        def errors = []
+        def ndjson = '''{"id":"first","currency":"EUR","balance":1.5}
+{"currency":"jpy","balance":"300","createdAt":"2024-05-01"}
+
+{"id":"second","currency":"EUR"}
+{"id":"third",
+{"id":"''' + "x" * 256 + '''","currency":"EUR","balance":1}
+'''
+
+        when:
+        def summary = accountBulkService.importAccounts(AccountFileFormat.NDJSON, file(ndjson), errors.&add)
+
+        then:
+        imported*.id().first() == "first"
+        imported*.balance() == [150L, 300L]
+        imported*.currency() == ["EUR", "JPY"]
+        summary.imported == 2
+        summary.rejected == 3
+        errors == [new AccountImportError(4, "second", String.format(INVALID_AMOUNT_EXCEPTION_MESSAGE, "", "EUR")),
+                   new AccountImportError(5, null, MALFORMED_ACCOUNT_RECORD_MESSAGE),
+                   new AccountImportError(6, null, String.format(INVALID_ACCOUNT_ID_MESSAGE, 255))]
+    }
+
+    def "test import fails when the file cannot be read"() {
+        given:
+        def failing = new InputStream() {
+            int read() throws IOException {
+                throw new IOException("Connection reset")
+            }
+        }
+
+        when:
+        accountBulkService.importAccounts(AccountFileFormat.NDJSON, failing, {})
+
+        then:
+        def e = thrown(UncheckedIOException)
+        e.cause.message == "Connection reset"
+    }
+
+    def "test reading past the last account"() {
+        given:
+        Iterator<ImportedAccount> reader = null
+        accountBulkRepository = Mock(AccountBulkRepository) {
+            importAccounts(_, _, _) >> { args -> reader = args[0]; 0L }
+        }
+        accountBulkService = new AccountBulkServiceImpl(accountBulkRepository, Mock(CurrencyRegistry), new ObjectMapper())
+        accountBulkService.importAccounts(AccountFileFormat.NDJSON, file(""), {})
+
+        when:
+        reader.next()
+
+        then:
+        thrown(NoSuchElementException)
+    }
+
+    def "test export csv with copy"() {
+        given:
+        def output = new ByteArrayOutputStream()
+
+        when:
+        accountBulkService.exportAccounts(AccountFileFormat.CSV, output)
+
+        then:
+        1 * accountBulkRepository.copyCsv(output) >> true
+        0 * accountBulkRepository.forEach(_)
+        output.size() == 0
+    }
+
+    def "test export"() {
+        given:
+        def output = new ByteArrayOutputStream()
+
+        when:
+        accountBulkService.exportAccounts(format, output)
+
+        then:
+        copyCalls * accountBulkRepository.copyCsv(output) >> false
+        1 * accountBulkRepository.forEach(_) >> { args ->
+            args[0].accept(new ExportedAccount("first", "EUR", 1250, 2))
+            args[0].accept(new ExportedAccount('a "quoted", id', "JPY", 300, 0))
+        }
+        output.toString(StandardCharsets.UTF_8) == expected
+
+        where:
+        format                   | copyCalls || expected
+        AccountFileFormat.CSV    | 1         || 'id,currency,balance\nfirst,EUR,12.50\n"a ""quoted"", id",JPY,300\n'
+        AccountFileFormat.NDJSON | 0         || '{"id":"first","currency":"EUR","balance":12.50}\n' +
+                '{"id":"a \\"quoted\\", id","currency":"JPY","balance":300}\n'
+    }
+
+    def "test export fails when the output cannot be written"() {
+        given:
+        def output = new OutputStream() {
+            void write(int b) throws IOException {
+                throw new IOException("Broken pipe")
+            }
+
+            void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe")
+            }
+        }
+        accountBulkRepository.forEach(_) >> { args -> args[0].accept(new ExportedAccount("x" * 20000, "EUR", 1, 2)) }
+
+        when:
+        accountBulkService.exportAccounts(AccountFileFormat.NDJSON, output)
+
+        then:
+        def e = thrown(IOException)
+        e.message == "Broken pipe"
+    }
+
+    def "test csv fields"() {
+        expect:
+        AccountBulkServiceImpl.csvField(value) == field
+        AccountBulkServiceImpl.csvFields(field) == [value]
+
+        where:
+        value       | field
+        "plain"     | "plain"
+        "a,b"       | '"a,b"'
+        'say "hi"'  | '"say ""hi"""'
+        "two\nrows" | '"two\nrows"'
+        "cr\r"      | '"cr\r"'
+    }
+}
@@ -0,0 +1,39 @@
+package com.money.transfer.app.service
+
+import spock.lang.Specification
+
+class AccountIndexSpec extends Specification {
+
+    def "test ids are numbered in the order they are added"() {
+        given:
+        def index = new AccountIndex()
+        def ids = (0..<1000).collect { "account-" + it }
+
+        when:
+        def ordinals = ids.collect { index.add(it) }
+
+        then:
+        ordinals == (0..<1000).toList()
+        index.size() == 1000
+        ids.every { index.get(it) == ordinals[ids.indexOf(it)] }
+        ids.every { index.id(index.get(it)) == it }
+        index.get("missing") == -1
+    }
+
+    /**
+     * Verifies that ids with the same hash are told apart and that an id added again keeps its ordinal.
+     */
+    def "test colliding and repeated ids"() {
+        given:
+        def index = new AccountIndex()
+
+        expect:
+        "Aa".hashCode() == "BB".hashCode()
+        index.add("Aa") == 0
+        index.add("BB") == 1
+        index.add("Aa") == 0
+        index.get("BB") == 1
+        index.get("AaAa") == -1
+        index.size() == 2
+    }
+}
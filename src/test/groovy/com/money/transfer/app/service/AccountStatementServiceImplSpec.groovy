@@ -0,0 +1,123 @@
+package com.money.transfer.app.service
+
+import com.fasterxml.jackson.databind.ObjectMapper
+import com.fasterxml.jackson.databind.SerializationFeature
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule
+import com.money.transfer.app.entity.Account
+import com.money.transfer.app.entity.Currency
+import com.money.transfer.app.exception.NonExistentAccountException
+import com.money.transfer.app.repository.AccountRepository
+import com.money.transfer.app.repository.AccountStatementRepository
+import com.money.transfer.app.repository.CurrencyRepository
+import com.money.transfer.app.repository.StatementEntry
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.time.LocalDateTime
+
+/**
+ * Unit test for the AccountStatementService, which writes the transactions of an account
+ * from its side in either file format.
+ */
+class AccountStatementServiceImplSpec extends Specification {
+
+    private static final LocalDateTime ORDERED_AT = LocalDateTime.of(2024, 5, 1, 12, 0)
+
+    private AccountRepository accountRepository
+
+    private AccountStatementRepository accountStatementRepository
+
+    private AccountStatementServiceImpl accountStatementService
+
+    def setup() {
+        accountRepository = Mock(AccountRepository)
+        accountStatementRepository = Mock(AccountStatementRepository)
+        def currencyRepository = Mock(CurrencyRepository)
+        currencyRepository.findAll() >> [new Currency("EUR", "Euro", "Eurozone", 2),
+                                         new Currency("JPY", "Japanese Yen", "Japan", 0)]
+        def currencyRegistry = new CurrencyRegistry(currencyRepository)
+        currencyRegistry.refresh()
+        def objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+        accountStatementService = new AccountStatementServiceImpl(accountRepository, accountStatementRepository,
+                currencyRegistry, objectMapper)
+    }
+
+    def "test require account"() {
+        when:
+        accountStatementService.requireAccount("accountId")
+
+        then:
+        1 * accountRepository.existsById("accountId") >> true
+        noExceptionThrown()
+    }
+
+    def "test require a non-existent account"() {
+        when:
+        accountStatementService.requireAccount("accountId")
+
+        then:
+        1 * accountRepository.existsById("accountId") >> false
+        thrown(NonExistentAccountException)
+    }
+
+    def "test export statement"() {
+        given:
+        def output = new ByteArrayOutputStream()
+
+        when:
+        accountStatementService.exportStatement("accountId", format, output)
+
+        then:
+        1 * accountRepository.findById("accountId") >> Optional.of(new Account("accountId", 1000, "EUR", ORDERED_AT))
+        1 * accountStatementRepository.forEach("accountId", _) >> { args ->
+            args[1].accept(new StatementEntry("1", ORDERED_AT, "other", -1250, 1250, "EUR"))
+            args[1].accept(new StatementEntry("2", ORDERED_AT, 'a "quoted", id', null, 300, "JPY"))
+        }
+        output.toString(StandardCharsets.UTF_8) == expected
+
+        where:
+        format                   || expected
+        AccountFileFormat.CSV    || AccountStatementServiceImpl.CSV_HEADER + "\n" +
+                '1,2024-05-01T12:00:00,other,-12.50,EUR,12.50,EUR\n' +
+                '2,2024-05-01T12:00:00,"a ""quoted"", id",,EUR,300,JPY\n'
+        AccountFileFormat.NDJSON || '{"id":"1","orderedAt":"2024-05-01T12:00:00","counterpartyAccountId":"other",' +
+                '"amount":-12.50,"currency":"EUR","transactionAmount":12.50,"transactionCurrency":"EUR"}\n' +
+                '{"id":"2","orderedAt":"2024-05-01T12:00:00","counterpartyAccountId":"a \\"quoted\\", id",' +
+                '"amount":null,"currency":"EUR","transactionAmount":300,"transactionCurrency":"JPY"}\n'
+    }
+
+    def "test export statement of a non-existent account"() {
+        when:
+        accountStatementService.exportStatement("accountId", AccountFileFormat.CSV, new ByteArrayOutputStream())
+
+        then:
+        1 * accountRepository.findById("accountId") >> Optional.empty()
+        thrown(NonExistentAccountException)
+        0 * accountStatementRepository._
+    }
+
+    def "test export statement fails when the output cannot be written"() {
+        given:
+        def output = new OutputStream() {
+            void write(int b) throws IOException {
+                throw new IOException("Broken pipe")
+            }
+
+            void write(byte[] b, int off, int len) throws IOException {
+                throw new IOException("Broken pipe")
+            }
+        }
+        accountRepository.findById("accountId") >> Optional.of(new Account("accountId", 1000, "EUR", ORDERED_AT))
+        accountStatementRepository.forEach(_, _) >> { args ->
+            args[1].accept(new StatementEntry("x" * 20000, ORDERED_AT, "other", 1, 1, "EUR"))
+        }
+
+        when:
+        accountStatementService.exportStatement("accountId", AccountFileFormat.NDJSON, output)
+
+        then:
+        def e = thrown(IOException)
+        e.message == "Broken pipe"
+    }
+}
@@ -0,0 +1,41 @@
+package com.money.transfer.app.service
+
+import com.money.transfer.app.exception.NonExistentAccountException
+import spock.lang.Specification
+
+class BalanceSlotMaintenanceSpec extends Specification {
+
+    private BalanceSlotService balanceSlotService
+
+    def setup() {
+        balanceSlotService = Mock(BalanceSlotService)
+    }
+
+    def "test configure the listed accounts"() {
+        given:
+        def maintenance = new BalanceSlotMaintenance(balanceSlotService,
+                ["merchant:16", " ", "fees : 4", "missing:2", "malformed", "nan:x"])
+
+        when:
+        maintenance.configure()
+
+        then:
+        1 * balanceSlotService.configure("merchant", 16)
+        1 * balanceSlotService.configure("fees", 4)
+        1 * balanceSlotService.configure("missing", 2) >> { throw new NonExistentAccountException("missing") }
+        0 * balanceSlotService._
+    }
+
+    def "test consolidate every account with slot balances"() {
+        given:
+        def maintenance = new BalanceSlotMaintenance(balanceSlotService, [])
+
+        when:
+        maintenance.consolidate()
+
+        then:
+        1 * balanceSlotService.accountsToConsolidate() >> ["merchant", "fees"]
+        1 * balanceSlotService.consolidate("merchant") >> { throw new IllegalStateException("lock timeout") }
+        1 * balanceSlotService.consolidate("fees")
+    }
+}
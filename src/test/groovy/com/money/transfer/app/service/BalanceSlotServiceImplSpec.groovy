@@ -0,0 +1,139 @@
+package com.money.transfer.app.service
+
+import com.money.transfer.app.entity.Account
+import com.money.transfer.app.entity.BalanceSlot
+import com.money.transfer.app.exception.NonExistentAccountException
+import com.money.transfer.app.repository.AccountRepository
+import com.money.transfer.app.repository.BalanceSlotRepository
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+
+/**
+ * Unit test for the BalanceSlotService, which spreads the balance of hot accounts over several rows.
+ */
+class BalanceSlotServiceImplSpec extends Specification {
+
+    private AccountRepository accountRepository
+
+    private BalanceSlotRepository balanceSlotRepository
+
+    private BalanceSlotServiceImpl balanceSlotService
+
+    def setup() {
+        accountRepository = Mock(AccountRepository)
+        balanceSlotRepository = Mock(BalanceSlotRepository)
+        balanceSlotService = new BalanceSlotServiceImpl(accountRepository, balanceSlotRepository)
+    }
+
+    def "test configure creates the missing slots"() {
+        given:
+        def account = new Account("hotAccountId", 100, "EUR", LocalDateTime.now(), 0, 2)
+
+        when:
+        balanceSlotService.configure("hotAccountId", 4)
+
+        then:
+        1 * accountRepository.findAllByIdForUpdate(["hotAccountId"]) >> [account]
+        1 * balanceSlotRepository.findAllByAccountIdForUpdate("hotAccountId") >>
+                [new BalanceSlot("hotAccountId", 0, 5), new BalanceSlot("hotAccountId", 1, 0), new BalanceSlot("hotAccountId", 7, 3)]
+        1 * balanceSlotRepository.saveAll({ List<BalanceSlot> slots -> slots*.slot == [2, 3] && slots.every { it.balance == 0 } })
+        account.balanceSlots == 4
+    }
+
+    def "test configure invalid"() {
+        given:
+        accountRepository.findAllByIdForUpdate(["missingAccountId"]) >> []
+
+        when:
+        balanceSlotService.configure(accountId, slots)
+
+        then:
+        thrown(exception)
+
+        where:
+        accountId          | slots | exception
+        "hotAccountId"     | -1    | IllegalArgumentException
+        "missingAccountId" | 4     | NonExistentAccountException
+    }
+
+    def "test available balance"() {
+        given:
+        balanceSlotRepository.sumBalance("hotAccountId") >> 250
+
+        expect:
+        balanceSlotService.availableBalance(new Account("plainAccountId", 100, "EUR", LocalDateTime.now())) == 100
+        balanceSlotService.availableBalance(new Account("hotAccountId", -100, "EUR", LocalDateTime.now(), 0, 4)) == 150
+    }
+
+    def "test slot balances"() {
+        given:
+        def plainAccount = new Account("plainAccountId", 100, "EUR", LocalDateTime.now())
+        def hotAccount = new Account("hotAccountId", 100, "EUR", LocalDateTime.now(), 0, 4)
+
+        when:
+        def none = balanceSlotService.slotBalances([plainAccount])
+        def some = balanceSlotService.slotBalances([plainAccount, hotAccount])
+
+        then:
+        1 * balanceSlotRepository.sumBalances(["hotAccountId"]) >> [["hotAccountId", 250L] as Object[]]
+        none == [:]
+        some == ["hotAccountId": 250L]
+    }
+
+    def "test credit a random slot"() {
+        given:
+        def hotAccount = new Account("hotAccountId", 100, "EUR", LocalDateTime.now(), 0, 4)
+        def credited = [] as Set
+
+        when:
+        100.times { balanceSlotService.credit(hotAccount, 10) }
+
+        then:
+        100 * balanceSlotRepository.credit("hotAccountId", _, 10) >> { args -> credited << args[1]; 1 }
+        credited == [0, 1, 2, 3] as Set
+    }
+
+    def "test credit a removed account"() {
+        given:
+        balanceSlotRepository.credit(_, _, _) >> 0
+
+        when:
+        balanceSlotService.credit(new Account("hotAccountId", 100, "EUR", LocalDateTime.now(), 0, 4), 10)
+
+        then:
+        thrown(NonExistentAccountException)
+    }
+
+    def "test consolidate"() {
+        given:
+        def account = new Account("hotAccountId", -100, "EUR", LocalDateTime.now(), 0, 2)
+        def slots = [new BalanceSlot("hotAccountId", 0, 70), new BalanceSlot("hotAccountId", 1, 50)]
+
+        when:
+        balanceSlotService.consolidate("hotAccountId")
+
+        then:
+        1 * accountRepository.findAllByIdForUpdate(["hotAccountId"]) >> [account]
+        1 * balanceSlotRepository.findAllByAccountIdForUpdate("hotAccountId") >> slots
+        account.balance == 20
+        slots*.balance == [0, 0]
+    }
+
+    def "test consolidate a removed account"() {
+        when:
+        balanceSlotService.consolidate("hotAccountId")
+
+        then:
+        1 * accountRepository.findAllByIdForUpdate(["hotAccountId"]) >> []
+        0 * balanceSlotRepository._
+    }
+
+    def "test accounts to consolidate"() {
+        given:
+        balanceSlotRepository.findAccountIdsWithBalance() >> ["hotAccountId"]
+
+        expect:
+        balanceSlotService.accountsToConsolidate() == ["hotAccountId"]
+    }
+}
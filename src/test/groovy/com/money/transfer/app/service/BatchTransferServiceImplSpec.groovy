@@ -0,0 +1,239 @@
+package com.money.transfer.app.service
+
+import com.money.transfer.app.dto.ExchangeRateResponse
+import com.money.transfer.app.dto.TransferRequestBody
+import com.money.transfer.app.entity.Account
+import com.money.transfer.app.entity.Currency
+import com.money.transfer.app.exception.WebClientException
+import com.money.transfer.app.integration.ExchangeRateRestClient
+import com.money.transfer.app.repository.AccountRepository
+import com.money.transfer.app.repository.BalanceSlotRepository
+import com.money.transfer.app.repository.CurrencyRepository
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+
+import static com.money.transfer.app.dto.BatchTransferItemResponse.Status.COMPLETED
+import static com.money.transfer.app.dto.BatchTransferItemResponse.Status.REJECTED
+import static com.money.transfer.app.util.constants.ExceptionConstants.*
+
+/**
+ * Unit test for the BatchTransferService, which applies many transfers in chunks.
+ */
+class BatchTransferServiceImplSpec extends Specification {
+
+    private AccountRepository accountRepository
+
+    private CurrencyRepository currencyRepository
+
+    private CurrencyRegistry currencyRegistry
+
+    private TransactionalServiceImpl transactionService
+
+    private ExchangeRateRestClient exchangeRateRestClient
+
+    private BalanceSlotRepository balanceSlotRepository
+
+    private BatchTransferServiceImpl batchTransferService
+
+    private Account eurAccount = new Account("eurAccountId", 10000, "EUR", LocalDateTime.now().minusYears(1))
+
+    private Account usdAccount = new Account("usdAccountId", 5000, "USD", LocalDateTime.now().minusYears(1))
+
+    private Account gbpAccount = new Account("gbpAccountId", 1000, "GBP", LocalDateTime.now().minusYears(1))
+
+    def setup() {
+        accountRepository = Mock(AccountRepository)
+        currencyRepository = Mock(CurrencyRepository)
+        transactionService = Mock(TransactionalServiceImpl)
+        exchangeRateRestClient = Mock(ExchangeRateRestClient)
+        balanceSlotRepository = Mock(BalanceSlotRepository)
+        currencyRepository.findAll() >> [new Currency("EUR", "Euro", "Eurozone", 2),
+                                         new Currency("USD", "United States Dollar", "United States", 2),
+                                         new Currency("GBP", "British Pound Sterling", "United Kingdom", 2)]
+        currencyRegistry = new CurrencyRegistry(currencyRepository)
+        currencyRegistry.refresh()
+        batchTransferService = new BatchTransferServiceImpl(accountRepository, currencyRegistry,
+                transactionService, new ExchangeRateEngine(exchangeRateRestClient, currencyRegistry, "USD"),
+                new BalanceSlotServiceImpl(accountRepository, balanceSlotRepository), 2)
+        accountRepository.findAllById(_) >> { args -> [eurAccount, usdAccount, gbpAccount].findAll { it.id in args[0] } }
+    }
+
+    private static TransferRequestBody request(String source, String target, Number amount, String currency) {
+        TransferRequestBody.builder()
+                .sourceAccountId(source)
+                .targetAccountId(target)
+                .amount(amount as BigDecimal)
+                .currency(currency)
+                .build()
+    }
+
+    /**
+     * Verifies that every chunk is persisted in its own call with the net balance change of each account.
+     */
+    def "test happy path in chunks"() {
+        given:
+        def requests = [request("eurAccountId", "gbpAccountId", 10, "EUR"),
+                        request("gbpAccountId", "eurAccountId", 5, "eur"),
+                        request("eurAccountId", "usdAccountId", 20, "EUR")]
+
+        when:
+        def response = batchTransferService.transfer(requests)
+
+        then:
+        2 * exchangeRateRestClient.fetchExchangeRates("USD") >>
+                snapshot(Map.of("EUR", 0.5d, "GBP", 0.25d, "USD", 1d))
+        1 * transactionService.processTransactions({ it.size() == 2 },
+                ["eurAccountId": -500L, "gbpAccountId": 250L])
+        1 * transactionService.processTransactions({ it.size() == 1 },
+                ["eurAccountId": -2000L, "usdAccountId": 4000L])
+        response.total == 3
+        response.completed == 3
+        response.rejected == 0
+        response.results*.index == [0, 1, 2]
+        response.results.every { it.status == COMPLETED }
+    }
+
+    /**
+     * Verifies that invalid transfers are rejected individually while the rest of the batch goes through.
+     */
+    def "test invalid transfers are rejected individually"() {
+        given:
+        batchTransferService = new BatchTransferServiceImpl(accountRepository, currencyRegistry,
+                transactionService, new ExchangeRateEngine(exchangeRateRestClient, currencyRegistry, "USD"),
+                new BalanceSlotServiceImpl(accountRepository, balanceSlotRepository), 10)
+        def requests = [request("eurAccountId", "usdAccountId", -1, "EUR"),
+                        request("eurAccountId", "eurAccountId", 1, "EUR"),
+                        request("eurAccountId", "usdAccountId", 1, "XYZ"),
+                        request("missingAccountId", "usdAccountId", 1, "USD")]
+
+        when:
+        def response = batchTransferService.transfer(requests)
+
+        then:
+        0 * exchangeRateRestClient._
+        0 * transactionService.processTransactions(_, _)
+        response.completed == 0
+        response.rejected == 4
+        response.results[0].response == String.format(NEGATIVE_AMOUNT_EXCEPTION_MESSAGE, "EUR")
+        response.results[1].response == SAME_ACCOUNT_EXCEPTION_MESSAGE
+        response.results[2].response.startsWith(String.format(CURRENCY_EXCEPTION_MESSAGE, "XYZ"))
+        response.results[3].response == String.format(NON_EXISTENT_ACCOUNT_EXCEPTION_MESSAGE, "missingAccountId")
+        response.results.every { it.status == REJECTED }
+    }
+
+    /**
+     * Verifies that a batch in which no transfer is valid never reaches the database.
+     */
+    def "test batch without valid transfers"() {
+        when:
+        def response = batchTransferService.transfer([request("eurAccountId", "eurAccountId", 1, "EUR")])
+
+        then:
+        0 * accountRepository.findAllById(_)
+        0 * transactionService.processTransactions(_, _)
+        response.completed == 0
+        response.results[0].response == SAME_ACCOUNT_EXCEPTION_MESSAGE
+    }
+
+    /**
+     * Verifies that the balance check accounts for the earlier transfers of the same chunk.
+     */
+    def "test low balance against running balance"() {
+        given:
+        def requests = [request("usdAccountId", "eurAccountId", 30, "USD"),
+                        request("usdAccountId", "eurAccountId", 30, "USD")]
+
+        when:
+        def response = batchTransferService.transfer(requests)
+
+        then:
+        1 * exchangeRateRestClient.fetchExchangeRates("USD") >>
+                snapshot(Map.of("EUR", 0.5d))
+        1 * transactionService.processTransactions({ it.size() == 1 && it[0].sourceAmount == 3000 && it[0].targetAmount == 1500 },
+                ["usdAccountId": -3000L, "eurAccountId": 1500L])
+        response.results*.status == [COMPLETED, REJECTED]
+        response.results[1].response == String.format(LOW_BALANCE_EXCEPTION_MESSAGE, "30.00", "USD", "20.00", "USD")
+    }
+
+    /**
+     * Verifies that the running balance of an account with balance slots includes its slots.
+     */
+    def "test running balance includes balance slots"() {
+        given:
+        gbpAccount = new Account("gbpAccountId", 1000, "GBP", LocalDateTime.now().minusYears(1), 0, 4)
+        def requests = [request("gbpAccountId", "gbpAccountId2", 15, "GBP"),
+                        request("gbpAccountId", "gbpAccountId2", 15, "GBP")]
+        def otherGbpAccount = new Account("gbpAccountId2", 0, "GBP", LocalDateTime.now())
+
+        when:
+        def response = batchTransferService.transfer(requests)
+
+        then:
+        1 * accountRepository.findAllById(_) >> [gbpAccount, otherGbpAccount]
+        1 * balanceSlotRepository.sumBalances(["gbpAccountId"]) >> [["gbpAccountId", 2000L] as Object[]]
+        1 * transactionService.processTransactions({ it.size() == 2 }, ["gbpAccountId": -3000L, "gbpAccountId2": 3000L])
+        response.results*.status == [COMPLETED, COMPLETED]
+    }
+
+    /**
+     * Verifies that a failure to fetch exchange rates only rejects the transfers that need a conversion.
+     */
+    def "test exchange rate failure rejects conversions only"() {
+        given:
+        def requests = [request("usdAccountId", "eurAccountId", 1, "USD"),
+                        request("eurAccountId", "gbpAccountId", 1, "GBP")]
+        def failure = new WebClientException(REQUEST_TIME_OUT_EXCEPTION_MESSAGE)
+        accountRepository.findAllById(_) >> [eurAccount, usdAccount, gbpAccount]
+
+        when:
+        def response = batchTransferService.transfer(requests)
+
+        then:
+        1 * exchangeRateRestClient.fetchExchangeRates("USD") >> { throw failure }
+        0 * transactionService.processTransactions(_, _)
+        response.results*.status == [REJECTED, REJECTED]
+        response.results*.response == [REQUEST_TIME_OUT_EXCEPTION_MESSAGE, REQUEST_TIME_OUT_EXCEPTION_MESSAGE]
+    }
+
+    /**
+     * Verifies that the transfers of a chunk that cannot be persisted are persisted one by one,
+     * so that only the failing one is rejected, with a message that does not leak the cause.
+     */
+    def "test persistence failure falls back to persisting transfers one by one"() {
+        given:
+        batchTransferService = new BatchTransferServiceImpl(accountRepository, currencyRegistry,
+                transactionService, new ExchangeRateEngine(exchangeRateRestClient, currencyRegistry, "USD"),
+                new BalanceSlotServiceImpl(accountRepository, balanceSlotRepository), 10)
+        def requests = [request("eurAccountId", "eurAccountId", 1, "EUR"),
+                        request("usdAccountId", "eurAccountId", 1, "EUR"),
+                        request("eurAccountId", "gbpAccountId", 1, "EUR")]
+
+        when:
+        def response = batchTransferService.transfer(requests)
+
+        then:
+        1 * exchangeRateRestClient.fetchExchangeRates("USD") >>
+                snapshot(Map.of("EUR", 0.5d, "GBP", 0.25d, "USD", 1d))
+        1 * transactionService.processTransactions({ it.size() == 2 }, _) >> {
+            throw new IllegalStateException("connection lost")
+        }
+
+        then:
+        1 * transactionService.processTransactions({ it.size() == 1 }, ["usdAccountId": -200L, "eurAccountId": 100L]) >> {
+            throw new IllegalStateException("ERROR: duplicate key value violates unique constraint")
+        }
+        1 * transactionService.processTransactions({ it.size() == 1 }, ["eurAccountId": -100L, "gbpAccountId": 50L])
+        response.results*.status == [REJECTED, REJECTED, COMPLETED]
+        response.results*.response.take(2) == [SAME_ACCOUNT_EXCEPTION_MESSAGE, BATCH_PERSISTENCE_EXCEPTION_MESSAGE]
+        response.completed == 1
+    }
+
+    /**
+     * @return the response of the exchange rate API carrying the given rates, as decoded for the supported currencies.
+     */
+    private ExchangeRateResponse snapshot(Map<String, Double> rates, String result = "success") {
+        def currencies = currencyRegistry.currencies()
+        return new ExchangeRateResponse(result, currencies, currencies.collect { rates.getOrDefault(it.code, Double.NaN) } as double[])
+    }
+}
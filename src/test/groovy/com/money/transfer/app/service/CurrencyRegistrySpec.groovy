@@ -0,0 +1,143 @@
+package com.money.transfer.app.service
+
+import com.money.transfer.app.entity.Currency
+import com.money.transfer.app.exception.CurrencyException
+import com.money.transfer.app.repository.CurrencyRepository
+import spock.lang.Specification
+
+class CurrencyRegistrySpec extends Specification {
+
+    private CurrencyRepository currencyRepository
+
+    private CurrencyRegistry currencyRegistry
+
+    def setup() {
+        currencyRepository = Mock(CurrencyRepository)
+        currencyRegistry = new CurrencyRegistry(currencyRepository)
+    }
+
+    def "test lookup before loading"() {
+        expect:
+        currencyRegistry.size() == 0
+        !currencyRegistry.isSupported("EUR")
+    }
+
+    def "test case insensitive lookup"() {
+        given:
+        currencyRepository.findAll() >> [new Currency("USD", "United States Dollar", "United States", 2),
+                                         new Currency("eur", "Euro", "Eurozone", 2),
+                                         new Currency("GBP", "British Pound Sterling", "United Kingdom", 2)]
+
+        when:
+        currencyRegistry.refresh()
+
+        then:
+        currencyRegistry.size() == 3
+        currencyRegistry.currencies()*.code == ["EUR", "GBP", "USD"]
+        currencyRegistry.ordinal(code) == ordinal
+        currencyRegistry.isSupported(code) == (ordinal != CurrencyRegistry.UNSUPPORTED)
+        currencyRegistry.normalize(code) == normalized
+
+        where:
+        code   | ordinal                     | normalized
+        "EUR"  | 0                           | "EUR"
+        "eur"  | 0                           | "EUR"
+        "gBp"  | 1                           | "GBP"
+        "USD"  | 2                           | "USD"
+        "JPY"  | CurrencyRegistry.UNSUPPORTED | null
+        "EU1"  | CurrencyRegistry.UNSUPPORTED | null
+        "EURO" | CurrencyRegistry.UNSUPPORTED | null
+        ""     | CurrencyRegistry.UNSUPPORTED | null
+        null   | CurrencyRegistry.UNSUPPORTED | null
+    }
+
+    def "test codes that are not three letters"() {
+        given:
+        currencyRepository.findAll() >> [new Currency("xau1", "Gold", "-", 2), new Currency("EUR", "Euro", "Eurozone", 2)]
+
+        when:
+        currencyRegistry.refresh()
+
+        then:
+        currencyRegistry.ordinal("XAU1") == 1
+        currencyRegistry.ordinal("xau1") == 1
+        currencyRegistry.ordinal("eur") == 0
+        currencyRegistry.ordinal("XAG1") == CurrencyRegistry.UNSUPPORTED
+        currencyRegistry.ordinal("1UR") == CurrencyRegistry.UNSUPPORTED
+        currencyRegistry.ordinal("E1R") == CurrencyRegistry.UNSUPPORTED
+        currencyRegistry.ordinal("EU{") == CurrencyRegistry.UNSUPPORTED
+        currencyRegistry.code(1) == "XAU1"
+    }
+
+    def "test scale of currencies"() {
+        given:
+        currencyRepository.findAll() >> [new Currency("EUR", "Euro", "Eurozone", 2),
+                                         new Currency("jpy", "Japanese Yen", "Japan", 0),
+                                         new Currency("JOD", "Jordanian Dinar", "Jordan", 3)]
+
+        when:
+        currencyRegistry.refresh()
+
+        then:
+        currencyRegistry.scale(currencyRegistry.ordinal("EUR")) == 2
+        currencyRegistry.scale("JPY") == 0
+        currencyRegistry.scale("jod") == 3
+        currencyRegistry.currencies()*.minorUnits == [2, 3, 0]
+
+        when:
+        currencyRegistry.scale("USD")
+
+        then:
+        thrown(CurrencyException)
+    }
+
+    def "test unsupported scale"() {
+        given:
+        currencyRepository.findAll() >> [new Currency("XAU", "Gold", "-", minorUnits)]
+
+        when:
+        currencyRegistry.refresh()
+
+        then:
+        thrown(IllegalStateException)
+
+        where:
+        minorUnits << [-1, 9]
+    }
+
+    def "test refresh replaces the registry"() {
+        given:
+        currencyRepository.findAll() >>> [[new Currency("EUR", "Euro", "Eurozone", 2)],
+                                          [new Currency("USD", "United States Dollar", "United States", 2)]]
+
+        when:
+        currencyRegistry.refresh()
+        def before = currencyRegistry.isSupported("USD")
+        currencyRegistry.refresh()
+
+        then:
+        !before
+        currencyRegistry.isSupported("USD")
+        !currencyRegistry.isSupported("EUR")
+    }
+
+    /**
+     * Verifies that a view keeps resolving the currencies it was taken with after the registry is reloaded.
+     */
+    def "test view is unaffected by refresh"() {
+        given:
+        currencyRepository.findAll() >>> [[new Currency("EUR", "Euro", "Eurozone", 2)],
+                                          [new Currency("USD", "United States Dollar", "United States", 2)]]
+        currencyRegistry.refresh()
+
+        when:
+        def view = currencyRegistry.view()
+        currencyRegistry.refresh()
+
+        then:
+        view.currencies()*.code == ["EUR"]
+        view.ordinal("eur") == 0
+        view.ordinal("USD") == CurrencyRegistry.UNSUPPORTED
+        currencyRegistry.view().currencies()*.code == ["USD"]
+    }
+}
@@ -0,0 +1,189 @@
+package com.money.transfer.app.service
+
+import com.money.transfer.app.dto.ExchangeRateResponse
+import com.money.transfer.app.entity.Currency
+import com.money.transfer.app.exception.WebClientException
+import com.money.transfer.app.integration.ExchangeRateRestClient
+import com.money.transfer.app.repository.CurrencyRepository
+import reactor.core.publisher.Mono
+import spock.lang.Specification
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.MISSING_EXCHANGE_RATE_EXCEPTION_MESSAGE
+import static com.money.transfer.app.util.constants.ExceptionConstants.REQUEST_TIME_OUT_EXCEPTION_MESSAGE
+
+/**
+ * Unit test for the ExchangeRateEngine, which derives the rates of every currency pair from the pivot rates.
+ */
+class ExchangeRateEngineSpec extends Specification {
+
+    private ExchangeRateRestClient exchangeRateRestClient
+
+    private CurrencyRepository currencyRepository
+
+    private CurrencyRegistry currencyRegistry
+
+    private ExchangeRateEngine exchangeRateEngine
+
+    def setup() {
+        exchangeRateRestClient = Mock(ExchangeRateRestClient)
+        currencyRepository = Mock(CurrencyRepository)
+        currencyRepository.findAll() >> [new Currency("EUR", "Euro", "Eurozone", 2),
+                                         new Currency("USD", "United States Dollar", "United States", 2),
+                                         new Currency("GBP", "British Pound Sterling", "United Kingdom", 2),
+                                         new Currency("JPY", "Japanese Yen", "Japan", 0)]
+        currencyRegistry = new CurrencyRegistry(currencyRepository)
+        currencyRegistry.refresh()
+        exchangeRateEngine = new ExchangeRateEngine(exchangeRateRestClient, currencyRegistry, "USD")
+    }
+
+    /**
+     * Verifies that the rate of every pair is triangulated through the pivot currency.
+     */
+    def "test cross rates"() {
+        given:
+        exchangeRateRestClient.fetchExchangeRates("USD") >>
+                snapshot(Map.of("USD", 1d, "EUR", 0.5d, "GBP", 0.25d, "JPY", 150d))
+
+        when:
+        def rates = exchangeRateEngine.rates()
+
+        then:
+        rate(rates, from, to) == expected
+
+        where:
+        from  | to    | expected
+        "EUR" | "GBP" | 0.5d
+        "GBP" | "EUR" | 2d
+        "EUR" | "USD" | 2d
+        "USD" | "JPY" | 150d
+        "EUR" | "JPY" | 300d
+        "JPY" | "JPY" | 1d
+    }
+
+    /**
+     * Verifies that the matrix is reused while the cached pivot snapshot is unchanged
+     * and derived again once the cache hands out a new one. The pivot is worth one unit even if it is not listed.
+     */
+    def "test matrix is swapped on refresh"() {
+        given:
+        def first = snapshot(Map.of("EUR", 0.5d))
+        def second = snapshot(Map.of("EUR", 0.25d))
+        exchangeRateRestClient.fetchExchangeRates("USD") >>> [first, first, second]
+
+        when:
+        def before = exchangeRateEngine.rates()
+        def cached = exchangeRateEngine.rates()
+        def refreshed = exchangeRateEngine.rates()
+
+        then:
+        cached.is(before)
+        !refreshed.is(before)
+        rate(before, "USD", "EUR") == 0.5d
+        rate(refreshed, "USD", "EUR") == 0.25d
+    }
+
+    /**
+     * Verifies that a reload derives the matrix from the reloaded pivot snapshot and that transfers then use it.
+     */
+    def "test refresh"() {
+        given:
+        def reloaded = snapshot(Map.of("EUR", 0.25d))
+
+        when:
+        def refreshed = exchangeRateEngine.refresh().block()
+        def rates = exchangeRateEngine.rates()
+
+        then:
+        1 * exchangeRateRestClient.refreshExchangeRates("USD") >> Mono.just(reloaded)
+        1 * exchangeRateRestClient.fetchExchangeRates("USD") >> reloaded
+        rates.is(refreshed)
+        rate(refreshed, "EUR", "USD") == 4d
+    }
+
+    def "test rates async"() {
+        given:
+        def pivotRates = snapshot(Map.of("EUR", 0.5d))
+
+        when:
+        def rates = exchangeRateEngine.ratesAsync().block()
+
+        then:
+        1 * exchangeRateRestClient.fetchExchangeRatesAsync("USD") >> Mono.just(pivotRates)
+        rate(rates, "EUR", "USD") == 2d
+    }
+
+    /**
+     * Verifies that the matrix is derived again when the currency registry is reloaded,
+     * matching the rates of a snapshot decoded before the reload by currency code.
+     */
+    def "test matrix follows the currency registry"() {
+        given:
+        exchangeRateRestClient.fetchExchangeRates("USD") >> snapshot(Map.of("EUR", 0.5d))
+
+        when:
+        def before = exchangeRateEngine.rates()
+        currencyRegistry.refresh()
+        def after = exchangeRateEngine.rates()
+
+        then:
+        !after.is(before)
+        rate(after, "EUR", "USD") == 2d
+    }
+
+    /**
+     * Verifies that a pair whose currency is missing from the pivot snapshot cannot be converted.
+     */
+    def "test missing rate"() {
+        given:
+        exchangeRateRestClient.fetchExchangeRates("USD") >>
+                snapshot(Map.of("EUR", 0.5d, "GBP", 0d, "JPY", Double.POSITIVE_INFINITY))
+
+        when:
+        rate(exchangeRateEngine.rates(), from, to)
+
+        then:
+        def e = thrown(WebClientException)
+        e.message == String.format(MISSING_EXCHANGE_RATE_EXCEPTION_MESSAGE, from, to)
+
+        where:
+        from  | to
+        "EUR" | "JPY"
+        "JPY" | "USD"
+        "GBP" | "EUR"
+    }
+
+    def "test rate failure"() {
+        given:
+        exchangeRateRestClient.fetchExchangeRates("USD") >> { throw new WebClientException(REQUEST_TIME_OUT_EXCEPTION_MESSAGE) }
+
+        when:
+        exchangeRateEngine.rates()
+
+        then:
+        def e = thrown(WebClientException)
+        e.message == REQUEST_TIME_OUT_EXCEPTION_MESSAGE
+    }
+
+    def "test empty response"() {
+        given:
+        exchangeRateRestClient.fetchExchangeRates("USD") >> snapshot([:], "error")
+
+        when:
+        rate(exchangeRateEngine.rates(), "EUR", "USD")
+
+        then:
+        thrown(WebClientException)
+    }
+
+    private double rate(ExchangeRateEngine.Matrix rates, String from, String to) {
+        return rates.rate(currencyRegistry.ordinal(from), currencyRegistry.ordinal(to))
+    }
+
+    /**
+     * @return the response of the exchange rate API carrying the given rates, as decoded for the supported currencies.
+     */
+    private ExchangeRateResponse snapshot(Map<String, Double> rates, String result = "success") {
+        def currencies = currencyRegistry.currencies()
+        return new ExchangeRateResponse(result, currencies, currencies.collect { rates.getOrDefault(it.code, Double.NaN) } as double[])
+    }
+}
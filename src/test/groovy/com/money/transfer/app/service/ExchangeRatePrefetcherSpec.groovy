@@ -0,0 +1,119 @@
+package com.money.transfer.app.service
+
+import com.money.transfer.app.dto.ExchangeRateResponse
+import com.money.transfer.app.exception.WebClientException
+import org.springframework.boot.actuate.health.Status
+import reactor.core.publisher.Mono
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+import java.time.Duration
+import java.util.concurrent.atomic.AtomicInteger
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.REQUEST_TIME_OUT_EXCEPTION_MESSAGE
+
+/**
+ * Unit test for the ExchangeRatePrefetcher, which keeps the exchange rates loaded in the background.
+ */
+class ExchangeRatePrefetcherSpec extends Specification {
+
+    private ExchangeRateEngine exchangeRateEngine
+
+    private ExchangeRateEngine.Matrix matrix
+
+    private ExchangeRatePrefetcher exchangeRatePrefetcher
+
+    def setup() {
+        exchangeRateEngine = Mock(ExchangeRateEngine)
+        matrix = new ExchangeRateEngine.Matrix("USD", new ExchangeRateResponse("success", [], new double[0]), [])
+        exchangeRatePrefetcher = prefetcher(true)
+    }
+
+    private ExchangeRatePrefetcher prefetcher(boolean enabled) {
+        return new ExchangeRatePrefetcher(exchangeRateEngine, enabled, 2, Duration.ofMillis(1), Duration.ofMillis(5))
+    }
+
+    def "test not ready until the rates are loaded"() {
+        expect:
+        exchangeRatePrefetcher.health().status == Status.OUT_OF_SERVICE
+
+        when:
+        exchangeRatePrefetcher.prefetch()
+
+        then:
+        1 * exchangeRateEngine.refresh() >> Mono.just(matrix)
+        exchangeRatePrefetcher.health().status == Status.UP
+        exchangeRatePrefetcher.health().details.containsKey("loadedAt")
+    }
+
+    /**
+     * Verifies that a failed reload is retried and succeeds once the exchange rate API recovers.
+     */
+    def "test failed reload is retried"() {
+        when:
+        def refreshed = exchangeRatePrefetcher.refresh().block()
+
+        then:
+        3 * exchangeRateEngine.refresh() >>> [Mono.error(new WebClientException(REQUEST_TIME_OUT_EXCEPTION_MESSAGE)),
+                                              Mono.error(new WebClientException(REQUEST_TIME_OUT_EXCEPTION_MESSAGE)),
+                                              Mono.just(matrix)]
+        refreshed.is(matrix)
+        exchangeRatePrefetcher.health().status == Status.UP
+    }
+
+    /**
+     * Verifies that once the retries are exhausted the last failure is reported and the instance stays unready.
+     */
+    def "test retries are exhausted"() {
+        when:
+        exchangeRatePrefetcher.refresh().block()
+
+        then:
+        3 * exchangeRateEngine.refresh() >> Mono.error(new WebClientException(REQUEST_TIME_OUT_EXCEPTION_MESSAGE))
+        def e = thrown(WebClientException)
+        e.message == REQUEST_TIME_OUT_EXCEPTION_MESSAGE
+        exchangeRatePrefetcher.health().status == Status.OUT_OF_SERVICE
+    }
+
+    /**
+     * Verifies that a prefetch failing in the background is reported without blocking the next one.
+     */
+    def "test failed prefetch is followed by the next one"() {
+        given:
+        def attempts = new AtomicInteger()
+        exchangeRateEngine.refresh() >> {
+            attempts.incrementAndGet() <= 3 ? Mono.error(new WebClientException(REQUEST_TIME_OUT_EXCEPTION_MESSAGE)) : Mono.just(matrix)
+        }
+
+        when:
+        exchangeRatePrefetcher.prefetch()
+
+        then:
+        new PollingConditions(timeout: 5).eventually {
+            exchangeRatePrefetcher.prefetch()
+            assert attempts.get() == 4
+        }
+        exchangeRatePrefetcher.health().status == Status.UP
+    }
+
+    def "test prefetch is skipped while the previous one runs"() {
+        when:
+        exchangeRatePrefetcher.prefetch()
+        exchangeRatePrefetcher.prefetch()
+
+        then:
+        1 * exchangeRateEngine.refresh() >> Mono.never()
+    }
+
+    def "test disabled prefetch"() {
+        given:
+        exchangeRatePrefetcher = prefetcher(false)
+
+        when:
+        exchangeRatePrefetcher.prefetch()
+
+        then:
+        0 * exchangeRateEngine._
+        exchangeRatePrefetcher.health().status == Status.UP
+    }
+}
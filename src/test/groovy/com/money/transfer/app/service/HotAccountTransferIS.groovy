@@ -0,0 +1,104 @@
+package com.money.transfer.app.service
+
+import com.money.transfer.app.MoneyTransferApplication
+import com.money.transfer.app.dto.TransferRequestBody
+import com.money.transfer.app.entity.Account
+import com.money.transfer.app.repository.AccountRepository
+import com.money.transfer.app.repository.BalanceSlotRepository
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.TestPropertySource
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Integration test crediting and debiting an account with balance slots from many threads against an H2 database,
+ * while its slots are consolidated concurrently, verifying that its aggregate balance stays exact.
+ */
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:test.properties")
+@SpringBootTest(classes = MoneyTransferApplication)
+class HotAccountTransferIS extends Specification {
+
+    private static final int THREADS = 8
+
+    private static final int TRANSFERS_PER_THREAD = 50
+
+    @Autowired
+    private AccountRepository accountRepository
+
+    @Autowired
+    private BalanceSlotRepository balanceSlotRepository
+
+    @Autowired
+    private BalanceSlotService balanceSlotService
+
+    @Autowired
+    private MoneyTransferService moneyTransferService
+
+    def "test concurrent transfers into an account with balance slots"() {
+        given:
+        def hot = accountRepository.save(new Account(null, 0, "EUR", LocalDateTime.now()))
+        balanceSlotService.configure(hot.id, 8)
+        def sources = (1..THREADS).collect { accountRepository.save(new Account(null, 100000, "EUR", LocalDateTime.now())) }
+        def credited = new AtomicInteger()
+        def debited = new AtomicInteger()
+        def running = new AtomicBoolean(true)
+        def start = new CountDownLatch(1)
+        def executor = Executors.newFixedThreadPool(THREADS + 1)
+
+        when:
+        def futures = sources.collect { source ->
+            executor.submit({
+                start.await()
+                TRANSFERS_PER_THREAD.times { i ->
+                    def debit = i % 5 == 4
+                    def request = TransferRequestBody.builder()
+                            .amount(debit ? 3 : 1)
+                            .currency("EUR")
+                            .sourceAccountId(debit ? hot.id : source.id)
+                            .targetAccountId(debit ? source.id : hot.id)
+                            .build()
+                    try {
+                        moneyTransferService.transfer(request)
+                        (debit ? debited : credited).incrementAndGet()
+                    } catch (RuntimeException ignored) {
+                    }
+                }
+            } as Callable)
+        }
+        def consolidation = executor.submit({
+            start.await()
+            while (running.get()) {
+                balanceSlotService.consolidate(hot.id)
+            }
+        } as Callable)
+        start.countDown()
+        futures.each { it.get() }
+        running.set(false)
+        consolidation.get()
+
+        then:
+        def expected = 100 * credited.get() - 300 * debited.get()
+        accountRepository.findById(hot.id).get().balance + balanceSlotRepository.sumBalance(hot.id) == expected
+        credited.get() == THREADS * TRANSFERS_PER_THREAD * 4 / 5
+
+        when:
+        balanceSlotService.consolidate(hot.id)
+
+        then:
+        accountRepository.findById(hot.id).get().balance == expected
+        balanceSlotRepository.sumBalance(hot.id) == 0
+        println "${credited.get()} credits and ${debited.get()} debits of the hot account completed"
+
+        cleanup:
+        executor.shutdownNow()
+    }
+}
@@ -0,0 +1,255 @@
+package com.money.transfer.app.service
+
+import com.money.transfer.app.dto.TransferRequestBody
+import com.money.transfer.app.dto.TransferResponseBody
+import com.money.transfer.app.entity.Account
+import com.money.transfer.app.entity.Currency
+import com.money.transfer.app.entity.Transaction
+import com.money.transfer.app.exception.IdempotencyKeyReuseException
+import com.money.transfer.app.exception.InvalidIdempotencyKeyException
+import com.money.transfer.app.exception.LowBalanceException
+import com.money.transfer.app.repository.CurrencyRepository
+import com.money.transfer.app.repository.TransactionRepository
+import org.springframework.dao.DataIntegrityViolationException
+import spock.lang.Specification
+
+import java.time.Duration
+import java.time.LocalDateTime
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.TimeUnit
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.IDEMPOTENCY_KEY_REUSE_EXCEPTION_MESSAGE
+import static com.money.transfer.app.util.constants.ExceptionConstants.INVALID_IDEMPOTENCY_KEY_EXCEPTION_MESSAGE
+
+/**
+ * Unit test for the IdempotentTransferService, which guarantees that a transfer is executed once per idempotency key.
+ */
+class IdempotentTransferServiceImplSpec extends Specification {
+
+    private MoneyTransferService moneyTransferService
+
+    private TransactionRepository transactionRepository
+
+    private CurrencyRegistry currencyRegistry
+
+    private IdempotentTransferServiceImpl idempotentTransferService
+
+    def setup() {
+        moneyTransferService = Mock(MoneyTransferService)
+        transactionRepository = Mock(TransactionRepository)
+        def currencyRepository = Mock(CurrencyRepository)
+        currencyRepository.findAll() >> [new Currency("EUR", "Euro", "Eurozone", 2)]
+        currencyRegistry = new CurrencyRegistry(currencyRepository)
+        currencyRegistry.refresh()
+        idempotentTransferService = new IdempotentTransferServiceImpl(moneyTransferService, transactionRepository,
+                currencyRegistry, Duration.ofHours(1), 100)
+    }
+
+    /**
+     * Verifies that a retry is answered from memory with the response of the first transfer.
+     */
+    def "test retry returns the first response"() {
+        given:
+        def response = new TransferResponseBody("done")
+
+        when:
+        def first = idempotentTransferService.transfer("key", request("10.5", "EUR"))
+        def retry = idempotentTransferService.transfer("key", request("10.50", "eur"))
+
+        then:
+        1 * transactionRepository.findByIdempotencyKey("key") >> Optional.empty()
+        1 * moneyTransferService.transfer(_, "key") >> response
+        first.is(response)
+        retry.is(response)
+    }
+
+    /**
+     * Verifies that a key recorded in the database, but no longer in memory, is not executed again.
+     */
+    def "test recorded key returns the recorded transfer"() {
+        given:
+        def transaction = Transaction.builder()
+                .sourceAccount(new Account("sourceAccountId", 0, "EUR", LocalDateTime.now()))
+                .targetAccount(new Account("targetAccountId", 0, "EUR", LocalDateTime.now()))
+                .amount(1050)
+                .currency("EUR")
+                .idempotencyKey("key")
+                .build()
+
+        when:
+        def response = idempotentTransferService.transfer("key", request("10.5", "EUR"))
+
+        then:
+        1 * transactionRepository.findByIdempotencyKey("key") >> Optional.of(transaction)
+        0 * moneyTransferService._
+        response.response == "Transfer of 10.50 EUR from account sourceAccountId to account targetAccountId completed successfully."
+    }
+
+    /**
+     * Verifies that a key cannot be reused for a different transfer, whether it is found in memory or in the database.
+     */
+    def "test key reused for a different transfer"() {
+        given:
+        def transaction = Transaction.builder()
+                .sourceAccount(new Account("sourceAccountId", 0, "EUR", LocalDateTime.now()))
+                .targetAccount(new Account("targetAccountId", 0, "EUR", LocalDateTime.now()))
+                .amount(1000)
+                .currency("EUR")
+                .build()
+        transactionRepository.findByIdempotencyKey("recorded") >> Optional.of(transaction)
+        transactionRepository.findByIdempotencyKey("recent") >> Optional.empty()
+        moneyTransferService.transfer(_, "recent") >> new TransferResponseBody("done")
+        idempotentTransferService.transfer("recent", request("10", "EUR"))
+
+        when:
+        idempotentTransferService.transfer(key, request("11", "EUR"))
+
+        then:
+        def e = thrown(IdempotencyKeyReuseException)
+        e.message == String.format(IDEMPOTENCY_KEY_REUSE_EXCEPTION_MESSAGE, key)
+
+        where:
+        key << ["recent", "recorded"]
+    }
+
+    /**
+     * Verifies that a failed transfer is forgotten, so that it can be retried with the same key.
+     */
+    def "test failed transfer can be retried"() {
+        given:
+        def requestBody = request("10", "EUR")
+        transactionRepository.findByIdempotencyKey("key") >> Optional.empty()
+        def failure = new LowBalanceException(requestBody, new Account("sourceAccountId", 0, "EUR", LocalDateTime.now()), 2)
+
+        when:
+        idempotentTransferService.transfer("key", requestBody)
+
+        then:
+        1 * moneyTransferService.transfer(requestBody, "key") >> { throw failure }
+        def e = thrown(LowBalanceException)
+        e.is(failure)
+
+        when:
+        def response = idempotentTransferService.transfer("key", requestBody)
+
+        then:
+        1 * moneyTransferService.transfer(requestBody, "key") >> new TransferResponseBody("done")
+        response.response == "done"
+    }
+
+    /**
+     * Verifies that a transfer recorded concurrently under the same key, for instance by another instance,
+     * is answered with the recorded transfer.
+     */
+    def "test key recorded concurrently"() {
+        given:
+        def transaction = Transaction.builder()
+                .sourceAccount(new Account("sourceAccountId", 0, "EUR", LocalDateTime.now()))
+                .targetAccount(new Account("targetAccountId", 0, "EUR", LocalDateTime.now()))
+                .amount(1000)
+                .currency("EUR")
+                .build()
+
+        when:
+        def response = idempotentTransferService.transfer("key", request("10", "EUR"))
+
+        then:
+        2 * transactionRepository.findByIdempotencyKey("key") >>> [Optional.empty(), Optional.of(transaction)]
+        1 * moneyTransferService.transfer(_, "key") >> { throw new DataIntegrityViolationException("duplicate key") }
+        response.response.startsWith("Transfer of 10.00 EUR")
+    }
+
+    /**
+     * Verifies that a constraint violation unrelated to the key is not hidden.
+     */
+    def "test other constraint violation"() {
+        given:
+        transactionRepository.findByIdempotencyKey("key") >> Optional.empty()
+        moneyTransferService.transfer(_, "key") >> { throw new DataIntegrityViolationException("other") }
+
+        when:
+        idempotentTransferService.transfer("key", request(null, "EUR"))
+
+        then:
+        def e = thrown(DataIntegrityViolationException)
+        e.message == "other"
+    }
+
+    /**
+     * Verifies that a duplicate arriving while the first transfer is still running waits for its outcome
+     * instead of executing again, and fails with the same failure, wrapped only if it is checked.
+     */
+    def "test concurrent duplicates wait for the first transfer"() {
+        given:
+        def started = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def executor = Executors.newFixedThreadPool(2)
+        transactionRepository.findByIdempotencyKey("key") >> Optional.empty()
+        // a class mock throws checked exceptions as they are, where an interface mock would wrap them
+        moneyTransferService = Mock(MoneyTransferServiceImpl)
+        idempotentTransferService = new IdempotentTransferServiceImpl(moneyTransferService, transactionRepository,
+                currencyRegistry, Duration.ofHours(1), 100)
+
+        when:
+        def first = executor.submit({ idempotentTransferService.transfer("key", request("10", "EUR")) } as Callable)
+        started.await(5, TimeUnit.SECONDS)
+        def duplicate = executor.submit({ idempotentTransferService.transfer("key", request("10", "EUR")) } as Callable)
+        Thread.sleep(200)
+        release.countDown()
+
+        then:
+        1 * moneyTransferService.transfer(_, "key") >> {
+            started.countDown()
+            release.await(5, TimeUnit.SECONDS)
+            throw failure
+        }
+        failureOf(first).is(failure)
+        def duplicateFailure = failureOf(duplicate)
+        duplicateFailure.class == duplicateType
+        duplicateFailure.is(failure) || duplicateFailure.cause.is(failure)
+
+        cleanup:
+        executor.shutdownNow()
+
+        where:
+        failure                          | duplicateType
+        new IllegalStateException()      | IllegalStateException
+        new AssertionError()             | AssertionError
+        new IOException()                | IllegalStateException
+    }
+
+    private static Throwable failureOf(Future<?> transfer) {
+        try {
+            transfer.get(5, TimeUnit.SECONDS)
+        } catch (ExecutionException e) {
+            return e.cause
+        }
+        throw new AssertionError("The transfer did not fail")
+    }
+
+    def "test invalid idempotency key"() {
+        when:
+        idempotentTransferService.transfer(key, request("10", "EUR"))
+
+        then:
+        def e = thrown(InvalidIdempotencyKeyException)
+        e.message == String.format(INVALID_IDEMPOTENCY_KEY_EXCEPTION_MESSAGE, IdempotentTransferServiceImpl.MAX_KEY_LENGTH)
+        0 * moneyTransferService._
+
+        where:
+        key << ["", "  ", "k" * (IdempotentTransferServiceImpl.MAX_KEY_LENGTH + 1)]
+    }
+
+    private static TransferRequestBody request(String amount, String currency) {
+        return TransferRequestBody.builder()
+                .sourceAccountId("sourceAccountId")
+                .targetAccountId("targetAccountId")
+                .amount(amount == null ? null : new BigDecimal(amount))
+                .currency(currency)
+                .build()
+    }
+}
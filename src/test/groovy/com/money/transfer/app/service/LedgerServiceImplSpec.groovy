@@ -0,0 +1,294 @@
+package com.money.transfer.app.service
+
+import com.money.transfer.app.dto.TransferRequestBody
+import com.money.transfer.app.entity.Account
+import com.money.transfer.app.entity.Transaction
+import com.money.transfer.app.exception.LowBalanceException
+import org.springframework.dao.OptimisticLockingFailureException
+import spock.lang.Specification
+
+import java.time.Duration
+import java.time.LocalDateTime
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+/**
+ * Unit test for the LedgerService, which commits transfers in groups.
+ */
+class LedgerServiceImplSpec extends Specification {
+
+    private TransactionalService transactionalService
+
+    private LedgerServiceImpl ledgerService
+
+    private def executor = Executors.newCachedThreadPool()
+
+    private def source = new Account("sourceAccountId", 1000, "EUR", LocalDateTime.now())
+
+    private def target = new Account("targetAccountId", 0, "USD", LocalDateTime.now())
+
+    private def release = new CountDownLatch(1)
+
+    def setup() {
+        transactionalService = Mock(TransactionalService)
+    }
+
+    def cleanup() {
+        release.countDown()
+        ledgerService.stop()
+        executor.shutdownNow()
+    }
+
+    /**
+     * Verifies that a transfer appended on its own is committed on its own, once the latency budget has passed.
+     */
+    def "test single transfer is committed alone"() {
+        given:
+        start(10, maxDelay)
+
+        when:
+        ledgerService.append(source, target, 100, 110, 100, request(), "key")
+
+        then:
+        1 * transactionalService.processTransaction(source, target, 100, 110, 100, _, "key")
+        0 * transactionalService.processTransactions(*_)
+
+        where:
+        maxDelay << [Duration.ZERO, Duration.ofMillis(20)]
+    }
+
+    /**
+     * Verifies that the transfers appended while a commit is running are committed together in the next group,
+     * with the net balance change of every account.
+     */
+    def "test waiting transfers are committed in one group"() {
+        given:
+        start(10, Duration.ZERO)
+        def release = blockFirstCommit()
+
+        when:
+        def blocking = append("first")
+        waitForBlockedWriter()
+        def waiting = (1..3).collect { append("waiting-$it") }
+        waitForQueued(3)
+        release.countDown()
+        ([blocking] + waiting).each { it.get(5, TimeUnit.SECONDS) }
+
+        then:
+        1 * transactionalService.processTransactions({ List<Transaction> transactions ->
+            transactions*.idempotencyKey as Set == ["waiting-1", "waiting-2", "waiting-3"] as Set &&
+                    transactions.every { it.amount == 100 && it.currency == "EUR" && it.orderedAt != null } &&
+                    transactions*.sourceAmount.sum() == 300 && transactions*.targetAmount.sum() == 330
+        }, ["sourceAccountId": -300L, "targetAccountId": 330L])
+    }
+
+    /**
+     * Verifies that no group exceeds the maximum batch size.
+     */
+    def "test groups are split at the max batch size"() {
+        given:
+        start(2, Duration.ofMillis(20))
+        def release = blockFirstCommit()
+
+        when:
+        def blocking = append("first")
+        waitForBlockedWriter()
+        def waiting = (1..5).collect { append("waiting-$it") }
+        waitForQueued(5)
+        release.countDown()
+        ([blocking] + waiting).each { it.get(5, TimeUnit.SECONDS) }
+
+        then:
+        2 * transactionalService.processTransactions({ it.size() == 2 }, _)
+        1 * transactionalService.processTransaction(_, _, _, _, _, _, { it.startsWith("waiting-") })
+    }
+
+    /**
+     * Verifies that a transfer appended within the latency budget joins the group of an earlier one.
+     */
+    def "test transfers within the latency budget share a group"() {
+        given:
+        start(10, Duration.ofSeconds(1))
+
+        when:
+        def first = append("first")
+        Thread.sleep(100)
+        ledgerService.append(source, target, 100, 110, 100, request(), "second")
+        first.get(5, TimeUnit.SECONDS)
+
+        then:
+        1 * transactionalService.processTransactions({ it*.idempotencyKey == ["first", "second"] }, _)
+    }
+
+    /**
+     * Verifies that a group that cannot be committed is committed one transfer at a time,
+     * so that only the failing transfer is reported to its caller.
+     */
+    def "test failed group is committed one by one"() {
+        given:
+        start(10, Duration.ZERO)
+        def release = blockFirstCommit()
+        def failure = new LowBalanceException(request(), source, 2)
+
+        when:
+        def blocking = append("first")
+        waitForBlockedWriter()
+        def low = append("low")
+        def fine = append("fine")
+        waitForQueued(2)
+        release.countDown()
+        blocking.get(5, TimeUnit.SECONDS)
+        fine.get(5, TimeUnit.SECONDS)
+        low.get(5, TimeUnit.SECONDS)
+
+        then:
+        1 * transactionalService.processTransactions(*_) >> { throw new OptimisticLockingFailureException("overdrawn") }
+        1 * transactionalService.processTransaction(_, _, _, _, _, _, "low") >> { throw failure }
+        1 * transactionalService.processTransaction(_, _, _, _, _, _, "fine")
+        def e = thrown(ExecutionException)
+        e.cause.is(failure)
+    }
+
+    /**
+     * Verifies that the failure of a transfer is rethrown to its caller as it is, unless it is a checked exception.
+     */
+    def "test failure of a transfer is rethrown to its caller"() {
+        given:
+        transactionalService = Mock(TransactionalServiceImpl)
+        start(10, Duration.ZERO)
+        transactionalService.processTransaction(*_) >> { throw failure }
+
+        when:
+        ledgerService.append(source, target, 100, 110, 100, request(), "key")
+
+        then:
+        def e = thrown(expected)
+        e.is(failure) || e.cause.is(failure)
+
+        where:
+        failure                               || expected
+        new IllegalStateException("failed")   || IllegalStateException
+        new AssertionError("failed")          || AssertionError
+        new IOException("failed")             || IllegalStateException
+    }
+
+    /**
+     * Verifies that stopping the ledger commits the transfers already appended and rejects any later one.
+     */
+    def "test stop commits pending transfers"() {
+        given:
+        start(10, Duration.ZERO)
+        def release = blockFirstCommit()
+
+        when:
+        def blocking = append("first")
+        waitForBlockedWriter()
+        def pending = append("pending")
+        waitForQueued(1)
+        def stopping = executor.submit({ ledgerService.stop() } as Callable)
+        waitFor { !ledgerService.running }
+        release.countDown()
+        stopping.get(5, TimeUnit.SECONDS)
+
+        then:
+        blocking.get(5, TimeUnit.SECONDS) == null
+        pending.get(5, TimeUnit.SECONDS) == null
+        1 * transactionalService.processTransaction(_, _, _, _, _, _, "pending")
+
+        when:
+        ledgerService.append(source, target, 100, 110, 100, request(), "late")
+
+        then:
+        thrown(IllegalStateException)
+    }
+
+    def "test direct mode accepts no transfers"() {
+        given:
+        ledgerService = new LedgerServiceImpl(transactionalService, PersistenceMode.DIRECT, 10, Duration.ZERO, 10)
+        ledgerService.start()
+
+        when:
+        ledgerService.append(source, target, 100, 110, 100, request(), null)
+
+        then:
+        thrown(IllegalStateException)
+        0 * transactionalService._
+    }
+
+    def "test interrupted while appending"() {
+        given:
+        start(10, Duration.ZERO)
+
+        when:
+        Thread.currentThread().interrupt()
+        ledgerService.append(source, target, 100, 110, 100, request(), null)
+
+        then:
+        def e = thrown(IllegalStateException)
+        e.cause instanceof InterruptedException
+        Thread.interrupted()
+        0 * transactionalService._
+    }
+
+    def "test interrupted writer keeps running"() {
+        given:
+        start(10, Duration.ZERO)
+
+        when:
+        ledgerService.writer.interrupt()
+        Thread.sleep(50)
+        ledgerService.append(source, target, 100, 110, 100, request(), "key")
+
+        then:
+        1 * transactionalService.processTransaction(*_)
+    }
+
+    private void start(int maxBatchSize, Duration maxDelay) {
+        ledgerService = new LedgerServiceImpl(transactionalService, PersistenceMode.LEDGER, maxBatchSize, maxDelay, 100)
+        ledgerService.start()
+    }
+
+    /**
+     * Makes the commit of the transfer with key "first" wait until the returned latch is released.
+     */
+    private CountDownLatch blockFirstCommit() {
+        transactionalService.processTransaction(_, _, _, _, _, _, "first") >> { release.await() }
+        return release
+    }
+
+    private def append(String idempotencyKey) {
+        return executor.submit({
+            ledgerService.append(source, target, 100, 110, 100, request(), idempotencyKey)
+        } as Callable)
+    }
+
+    /**
+     * Waits until the writer is blocked in the commit of the transfer with key "first".
+     */
+    private void waitForBlockedWriter() {
+        waitFor { ledgerService.queue.isEmpty() && ledgerService.writer.state == Thread.State.WAITING }
+    }
+
+    private void waitForQueued(int size) {
+        waitFor { ledgerService.queue.size() == size }
+    }
+
+    private static void waitFor(Closure<Boolean> condition) {
+        long deadline = System.currentTimeMillis() + 5000
+        while (!condition() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5)
+        }
+    }
+
+    private static TransferRequestBody request() {
+        return TransferRequestBody.builder()
+                .sourceAccountId("sourceAccountId")
+                .targetAccountId("targetAccountId")
+                .amount(BigDecimal.ONE)
+                .currency("EUR")
+                .build()
+    }
+}
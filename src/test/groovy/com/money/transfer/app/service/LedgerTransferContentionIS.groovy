@@ -0,0 +1,7 @@
+package com.money.transfer.app.service
+
+import org.springframework.test.context.TestPropertySource
+
+@TestPropertySource(properties = ["transfer.locking.mode=pessimistic", "transfer.persistence.mode=ledger"])
+class LedgerTransferContentionIS extends TransferContentionIS {
+}
@@ -7,8 +7,12 @@ import com.money.transfer.app.entity.Account
 import com.money.transfer.app.entity.Currency
 import com.money.transfer.app.exception.*
 import com.money.transfer.app.integration.ExchangeRateRestClient
+import com.money.transfer.app.metrics.TransferMetrics
 import com.money.transfer.app.repository.AccountRepository
+import com.money.transfer.app.repository.BalanceSlotRepository
 import com.money.transfer.app.repository.CurrencyRepository
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.dao.OptimisticLockingFailureException
 import spock.lang.Specification
 
 import java.time.LocalDateTime
@@ -24,18 +28,32 @@ class MoneyTransferServiceImplSpec extends Specification {
 
     private CurrencyRepository currencyRepository
 
+    private CurrencyRegistry currencyRegistry
+
     private TransactionalServiceImpl transactionService
 
     private ExchangeRateRestClient exchangeRateRestClient
 
+    private SimpleMeterRegistry meterRegistry
+
     private MoneyTransferServiceImpl moneyTransferService
 
     def setup() {
         accountRepository = Mock(AccountRepository)
         currencyRepository = Mock(CurrencyRepository)
+        currencyRepository.findAll() >> [new Currency("EUR", "Euro", "Eurozone", 2),
+                                         new Currency("USD", "United States Dollar", "United States", 2),
+                                         new Currency("GBP", "British Pound Sterling", "United Kingdom", 2),
+                                         new Currency("JPY", "Japanese Yen", "Japan", 0)]
+        currencyRegistry = new CurrencyRegistry(currencyRepository)
+        currencyRegistry.refresh()
         transactionService = Mock(TransactionalServiceImpl)
         exchangeRateRestClient = Mock(ExchangeRateRestClient)
-        moneyTransferService = new MoneyTransferServiceImpl(accountRepository, currencyRepository, transactionService, exchangeRateRestClient)
+        meterRegistry = new SimpleMeterRegistry()
+        moneyTransferService = new MoneyTransferServiceImpl(accountRepository, currencyRegistry, transactionService,
+                new ExchangeRateEngine(exchangeRateRestClient, currencyRegistry, "USD"),
+                new BalanceSlotServiceImpl(accountRepository, Mock(BalanceSlotRepository)),
+                Mock(LedgerService), new TransferMetrics(meterRegistry), PersistenceMode.DIRECT, 3)
     }
 
     /**
@@ -50,8 +68,6 @@ class MoneyTransferServiceImplSpec extends Specification {
                 .sourceAccountId("sourceAccountId")
                 .targetAccountId("targetAccountId")
                 .build()
-        currencyRepository.findById(requestBody.getCurrency()) >>
-                Optional.of(new Currency("EUR", "Euro", "Eurozone"))
         accountRepository.findById(requestBody.getSourceAccountId()) >>
                 Optional.of(new Account("sourceAccountId", 1000, "EUR", LocalDateTime.now().minusYears(1)))
         accountRepository.findById(requestBody.getTargetAccountId()) >>
@@ -63,6 +79,10 @@ class MoneyTransferServiceImplSpec extends Specification {
         then:
         noExceptionThrown()
         responseBody instanceof TransferResponseBody
+        meterRegistry.get(TransferMetrics.STAGE_TIMER)
+                .tags("stage", TransferMetrics.VALIDATION, "outcome", "success").timer().count() == 1
+        meterRegistry.get(TransferMetrics.STAGE_TIMER)
+                .tags("stage", TransferMetrics.ACCOUNT_LOADING, "outcome", "success").timer().count() == 2
     }
 
     /**
@@ -77,21 +97,16 @@ class MoneyTransferServiceImplSpec extends Specification {
                 .sourceAccountId("sourceAccountId")
                 .targetAccountId("targetAccountId")
                 .build()
-        currencyRepository.findById(requestBody.getCurrency()) >>
-                Optional.of(new Currency("USD", "United States Dollar", "United States"))
         accountRepository.findById(requestBody.getSourceAccountId()) >>
                 Optional.of(new Account("sourceAccountId", 1000, "EUR", LocalDateTime.now().minusYears(1)))
         accountRepository.findById(requestBody.getTargetAccountId()) >>
                 Optional.of(new Account("targetAccountId", 100, "USD", LocalDateTime.now().minusMonths(2)))
         exchangeRateRestClient.fetchExchangeRates("USD") >>
-                ExchangeRateResponse.builder()
-                        .result("success")
-                        .conversion_rates(Map.of("USD", 1.0 as Float,
-                                "ETB", 57.3679 as Float,
-                                "EUR", 0.9341 as Float,
-                                "FJD", 2.2583 as Float,
-                                "FOK", 6.9689 as Float))
-                        .build()
+                snapshot(Map.of("USD", 1.0 as Double,
+                                "ETB", 57.3679 as Double,
+                                "EUR", 0.9341 as Double,
+                                "FJD", 2.2583 as Double,
+                                "FOK", 6.9689 as Double))
 
         when:
         def responseBody = moneyTransferService.transfer(requestBody)
@@ -113,21 +128,16 @@ class MoneyTransferServiceImplSpec extends Specification {
                 .sourceAccountId("sourceAccountId")
                 .targetAccountId("targetAccountId")
                 .build()
-        currencyRepository.findById(requestBody.getCurrency()) >>
-                Optional.of(new Currency("EUR", "Euro", "Eurozone"))
         accountRepository.findById(requestBody.getSourceAccountId()) >>
                 Optional.of(new Account("sourceAccountId", 1000, "EUR", LocalDateTime.now().minusYears(1)))
         accountRepository.findById(requestBody.getTargetAccountId()) >>
                 Optional.of(new Account("targetAccountId", 100, "USD", LocalDateTime.now().minusMonths(2)))
-        exchangeRateRestClient.fetchExchangeRates("EUR") >>
-                ExchangeRateResponse.builder()
-                        .result("success")
-                        .conversion_rates(Map.of("EUR", 1.0 as Float,
-                                "AED", 3.9314 as Float,
-                                "AFN", 77.2707 as Float,
-                                "AMD", 416.3709 as Float,
-                                "USD", 1.0706 as Float))
-                        .build()
+        exchangeRateRestClient.fetchExchangeRates("USD") >>
+                snapshot(Map.of("USD", 1.0 as Double,
+                                "AED", 3.6725 as Double,
+                                "AFN", 72.1768 as Double,
+                                "AMD", 388.9137 as Double,
+                                "EUR", 0.9341 as Double))
 
         when:
         def responseBody = moneyTransferService.transfer(requestBody)
@@ -137,6 +147,134 @@ class MoneyTransferServiceImplSpec extends Specification {
         responseBody instanceof TransferResponseBody
     }
 
+    /**
+     * Tests that when neither account matches the transaction currency the exchange rates
+     * are resolved only once for the whole request and triangulated through the pivot currency.
+     */
+    def "test happy path transaction currency different than both accounts"() {
+        given:
+        def requestBody = TransferRequestBody.builder()
+                .amount(1)
+                .currency("GBP")
+                .sourceAccountId("sourceAccountId")
+                .targetAccountId("targetAccountId")
+                .build()
+        accountRepository.findById(requestBody.getSourceAccountId()) >>
+                Optional.of(new Account("sourceAccountId", 1000, "EUR", LocalDateTime.now().minusYears(1)))
+        accountRepository.findById(requestBody.getTargetAccountId()) >>
+                Optional.of(new Account("targetAccountId", 100, "USD", LocalDateTime.now().minusMonths(2)))
+
+        when:
+        def responseBody = moneyTransferService.transfer(requestBody)
+
+        then:
+        1 * exchangeRateRestClient.fetchExchangeRates("USD") >>
+                snapshot(Map.of("USD", 1.0 as Double,
+                                "EUR", 0.93456 as Double,
+                                "GBP", 0.8 as Double))
+        1 * transactionService.processTransaction(_, _, 117, 125, 100, requestBody, null)
+        responseBody instanceof TransferResponseBody
+    }
+
+    /**
+     * Verifies that the transaction currency is accepted in any case and normalized before processing.
+     */
+    def "test transaction currency is normalized"() {
+        given:
+        def requestBody = TransferRequestBody.builder()
+                .amount(1)
+                .currency("eur")
+                .sourceAccountId("sourceAccountId")
+                .targetAccountId("targetAccountId")
+                .build()
+        accountRepository.findById(requestBody.getSourceAccountId()) >>
+                Optional.of(new Account("sourceAccountId", 1000, "EUR", LocalDateTime.now().minusYears(1)))
+        accountRepository.findById(requestBody.getTargetAccountId()) >>
+                Optional.of(new Account("targetAccountId", 100, "EUR", LocalDateTime.now().minusMonths(2)))
+
+        when:
+        moneyTransferService.transfer(requestBody)
+
+        then:
+        0 * currencyRepository._
+        0 * exchangeRateRestClient._
+        1 * transactionService.processTransaction(_, _, 100, 100, 100, { it.currency == "EUR" }, null)
+    }
+
+    /**
+     * Verifies that amounts are converted to minor units of each account currency,
+     * rounding half to even, and that the request amount is rewritten with the scale of its currency.
+     */
+    def "test amounts are converted to minor units"() {
+        given:
+        def requestBody = TransferRequestBody.builder()
+                .amount(new BigDecimal("12.5"))
+                .currency("EUR")
+                .sourceAccountId("sourceAccountId")
+                .targetAccountId("targetAccountId")
+                .build()
+        accountRepository.findById(requestBody.getSourceAccountId()) >>
+                Optional.of(new Account("sourceAccountId", 5000, "EUR", LocalDateTime.now().minusYears(1)))
+        accountRepository.findById(requestBody.getTargetAccountId()) >>
+                Optional.of(new Account("targetAccountId", 100, "JPY", LocalDateTime.now().minusMonths(2)))
+        exchangeRateRestClient.fetchExchangeRates("USD") >>
+                snapshot(Map.of("EUR", 0.5 as Double, "JPY", 81.25 as Double))
+
+        when:
+        def responseBody = moneyTransferService.transfer(requestBody)
+
+        then:
+        1 * transactionService.processTransaction(_, _, 1250, 2031, 1250, requestBody, null)
+        requestBody.amount.toPlainString() == "12.50"
+        responseBody.response == "Transfer of 12.50 EUR from account sourceAccountId to account targetAccountId completed successfully."
+    }
+
+    /**
+     * Verifies that an amount with more decimal places than its currency allows is rejected
+     * instead of being rounded.
+     */
+    def "test amount finer than minor unit"() {
+        given:
+        def requestBody = TransferRequestBody.builder()
+                .amount(new BigDecimal(amount))
+                .currency(currency)
+                .sourceAccountId("sourceAccountId")
+                .targetAccountId("targetAccountId")
+                .build()
+
+        when:
+        moneyTransferService.transfer(requestBody)
+
+        then:
+        def e = thrown(InvalidAmountException)
+        e.message == String.format(INVALID_AMOUNT_EXCEPTION_MESSAGE, amount, currency)
+        0 * accountRepository._
+
+        where:
+        amount  | currency
+        "1.005" | "EUR"
+        "0.5"   | "JPY"
+    }
+
+    /**
+     * Verifies that a request without an amount is rejected.
+     */
+    def "test missing amount"() {
+        given:
+        def requestBody = TransferRequestBody.builder()
+                .currency("EUR")
+                .sourceAccountId("sourceAccountId")
+                .targetAccountId("targetAccountId")
+                .build()
+
+        when:
+        moneyTransferService.transfer(requestBody)
+
+        then:
+        def e = thrown(InvalidAmountException)
+        e.message == String.format(INVALID_AMOUNT_EXCEPTION_MESSAGE, null, "EUR")
+    }
+
     /**
      * Checks for proper error handling when attempting to transfer money to the same account,
      * expecting a SameAccountException to be thrown.
@@ -172,7 +310,6 @@ class MoneyTransferServiceImplSpec extends Specification {
                 .sourceAccountId("sourceAccountId")
                 .targetAccountId("targetAccountId")
                 .build()
-        currencyRepository.findById(requestBody.getCurrency()) >> Optional.empty()
 
         when:
         moneyTransferService.transfer(requestBody)
@@ -195,8 +332,6 @@ class MoneyTransferServiceImplSpec extends Specification {
                 .sourceAccountId("sourceAccountId")
                 .targetAccountId("targetAccountId")
                 .build()
-        currencyRepository.findById(requestBody.getCurrency()) >>
-                Optional.of(new Currency("EUR", "Euro", "Eurozone"))
         accountRepository.findById(requestBody.getSourceAccountId()) >>
                 Optional.of(new Account("sourceAccountId", 1000, "EUR", LocalDateTime.now().minusYears(1)))
         accountRepository.findById(requestBody.getTargetAccountId()) >>
@@ -219,7 +354,7 @@ class MoneyTransferServiceImplSpec extends Specification {
         given:
         def sourceAccount = new Account("sourceAccountId", 1000, "EUR", LocalDateTime.now().minusYears(1))
         def targetAccount = new Account("targetAccountId", 100, "EUR", LocalDateTime.now().minusMonths(2))
-        float amount = (sourceAccount.getBalance() + 1).floatValue()
+        def amount = new BigDecimal("10.01")
         def currency = sourceAccount.getCurrency()
         def requestBody = TransferRequestBody.builder()
                 .amount(amount)
@@ -227,8 +362,6 @@ class MoneyTransferServiceImplSpec extends Specification {
                 .sourceAccountId("sourceAccountId")
                 .targetAccountId("targetAccountId")
                 .build()
-        currencyRepository.findById(requestBody.getCurrency()) >>
-                Optional.of(new Currency("EUR", "Euro", "Eurozone"))
         accountRepository.findById(requestBody.getSourceAccountId()) >> Optional.of(sourceAccount)
         accountRepository.findById(requestBody.getTargetAccountId()) >> Optional.of(targetAccount)
 
@@ -237,8 +370,7 @@ class MoneyTransferServiceImplSpec extends Specification {
 
         then:
         def e = thrown(LowBalanceException)
-        e.message == String.format(LOW_BALANCE_EXCEPTION_MESSAGE,
-                amount, currency, sourceAccount.getBalance(), currency)
+        e.message == String.format(LOW_BALANCE_EXCEPTION_MESSAGE, "10.01", currency, "10.00", currency)
         println e.message
     }
 
@@ -254,8 +386,6 @@ class MoneyTransferServiceImplSpec extends Specification {
                 .sourceAccountId(nonExistentId)
                 .targetAccountId("targetAccountId")
                 .build()
-        currencyRepository.findById(requestBody.getCurrency()) >>
-                Optional.of(new Currency("EUR", "Euro", "Eurozone"))
         accountRepository.findById(requestBody.getSourceAccountId()) >>
                 Optional.empty()
         accountRepository.findById(requestBody.getTargetAccountId()) >>
@@ -268,6 +398,8 @@ class MoneyTransferServiceImplSpec extends Specification {
         def e = thrown(NonExistentAccountException)
         e.message == String.format(NON_EXISTENT_ACCOUNT_EXCEPTION_MESSAGE, nonExistentId)
         println e.message
+        meterRegistry.get(TransferMetrics.STAGE_TIMER)
+                .tags("stage", TransferMetrics.ACCOUNT_LOADING, "exception", "NonExistentAccountException").timer().count() == 1
     }
 
     /**
@@ -282,8 +414,6 @@ class MoneyTransferServiceImplSpec extends Specification {
                 .sourceAccountId("sourceAccountId")
                 .targetAccountId(nonExistentId)
                 .build()
-        currencyRepository.findById(requestBody.getCurrency()) >>
-                Optional.of(new Currency("EUR", "Euro", "Eurozone"))
         accountRepository.findById(requestBody.getSourceAccountId()) >>
                 Optional.of(new Account("sourceAccountId", 1000, "EUR", LocalDateTime.now().minusYears(1)))
         accountRepository.findById(requestBody.getTargetAccountId()) >>
@@ -297,4 +427,96 @@ class MoneyTransferServiceImplSpec extends Specification {
         e.message == String.format(NON_EXISTENT_ACCOUNT_EXCEPTION_MESSAGE, nonExistentId)
         println e.message
     }
+
+    /**
+     * Verifies that a transfer losing an optimistic locking race is retried until it succeeds.
+     */
+    def "test optimistic locking failure is retried"() {
+        given:
+        def requestBody = TransferRequestBody.builder()
+                .amount(1)
+                .currency("EUR")
+                .sourceAccountId("sourceAccountId")
+                .targetAccountId("targetAccountId")
+                .build()
+        accountRepository.findById(requestBody.getSourceAccountId()) >>
+                Optional.of(new Account("sourceAccountId", 1000, "EUR", LocalDateTime.now().minusYears(1)))
+        accountRepository.findById(requestBody.getTargetAccountId()) >>
+                Optional.of(new Account("targetAccountId", 100, "EUR", LocalDateTime.now().minusMonths(2)))
+
+        when:
+        def responseBody = moneyTransferService.transfer(requestBody)
+
+        then:
+        2 * transactionService.processTransaction(_, _, 100, 100, 100, requestBody, null) >>
+                { throw new OptimisticLockingFailureException("conflict") }
+        1 * transactionService.processTransaction(_, _, 100, 100, 100, requestBody, null)
+        responseBody instanceof TransferResponseBody
+    }
+
+    /**
+     * Verifies that the optimistic locking failure surfaces once every attempt has conflicted.
+     */
+    def "test optimistic locking failure after max attempts"() {
+        given:
+        def requestBody = TransferRequestBody.builder()
+                .amount(1)
+                .currency("EUR")
+                .sourceAccountId("sourceAccountId")
+                .targetAccountId("targetAccountId")
+                .build()
+        accountRepository.findById(requestBody.getSourceAccountId()) >>
+                Optional.of(new Account("sourceAccountId", 1000, "EUR", LocalDateTime.now().minusYears(1)))
+        accountRepository.findById(requestBody.getTargetAccountId()) >>
+                Optional.of(new Account("targetAccountId", 100, "EUR", LocalDateTime.now().minusMonths(2)))
+
+        when:
+        moneyTransferService.transfer(requestBody)
+
+        then:
+        3 * transactionService.processTransaction(_, _, 100, 100, 100, requestBody, null) >>
+                { throw new OptimisticLockingFailureException("conflict") }
+        thrown(OptimisticLockingFailureException)
+    }
+
+    /**
+     * Verifies that in ledger mode the transfer is appended to the ledger instead of being committed directly,
+     * and that a conflict reported by the ledger is retried.
+     */
+    def "test ledger persistence mode"() {
+        given:
+        def ledgerService = Mock(LedgerService)
+        moneyTransferService = new MoneyTransferServiceImpl(accountRepository, currencyRegistry, transactionService,
+                new ExchangeRateEngine(exchangeRateRestClient, currencyRegistry, "USD"),
+                new BalanceSlotServiceImpl(accountRepository, Mock(BalanceSlotRepository)),
+                ledgerService, new TransferMetrics(meterRegistry), PersistenceMode.LEDGER, 3)
+        def requestBody = TransferRequestBody.builder()
+                .amount(1)
+                .currency("EUR")
+                .sourceAccountId("sourceAccountId")
+                .targetAccountId("targetAccountId")
+                .build()
+        accountRepository.findById(requestBody.getSourceAccountId()) >>
+                Optional.of(new Account("sourceAccountId", 1000, "EUR", LocalDateTime.now().minusYears(1)))
+        accountRepository.findById(requestBody.getTargetAccountId()) >>
+                Optional.of(new Account("targetAccountId", 100, "EUR", LocalDateTime.now().minusMonths(2)))
+
+        when:
+        def responseBody = moneyTransferService.transfer(requestBody, "key")
+
+        then:
+        1 * ledgerService.append(_, _, 100, 100, 100, requestBody, "key") >>
+                { throw new OptimisticLockingFailureException("conflict") }
+        1 * ledgerService.append(_, _, 100, 100, 100, requestBody, "key")
+        0 * transactionService.processTransaction(*_)
+        responseBody instanceof TransferResponseBody
+    }
+
+    /**
+     * @return the response of the exchange rate API carrying the given rates, as decoded for the supported currencies.
+     */
+    private ExchangeRateResponse snapshot(Map<String, Double> rates, String result = "success") {
+        def currencies = currencyRegistry.currencies()
+        return new ExchangeRateResponse(result, currencies, currencies.collect { rates.getOrDefault(it.code, Double.NaN) } as double[])
+    }
 }
@@ -0,0 +1,287 @@
+package com.money.transfer.app.service
+
+import com.money.transfer.app.dto.ExchangeRateResponse
+import com.money.transfer.app.dto.TransferRequestBody
+import com.money.transfer.app.entity.Account
+import com.money.transfer.app.entity.Currency
+import com.money.transfer.app.entity.Transaction
+import com.money.transfer.app.exception.CurrencyException
+import com.money.transfer.app.exception.LowBalanceException
+import com.money.transfer.app.exception.NonExistentAccountException
+import com.money.transfer.app.metrics.TransferMetrics
+import com.money.transfer.app.repository.CurrencyRepository
+import com.money.transfer.app.repository.ReactiveAccountRepository
+import com.money.transfer.app.repository.ReactiveBalanceSlotRepository
+import com.money.transfer.app.repository.ReactiveTransactionRepository
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.springframework.transaction.reactive.TransactionalOperator
+import reactor.core.publisher.Mono
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.LOW_BALANCE_EXCEPTION_MESSAGE
+import static com.money.transfer.app.util.constants.ExceptionConstants.NON_EXISTENT_ACCOUNT_EXCEPTION_MESSAGE
+
+/**
+ * Unit test for the ReactiveMoneyTransferServiceImpl, which performs transfers without blocking.
+ */
+class ReactiveMoneyTransferServiceImplSpec extends Specification {
+
+    private ReactiveAccountRepository accountRepository
+
+    private ReactiveBalanceSlotRepository balanceSlotRepository
+
+    private ReactiveTransactionRepository transactionRepository
+
+    private CurrencyRegistry currencyRegistry
+
+    private ExchangeRateEngine exchangeRateEngine
+
+    private TransactionalOperator transactionalOperator
+
+    private SimpleMeterRegistry meterRegistry
+
+    private ReactiveMoneyTransferServiceImpl reactiveMoneyTransferService
+
+    private List<String> statements
+
+    def setup() {
+        accountRepository = Mock(ReactiveAccountRepository)
+        balanceSlotRepository = Mock(ReactiveBalanceSlotRepository)
+        transactionRepository = Mock(ReactiveTransactionRepository)
+        def currencyRepository = Mock(CurrencyRepository)
+        currencyRepository.findAll() >> [new Currency("EUR", "Euro", "Eurozone", 2),
+                                         new Currency("USD", "United States Dollar", "United States", 2),
+                                         new Currency("JPY", "Japanese Yen", "Japan", 0)]
+        currencyRegistry = new CurrencyRegistry(currencyRepository)
+        currencyRegistry.refresh()
+        exchangeRateEngine = Mock(ExchangeRateEngine)
+        transactionalOperator = Mock(TransactionalOperator)
+        transactionalOperator.transactional(_ as Mono) >> { Mono mono -> mono }
+        meterRegistry = new SimpleMeterRegistry()
+        reactiveMoneyTransferService = new ReactiveMoneyTransferServiceImpl(accountRepository, balanceSlotRepository,
+                transactionRepository, currencyRegistry, exchangeRateEngine, transactionalOperator,
+                new TransferMetrics(meterRegistry))
+        statements = []
+    }
+
+    /**
+     * @return a {@link Mono} recording the statement once it runs and emitting the number of updated rows.
+     */
+    private Mono<Long> statement(String statement, long updated = 1) {
+        return Mono.fromSupplier {
+            statements << statement
+            updated
+        }
+    }
+
+    private static TransferRequestBody request(String sourceAccountId, String targetAccountId, String currency) {
+        return TransferRequestBody.builder()
+                .sourceAccountId(sourceAccountId)
+                .targetAccountId(targetAccountId)
+                .amount(10.00)
+                .currency(currency)
+                .build()
+    }
+
+    private static Account account(String id, long balance, String currency, int balanceSlots = 0) {
+        return new Account(id, balance, currency, LocalDateTime.now(), 0, balanceSlots)
+    }
+
+    private long transfers(String outcome) {
+        return meterRegistry.find(TransferMetrics.STAGE_TIMER).tags("stage", TransferMetrics.TRANSFER, "outcome", outcome)
+                .timer()?.count() ?: 0
+    }
+
+    /**
+     * Verifies that a same-currency transfer debits and credits in ascending account id order
+     * and records the transaction, without resolving exchange rates.
+     */
+    def "test transfer"() {
+        given:
+        def source = account(sourceAccountId, 5000, "EUR")
+        def target = account(targetAccountId, 100, "EUR")
+        accountRepository.findById(sourceAccountId) >> Mono.just(source)
+        accountRepository.findById(targetAccountId) >> Mono.just(target)
+
+        when:
+        def response = reactiveMoneyTransferService.transfer(request(sourceAccountId, targetAccountId, "eur")).block()
+
+        then:
+        1 * accountRepository.debit(sourceAccountId, 1000, 0) >> statement("debit")
+        1 * accountRepository.credit(targetAccountId, 1000) >> statement("credit")
+        1 * transactionRepository.insert({ Transaction transaction ->
+            transaction.sourceAccount.is(source) && transaction.targetAccount.is(target) &&
+                    transaction.amount == 1000 && transaction.currency == "EUR" && transaction.orderedAt != null &&
+                    transaction.sourceAmount == 1000 && transaction.targetAmount == 1000
+        }) >> Mono.fromRunnable { statements << "insert" }
+        0 * exchangeRateEngine._
+        statements == expectedStatements
+        response.getResponse() == "Transfer of 10.00 EUR from account ${sourceAccountId} to account ${targetAccountId} completed successfully."
+        transfers("success") == 1
+
+        where:
+        sourceAccountId | targetAccountId || expectedStatements
+        "a"             | "b"             || ["debit", "credit", "insert"]
+        "b"             | "a"             || ["credit", "debit", "insert"]
+    }
+
+    def "test transfer with conversion"() {
+        given:
+        def rates = new ExchangeRateEngine.Matrix("USD",
+                snapshot(Map.of("EUR", 0.5d, "JPY", 150d)), currencyRegistry.currencies())
+        accountRepository.findById("sourceAccountId") >> Mono.just(account("sourceAccountId", 5000, "USD"))
+        accountRepository.findById("targetAccountId") >> Mono.just(account("targetAccountId", 0, "JPY"))
+
+        when:
+        reactiveMoneyTransferService.transfer(request("sourceAccountId", "targetAccountId", "EUR")).block()
+
+        then:
+        1 * exchangeRateEngine.ratesAsync() >> Mono.just(rates)
+        1 * accountRepository.debit("sourceAccountId", 2000, 0) >> statement("debit")
+        1 * accountRepository.credit("targetAccountId", 3000) >> statement("credit")
+        1 * transactionRepository.insert({ Transaction transaction -> transaction.amount == 1000 }) >> Mono.empty()
+    }
+
+    def "test transfer into the same currency as the source"() {
+        given:
+        def rates = new ExchangeRateEngine.Matrix("USD",
+                snapshot(Map.of("EUR", 0.5d)), currencyRegistry.currencies())
+        accountRepository.findById("sourceAccountId") >> Mono.just(account("sourceAccountId", 5000, "EUR"))
+        accountRepository.findById("targetAccountId") >> Mono.just(account("targetAccountId", 0, "USD"))
+
+        when:
+        reactiveMoneyTransferService.transfer(request("sourceAccountId", "targetAccountId", "EUR")).block()
+
+        then:
+        1 * exchangeRateEngine.ratesAsync() >> Mono.just(rates)
+        1 * accountRepository.debit("sourceAccountId", 1000, 0) >> statement("debit")
+        1 * accountRepository.credit("targetAccountId", 2000) >> statement("credit")
+        1 * transactionRepository.insert(_) >> Mono.empty()
+    }
+
+    /**
+     * Verifies that a target account with balance slots is credited through one of its slots, after the debit.
+     */
+    def "test transfer to an account with balance slots"() {
+        given:
+        accountRepository.findById("a") >> Mono.just(account("a", 5000, "EUR"))
+        accountRepository.findById("b") >> Mono.just(account("b", 0, "EUR", 4))
+
+        when:
+        reactiveMoneyTransferService.transfer(request("a", "b", "EUR")).block()
+
+        then:
+        1 * accountRepository.debit("a", 1000, 0) >> statement("debit")
+        0 * accountRepository.credit(*_)
+        1 * balanceSlotRepository.credit("b", { it >= 0 && it < 4 }, 1000) >> statement("slot credit")
+        1 * transactionRepository.insert(_) >> Mono.empty()
+        statements == ["debit", "slot credit"]
+    }
+
+    /**
+     * Verifies that a source account with balance slots is locked before its slots are summed
+     * and that the debit may be covered by them.
+     */
+    def "test transfer from an account with balance slots"() {
+        given:
+        accountRepository.findById("sourceAccountId") >> Mono.just(account("sourceAccountId", 500, "EUR", 2))
+        accountRepository.findById("targetAccountId") >> Mono.just(account("targetAccountId", 0, "EUR"))
+
+        when:
+        reactiveMoneyTransferService.transfer(request("sourceAccountId", "targetAccountId", "EUR")).block()
+
+        then:
+        1 * accountRepository.findByIdForUpdate("sourceAccountId") >> Mono.fromSupplier {
+            statements << "lock"
+            account("sourceAccountId", 500, "EUR", 2)
+        }
+        1 * balanceSlotRepository.sumBalance("sourceAccountId") >> statement("sum", 700)
+        1 * accountRepository.debit("sourceAccountId", 1000, 700) >> statement("debit")
+        1 * accountRepository.credit("targetAccountId", 1000) >> statement("credit")
+        1 * transactionRepository.insert(_) >> Mono.empty()
+        statements == ["lock", "sum", "debit", "credit"]
+    }
+
+    /**
+     * Verifies that a refused debit is reported with the current balance of the account.
+     */
+    def "test low balance"() {
+        given:
+        accountRepository.findById("sourceAccountId") >>> [Mono.just(account("sourceAccountId", 900, "EUR", 1)),
+                                                           Mono.just(account("sourceAccountId", 400, "EUR", 1))]
+        accountRepository.findById("targetAccountId") >> Mono.just(account("targetAccountId", 0, "EUR"))
+        accountRepository.findByIdForUpdate("sourceAccountId") >> Mono.just(account("sourceAccountId", 400, "EUR", 1))
+        balanceSlotRepository.sumBalance("sourceAccountId") >> Mono.just(100L)
+        accountRepository.credit("targetAccountId", 1000) >> statement("credit")
+
+        when:
+        reactiveMoneyTransferService.transfer(request("sourceAccountId", "targetAccountId", "EUR")).block()
+
+        then:
+        1 * accountRepository.debit("sourceAccountId", 1000, 100) >> statement("debit", 0)
+        0 * transactionRepository.insert(_)
+        def e = thrown(LowBalanceException)
+        e.message == String.format(LOW_BALANCE_EXCEPTION_MESSAGE, "10.00", "EUR", "5.00", "EUR")
+        transfers("failure") == 1
+    }
+
+    def "test non existent source account"() {
+        given:
+        accountRepository.findById("sourceAccountId") >> Mono.empty()
+        accountRepository.findById("targetAccountId") >> Mono.just(account("targetAccountId", 0, "EUR"))
+
+        when:
+        reactiveMoneyTransferService.transfer(request("sourceAccountId", "targetAccountId", "EUR")).block()
+
+        then:
+        def e = thrown(NonExistentAccountException)
+        e.message == String.format(NON_EXISTENT_ACCOUNT_EXCEPTION_MESSAGE, "sourceAccountId")
+        0 * accountRepository.debit(*_)
+    }
+
+    /**
+     * Verifies that an account deleted after it was read is reported as non existent.
+     */
+    def "test account deleted during the transfer"() {
+        given:
+        accountRepository.findById("a") >>> [Mono.just(account("a", 5000, "EUR")), Mono.empty()]
+        accountRepository.findById("b") >> Mono.just(account("b", 0, "EUR", slots))
+        accountRepository.debit("a", 1000, 0) >> statement("debit", debited)
+        accountRepository.credit("b", 1000) >> statement("credit", 0)
+        balanceSlotRepository.credit("b", _, 1000) >> statement("slot credit", 0)
+
+        when:
+        reactiveMoneyTransferService.transfer(request("a", "b", "EUR")).block()
+
+        then:
+        def e = thrown(NonExistentAccountException)
+        e.message == String.format(NON_EXISTENT_ACCOUNT_EXCEPTION_MESSAGE, deleted)
+        0 * transactionRepository.insert(_)
+
+        where:
+        slots | debited || deleted
+        0     | 0       || "a"
+        0     | 1       || "b"
+        2     | 1       || "b"
+    }
+
+    def "test invalid request"() {
+        when:
+        reactiveMoneyTransferService.transfer(request("sourceAccountId", "targetAccountId", "XXX")).block()
+
+        then:
+        thrown(CurrencyException)
+        0 * accountRepository._
+        transfers("failure") == 1
+    }
+
+    /**
+     * @return the response of the exchange rate API carrying the given rates, as decoded for the supported currencies.
+     */
+    private ExchangeRateResponse snapshot(Map<String, Double> rates, String result = "success") {
+        def currencies = currencyRegistry.currencies()
+        return new ExchangeRateResponse(result, currencies, currencies.collect { rates.getOrDefault(it.code, Double.NaN) } as double[])
+    }
+}
@@ -0,0 +1,37 @@
+package com.money.transfer.app.service
+
+import com.money.transfer.app.dto.ReconciliationDiscrepancy
+import com.money.transfer.app.dto.ReconciliationReport
+import spock.lang.Specification
+
+class ReconciliationJobSpec extends Specification {
+
+    private ReconciliationService reconciliationService
+
+    private ReconciliationJob reconciliationJob
+
+    def setup() {
+        reconciliationService = Mock(ReconciliationService)
+        reconciliationJob = new ReconciliationJob(reconciliationService)
+    }
+
+    def "test reconcile"() {
+        given:
+        def discrepancy = new ReconciliationDiscrepancy("accountId", "EUR", 12.50, 12.00)
+
+        when:
+        reconciliationJob.reconcile()
+
+        then:
+        1 * reconciliationService.reconcile() >> ReconciliationReport.builder().discrepancies([discrepancy]).build()
+    }
+
+    def "test reconcile fail is logged"() {
+        when:
+        reconciliationJob.reconcile()
+
+        then:
+        1 * reconciliationService.reconcile() >> { throw new IllegalStateException("connection reset") }
+        noExceptionThrown()
+    }
+}
@@ -0,0 +1,107 @@
+package com.money.transfer.app.service
+
+import com.money.transfer.app.dto.ReconciliationDiscrepancy
+import com.money.transfer.app.repository.ReconciliationRepository
+import spock.lang.Specification
+
+/**
+ * Unit test for the ReconciliationService, which aggregates the transactions it is handed
+ * in parallel and compares the result with the balances of the accounts.
+ */
+class ReconciliationServiceImplSpec extends Specification {
+
+    private ReconciliationRepository reconciliationRepository
+
+    def setup() {
+        reconciliationRepository = Mock(ReconciliationRepository)
+    }
+
+    /**
+     * Stubs the repository with the given accounts, as {@code [id, currency, scale, balance, openingBalance]}
+     * with a null opening balance for an unreconcilable account, and transactions,
+     * as {@code [sourceAccountId, targetAccountId, sourceAmount, targetAmount]}.
+     */
+    private void stub(List<List> accounts, List<List> transactions) {
+        reconciliationRepository.forEachAccount(_) >> { args ->
+            accounts.each { args[0].account(it[0], it[1], it[2], it[3], it[4] != null, it[4] ?: 0L) }
+        }
+        reconciliationRepository.forEachTransaction(_) >> { args ->
+            transactions.each { args[0].transaction(it[0], it[1], it[2], it[3]) }
+        }
+    }
+
+    def "test reconcile"() {
+        given:
+        stub([["eur", "EUR", 2, 1000L, 1250L],
+              ["jpy", "JPY", 0, 135L, 0L],
+              ["short", "EUR", 2, 80L, 100L],
+              ["legacy", "USD", 2, 999L, null]],
+                [["eur", "jpy", 250L, 135L],
+                 ["legacy", "short", 1L, 20L],
+                 ["short", "legacy", 30L, 0L]])
+
+        when:
+        def report = new ReconciliationServiceImpl(reconciliationRepository, 2, 2).reconcile()
+
+        then:
+        report.reconciledAt != null
+        report.accounts == 4
+        report.transactions == 3
+        report.unreconcilable == 1
+        report.discrepancies == [new ReconciliationDiscrepancy("short", "EUR", 0.90, 0.80)]
+    }
+
+    /**
+     * Verifies that chunks larger than a leaf task are split, that reading waits for the oldest chunk once
+     * two chunks per worker are queued, and that discrepancies are reported in the order of the accounts.
+     */
+    def "test reconcile in parallel"() {
+        given:
+        int accountCount = 3000
+        def deltas = new long[accountCount]
+        def transactions = (0..30000).collect {
+            int source = it % accountCount
+            int target = (7 * it + 1) % accountCount
+            deltas[source] -= 2
+            deltas[target] += 3
+            ["account-" + source, "account-" + target, 2L, 3L]
+        }
+        def accounts = (0..<accountCount).collect { ["account-" + it, "JPY", 0, 1000L + deltas[it], 1000L] }
+        accounts[0][3] += 1
+        accounts[accountCount - 1][3] -= 1
+        stub(accounts, transactions)
+
+        when:
+        def report = new ReconciliationServiceImpl(reconciliationRepository, 2, 5000).reconcile()
+
+        then:
+        report.accounts == accountCount
+        report.transactions == 30001
+        report.unreconcilable == 0
+        report.discrepancies*.accountId == ["account-0", "account-" + (accountCount - 1)]
+        report.discrepancies*.actualBalance == [1001 + deltas[0], 999 + deltas[accountCount - 1]]
+    }
+
+    def "test reconcile without transactions on every core"() {
+        given:
+        stub([["eur", "EUR", 2, 1000L, 1000L], ["jpy", "JPY", 0, 5L, 0L]], [])
+
+        when:
+        def report = new ReconciliationServiceImpl(reconciliationRepository, 0, 10).reconcile()
+
+        then:
+        report.transactions == 0
+        report.discrepancies == [new ReconciliationDiscrepancy("jpy", "JPY", BigDecimal.valueOf(0), BigDecimal.valueOf(5))]
+    }
+
+    def "test reconcile fails for a transaction of an unknown account"() {
+        given:
+        stub([["eur", "EUR", 2, 1000L, 1000L]], [["eur", "missing", 1L, 1L]])
+
+        when:
+        new ReconciliationServiceImpl(reconciliationRepository, 1, 10).reconcile()
+
+        then:
+        thrown(ArrayIndexOutOfBoundsException)
+    }
+}
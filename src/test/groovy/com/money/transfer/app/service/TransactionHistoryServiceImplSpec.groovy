@@ -0,0 +1,197 @@
+package com.money.transfer.app.service
+
+import com.money.transfer.app.entity.Currency
+import com.money.transfer.app.exception.InvalidCursorException
+import com.money.transfer.app.exception.InvalidPageSizeException
+import com.money.transfer.app.exception.NonExistentAccountException
+import com.money.transfer.app.repository.AccountRepository
+import com.money.transfer.app.repository.CurrencyRepository
+import com.money.transfer.app.repository.TransactionRepository
+import com.money.transfer.app.repository.TransactionSummary
+import org.springframework.data.domain.PageRequest
+import spock.lang.Specification
+
+import java.nio.charset.StandardCharsets
+import java.time.LocalDateTime
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.INVALID_CURSOR_EXCEPTION_MESSAGE
+import static com.money.transfer.app.util.constants.ExceptionConstants.INVALID_PAGE_SIZE_EXCEPTION_MESSAGE
+
+/**
+ * Unit test for the TransactionHistoryService, which pages through transaction histories with keyset pagination.
+ */
+class TransactionHistoryServiceImplSpec extends Specification {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 5, 1, 12, 0)
+
+    private AccountRepository accountRepository
+
+    private TransactionRepository transactionRepository
+
+    private TransactionHistoryServiceImpl transactionHistoryService
+
+    def setup() {
+        accountRepository = Mock(AccountRepository)
+        accountRepository.existsById(_) >> true
+        transactionRepository = Mock(TransactionRepository)
+        def currencyRepository = Mock(CurrencyRepository)
+        currencyRepository.findAll() >> [new Currency("EUR", "Euro", "Eurozone", 2),
+                                         new Currency("JPY", "Japanese Yen", "Japan", 0)]
+        def currencyRegistry = new CurrencyRegistry(currencyRepository)
+        currencyRegistry.refresh()
+        transactionHistoryService = new TransactionHistoryServiceImpl(accountRepository, transactionRepository,
+                currencyRegistry, 2, 10)
+    }
+
+    /**
+     * Verifies that the outgoing and incoming transactions of an account are merged newest first
+     * and that a full page ends with a cursor after its last transaction.
+     */
+    def "test first page of an account history"() {
+        when:
+        def page = transactionHistoryService.accountHistory("account", 3, null)
+
+        then:
+        1 * transactionRepository.findOutgoing("account", PageRequest.of(0, 4)) >>
+                [summary("t5", 5, "account", "other"), summary("t3", 3, "account", "other"), summary("t1", 1, "account", "other")]
+        1 * transactionRepository.findIncoming("account", PageRequest.of(0, 4)) >>
+                [summary("t4", 4, "other", "account"), summary("t2", 2, "other", "account")]
+        page.transactions*.id == ["t5", "t4", "t3"]
+        page.transactions[1].sourceAccountId == "other"
+        page.transactions[1].targetAccountId == "account"
+        page.transactions[0].amount == 10.50
+        page.transactions[0].currency == "EUR"
+        page.transactions[0].orderedAt == START.plusMinutes(5)
+        page.nextCursor == cursor(START.plusMinutes(3), "t3")
+    }
+
+    /**
+     * Verifies that the cursor of a page positions the next one and that the last page has no cursor.
+     */
+    def "test next page of an account history"() {
+        when:
+        def page = transactionHistoryService.accountHistory("account", 3, cursor(START.plusMinutes(3), "t3"))
+
+        then:
+        1 * transactionRepository.findOutgoingBefore("account", START.plusMinutes(3), "t3", PageRequest.of(0, 4)) >>
+                [summary("t1", 1, "account", "other")]
+        1 * transactionRepository.findIncomingBefore("account", START.plusMinutes(3), "t3", PageRequest.of(0, 4)) >>
+                [summary("t2", 2, "other", "account"), summary("t0", 0, "other", "account")]
+        page.transactions*.id == ["t2", "t1", "t0"]
+        page.nextCursor == null
+    }
+
+    /**
+     * Verifies that transactions ordered at the same time are ordered by descending id, like the database orders them.
+     */
+    def "test transactions at the same time"() {
+        when:
+        def page = transactionHistoryService.accountHistory("account", null, null)
+
+        then:
+        1 * transactionRepository.findOutgoing("account", PageRequest.of(0, 3)) >> [summary("a", 1, "account", "other")]
+        1 * transactionRepository.findIncoming("account", PageRequest.of(0, 3)) >>
+                [summary("c", 1, "other", "account"), summary("b", 1, "other", "account")]
+        page.transactions*.id == ["c", "b"]
+        page.nextCursor == cursor(START.plusMinutes(1), "b")
+    }
+
+    def "test empty history"() {
+        given:
+        transactionRepository.findOutgoing(*_) >> []
+        transactionRepository.findIncoming(*_) >> []
+
+        when:
+        def page = transactionHistoryService.accountHistory("account", null, null)
+
+        then:
+        page.transactions.isEmpty()
+        page.nextCursor == null
+    }
+
+    def "test pages of the transfers between two accounts"() {
+        when:
+        def first = transactionHistoryService.pairHistory("source", "target", 1, null)
+        def next = transactionHistoryService.pairHistory("source", "target", 1, first.nextCursor)
+
+        then:
+        1 * transactionRepository.findBetween("source", "target", PageRequest.of(0, 2)) >>
+                [summary("t2", 2, "source", "target", 1050, "JPY"), summary("t1", 1, "source", "target")]
+        1 * transactionRepository.findBetweenBefore("source", "target", START.plusMinutes(2), "t2", PageRequest.of(0, 2)) >>
+                [summary("t1", 1, "source", "target")]
+        first.transactions*.id == ["t2"]
+        first.transactions[0].amount == 1050
+        first.transactions[0].amount.scale() == 0
+        next.transactions*.id == ["t1"]
+        next.nextCursor == null
+    }
+
+    def "test invalid page size"() {
+        when:
+        transactionHistoryService.accountHistory("account", limit, null)
+
+        then:
+        def e = thrown(InvalidPageSizeException)
+        e.message == String.format(INVALID_PAGE_SIZE_EXCEPTION_MESSAGE, 10)
+        0 * transactionRepository._
+
+        where:
+        limit << [0, -1, 11]
+    }
+
+    def "test invalid cursor"() {
+        when:
+        transactionHistoryService.pairHistory("source", "target", null, cursor)
+
+        then:
+        def e = thrown(InvalidCursorException)
+        e.message == String.format(INVALID_CURSOR_EXCEPTION_MESSAGE, cursor)
+        0 * transactionRepository._
+
+        where:
+        cursor << ["not base64!", encode("no separator"), encode("yesterday|t1")]
+    }
+
+    def "test non existent account"() {
+        when:
+        transactionHistoryService.pairHistory(source, target, null, null)
+
+        then:
+        1 * accountRepository.existsById("missing") >> false
+        thrown(NonExistentAccountException)
+        0 * transactionRepository._
+
+        where:
+        source    | target
+        "missing" | "target"
+        "source"  | "missing"
+    }
+
+    def "test non existent account history"() {
+        when:
+        transactionHistoryService.accountHistory("missing", null, null)
+
+        then:
+        1 * accountRepository.existsById("missing") >> false
+        thrown(NonExistentAccountException)
+        0 * transactionRepository._
+    }
+
+    private static TransactionSummary summary(String id, int minute, String source, String target,
+                                              long amount = 1050, String currency = "EUR") {
+        return [getId             : { id },
+                getSourceAccountId: { source },
+                getTargetAccountId: { target },
+                getAmount         : { amount },
+                getCurrency       : { currency },
+                getOrderedAt      : { START.plusMinutes(minute) }] as TransactionSummary
+    }
+
+    private static String cursor(LocalDateTime orderedAt, String id) {
+        return encode(orderedAt.toString() + "|" + id)
+    }
+
+    private static String encode(String position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8))
+    }
+}
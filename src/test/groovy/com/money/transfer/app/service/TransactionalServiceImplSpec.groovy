@@ -2,24 +2,50 @@ package com.money.transfer.app.service
 
 import com.money.transfer.app.dto.TransferRequestBody
 import com.money.transfer.app.entity.Account
+import com.money.transfer.app.entity.Currency
+import com.money.transfer.app.entity.Transaction
+import com.money.transfer.app.exception.LowBalanceException
+import com.money.transfer.app.exception.NonExistentAccountException
 import com.money.transfer.app.repository.AccountRepository
+import com.money.transfer.app.repository.BalanceSlotRepository
+import com.money.transfer.app.repository.CurrencyRepository
 import com.money.transfer.app.repository.TransactionRepository
+import org.springframework.dao.OptimisticLockingFailureException
+import org.springframework.jdbc.core.JdbcTemplate
 import spock.lang.Specification
 
 import java.time.LocalDateTime
 
+import static com.money.transfer.app.util.constants.ExceptionConstants.LOW_BALANCE_EXCEPTION_MESSAGE
+
 class TransactionalServiceImplSpec extends Specification {
 
     private AccountRepository accountRepository
 
     private TransactionRepository transactionRepository
 
+    private JdbcTemplate jdbcTemplate
+
+    private CurrencyRegistry currencyRegistry
+
+    private BalanceSlotRepository balanceSlotRepository
+
+    private BalanceSlotService balanceSlotService
+
     private TransactionalServiceImpl transactionService
 
     def setup(){
         accountRepository = Mock(AccountRepository)
         transactionRepository = Mock(TransactionRepository)
-        transactionService = new TransactionalServiceImpl(accountRepository, transactionRepository)
+        jdbcTemplate = Mock(JdbcTemplate)
+        def currencyRepository = Mock(CurrencyRepository)
+        currencyRepository.findAll() >> [new Currency("EUR", "Euro", "Eurozone", 2)]
+        currencyRegistry = new CurrencyRegistry(currencyRepository)
+        currencyRegistry.refresh()
+        balanceSlotRepository = Mock(BalanceSlotRepository)
+        balanceSlotService = new BalanceSlotServiceImpl(accountRepository, balanceSlotRepository)
+        transactionService = new TransactionalServiceImpl(accountRepository, transactionRepository, jdbcTemplate,
+                currencyRegistry, balanceSlotService, LockingMode.PESSIMISTIC)
     }
 
     def "test processTransaction"(){
@@ -32,14 +58,249 @@ class TransactionalServiceImplSpec extends Specification {
                 .sourceAccountId(sourceAccount.getId())
                 .targetAccountId(targetAccount.getId())
                 .build()
-        float amountInSourceCurrency = requestBody.getAmount()
-        float amountInTargetCurrency = requestBody.getAmount()
+        long amountInSourceCurrency = 1000
+        long amountInTargetCurrency = 1000
+        def currentSourceAccount = new Account("sourceAccountId", 40000, "EUR", LocalDateTime.now().minusYears(1))
+        def currentTargetAccount = new Account("targetAccountId", 20000, "EUR", LocalDateTime.now().minusMonths(2))
 
         when:
-        transactionService = transactionService.processTransaction(
-                sourceAccount, targetAccount, amountInSourceCurrency, amountInTargetCurrency, requestBody)
+        transactionService.processTransaction(
+                sourceAccount, targetAccount, amountInSourceCurrency, amountInTargetCurrency, 1000, requestBody, "idempotencyKey")
 
         then:
         noExceptionThrown()
+        1 * accountRepository.findAllByIdForUpdate(["sourceAccountId", "targetAccountId"]) >>
+                [currentSourceAccount, currentTargetAccount]
+        0 * accountRepository.findAllById(_)
+        1 * accountRepository.save(currentSourceAccount)
+        1 * accountRepository.save(currentTargetAccount)
+        1 * transactionRepository.save({ Transaction t -> t.sourceAccount.is(currentSourceAccount) && t.amount == 1000 && t.sourceAmount == 1000 && t.targetAmount == 1000 && t.idempotencyKey == "idempotencyKey" })
+        currentSourceAccount.balance == 39000
+        currentTargetAccount.balance == 21000
+    }
+
+    def "test processTransaction optimistic"(){
+        given:
+        transactionService = new TransactionalServiceImpl(accountRepository, transactionRepository, jdbcTemplate,
+                currencyRegistry, balanceSlotService, LockingMode.OPTIMISTIC)
+        def sourceAccount = new Account("sourceAccountId", 500, "EUR", LocalDateTime.now().minusYears(1))
+        def targetAccount = new Account("targetAccountId", 100, "EUR", LocalDateTime.now().minusMonths(2))
+        def requestBody = TransferRequestBody.builder()
+                .amount(10)
+                .currency("EUR")
+                .build()
+
+        when:
+        transactionService.processTransaction(sourceAccount, targetAccount, 10, 10, 10, requestBody, null)
+
+        then:
+        1 * accountRepository.findAllById(["sourceAccountId", "targetAccountId"]) >> [targetAccount, sourceAccount]
+        0 * accountRepository.findAllByIdForUpdate(_)
+        sourceAccount.balance == 490
+        targetAccount.balance == 110
+    }
+
+    def "test processTransaction low current balance"(){
+        given:
+        def sourceAccount = new Account("sourceAccountId", 500, "EUR", LocalDateTime.now().minusYears(1))
+        def targetAccount = new Account("targetAccountId", 100, "EUR", LocalDateTime.now().minusMonths(2))
+        def currentSourceAccount = new Account("sourceAccountId", 5, "EUR", LocalDateTime.now().minusYears(1))
+        def requestBody = TransferRequestBody.builder()
+                .amount(new BigDecimal("0.10"))
+                .currency("EUR")
+                .build()
+        accountRepository.findAllByIdForUpdate(_) >> [currentSourceAccount, targetAccount]
+
+        when:
+        transactionService.processTransaction(sourceAccount, targetAccount, 10, 10, 10, requestBody, null)
+
+        then:
+        def e = thrown(LowBalanceException)
+        e.message == String.format(LOW_BALANCE_EXCEPTION_MESSAGE, "0.10", "EUR", "0.05", "EUR")
+        0 * accountRepository.save(_)
+        0 * transactionRepository.save(_)
+    }
+
+    def "test processTransaction account removed"(){
+        given:
+        def sourceAccount = new Account("sourceAccountId", 500, "EUR", LocalDateTime.now().minusYears(1))
+        def targetAccount = new Account("targetAccountId", 100, "EUR", LocalDateTime.now().minusMonths(2))
+        accountRepository.findAllByIdForUpdate(_) >> [sourceAccount]
+
+        when:
+        transactionService.processTransaction(sourceAccount, targetAccount, 10, 10, 10, new TransferRequestBody(), null)
+
+        then:
+        thrown(NonExistentAccountException)
+    }
+
+    def "test processTransactions"(){
+        given:
+        def sourceAccount = new Account("sourceAccountId", 1500, "EUR", LocalDateTime.now().minusYears(1))
+        def targetAccount = new Account("targetAccountId", 100, "USD", LocalDateTime.now().minusMonths(2))
+        def orderedAt = LocalDateTime.now()
+        def transactions = [
+                Transaction.builder().sourceAccount(sourceAccount).targetAccount(targetAccount)
+                        .amount(10).currency("EUR").sourceAmount(1000).targetAmount(1080).orderedAt(orderedAt).build(),
+                Transaction.builder().sourceAccount(sourceAccount).targetAccount(targetAccount)
+                        .amount(5).currency("EUR").sourceAmount(500).targetAmount(540).orderedAt(orderedAt)
+                        .idempotencyKey("key").build()]
+        def balanceDeltas = ["targetAccountId": 1620L, "sourceAccountId": -1500L]
+
+        when:
+        transactionService.processTransactions(transactions, balanceDeltas)
+
+        then:
+        1 * jdbcTemplate.batchUpdate({ it.startsWith("UPDATE public.account") }, { List<Object[]> args ->
+            args*.getAt(1) == ["sourceAccountId", "targetAccountId"] && args[0][0] == -1500L && args[0][2] == -1500L
+        }) >> ([1, 1] as int[])
+        1 * jdbcTemplate.batchUpdate({ it.startsWith("INSERT INTO public.transaction") }, { List<Object[]> args ->
+            args.size() == 2 && args[0][0] == "sourceAccountId" && args[0][1] == "targetAccountId" && args[1][2] == 5L &&
+                    args[0][4] == 1000L && args[0][5] == 1080L && args[0][7] == null && args[1][7] == "key"
+        })
+        1 * accountRepository.findAllByIdForUpdate(["sourceAccountId", "targetAccountId"]) >> [sourceAccount, targetAccount]
+        0 * accountRepository._
+        0 * transactionRepository._
+    }
+
+    /**
+     * Verifies that a debit is covered only by the balance and the credits received before it in the unit,
+     * not by the net effect of the unit, so transfers crossing between empty accounts are rejected.
+     */
+    def "test processTransactions crossing transfers"(){
+        given:
+        def a = new Account("a", aBalance, "EUR", LocalDateTime.now().minusYears(1))
+        def b = new Account("b", bBalance, "EUR", LocalDateTime.now().minusYears(1))
+        def transactions = [
+                Transaction.builder().sourceAccount(first == "a" ? a : b).targetAccount(first == "a" ? b : a)
+                        .amount(10).currency("EUR").sourceAmount(10).targetAmount(10).orderedAt(LocalDateTime.now()).build(),
+                Transaction.builder().sourceAccount(first == "a" ? b : a).targetAccount(first == "a" ? a : b)
+                        .amount(10).currency("EUR").sourceAmount(10).targetAmount(10).orderedAt(LocalDateTime.now()).build()]
+        accountRepository.findAllByIdForUpdate(["a", "b"]) >> [a, b]
+
+        when:
+        transactionService.processTransactions(transactions, ["a": 0L, "b": 0L])
+
+        then:
+        def e = thrown(OptimisticLockingFailureException)
+        e.message == "Account $rejected cannot cover its debit in the unit."
+        0 * jdbcTemplate._
+
+        where:
+        aBalance | bBalance | first || rejected
+        0        | 0        | "a"   || "a"
+        0        | 0        | "b"   || "b"
+        10       | 0        | "b"   || "b"
+    }
+
+    /**
+     * Verifies that a debit covered by a credit received earlier in the unit is accepted.
+     */
+    def "test processTransactions debit covered by an earlier credit"(){
+        given:
+        def a = new Account("a", 10, "EUR", LocalDateTime.now().minusYears(1))
+        def b = new Account("b", 0, "EUR", LocalDateTime.now().minusYears(1))
+        def transactions = [
+                Transaction.builder().sourceAccount(a).targetAccount(b)
+                        .amount(10).currency("EUR").sourceAmount(10).targetAmount(10).orderedAt(LocalDateTime.now()).build(),
+                Transaction.builder().sourceAccount(b).targetAccount(a)
+                        .amount(10).currency("EUR").sourceAmount(10).targetAmount(10).orderedAt(LocalDateTime.now()).build()]
+        accountRepository.findAllByIdForUpdate(["a", "b"]) >> [a, b]
+
+        when:
+        transactionService.processTransactions(transactions, ["a": 0L, "b": 0L])
+
+        then:
+        1 * jdbcTemplate.batchUpdate({ it.startsWith("UPDATE public.account") }, _ as List) >> ([1, 1] as int[])
+        1 * jdbcTemplate.batchUpdate({ it.startsWith("INSERT INTO public.transaction") }, { it.size() == 2 })
+    }
+
+    def "test processTransactions concurrent overdraft"(){
+        given:
+        def balanceDeltas = ["sourceAccountId": -1500L, "targetAccountId": 1500L]
+        accountRepository.findAllByIdForUpdate(_) >> []
+        jdbcTemplate.batchUpdate({ it.startsWith("UPDATE public.account") }, _ as List) >> ([0, 1] as int[])
+
+        when:
+        transactionService.processTransactions([], balanceDeltas)
+
+        then:
+        def e = thrown(OptimisticLockingFailureException)
+        e.message == "Balance of account sourceAccountId changed concurrently."
+        0 * jdbcTemplate.batchUpdate({ it.startsWith("INSERT") }, _ as List)
+    }
+
+    def "test processTransaction to an account with balance slots"(){
+        given:
+        def sourceAccount = new Account("sourceAccountId", 500, "EUR", LocalDateTime.now().minusYears(1))
+        def targetAccount = new Account("targetAccountId", 100, "EUR", LocalDateTime.now().minusMonths(2), 0, 4)
+        def targetReference = new Account("targetAccountId", 0, "EUR", null)
+        def requestBody = TransferRequestBody.builder()
+                .amount(10)
+                .currency("EUR")
+                .build()
+
+        when:
+        transactionService.processTransaction(sourceAccount, targetAccount, 10, 10, 10, requestBody, null)
+
+        then:
+        1 * accountRepository.findAllByIdForUpdate(["sourceAccountId"]) >> [sourceAccount]
+        1 * balanceSlotRepository.credit("targetAccountId", { it >= 0 && it < 4 }, 10) >> 1
+        1 * accountRepository.getReferenceById("targetAccountId") >> targetReference
+        1 * accountRepository.save(sourceAccount)
+        0 * accountRepository.save(_)
+        1 * transactionRepository.save({ Transaction t -> t.targetAccount.is(targetReference) })
+        sourceAccount.balance == 490
+        targetAccount.balance == 100
+    }
+
+    def "test processTransaction from an account with balance slots"(){
+        given:
+        def sourceAccount = new Account("sourceAccountId", 5, "EUR", LocalDateTime.now().minusYears(1), 0, 4)
+        def targetAccount = new Account("targetAccountId", 100, "EUR", LocalDateTime.now().minusMonths(2))
+        def requestBody = TransferRequestBody.builder()
+                .amount(new BigDecimal("0.10"))
+                .currency("EUR")
+                .build()
+        accountRepository.findAllByIdForUpdate(_) >> [sourceAccount, targetAccount]
+        balanceSlotRepository.sumBalance("sourceAccountId") >>> [20, 4]
+
+        when:
+        transactionService.processTransaction(sourceAccount, targetAccount, 10, 10, 10, requestBody, null)
+
+        then:
+        sourceAccount.balance == -5
+        targetAccount.balance == 110
+
+        when:
+        transactionService.processTransaction(sourceAccount, targetAccount, 10, 10, 10, requestBody, null)
+
+        then:
+        def e = thrown(LowBalanceException)
+        e.message == String.format(LOW_BALANCE_EXCEPTION_MESSAGE, "0.10", "EUR", "-0.01", "EUR")
+    }
+
+    def "test processTransactions debiting an account with balance slots"(){
+        given:
+        def sourceAccount = new Account("sourceAccountId", 0, "EUR", LocalDateTime.now().minusYears(1), 0, 4)
+        def targetAccount = new Account("targetAccountId", 100, "EUR", LocalDateTime.now().minusMonths(2), 0, 4)
+        def transactions = [Transaction.builder().sourceAccount(sourceAccount).targetAccount(targetAccount)
+                                    .amount(10).currency("EUR").sourceAmount(10).targetAmount(10)
+                                    .orderedAt(LocalDateTime.now()).build(),
+                            Transaction.builder().sourceAccount(targetAccount).targetAccount(sourceAccount)
+                                    .amount(5).currency("EUR").sourceAmount(5).targetAmount(5)
+                                    .orderedAt(LocalDateTime.now()).build()]
+        def balanceDeltas = ["targetAccountId": 5L, "sourceAccountId": -5L]
+
+        when:
+        transactionService.processTransactions(transactions, balanceDeltas)
+
+        then:
+        1 * accountRepository.findAllByIdForUpdate(["sourceAccountId", "targetAccountId"]) >> [sourceAccount, targetAccount]
+        1 * balanceSlotRepository.sumBalances(["sourceAccountId", "targetAccountId"]) >>
+                [["sourceAccountId", 30L] as Object[], ["targetAccountId", 0L] as Object[]]
+        1 * jdbcTemplate.batchUpdate({ it.startsWith("UPDATE public.account") }, { List<Object[]> args ->
+            args[0] as List == [-5L, "sourceAccountId", -5L, 30L] && args[1] as List == [5L, "targetAccountId", 5L, 0L]
+        }) >> ([1, 1] as int[])
     }
 }
@@ -0,0 +1,86 @@
+package com.money.transfer.app.service
+
+import com.money.transfer.app.MoneyTransferApplication
+import com.money.transfer.app.dto.TransferRequestBody
+import com.money.transfer.app.entity.Account
+import com.money.transfer.app.repository.AccountRepository
+import org.springframework.beans.factory.annotation.Autowired
+import org.springframework.boot.test.context.SpringBootTest
+import org.springframework.test.context.ActiveProfiles
+import org.springframework.test.context.TestPropertySource
+import spock.lang.Specification
+
+import java.time.LocalDateTime
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.atomic.AtomicInteger
+
+/**
+ * Integration test running many concurrent transfers back and forth between the same two accounts
+ * against an H2 database, verifying that no balance update is lost under the configured locking and persistence mode.
+ * Subclasses select the mode; the achieved throughput is printed for comparison.
+ */
+@ActiveProfiles("test")
+@TestPropertySource(locations = "classpath:test.properties")
+@SpringBootTest(classes = MoneyTransferApplication)
+abstract class TransferContentionIS extends Specification {
+
+    protected static final int THREADS = 8
+
+    protected static final int TRANSFERS_PER_THREAD = 50
+
+    @Autowired
+    protected AccountRepository accountRepository
+
+    @Autowired
+    protected MoneyTransferService moneyTransferService
+
+    def "test concurrent transfers do not lose updates"() {
+        given:
+        def first = accountRepository.save(new Account(null, 100000, "EUR", LocalDateTime.now()))
+        def second = accountRepository.save(new Account(null, 100000, "EUR", LocalDateTime.now()))
+        def completedFromFirst = new AtomicInteger()
+        def completedFromSecond = new AtomicInteger()
+        def failed = new AtomicInteger()
+        def start = new CountDownLatch(1)
+        def executor = Executors.newFixedThreadPool(THREADS)
+
+        when:
+        def futures = (1..THREADS).collect { thread ->
+            executor.submit({
+                start.await()
+                TRANSFERS_PER_THREAD.times { i ->
+                    def forward = (thread + i) % 2 == 0
+                    def request = TransferRequestBody.builder()
+                            .amount(1)
+                            .currency("EUR")
+                            .sourceAccountId(forward ? first.id : second.id)
+                            .targetAccountId(forward ? second.id : first.id)
+                            .build()
+                    try {
+                        moneyTransferService.transfer(request)
+                        (forward ? completedFromFirst : completedFromSecond).incrementAndGet()
+                    } catch (RuntimeException ignored) {
+                        failed.incrementAndGet()
+                    }
+                }
+            } as Callable)
+        }
+        long started = System.nanoTime()
+        start.countDown()
+        futures.each { it.get() }
+        long elapsedMillis = (System.nanoTime() - started) / 1_000_000
+
+        then:
+        def firstBalance = accountRepository.findById(first.id).get().balance
+        def secondBalance = accountRepository.findById(second.id).get().balance
+        firstBalance == 100000 - 100 * (completedFromFirst.get() - completedFromSecond.get())
+        secondBalance == 100000 + 100 * (completedFromFirst.get() - completedFromSecond.get())
+        println "${getClass().simpleName}: ${completedFromFirst.get() + completedFromSecond.get()} transfers completed, " +
+                "${failed.get()} failed in ${elapsedMillis} ms"
+
+        cleanup:
+        executor.shutdownNow()
+    }
+}
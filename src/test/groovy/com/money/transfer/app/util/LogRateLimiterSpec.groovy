@@ -0,0 +1,45 @@
+package com.money.transfer.app.util
+
+import spock.lang.Specification
+
+class LogRateLimiterSpec extends Specification {
+
+    def "test lines over the limit are held back and counted until the next second"() {
+        given:
+        long now = 0
+        def limiter = new LogRateLimiter(2, { now })
+
+        when:
+        def first = (1..5).collect { limiter.acquire() }
+        now = 1_500_000_000L
+        def second = (1..3).collect { limiter.acquire() }
+
+        then:
+        first == [0L, 0L, -1L, -1L, -1L]
+        second == [3L, 0L, -1L]
+    }
+
+    def "test a caller late with the previous second does not start it again"() {
+        given:
+        long now = 1_000_000_000L
+        def limiter = new LogRateLimiter(1, { now })
+
+        when:
+        def current = limiter.acquire()
+        now = 999_999_999L
+        def late = limiter.acquire()
+
+        then:
+        current == 0L
+        late == -1L
+    }
+
+    def "test nothing is let through with a limit of zero"() {
+        given:
+        def limiter = new LogRateLimiter(0)
+
+        expect:
+        limiter.acquire() == -1L
+        limiter.acquire() == -1L
+    }
+}
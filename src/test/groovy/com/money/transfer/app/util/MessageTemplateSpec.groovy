@@ -0,0 +1,35 @@
+package com.money.transfer.app.util
+
+import spock.lang.Specification
+
+import static com.money.transfer.app.util.constants.ExceptionConstants.*
+
+class MessageTemplateSpec extends Specification {
+
+    def "test formatting matches String.format"() {
+        expect:
+        MessageTemplate.of(pattern).format(args as Object[]) == String.format(pattern, args as Object[])
+
+        where:
+        pattern                                | args
+        NON_EXISTENT_ACCOUNT_EXCEPTION_MESSAGE | ["accountId"]
+        LOW_BALANCE_EXCEPTION_MESSAGE          | ["15.00", "EUR", "11.00", "USD"]
+        INVALID_PAGE_SIZE_EXCEPTION_MESSAGE    | [500]
+        SAME_ACCOUNT_EXCEPTION_MESSAGE         | []
+        "%s%d"                                 | [null, 7]
+    }
+
+    def "test other percent signs are kept as they are"() {
+        expect:
+        MessageTemplate.of("100% of %s, up by 5%").format("it") == "100% of it, up by 5%"
+    }
+
+    def "test the arguments must match the placeholders"() {
+        when:
+        MessageTemplate.of(NON_EXISTENT_ACCOUNT_EXCEPTION_MESSAGE).format("first", "second")
+
+        then:
+        def e = thrown(IllegalArgumentException)
+        e.message == "Expected 1 arguments but got 2"
+    }
+}
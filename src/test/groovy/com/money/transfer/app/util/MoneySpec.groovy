@@ -0,0 +1,67 @@
+package com.money.transfer.app.util
+
+import spock.lang.Specification
+
+class MoneySpec extends Specification {
+
+    def "test toMinorUnits"() {
+        expect:
+        Money.toMinorUnits(new BigDecimal(amount), scale) == minorUnits
+
+        where:
+        amount     | scale | minorUnits
+        "128.5"    | 2     | 12850
+        "128.500"  | 2     | 12850
+        "1000"     | 0     | 1000
+        "0.001"    | 3     | 1
+        "-2.25"    | 2     | -225
+    }
+
+    def "test toMinorUnits rejects amounts finer than the minor unit"() {
+        when:
+        Money.toMinorUnits(new BigDecimal(amount), scale)
+
+        then:
+        thrown(ArithmeticException)
+
+        where:
+        amount                  | scale
+        "1.005"                 | 2
+        "0.5"                   | 0
+        "99999999999999999999"  | 0
+    }
+
+    def "test format"() {
+        expect:
+        Money.format(506950, 2) == "5069.50"
+        Money.format(36981, 0) == "36981"
+        Money.format(-5, 3) == "-0.005"
+        Money.toMajorUnits(1, 2) == new BigDecimal("0.01")
+    }
+
+    def "test convert rounds half to even"() {
+        expect:
+        Money.convert(amount, fromScale, rate, toScale) == converted
+
+        where:
+        amount | fromScale | rate     | toScale | converted
+        100    | 2         | 1.1682d  | 2       | 117
+        1250   | 2         | 162.5d   | 0       | 2031
+        1000   | 0         | 0.00625d | 2       | 625
+        25     | 2         | 0.5d     | 2       | 12
+        35     | 2         | 0.5d     | 2       | 18
+        -35    | 2         | 0.5d     | 2       | -18
+        1      | 3         | 1d       | 0       | 0
+    }
+
+    def "test convert out of range"() {
+        when:
+        Money.convert(amount, 0, 10d, 0)
+
+        then:
+        thrown(ArithmeticException)
+
+        where:
+        amount << [Long.MAX_VALUE, Long.MIN_VALUE]
+    }
+}